@@ -27,12 +27,14 @@ import io.crate.common.Hex;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 public class BlobContainer {
 
@@ -42,8 +44,22 @@ public class BlobContainer {
 
     public static final byte[] PREFIXES = new byte[256];
 
+    private static final String STATS_FILE = "stats";
+    private static final int STATS_FORMAT_VERSION = 1;
+
     private final File[] subDirs = new File[256];
 
+    /**
+     * The number and total size of the blobs per sub-directory.
+     * Updates are done while holding the lock of the sub-directory, together with the file operation.
+     */
+    private final Object[] locks = new Object[256];
+    private final AtomicLongArray counts = new AtomicLongArray(256);
+    private final AtomicLongArray sizes = new AtomicLongArray(256);
+    private final boolean[] statsLoaded = new boolean[256];
+    private final Object statsFileLock = new Object();
+    private volatile boolean statsPersisted = false;
+
     static {
         for (int i = 0; i < 256; i++) {
             SUB_DIRS[i] = String.format(Locale.ENGLISH, "%02x", i & 0xFFFFF);
@@ -74,6 +90,10 @@ public class BlobContainer {
         }
 
         createSubDirectories(this.varDirectory);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        loadStats();
     }
 
     /**
@@ -90,6 +110,153 @@ public class BlobContainer {
         }
     }
 
+    /**
+     * @return the number of blobs in this container.
+     * Sub-directories whose stats haven't been rebuilt yet (see {@link #rebuildStats()}) are not included.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the total size in bytes of the blobs in this container.
+     * Sub-directories whose stats haven't been rebuilt yet (see {@link #rebuildStats()}) are not included.
+     */
+    public long totalUsage() {
+        long totalUsage = 0;
+        for (int i = 0; i < sizes.length(); i++) {
+            totalUsage += sizes.get(i);
+        }
+        return totalUsage;
+    }
+
+    /**
+     * @return true if the stats of all sub-directories are known
+     */
+    public boolean hasStats() {
+        for (int i = 0; i < locks.length; i++) {
+            synchronized (locks[i]) {
+                if (!statsLoaded[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Walks all sub-directories whose stats are not known yet and counts their blobs.
+     * Blobs which are added or deleted concurrently are accounted correctly as every sub-directory is
+     * locked while it is walked.
+     */
+    public void rebuildStats() {
+        for (int i = 0; i < subDirs.length; i++) {
+            synchronized (locks[i]) {
+                if (statsLoaded[i]) {
+                    continue;
+                }
+                long count = 0;
+                long size = 0;
+                String[] names = subDirs[i].list();
+                if (names != null) {
+                    for (String name : names) {
+                        // leftover of an interrupted recovery, see cleanDigests
+                        if (name.contains(".")) {
+                            continue;
+                        }
+                        count++;
+                        size += new File(subDirs[i], name).length();
+                    }
+                }
+                counts.set(i, count);
+                sizes.set(i, size);
+                statsLoaded[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the stats to disk so that they don't need to be rebuilt when the container is opened again.
+     * Any blob which is added or deleted afterwards invalidates the persisted stats.
+     */
+    public void persistStats() throws IOException {
+        if (!hasStats()) {
+            return;
+        }
+        synchronized (statsFileLock) {
+            statsPersisted = true;
+            File tmpFile = new File(baseDirectory, STATS_FILE + ".tmp");
+            CRC32 checksum = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)), checksum))) {
+                out.writeInt(STATS_FORMAT_VERSION);
+                for (int i = 0; i < counts.length(); i++) {
+                    out.writeLong(counts.get(i));
+                    out.writeLong(sizes.get(i));
+                }
+                out.writeLong(checksum.getValue());
+            }
+            Files.move(tmpFile.toPath(), new File(baseDirectory, STATS_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Reads the stats persisted by {@link #persistStats()} and deletes them, so that they're not used again if
+     * the node isn't shut down cleanly. If there are no valid stats they need to be rebuilt.
+     */
+    private void loadStats() {
+        File statsFile = new File(baseDirectory, STATS_FILE);
+        if (!statsFile.exists()) {
+            return;
+        }
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+            new BufferedInputStream(new FileInputStream(statsFile)), checksum))) {
+            if (in.readInt() == STATS_FORMAT_VERSION) {
+                long[] loadedCounts = new long[counts.length()];
+                long[] loadedSizes = new long[sizes.length()];
+                for (int i = 0; i < loadedCounts.length; i++) {
+                    loadedCounts[i] = in.readLong();
+                    loadedSizes[i] = in.readLong();
+                }
+                long expectedChecksum = checksum.getValue();
+                if (in.readLong() == expectedChecksum) {
+                    for (int i = 0; i < loadedCounts.length; i++) {
+                        counts.set(i, loadedCounts[i]);
+                        sizes.set(i, loadedSizes[i]);
+                        statsLoaded[i] = true;
+                    }
+                } else {
+                    logger.warn("Checksum mismatch in blob stats {}, stats will be rebuilt", statsFile.getAbsolutePath());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read blob stats {}, stats will be rebuilt", e, statsFile.getAbsolutePath());
+        }
+        if (!statsFile.delete()) {
+            logger.warn("Could not delete blob stats {}", statsFile.getAbsolutePath());
+        }
+    }
+
+    private void invalidatePersistedStats() {
+        if (statsPersisted) {
+            synchronized (statsFileLock) {
+                if (statsPersisted) {
+                    statsPersisted = false;
+                    File statsFile = new File(baseDirectory, STATS_FILE);
+                    if (statsFile.exists() && !statsFile.delete()) {
+                        logger.warn("Could not delete blob stats {}", statsFile.getAbsolutePath());
+                    }
+                }
+            }
+        }
+    }
+
     public Iterable<File> getFiles() {
         return new RecursiveFileIterable(subDirs);
     }
@@ -156,6 +323,61 @@ public class BlobContainer {
         return new File(getVarDirectory(), digest.substring(0, 2) + File.separator + digest);
     }
 
+    /**
+     * Moves a completely written file into the container as the blob with the given digest.
+     * If the blob exists already the existing file is kept and the source file is deleted.
+     *
+     * @return false if the file couldn't be moved into the container
+     */
+    public boolean moveIntoContainer(File source, String digest) {
+        int index = prefixIndex(digest);
+        File target = getFile(digest);
+        synchronized (locks[index]) {
+            if (target.exists()) {
+                if (!source.delete()) {
+                    logger.warn("Could not delete {}", source.getAbsolutePath());
+                }
+                return true;
+            }
+            long length = source.length();
+            if (!source.renameTo(target)) {
+                return false;
+            }
+            if (statsLoaded[index]) {
+                counts.incrementAndGet(index);
+                sizes.addAndGet(index, length);
+            }
+        }
+        invalidatePersistedStats();
+        return true;
+    }
+
+    /**
+     * Deletes the blob with the given digest.
+     *
+     * @return false if the blob doesn't exist or couldn't be deleted
+     */
+    public boolean delete(String digest) {
+        int index = prefixIndex(digest);
+        File file = getFile(digest);
+        synchronized (locks[index]) {
+            long length = file.length();
+            if (!file.delete()) {
+                return false;
+            }
+            if (statsLoaded[index]) {
+                counts.decrementAndGet(index);
+                sizes.addAndGet(index, -length);
+            }
+        }
+        invalidatePersistedStats();
+        return true;
+    }
+
+    private static int prefixIndex(String digest) {
+        return Integer.parseInt(digest.substring(0, 2), 16);
+    }
+
     public DigestBlob createBlob(String digest, UUID transferId) {
         // TODO: check if exists already
         return new DigestBlob(this, digest, transferId);
@@ -29,5 +29,6 @@ public class BlobModule extends AbstractModule {
     protected void configure() {
         bind(BlobEnvironment.class).asEagerSingleton();
         bind(BlobService.class).asEagerSingleton();
+        bind(BlobReadCache.class).asEagerSingleton();
     }
 }
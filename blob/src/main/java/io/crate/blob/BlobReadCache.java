@@ -0,0 +1,263 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import io.crate.blob.exceptions.DigestNotFoundException;
+import io.crate.monitor.CacheStats;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node wide cache of the content of recently read small blobs, so that they can be served
+ * without opening their file.
+ * <p>
+ * Blobs are content-addressed, so a cached entry can't become stale; it only has to be removed if
+ * the blob is deleted. Entries are keyed on the {@link BlobContainer} and the digest: the container
+ * of a shard which is re-created after its index has been dropped never sees entries of the old one.
+ * <p>
+ * The cache is disabled by default. Its memory is bounded by {@link #CACHE_SIZE_SETTING} which can be
+ * changed at runtime; the least recently used entries are evicted first.
+ */
+@Singleton
+public class BlobReadCache {
+
+    private static final ESLogger LOGGER = Loggers.getLogger(BlobReadCache.class);
+
+    public static final String NAME = "blob";
+    public static final String CACHE_SIZE_SETTING = "blobs.cache.size";
+    public static final String MAX_BLOB_SIZE_SETTING = "blobs.cache.max_blob_size";
+
+    static final ByteSizeValue DEFAULT_MAX_BLOB_SIZE = new ByteSizeValue(32, ByteSizeUnit.KB);
+
+    /**
+     * rough size of an entry without the content: key, digest string and the segment entry of the cache
+     */
+    private static final int ENTRY_OVERHEAD = 200;
+
+    private final long maxBlobSize;
+
+    private volatile long maxBytes = -1;
+    @Nullable
+    private volatile Cache<Key, byte[]> cache;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public BlobReadCache(Settings settings, NodeSettingsService nodeSettingsService) {
+        this(settings.getAsBytesSize(CACHE_SIZE_SETTING, new ByteSizeValue(0)).bytes(),
+            settings.getAsBytesSize(MAX_BLOB_SIZE_SETTING, DEFAULT_MAX_BLOB_SIZE).bytes());
+        nodeSettingsService.addListener(new ApplySettings(maxBytes));
+    }
+
+    @VisibleForTesting
+    BlobReadCache(long maxBytes, long maxBlobSize) {
+        this.maxBlobSize = maxBlobSize;
+        resize(maxBytes);
+    }
+
+    /**
+     * Replaces the cache by an empty one of the given size; a size of 0 disables the cache.
+     */
+    synchronized void resize(long maxBytes) {
+        if (maxBytes == this.maxBytes) {
+            return;
+        }
+        Cache<Key, byte[]> oldCache = cache;
+        if (maxBytes > 0 && maxBlobSize > 0) {
+            cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<Key, byte[]>() {
+                    @Override
+                    public int weigh(@Nonnull Key key, @Nonnull byte[] content) {
+                        return content.length + ENTRY_OVERHEAD;
+                    }
+                })
+                .removalListener(new RemovalListener<Key, byte[]>() {
+                    @Override
+                    public void onRemoval(@Nonnull RemovalNotification<Key, byte[]> notification) {
+                        byte[] content = notification.getValue();
+                        if (content != null) {
+                            usedBytes.addAndGet(-(content.length + ENTRY_OVERHEAD));
+                        }
+                        if (notification.wasEvicted()) {
+                            evictions.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
+        } else {
+            cache = null;
+        }
+        this.maxBytes = maxBytes;
+        if (oldCache != null) {
+            oldCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the content of the blob if it is small enough to be cached.
+     * On a cache miss the content is read from the file and added to the cache.
+     *
+     * @return the content of the blob or null if the cache is disabled or the blob is too large
+     * @throws DigestNotFoundException if the blob doesn't exist
+     */
+    @Nullable
+    public byte[] get(BlobContainer container, String digest) throws IOException {
+        Cache<Key, byte[]> cache = this.cache;
+        if (cache == null) {
+            return null;
+        }
+        Key key = new Key(container, digest);
+        byte[] content = cache.getIfPresent(key);
+        if (content != null) {
+            hits.incrementAndGet();
+            return content;
+        }
+        File file = container.getFile(digest);
+        long length = file.length();
+        if (length > maxBlobSize) {
+            return null;
+        }
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            throw new DigestNotFoundException(digest);
+        }
+        if (content.length > maxBlobSize) {
+            return null;
+        }
+        misses.incrementAndGet();
+        usedBytes.addAndGet(content.length + ENTRY_OVERHEAD);
+        cache.put(key, content);
+        // a delete which happened after the file has been read may have invalidated the entry
+        // before it was added; it must not be served anymore
+        if (!file.exists()) {
+            cache.invalidate(key);
+        }
+        return content;
+    }
+
+    /**
+     * Removes the entry of a blob, must be called after the blob file has been deleted
+     */
+    public void invalidate(BlobContainer container, String digest) {
+        Cache<Key, byte[]> cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(new Key(container, digest));
+        }
+    }
+
+    /**
+     * Removes all entries of the blobs of a container, e.g. because its shard is closed
+     */
+    public void invalidateAll(BlobContainer container) {
+        Cache<Key, byte[]> cache = this.cache;
+        if (cache == null) {
+            return;
+        }
+        Iterator<Key> it = cache.asMap().keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().container == container) {
+                it.remove();
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        Cache<Key, byte[]> cache = this.cache;
+        return new CacheStats(
+            NAME,
+            cache == null ? 0L : cache.size(),
+            usedBytes.get(),
+            hits.get(),
+            misses.get(),
+            evictions.get());
+    }
+
+    private class ApplySettings implements NodeSettingsService.Listener {
+
+        private final ByteSizeValue initialSize;
+
+        ApplySettings(long initialSize) {
+            this.initialSize = new ByteSizeValue(initialSize);
+        }
+
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            // falls back to the node setting if the cluster setting is reset
+            ByteSizeValue newSize = settings.getAsBytesSize(CACHE_SIZE_SETTING, initialSize);
+            if (newSize.bytes() != maxBytes) {
+                LOGGER.info("updating [{}] from [{}] to [{}]",
+                    CACHE_SIZE_SETTING, new ByteSizeValue(maxBytes), newSize);
+                resize(newSize.bytes());
+            }
+        }
+    }
+
+    private static class Key {
+
+        private final BlobContainer container;
+        private final String digest;
+
+        Key(BlobContainer container, String digest) {
+            this.container = container;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return container == key.container && digest.equals(key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(container) + digest.hashCode();
+        }
+    }
+}
@@ -41,6 +41,12 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class DigestBlob {
 
+    /**
+     * Heap buffers are written to the file through pooled direct buffers, otherwise the JDK copies every chunk into a
+     * temporary direct buffer as large as the chunk, which it caches per thread.
+     */
+    private static final DirectBufferPool WRITE_BUFFERS = new DirectBufferPool(64 * 1024, 64);
+
     private final String digest;
     private final BlobContainer container;
     private final UUID transferId;
@@ -96,10 +102,41 @@ public class DigestBlob {
         md.update(bbf.slice());
     }
 
+    /**
+     * Writes the buffer to the channel. The buffer is not copied on the heap: composite buffers are written
+     * component by component and heap buffers are staged in pooled direct buffers.
+     *
+     * @return the number of bytes written
+     */
+    static int write(FileChannel channel, ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (src.isDirect()) {
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+            return length;
+        }
+        ByteBuffer directBuffer = WRITE_BUFFERS.acquire();
+        try {
+            while (src.hasRemaining()) {
+                directBuffer.clear();
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + Math.min(part.remaining(), directBuffer.remaining()));
+                directBuffer.put(part);
+                src.position(part.position());
+                directBuffer.flip();
+                while (directBuffer.hasRemaining()) {
+                    channel.write(directBuffer);
+                }
+            }
+        } finally {
+            WRITE_BUFFERS.release(directBuffer);
+        }
+        return length;
+    }
+
     private void addContent(ChannelBuffer buffer, boolean last) throws IOException {
         if (buffer != null) {
-            int readableBytes = buffer.readableBytes();
-            ByteBuffer byteBuffer = buffer.toByteBuffer();
             if (file == null) {
                 file = createTmpFile();
             }
@@ -109,13 +146,14 @@ public class DigestBlob {
             }
 
             int written = 0;
-            do {
+            for (ByteBuffer byteBuffer : buffer.toByteBuffers()) {
+                // the digest is updated from a view of the same buffer which is written afterwards
                 if (headLength == 0) {
                     updateDigest(byteBuffer);
                 }
-                written += fileChannel.write(byteBuffer);
-            } while (written < readableBytes);
-            size += readableBytes;
+                written += write(fileChannel, byteBuffer);
+            }
+            size += written;
             buffer.readerIndex(buffer.readerIndex() + written);
             chunks++;
         }
@@ -168,7 +206,9 @@ public class DigestBlob {
             headFileChannel = null;
         }
         File newFile = container.getFile(digest);
-        file.renameTo(newFile);
+        if (!container.moveIntoContainer(file, digest)) {
+            logger.error("Could not move {} to {}", file.getAbsolutePath(), newFile.getAbsolutePath());
+        }
         return newFile;
     }
 
@@ -194,10 +234,9 @@ public class DigestBlob {
         int readableBytes = channelBuffer.readableBytes();
         assert readableBytes + headSize.get() <= headLength : "Got too many bytes in addToHead()";
 
-        ByteBuffer byteBuffer = channelBuffer.toByteBuffer();
-        while (written < readableBytes) {
+        for (ByteBuffer byteBuffer : channelBuffer.toByteBuffers()) {
             updateDigest(byteBuffer);
-            written += headFileChannel.write(byteBuffer);
+            written += write(headFileChannel, byteBuffer);
         }
         headSize.addAndGet(written);
         if (headSize.get() == headLength) {
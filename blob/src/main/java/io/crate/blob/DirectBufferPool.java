@@ -0,0 +1,67 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of direct buffers of a fixed size.
+ * <p>
+ * If the pool is empty a new buffer is allocated, buffers which are released while the pool is full are left to
+ * the garbage collector. So the pool never blocks and holds at most {@code maxPooled} idle buffers.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> buffers;
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return a cleared buffer, must be handed back with {@link #release(ByteBuffer)}
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        assert buffer.isDirect() && buffer.capacity() == bufferSize : "buffer wasn't acquired from this pool";
+        buffers.offer(buffer);
+    }
+
+    int numPooled() {
+        return buffers.size();
+    }
+}
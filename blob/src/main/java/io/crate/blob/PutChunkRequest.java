@@ -22,7 +22,7 @@
 package io.crate.blob;
 
 import io.crate.common.Hex;
-import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -38,7 +38,7 @@ public class PutChunkRequest extends BlobTransferRequest<PutChunkRequest> implem
     }
 
     public PutChunkRequest(String index, byte[] digest, UUID transferId,
-                           BytesArray content, long currentPos, boolean last) {
+                           BytesReference content, long currentPos, boolean last) {
         super(index, transferId, content, last);
         this.digest = digest;
         this.currentPos = currentPos;
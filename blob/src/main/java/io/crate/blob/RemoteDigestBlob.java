@@ -23,7 +23,7 @@ package io.crate.blob;
 
 import io.crate.common.Hex;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -111,7 +111,7 @@ public class RemoteDigestBlob {
         StartBlobRequest request = new StartBlobRequest(
             index,
             Hex.decodeHex(digest),
-            new BytesArray(buffer.array()),
+            new ChannelBufferBytesReference(buffer),
             last
         );
         transferId = request.transferId();
@@ -128,7 +128,7 @@ public class RemoteDigestBlob {
             index,
             Hex.decodeHex(digest),
             transferId,
-            new BytesArray(buffer.array()),
+            new ChannelBufferBytesReference(buffer),
             size,
             last
         );
@@ -26,7 +26,9 @@ import io.crate.blob.BlobTransferTarget;
 import io.crate.blob.v2.BlobIndicesService;
 import io.crate.blob.v2.BlobShard;
 import io.crate.common.Hex;
+import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.logging.ESLogger;
@@ -42,12 +44,21 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class BlobRecoveryHandler {
 
+    /**
+     * The number of prefix directories whose blobs are transferred at the same time.
+     * The number of concurrently transferred files is limited by indices.recovery.concurrent_streams.
+     */
+    public static final String SETTING_CONCURRENT_PREFIXES = "indices.recovery.blobs.concurrent_prefixes";
+    public static final int DEFAULT_CONCURRENT_PREFIXES = 4;
+
     private static final ESLogger logger = Loggers.getLogger(BlobRecoveryHandler.class);
     private final StartRecoveryRequest request;
     private final TransportService transportService;
@@ -56,13 +67,18 @@ public class BlobRecoveryHandler {
     private final IndexShard shard;
     private final BlobTransferTarget blobTransferTarget;
     private final int GET_HEAD_TIMEOUT;
+    private final int concurrentPrefixes;
+    private final AtomicLong bytesSinceLastPause = new AtomicLong();
 
     public BlobRecoveryHandler(TransportService transportService,
                                RecoverySettings recoverySettings,
                                BlobTransferTarget blobTransferTarget,
                                BlobIndicesService blobIndicesService,
-                               IndexShard shard, StartRecoveryRequest request) {
+                               IndexShard shard, StartRecoveryRequest request,
+                               int concurrentPrefixes) {
+        assert concurrentPrefixes > 0 : "concurrentPrefixes must be at least 1";
         this.recoverySettings = recoverySettings;
+        this.concurrentPrefixes = concurrentPrefixes;
         this.blobShard = blobIndicesService.blobShardSafe(request.shardId().index().name(), request.shardId().id());
         this.request = request;
         this.transportService = transportService;
@@ -76,6 +92,45 @@ public class BlobRecoveryHandler {
         }
     }
 
+    /**
+     * Sends the count and hash of the digests of every prefix directory to the target,
+     * which responds with the prefixes whose digests differ.
+     */
+    private byte[] getPrefixesToSync() {
+        int[] counts = new int[BlobContainer.PREFIXES.length];
+        long[] hashes = new long[BlobContainer.PREFIXES.length];
+        for (int i = 0; i < BlobContainer.PREFIXES.length; i++) {
+            byte[][] digests = blobShard.currentDigests(BlobContainer.PREFIXES[i]);
+            counts[i] = digests.length;
+            hashes[i] = BlobPrefixSummariesRequest.hash(digests);
+        }
+        try {
+            BlobPrefixSummariesResponse response =
+                (BlobPrefixSummariesResponse) transportService.submitRequest(
+                    request.targetNode(),
+                    BlobRecoveryTarget.Actions.PREFIX_SUMMARIES,
+                    new BlobPrefixSummariesRequest(request.recoveryId(), counts, hashes,
+                        blobShard.blobContainer().totalUsage()),
+                    TransportRequestOptions.EMPTY,
+                    new FutureTransportResponseHandler<TransportResponse>() {
+                        @Override
+                        public TransportResponse newInstance() {
+                            return new BlobPrefixSummariesResponse();
+                        }
+                    }
+                ).txGet();
+            return response.prefixesToSync;
+        } catch (TransportException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof ActionNotFoundTransportException) {
+                // target runs an older version, compare all prefixes digest by digest
+                logger.debug("[{}][{}] target {} doesn't support prefix summaries",
+                    request.shardId().index().name(), request.shardId().id(), request.targetNode().getName());
+                return BlobContainer.PREFIXES;
+            }
+            throw e;
+        }
+    }
+
     private Set<BytesArray> getExistingDigestsFromTarget(byte prefix) {
         BlobStartPrefixResponse response =
             (BlobStartPrefixResponse) transportService.submitRequest(
@@ -151,37 +206,93 @@ public class BlobRecoveryHandler {
     public void phase2() throws ElasticsearchException {
     }
 
+    /**
+     * Syncs the prefixes which differ between source and target. Up to {@link #concurrentPrefixes} prefixes are
+     * transferred at the same time, the digests of the next prefix are compared while the files of the previous
+     * ones are still being transferred.
+     */
     private void syncVarFiles(AtomicReference<Exception> lastException) throws InterruptedException {
-
-        for (byte prefix : BlobContainer.PREFIXES) {
-            // byte[1] and byte[1] have different hashCodes
-            // so setA.removeAll(setB) wouldn't work with byte[], that's why BytesArray is used here
-            Set<BytesArray> remoteDigests = getExistingDigestsFromTarget(prefix);
-            Set<BytesArray> localDigests = new HashSet<BytesArray>();
-            for (byte[] digest : blobShard.currentDigests(prefix)) {
-                localDigests.add(new BytesArray(digest));
+        final Semaphore prefixPermits = new Semaphore(concurrentPrefixes);
+        byte[] prefixesToSync = getPrefixesToSync();
+        try {
+            for (byte prefix : prefixesToSync) {
+                prefixPermits.acquire();
+                // the permit is released once all files of the prefix are transferred,
+                // or right away if no transfer is started
+                boolean transferStarted = false;
+                try {
+                    if (lastException.get() != null) {
+                        break;
+                    }
+                    transferStarted = syncPrefix(prefix, prefixPermits, lastException);
+                } finally {
+                    if (!transferStarted) {
+                        prefixPermits.release();
+                    }
+                }
             }
+        } finally {
+            // wait until the files of all prefixes are transferred, also if comparing the digests failed
+            prefixPermits.acquireUninterruptibly(concurrentPrefixes);
+        }
+    }
 
-            Set<BytesArray> localButNotRemoteDigests = new HashSet<BytesArray>(localDigests);
-            localButNotRemoteDigests.removeAll(remoteDigests);
+    /**
+     * @return true if files are transferred, in that case the permit is released once all of them are done
+     */
+    private boolean syncPrefix(byte prefix, final Semaphore prefixPermits, AtomicReference<Exception> lastException) {
+        // byte[1] and byte[1] have different hashCodes
+        // so setA.removeAll(setB) wouldn't work with byte[], that's why BytesArray is used here
+        Set<BytesArray> remoteDigests = getExistingDigestsFromTarget(prefix);
+        Set<BytesArray> localDigests = new HashSet<BytesArray>();
+        for (byte[] digest : blobShard.currentDigests(prefix)) {
+            localDigests.add(new BytesArray(digest));
+        }
 
-            final CountDownLatch latch = new CountDownLatch(localButNotRemoteDigests.size());
-            for (BytesArray digestBytes : localButNotRemoteDigests) {
-                final String digest = Hex.encodeHexString(digestBytes.toBytes());
-                logger.trace("[{}][{}] start to transfer file var/{} to {}",
-                    request.shardId().index().name(), request.shardId().id(), digest,
-                    request.targetNode().getName());
+        Set<BytesArray> localButNotRemoteDigests = new HashSet<BytesArray>(localDigests);
+        localButNotRemoteDigests.removeAll(remoteDigests);
 
-                recoverySettings.concurrentStreamPool().execute(
-                    new TransferFileRunnable(blobShard.blobContainer().getFile(digest),
-                        lastException, latch)
-                );
+        remoteDigests.removeAll(localDigests);
+        if (!remoteDigests.isEmpty()) {
+            deleteFilesRequest(remoteDigests.toArray(new BytesArray[remoteDigests.size()]));
+        }
+
+        if (localButNotRemoteDigests.isEmpty()) {
+            return false;
+        }
+        final AtomicInteger remainingFiles = new AtomicInteger(localButNotRemoteDigests.size());
+        Runnable onFileDone = new Runnable() {
+            @Override
+            public void run() {
+                if (remainingFiles.decrementAndGet() == 0) {
+                    prefixPermits.release();
+                }
             }
-            latch.await();
+        };
+        for (BytesArray digestBytes : localButNotRemoteDigests) {
+            final String digest = Hex.encodeHexString(digestBytes.toBytes());
+            logger.trace("[{}][{}] start to transfer file var/{} to {}",
+                request.shardId().index().name(), request.shardId().id(), digest,
+                request.targetNode().getName());
+
+            recoverySettings.concurrentStreamPool().execute(
+                new TransferFileRunnable(blobShard.blobContainer().getFile(digest),
+                    lastException, onFileDone)
+            );
+        }
+        return true;
+    }
 
-            remoteDigests.removeAll(localDigests);
-            if (!remoteDigests.isEmpty()) {
-                deleteFilesRequest(remoteDigests.toArray(new BytesArray[remoteDigests.size()]));
+    /**
+     * Pauses the transfer if it exceeds indices.recovery.max_bytes_per_sec
+     */
+    private void throttle(int bytes) throws IOException {
+        RateLimiter rl = recoverySettings.rateLimiter();
+        if (rl != null) {
+            long bytesToPause = bytesSinceLastPause.addAndGet(bytes);
+            if (bytesToPause > rl.getMinPauseCheckBytes()) {
+                bytesSinceLastPause.addAndGet(-bytesToPause);
+                shard.recoveryStats().addThrottleTime(rl.pause(bytesToPause));
             }
         }
     }
@@ -218,13 +329,13 @@ public class BlobRecoveryHandler {
         private final AtomicReference<Exception> lastException;
         private final String baseDir;
         private final File file;
-        private final CountDownLatch latch;
+        private final Runnable onDone;
 
         public TransferFileRunnable(File filePath, AtomicReference<Exception> lastException,
-                                    CountDownLatch latch) {
+                                    Runnable onDone) {
             this.file = filePath;
             this.lastException = lastException;
-            this.latch = latch;
+            this.onDone = onDone;
             this.baseDir = blobShard.blobContainer().getBaseDirectory().getAbsolutePath();
         }
 
@@ -255,6 +366,7 @@ public class BlobRecoveryHandler {
 
                     if (bytesRead > 0) {
                         bytesReadTotal += bytesRead;
+                        throttle(bytesRead);
 
                         logger.trace("[{}][{}] send BlobRecoveryStartTransferRequest to {} for file {} with size {}",
                             request.shardId().index().name(), request.shardId().id(),
@@ -284,6 +396,7 @@ public class BlobRecoveryHandler {
                                 isLast = true;
                             }
                             content = new BytesArray(buf, 0, bytesRead);
+                            throttle(bytesRead);
 
                             transportService.submitRequest(request.targetNode(),
                                 BlobRecoveryTarget.Actions.TRANSFER_CHUNK,
@@ -310,11 +423,11 @@ public class BlobRecoveryHandler {
                         request.shardId().index().name(), request.shardId().id(), file.getName(),
                         request.targetNode().getName());
                 }
-            } catch (IOException ex) {
+            } catch (Exception ex) {
                 logger.error("exception while file transfer", ex);
                 lastException.set(ex);
             } finally {
-                latch.countDown();
+                onDone.run();
             }
         }
     }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob.recovery;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the recovery of the blobs of a shard, tracked on the recovering (target) shard.
+ * <p>
+ * The total is the number of blobs and their size on the source shard. Blobs in prefix directories which
+ * are identical on both shards are reused without being compared one by one. Blobs which exist on both
+ * shards but are located in prefix directories which differ are only accounted as reused once the
+ * recovery is finished.
+ */
+public class BlobRecoveryProgress {
+
+    private final AtomicLong totalFiles = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong reusedFiles = new AtomicLong();
+    private final AtomicLong reusedBytes = new AtomicLong();
+    private final AtomicLong recoveredFiles = new AtomicLong();
+    private final AtomicLong recoveredBytes = new AtomicLong();
+
+    public void total(long files, long bytes) {
+        totalFiles.set(files);
+        totalBytes.set(bytes);
+    }
+
+    public void addReusedFiles(long files) {
+        reusedFiles.addAndGet(files);
+    }
+
+    public void addRecoveredFile(long bytes) {
+        recoveredFiles.incrementAndGet();
+        recoveredBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Called once all blobs have been transferred, everything which wasn't recovered has been reused.
+     */
+    public void finish() {
+        reusedFiles.set(Math.max(0L, totalFiles.get() - recoveredFiles.get()));
+        reusedBytes.set(Math.max(0L, totalBytes.get() - recoveredBytes.get()));
+    }
+
+    public long totalFiles() {
+        return totalFiles.get();
+    }
+
+    public long totalBytes() {
+        return totalBytes.get();
+    }
+
+    public long reusedFiles() {
+        return reusedFiles.get();
+    }
+
+    public long reusedBytes() {
+        return reusedBytes.get();
+    }
+
+    public long recoveredFiles() {
+        return recoveredFiles.get();
+    }
+
+    public long recoveredBytes() {
+        return recoveredBytes.get();
+    }
+
+    public float recoveredFilesPercent() {
+        return percent(recoveredFiles(), totalFiles(), reusedFiles());
+    }
+
+    public float recoveredBytesPercent() {
+        return percent(recoveredBytes(), totalBytes(), reusedBytes());
+    }
+
+    private static float percent(long recovered, long total, long reused) {
+        if (total == 0) {
+            return 0.0f;
+        }
+        long toRecover = total - reused;
+        if (recovered >= toRecover) {
+            return 100.0f;
+        }
+        return 100.0f * recovered / toRecover;
+    }
+}
@@ -45,6 +45,7 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Injector;
@@ -53,6 +54,7 @@ import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
 import org.elasticsearch.indices.IndicesLifecycle;
@@ -107,6 +109,18 @@ public class BlobIndicesService extends AbstractLifecycleComponent<BlobIndicesSe
         this.blobEnvironment = blobEnvironment;
         this.clusterService = clusterService;
         logger.setLevel("debug");
+        indicesLifecycle.addListener(new IndicesLifecycle.Listener() {
+            @Override
+            public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard,
+                                               Settings indexSettings) {
+                if (indexShard != null && isBlobShard(shardId)) {
+                    BlobShard blobShard = blobShard(shardId.getIndex(), shardId.id());
+                    if (blobShard != null) {
+                        blobShard.close();
+                    }
+                }
+            }
+        });
     }
 
     @Override
@@ -23,6 +23,8 @@ package io.crate.blob.v2;
 
 import io.crate.blob.BlobContainer;
 import io.crate.blob.BlobEnvironment;
+import io.crate.blob.BlobReadCache;
+import io.crate.blob.recovery.BlobRecoveryProgress;
 import io.crate.blob.stats.BlobStats;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.inject.Inject;
@@ -30,24 +32,43 @@ import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
 
 public class BlobShard extends AbstractIndexShardComponent {
 
     private final BlobContainer blobContainer;
     private final IndexShard indexShard;
+    private final BlobReadCache readCache;
+    private volatile BlobRecoveryProgress recoveryProgress = new BlobRecoveryProgress();
 
     @Inject
     public BlobShard(ShardId shardId,
                      IndexSettingsService indexSettingsService,
                      BlobEnvironment blobEnvironment,
-                     IndexShard indexShard) {
+                     IndexShard indexShard,
+                     ThreadPool threadPool,
+                     BlobReadCache readCache) {
         super(shardId, indexSettingsService.getSettings());
         this.indexShard = indexShard;
+        this.readCache = readCache;
         File blobDir = blobDir(blobEnvironment);
         logger.info("creating BlobContainer at {}", blobDir);
         this.blobContainer = new BlobContainer(blobDir);
+        if (!blobContainer.hasStats()) {
+            threadPool.generic().execute(new Runnable() {
+                @Override
+                public void run() {
+                    long started = System.nanoTime();
+                    blobContainer.rebuildStats();
+                    logger.debug("rebuilt blob stats of {} in {}ms",
+                        blobDir, (System.nanoTime() - started) / 1_000_000);
+                }
+            });
+        }
     }
 
     public byte[][] currentDigests(byte prefix) {
@@ -55,7 +76,21 @@ public class BlobShard extends AbstractIndexShardComponent {
     }
 
     public boolean delete(String digest) {
-        return blobContainer.getFile(digest).delete();
+        boolean deleted = blobContainer.delete(digest);
+        if (deleted) {
+            readCache.invalidate(blobContainer, digest);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the content of a small blob from the {@link BlobReadCache}, reading it on a cache miss.
+     *
+     * @return the content or null if the cache is disabled or the blob is too large to be cached
+     */
+    @Nullable
+    public byte[] readCached(String digest) throws IOException {
+        return readCache.get(blobContainer, digest);
     }
 
     public BlobContainer blobContainer() {
@@ -66,16 +101,45 @@ public class BlobShard extends AbstractIndexShardComponent {
         return indexShard.routingEntry();
     }
 
+    /**
+     * The stats are maintained by the {@link BlobContainer} as blobs are added or deleted.
+     * While they're rebuilt after the shard has been opened they only include the blobs counted so far.
+     */
     public BlobStats blobStats() {
         final BlobStats stats = new BlobStats();
         stats.location(blobContainer().getBaseDirectory().getAbsolutePath());
-        for (File file : blobContainer().getFiles()) {
-            stats.totalUsage(stats.totalUsage() + file.length());
-            stats.count(stats.count() + 1);
-        }
+        stats.count(blobContainer.count());
+        stats.totalUsage(blobContainer.totalUsage());
         return stats;
     }
 
+    /**
+     * @return the progress of the latest recovery of the blobs of this shard
+     */
+    public BlobRecoveryProgress recoveryProgress() {
+        return recoveryProgress;
+    }
+
+    /**
+     * Called on the target shard if a recovery starts.
+     */
+    public BlobRecoveryProgress startRecovery() {
+        recoveryProgress = new BlobRecoveryProgress();
+        return recoveryProgress;
+    }
+
+    /**
+     * Called before the shard is closed, persists the stats so that they don't need to be rebuilt on the next start.
+     */
+    void close() {
+        readCache.invalidateAll(blobContainer);
+        try {
+            blobContainer.persistStats();
+        } catch (IOException e) {
+            logger.warn("could not persist blob stats", e);
+        }
+    }
+
     private File blobDir(BlobEnvironment blobEnvironment) {
         if (indexSettings.get(BlobIndicesService.SETTING_INDEX_BLOBS_PATH) != null) {
             File blobPath = new File(indexSettings.get(BlobIndicesService.SETTING_INDEX_BLOBS_PATH));
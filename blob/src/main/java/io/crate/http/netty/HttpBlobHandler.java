@@ -303,6 +303,11 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
             return;
         }
         BlobShard blobShard = localBlobShard(index, digest);
+        byte[] content = blobShard.readCached(digest);
+        if (content != null) {
+            partialCachedContentResponse(matcher, request, content);
+            return;
+        }
 
         final RandomAccessFile raf = blobShard.blobContainer().getRandomAccessFile(digest);
         long start;
@@ -347,9 +352,47 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         }
     }
 
+    private void partialCachedContentResponse(Matcher matcher, HttpRequest request, byte[] content) {
+        int start;
+        int end;
+        try {
+            long requestedStart = Long.parseLong(matcher.group(1));
+            if (requestedStart > content.length) {
+                LOGGER.warn("416 Requested Range not satisfiable");
+                simpleResponse(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = (int) requestedStart;
+            end = content.length - 1;
+            if (!matcher.group(2).equals("")) {
+                end = (int) Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+            }
+        } catch (NumberFormatException ex) {
+            LOGGER.error("Couldn't parse Range Header", ex);
+            start = 0;
+            end = content.length - 1;
+        }
+        int length = Math.max(end - start + 1, 0);
+
+        HttpResponse response = prepareResponse(PARTIAL_CONTENT);
+        HttpHeaders.setContentLength(response, length);
+        response.headers().set(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + content.length);
+        setDefaultGetHeaders(response);
+        response.setContent(ChannelBuffers.wrappedBuffer(content, start, length));
+        writeContentResponse(request, response);
+    }
+
     private void fullContentResponse(HttpRequest request, String index, final String digest) throws IOException {
         BlobShard blobShard = localBlobShard(index, digest);
         HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        byte[] content = blobShard.readCached(digest);
+        if (content != null) {
+            HttpHeaders.setContentLength(response, content.length);
+            setDefaultGetHeaders(response);
+            response.setContent(ChannelBuffers.wrappedBuffer(content));
+            writeContentResponse(request, response);
+            return;
+        }
         final RandomAccessFile raf = blobShard.blobContainer().getRandomAccessFile(digest);
         try {
             HttpHeaders.setContentLength(response, raf.length());
@@ -378,6 +421,16 @@ public class HttpBlobHandler extends SimpleChannelUpstreamHandler implements
         }
     }
 
+    /**
+     * Writes a response which contains the whole (partial) content of a blob read from the cache
+     */
+    private void writeContentResponse(HttpRequest request, HttpResponse response) {
+        ChannelFuture writeFuture = ctx.getChannel().write(response);
+        if (!HttpHeaders.isKeepAlive(request)) {
+            writeFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     private ChannelFuture transferFile(final String digest, RandomAccessFile raf, long position, long count)
         throws IOException {
 
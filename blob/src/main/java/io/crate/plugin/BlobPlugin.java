@@ -30,6 +30,8 @@ import io.crate.blob.v2.BlobIndicesModule;
 import io.crate.blob.v2.BlobShardModule;
 import io.crate.http.netty.CrateNettyHttpServerTransport;
 import org.elasticsearch.action.ActionModule;
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.settings.Validator;
 import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.settings.Settings;
@@ -95,4 +97,8 @@ public class BlobPlugin extends Plugin {
         module.registerAction(StartBlobAction.INSTANCE, TransportStartBlobAction.class);
         module.registerAction(DeleteBlobAction.INSTANCE, TransportDeleteBlobAction.class);
     }
+
+    public void onModule(ClusterModule clusterModule) {
+        clusterModule.registerClusterDynamicSetting(BlobReadCache.CACHE_SIZE_SETTING, Validator.BYTES_SIZE);
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import io.crate.blob.BlobContainer;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Contains a summary of the digests of every prefix directory of the source shard.
+ * The target compares them with its own digests and only the prefixes which differ are synced digest by digest.
+ */
+public class BlobPrefixSummariesRequest extends BlobRecoveryRequest {
+
+    private int[] counts;
+    private long[] hashes;
+    private long totalBytes;
+
+    public BlobPrefixSummariesRequest() {
+    }
+
+    public BlobPrefixSummariesRequest(long recoveryId, int[] counts, long[] hashes, long totalBytes) {
+        super(recoveryId);
+        assert counts.length == BlobContainer.PREFIXES.length && hashes.length == BlobContainer.PREFIXES.length
+            : "there must be a summary for every prefix";
+        this.counts = counts;
+        this.hashes = hashes;
+        this.totalBytes = totalBytes;
+    }
+
+    public int[] counts() {
+        return counts;
+    }
+
+    public long[] hashes() {
+        return hashes;
+    }
+
+    public long totalFiles() {
+        long totalFiles = 0;
+        for (int count : counts) {
+            totalFiles += count;
+        }
+        return totalFiles;
+    }
+
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Order independent hash of the digests of a prefix directory.
+     * The digests are SHA-1 hashes, so summing up their leading 8 bytes is sufficient.
+     */
+    public static long hash(byte[][] digests) {
+        long hash = 0;
+        for (byte[] digest : digests) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xFF);
+            }
+            hash += value;
+        }
+        return hash;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int numPrefixes = in.readVInt();
+        counts = new int[numPrefixes];
+        hashes = new long[numPrefixes];
+        for (int i = 0; i < numPrefixes; i++) {
+            counts[i] = in.readVInt();
+            hashes[i] = in.readLong();
+        }
+        totalBytes = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            out.writeVInt(counts[i]);
+            out.writeLong(hashes[i]);
+        }
+        out.writeVLong(totalBytes);
+    }
+}
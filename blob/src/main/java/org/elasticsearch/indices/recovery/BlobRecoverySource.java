@@ -22,6 +22,7 @@
 package org.elasticsearch.indices.recovery;
 
 import io.crate.blob.BlobTransferTarget;
+import io.crate.blob.recovery.BlobRecoveryHandler;
 import io.crate.blob.v2.BlobIndicesService;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.ClusterService;
@@ -32,6 +33,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsException;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
@@ -64,6 +66,7 @@ public class BlobRecoverySource extends AbstractComponent {
     private final ClusterService clusterService;
     private final BlobTransferTarget blobTransferTarget;
     private final BlobIndicesService blobIndicesService;
+    private final int concurrentBlobPrefixes;
 
     private final OngoingRecoveres ongoingRecoveries = new OngoingRecoveres();
 
@@ -78,6 +81,12 @@ public class BlobRecoverySource extends AbstractComponent {
         this.clusterService = clusterService;
         this.blobTransferTarget = blobTransferTarget;
         this.blobIndicesService = blobIndicesService;
+        this.concurrentBlobPrefixes = settings.getAsInt(
+            BlobRecoveryHandler.SETTING_CONCURRENT_PREFIXES, BlobRecoveryHandler.DEFAULT_CONCURRENT_PREFIXES);
+        if (concurrentBlobPrefixes < 1) {
+            throw new SettingsException("Setting [" + BlobRecoveryHandler.SETTING_CONCURRENT_PREFIXES +
+                                        "] must be at least 1, got [" + concurrentBlobPrefixes + "]");
+        }
         this.indicesService.indicesLifecycle().addListener(new IndicesLifecycle.Listener() {
             @Override
             public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard,
@@ -135,7 +144,8 @@ public class BlobRecoverySource extends AbstractComponent {
         } else {
             // CRATE CHANGE:
             handler = new BlobRecoverySourceHandler(
-                shard, request, recoverySettings, transportService, logger, blobTransferTarget, blobIndicesService);
+                shard, request, recoverySettings, transportService, logger, blobTransferTarget, blobIndicesService,
+                concurrentBlobPrefixes);
         }
         ongoingRecoveries.add(shard, handler);
         try {
@@ -113,7 +113,8 @@ public class BlobRecoverySourceHandler extends RecoverySourceHandler {
 
     public BlobRecoverySourceHandler(final IndexShard shard, final StartRecoveryRequest request, final RecoverySettings recoverySettings,
                                      final TransportService transportService, final ESLogger logger,
-                                     BlobTransferTarget blobTransferTarget, BlobIndicesService blobIndicesService) {
+                                     BlobTransferTarget blobTransferTarget, BlobIndicesService blobIndicesService,
+                                     int concurrentBlobPrefixes) {
         super(shard, request, recoverySettings, transportService, logger);
         this.shard = shard;
         this.request = request;
@@ -126,7 +127,8 @@ public class BlobRecoverySourceHandler extends RecoverySourceHandler {
         this.response = new RecoveryResponse();
         if (BlobIndicesService.isBlobIndex(shard.shardId().getIndex())) {
             blobRecoveryHandler = new BlobRecoveryHandler(
-                transportService, recoverySettings, blobTransferTarget, blobIndicesService, shard, request);
+                transportService, recoverySettings, blobTransferTarget, blobIndicesService, shard, request,
+                concurrentBlobPrefixes);
         } else {
             blobRecoveryHandler = null;
         }
@@ -21,6 +21,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import io.crate.blob.recovery.BlobRecoveryProgress;
 import io.crate.blob.v2.BlobShard;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
@@ -31,11 +32,17 @@ public class BlobRecoveryStatus {
     private final RecoveryStatus indexRecoveryStatus;
     private final ConcurrentMapLong<BlobRecoveryTransferStatus> onGoingTransfers = ConcurrentCollections.newConcurrentMapLong();
     final BlobShard blobShard;
+    private final BlobRecoveryProgress progress;
 
 
     public BlobRecoveryStatus(RecoveryStatus indexRecoveryStatus, BlobShard blobShard) {
         this.indexRecoveryStatus = indexRecoveryStatus;
         this.blobShard = blobShard;
+        this.progress = blobShard.startRecovery();
+    }
+
+    public BlobRecoveryProgress progress() {
+        return progress;
     }
 
     public long recoveryId() {
@@ -21,6 +21,7 @@
 
 package org.elasticsearch.indices.recovery;
 
+import io.crate.blob.BlobContainer;
 import io.crate.blob.BlobWriteException;
 import io.crate.blob.exceptions.IllegalBlobRecoveryStateException;
 import io.crate.blob.v2.BlobShard;
@@ -42,6 +43,7 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.Arrays;
 
 
 public class BlobRecoveryTarget extends AbstractComponent {
@@ -52,7 +54,9 @@ public class BlobRecoveryTarget extends AbstractComponent {
     * actor SourceNode as s
     * actor TargetNode as t
     *
-    * group for every two char prefix
+    * s -> t:PrefixSummaries(count and hash of the digests of every prefix)
+    * t --> s:prefixes whose digests differ
+    * group for every two char prefix which differs, several prefixes in parallel
     * s -> t:StartPrefixSync(prefix)
     * t -> t:getDigests for prefix
     * t --> s:found digests
@@ -83,6 +87,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
         public static final String DELETE_FILE = "crate/blob/shard/recovery/delete_file";
         public static final String START_RECOVERY = "crate/blob/shard/recovery/start";
         public static final String START_PREFIX = "crate/blob/shard/recovery/start_prefix";
+        public static final String PREFIX_SUMMARIES = "crate/blob/shard/recovery/prefix_summaries";
         public static final String TRANSFER_CHUNK = "crate/blob/shard/recovery/transfer_chunk";
         public static final String START_TRANSFER = "crate/blob/shard/recovery/start_transfer";
     }
@@ -96,6 +101,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
 
         transportService.registerRequestHandler(Actions.START_RECOVERY, BlobStartRecoveryRequest.class, ThreadPool.Names.GENERIC, new StartRecoveryRequestHandler());
         transportService.registerRequestHandler(Actions.START_PREFIX, BlobStartPrefixSyncRequest.class, ThreadPool.Names.GENERIC, new StartPrefixSyncRequestHandler());
+        transportService.registerRequestHandler(Actions.PREFIX_SUMMARIES, BlobPrefixSummariesRequest.class, ThreadPool.Names.GENERIC, new PrefixSummariesRequestHandler());
         transportService.registerRequestHandler(Actions.TRANSFER_CHUNK, BlobRecoveryChunkRequest.class, ThreadPool.Names.GENERIC, new TransferChunkRequestHandler());
         transportService.registerRequestHandler(Actions.START_TRANSFER, BlobRecoveryStartTransferRequest.class, ThreadPool.Names.GENERIC, new StartTransferRequestHandler());
         transportService.registerRequestHandler(Actions.DELETE_FILE, BlobRecoveryDeleteRequest.class, ThreadPool.Names.GENERIC, new DeleteFileRequestHandler());
@@ -172,9 +178,10 @@ public class BlobRecoveryTarget extends AbstractComponent {
                     // this might happen on bad timing while recovering/relocating.
                     // noop
                 } else {
-                    if (!source.renameTo(target)) {
+                    if (!shard.blobContainer().moveIntoContainer(source, target.getName())) {
                         throw new BlobWriteException(target.getName(), target.length(), null);
                     }
+                    onGoingRecovery.progress().addRecoveredFile(target.length());
                 }
 
                 onGoingRecovery.onGoingTransfers().remove(request.transferId());
@@ -204,6 +211,42 @@ public class BlobRecoveryTarget extends AbstractComponent {
     }
 
 
+    class PrefixSummariesRequestHandler extends TransportRequestHandler<BlobPrefixSummariesRequest> {
+        @Override
+        public void messageReceived(BlobPrefixSummariesRequest request, TransportChannel channel) throws Exception {
+            BlobRecoveryStatus status = onGoingRecoveries.get(request.recoveryId());
+            if (status == null) {
+                throw new IllegalBlobRecoveryStateException(
+                    "could not retrieve BlobRecoveryStatus"
+                );
+            }
+            if (status.canceled()) {
+                throw new IndexShardClosedException(status.shardId());
+            }
+            status.progress().total(request.totalFiles(), request.totalBytes());
+
+            byte[] prefixesToSync = new byte[BlobContainer.PREFIXES.length];
+            int numPrefixesToSync = 0;
+            long reusedFiles = 0;
+            for (int i = 0; i < BlobContainer.PREFIXES.length; i++) {
+                byte[][] digests = status.blobShard.currentDigests(BlobContainer.PREFIXES[i]);
+                if (digests.length == request.counts()[i] && BlobPrefixSummariesRequest.hash(digests) == request.hashes()[i]) {
+                    reusedFiles += digests.length;
+                } else {
+                    prefixesToSync[numPrefixesToSync++] = BlobContainer.PREFIXES[i];
+                }
+            }
+            status.progress().addReusedFiles(reusedFiles);
+            logger.debug("[{}] {} of {} blob prefixes differ from the source",
+                status.shardId(), numPrefixesToSync, BlobContainer.PREFIXES.length);
+
+            BlobPrefixSummariesResponse response = new BlobPrefixSummariesResponse();
+            response.prefixesToSync = Arrays.copyOf(prefixesToSync, numPrefixesToSync);
+            channel.sendResponse(response);
+        }
+    }
+
+
     private class StartTransferRequestHandler extends TransportRequestHandler<BlobRecoveryStartTransferRequest> {
         @Override
         public void messageReceived(BlobRecoveryStartTransferRequest request, TransportChannel channel) throws Exception {
@@ -234,11 +277,12 @@ public class BlobRecoveryTarget extends AbstractComponent {
                 File source = new File(shard.blobContainer().getBaseDirectory(), tmpPath);
                 File target = new File(shard.blobContainer().getBaseDirectory(), request.path());
                 if (!target.exists()) {
-                    if (!source.renameTo(target)) {
+                    if (!shard.blobContainer().moveIntoContainer(source, target.getName())) {
                         throw new IllegalBlobRecoveryStateException(
                             "couldn't rename file to " + request.path()
                         );
                     }
+                    status.progress().addRecoveredFile(request.size());
                 }
             } else {
                 BlobRecoveryTransferStatus transferStatus = new BlobRecoveryTransferStatus(
@@ -278,6 +322,7 @@ public class BlobRecoveryTarget extends AbstractComponent {
                     );
                 }
             }
+            status.progress().finish();
             onGoingRecoveries.remove(request.recoveryId);
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
@@ -23,8 +23,12 @@ package io.crate;
 
 import io.crate.blob.BlobContainer;
 import io.crate.blob.DigestBlob;
+import io.crate.common.Hex;
 import io.crate.test.integration.CrateUnitTest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -32,6 +36,8 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.Locale;
 import java.util.UUID;
 
@@ -129,4 +135,27 @@ public class DigestBlobTests extends CrateUnitTest {
         assertTrue(file.delete());
     }
 
+    @Test
+    public void testAddContentFromDirectAndCompositeBuffers() throws Exception {
+        // larger than the pooled write buffers
+        byte[] content = new byte[200_000];
+        random().nextBytes(content);
+        String digest = Hex.encodeHexString(MessageDigest.getInstance("SHA-1").digest(content));
+
+        BlobContainer container = new BlobContainer(tmpFolder.newFolder());
+        DigestBlob digestBlob = container.createBlob(digest, UUID.randomUUID());
+
+        ChannelBuffer direct = ChannelBuffers.directBuffer(100_000);
+        direct.writeBytes(content, 0, 100_000);
+        ChannelBuffer composite = ChannelBuffers.wrappedBuffer(
+            ChannelBuffers.wrappedBuffer(content, 100_000, 30_000),
+            ChannelBuffers.wrappedBuffer(content, 130_000, 70_000));
+
+        digestBlob.addContent(new ChannelBufferBytesReference(direct), false);
+        digestBlob.addContent(new ChannelBufferBytesReference(composite), true);
+        assertEquals(200_000, digestBlob.size());
+
+        File file = digestBlob.commit();
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
 }
@@ -21,15 +21,20 @@
 
 package io.crate;
 
+import io.crate.blob.BlobContainer;
 import io.crate.blob.PutChunkReplicaRequest;
 import io.crate.test.integration.CrateUnitTest;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.indices.recovery.BlobPrefixSummariesRequest;
+import org.elasticsearch.indices.recovery.BlobPrefixSummariesResponse;
 import org.junit.Test;
 
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.is;
+
 public class SerializationTests extends CrateUnitTest {
 
 
@@ -59,4 +64,54 @@ public class SerializationTests extends CrateUnitTest {
         assertEquals(requestOut.transferId, requestIn.transferId);
         assertEquals(requestOut.index(), requestIn.index());
     }
+
+    @Test
+    public void testBlobPrefixSummariesRequestSerialization() throws Exception {
+        int[] counts = new int[BlobContainer.PREFIXES.length];
+        long[] hashes = new long[BlobContainer.PREFIXES.length];
+        counts[3] = 2;
+        hashes[3] = -42L;
+        counts[255] = 1;
+        hashes[255] = Long.MAX_VALUE;
+        BlobPrefixSummariesRequest requestOut = new BlobPrefixSummariesRequest(7L, counts, hashes, 1024L);
+
+        BytesStreamOutput outputStream = new BytesStreamOutput();
+        requestOut.writeTo(outputStream);
+        BlobPrefixSummariesRequest requestIn = new BlobPrefixSummariesRequest();
+        requestIn.readFrom(StreamInput.wrap(outputStream.bytes()));
+
+        assertThat(requestIn.recoveryId(), is(7L));
+        assertThat(requestIn.counts(), is(counts));
+        assertThat(requestIn.hashes(), is(hashes));
+        assertThat(requestIn.totalFiles(), is(3L));
+        assertThat(requestIn.totalBytes(), is(1024L));
+    }
+
+    @Test
+    public void testBlobPrefixSummariesResponseSerialization() throws Exception {
+        BlobPrefixSummariesResponse responseOut = new BlobPrefixSummariesResponse();
+        responseOut.prefixesToSync = new byte[]{0, 17, (byte) 255};
+
+        BytesStreamOutput outputStream = new BytesStreamOutput();
+        responseOut.writeTo(outputStream);
+        BlobPrefixSummariesResponse responseIn = new BlobPrefixSummariesResponse();
+        responseIn.readFrom(StreamInput.wrap(outputStream.bytes()));
+
+        assertThat(responseIn.prefixesToSync, is(responseOut.prefixesToSync));
+    }
+
+    @Test
+    public void testBlobPrefixSummaryHashIsOrderIndependent() throws Exception {
+        byte[] digestA = new byte[20];
+        byte[] digestB = new byte[20];
+        digestA[0] = 0x12;
+        digestA[7] = 0x01;
+        digestB[0] = (byte) 0xff;
+        digestB[5] = 0x33;
+
+        long hash = BlobPrefixSummariesRequest.hash(new byte[][]{digestA, digestB});
+        assertThat(BlobPrefixSummariesRequest.hash(new byte[][]{digestB, digestA}), is(hash));
+        assertNotEquals(hash, BlobPrefixSummariesRequest.hash(new byte[][]{digestA}));
+        assertThat(BlobPrefixSummariesRequest.hash(new byte[0][]), is(0L));
+    }
 }
@@ -29,6 +29,8 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Iterator;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -57,6 +59,82 @@ public class BlobContainerTest {
         assertThat(fileIterator.hasNext(), is(false));
     }
 
+    @Test
+    public void testStatsAreUpdatedOnMoveAndDelete() throws Exception {
+        File blobsPath = temporaryFolder.newFolder();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        blobContainer.rebuildStats();
+        assertThat(blobContainer.count(), is(0L));
+
+        assertThat(blobContainer.moveIntoContainer(tmpFile(blobContainer, "Content A"), digest("Content A")), is(true));
+        assertThat(blobContainer.moveIntoContainer(tmpFile(blobContainer, "Content BB"), digest("Content BB")), is(true));
+        assertThat(blobContainer.count(), is(2L));
+        assertThat(blobContainer.totalUsage(), is(19L));
+
+        // an existing blob is not counted twice
+        File duplicate = tmpFile(blobContainer, "Content A");
+        assertThat(blobContainer.moveIntoContainer(duplicate, digest("Content A")), is(true));
+        assertThat(duplicate.exists(), is(false));
+        assertThat(blobContainer.count(), is(2L));
+
+        assertThat(blobContainer.delete(digest("Content A")), is(true));
+        assertThat(blobContainer.delete(digest("Content A")), is(false));
+        assertThat(blobContainer.count(), is(1L));
+        assertThat(blobContainer.totalUsage(), is(10L));
+    }
+
+    @Test
+    public void testStatsAreRebuiltFromFiles() throws Exception {
+        File blobsPath = temporaryFolder.newFolder();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        Files.write(blobContainer.getFile(digest("Content A")).toPath(), "Content A".getBytes(StandardCharsets.UTF_8));
+        Files.write(blobContainer.getFile(digest("Content B")).toPath(), "Content B".getBytes(StandardCharsets.UTF_8));
+
+        BlobContainer reopened = new BlobContainer(blobsPath);
+        assertThat(reopened.hasStats(), is(false));
+        reopened.rebuildStats();
+        assertThat(reopened.hasStats(), is(true));
+        assertThat(reopened.count(), is(2L));
+        assertThat(reopened.totalUsage(), is(18L));
+    }
+
+    @Test
+    public void testPersistedStatsAreLoaded() throws Exception {
+        File blobsPath = temporaryFolder.newFolder();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        blobContainer.rebuildStats();
+        blobContainer.moveIntoContainer(tmpFile(blobContainer, "Content A"), digest("Content A"));
+        blobContainer.persistStats();
+
+        BlobContainer reopened = new BlobContainer(blobsPath);
+        assertThat(reopened.hasStats(), is(true));
+        assertThat(reopened.count(), is(1L));
+        assertThat(reopened.totalUsage(), is(9L));
+
+        // the persisted stats are consumed, if the container isn't closed cleanly they're rebuilt
+        assertThat(new BlobContainer(blobsPath).hasStats(), is(false));
+    }
+
+    @Test
+    public void testPersistedStatsAreInvalidatedByChanges() throws Exception {
+        File blobsPath = temporaryFolder.newFolder();
+        BlobContainer blobContainer = new BlobContainer(blobsPath);
+        blobContainer.rebuildStats();
+        blobContainer.persistStats();
+        blobContainer.moveIntoContainer(tmpFile(blobContainer, "Content A"), digest("Content A"));
+
+        BlobContainer reopened = new BlobContainer(blobsPath);
+        assertThat(reopened.hasStats(), is(false));
+        reopened.rebuildStats();
+        assertThat(reopened.count(), is(1L));
+    }
+
+    private static File tmpFile(BlobContainer blobContainer, String content) throws Exception {
+        File file = File.createTempFile("blob", ".tmp", blobContainer.getTmpDirectory());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
     private static String digest(String content) {
         return Hex.encodeHexString(Blobs.digest(content));
     }
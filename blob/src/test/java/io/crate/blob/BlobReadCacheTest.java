@@ -0,0 +1,136 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.blob;
+
+import io.crate.blob.exceptions.DigestNotFoundException;
+import io.crate.common.Hex;
+import io.crate.monitor.CacheStats;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.test.utils.Blobs;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BlobReadCacheTest extends CrateUnitTest {
+
+    @Test
+    public void testSecondReadIsAHit() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        String digest = addBlob(container, "Content A");
+        BlobReadCache cache = new BlobReadCache(1024 * 1024, 1024);
+
+        assertThat(new String(cache.get(container, digest), StandardCharsets.UTF_8), is("Content A"));
+        assertThat(new String(cache.get(container, digest), StandardCharsets.UTF_8), is("Content A"));
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.size(), is(1L));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void testLargeBlobsAreNotCached() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        String digest = addBlob(container, "Content A");
+        BlobReadCache cache = new BlobReadCache(1024 * 1024, 4);
+
+        assertThat(cache.get(container, digest), nullValue());
+        assertThat(cache.stats().size(), is(0L));
+    }
+
+    @Test
+    public void testDisabledCache() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        String digest = addBlob(container, "Content A");
+        BlobReadCache cache = new BlobReadCache(0, 1024);
+
+        assertThat(cache.get(container, digest), nullValue());
+
+        cache.resize(1024 * 1024);
+        assertThat(new String(cache.get(container, digest), StandardCharsets.UTF_8), is("Content A"));
+    }
+
+    @Test
+    public void testDeletedBlobIsNotServed() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        String digest = addBlob(container, "Content A");
+        BlobReadCache cache = new BlobReadCache(1024 * 1024, 1024);
+        cache.get(container, digest);
+
+        container.delete(digest);
+        cache.invalidate(container, digest);
+
+        expectedException.expect(DigestNotFoundException.class);
+        cache.get(container, digest);
+    }
+
+    @Test
+    public void testEntriesAreKeyedOnTheContainer() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        BlobContainer otherContainer = new BlobContainer(createTempDir().toFile());
+        String digest = addBlob(container, "Content A");
+        BlobReadCache cache = new BlobReadCache(1024 * 1024, 1024);
+        cache.get(container, digest);
+
+        expectedException.expect(DigestNotFoundException.class);
+        cache.get(otherContainer, digest);
+    }
+
+    @Test
+    public void testInvalidateAllOfContainer() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        BlobReadCache cache = new BlobReadCache(1024 * 1024, 1024);
+        cache.get(container, addBlob(container, "Content A"));
+        cache.get(container, addBlob(container, "Content B"));
+        assertThat(cache.stats().size(), is(2L));
+
+        cache.invalidateAll(container);
+        assertThat(cache.stats().size(), is(0L));
+        assertThat(cache.stats().usedBytes(), is(0L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        BlobContainer container = new BlobContainer(createTempDir().toFile());
+        // with a single entry per segment the cache can't hold all blobs
+        BlobReadCache cache = new BlobReadCache(1024, 1024);
+        for (int i = 0; i < 20; i++) {
+            cache.get(container, addBlob(container, "Content " + i));
+        }
+        CacheStats stats = cache.stats();
+        assertThat(stats.evictions() > 0, is(true));
+        assertThat(stats.size() + stats.evictions(), is(20L));
+    }
+
+    private static String addBlob(BlobContainer container, String content) throws Exception {
+        String digest = Hex.encodeHexString(Blobs.digest(content));
+        File file = container.getFile(digest);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DirectBufferPoolTest extends CrateUnitTest {
+
+    @Test
+    public void testReleasedBuffersAreReused() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(16, 1);
+        ByteBuffer buffer = pool.acquire();
+        assertThat(buffer.isDirect(), is(true));
+        assertThat(buffer.capacity(), is(16));
+
+        buffer.putInt(42);
+        pool.release(buffer);
+        ByteBuffer reused = pool.acquire();
+        assertThat(reused, sameInstance(buffer));
+        assertThat(reused.position(), is(0));
+        assertThat(reused.remaining(), is(16));
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(16, 1);
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        assertThat(pool.numPooled(), is(1));
+    }
+}
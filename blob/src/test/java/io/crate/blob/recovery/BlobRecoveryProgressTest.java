@@ -0,0 +1,65 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.blob.recovery;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+
+public class BlobRecoveryProgressTest extends CrateUnitTest {
+
+    @Test
+    public void testNothingToRecover() throws Exception {
+        BlobRecoveryProgress progress = new BlobRecoveryProgress();
+        assertThat(progress.recoveredFilesPercent(), is(0.0f));
+        assertThat(progress.recoveredBytesPercent(), is(0.0f));
+    }
+
+    @Test
+    public void testProgress() throws Exception {
+        BlobRecoveryProgress progress = new BlobRecoveryProgress();
+        progress.total(10, 1000);
+        progress.addReusedFiles(6);
+        progress.addRecoveredFile(100);
+        progress.addRecoveredFile(150);
+
+        assertThat(progress.recoveredFiles(), is(2L));
+        assertThat(progress.recoveredBytes(), is(250L));
+        assertThat(progress.recoveredFilesPercent(), is(50.0f));
+        assertThat(progress.recoveredBytesPercent(), is(25.0f));
+    }
+
+    @Test
+    public void testFinishAccountsRemainingBlobsAsReused() throws Exception {
+        BlobRecoveryProgress progress = new BlobRecoveryProgress();
+        progress.total(10, 1000);
+        progress.addReusedFiles(6);
+        progress.addRecoveredFile(100);
+        progress.finish();
+
+        assertThat(progress.reusedFiles(), is(9L));
+        assertThat(progress.reusedBytes(), is(900L));
+        assertThat(progress.recoveredFilesPercent(), is(100.0f));
+        assertThat(progress.recoveredBytesPercent(), is(100.0f));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.core.collections;
+
+/**
+ * A row which can return numeric values without boxing them.
+ *
+ * {@link #getLong(int)} may only be used on columns for which {@link #isIntegral(int)} is true and
+ * {@link #getDouble(int)} only on columns for which {@link #isFloatingPoint(int)} is true.
+ * Both require the value not to be null.
+ */
+public interface PrimitiveRow extends Row {
+
+    boolean isNull(int index);
+
+    /**
+     * @return true if the column stores integral numbers or timestamps, which can be read using {@link #getLong(int)}
+     */
+    boolean isIntegral(int index);
+
+    /**
+     * @return true if the column stores floating point numbers, which can be read using {@link #getDouble(int)}
+     */
+    boolean isFloatingPoint(int index);
+
+    long getLong(int index);
+
+    double getDouble(int index);
+}
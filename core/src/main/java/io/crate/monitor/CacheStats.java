@@ -0,0 +1,75 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.monitor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Point in time statistics of one of the node wide caches, as shown in {@code sys.caches}
+ */
+public class CacheStats {
+
+    private final String name;
+    private final long size;
+    private final Long usedBytes;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    /**
+     * @param usedBytes the memory used by the entries or null if the cache doesn't account for it
+     */
+    public CacheStats(String name, long size, @Nullable Long usedBytes, long hits, long misses, long evictions) {
+        this.name = name;
+        this.size = size;
+        this.usedBytes = usedBytes;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Nullable
+    public Long usedBytes() {
+        return usedBytes;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,68 @@
+#!/usr/bin/env python3
+# -*- coding: utf-8 -*-
+
+""" script to compare two JMH result files written with ``-rf json`` """
+
+import json
+from argparse import ArgumentParser
+
+
+def results(path):
+    """ returns a dict of (benchmark, params) -> primaryMetric of a JMH json result file """
+
+    with open(path, 'r', encoding='utf-8') as f:
+        runs = json.load(f)
+    d = {}
+    for run in runs:
+        params = run.get('params') or {}
+        key = (run['benchmark'], tuple(sorted(params.items())))
+        d[key] = run['primaryMetric']
+    return d
+
+
+def format_key(key):
+    benchmark, params = key
+    name = benchmark.rsplit('.', 2)
+    name = '.'.join(name[-2:])
+    if params:
+        name += ' [' + ', '.join('{}={}'.format(k, v) for k, v in params) + ']'
+    return name
+
+
+def main():
+    p = ArgumentParser(
+        'prints the difference of the scores of two JMH result files')
+    p.add_argument('baseline', type=str, help='result file of the baseline')
+    p.add_argument('contender', type=str, help='result file to compare')
+    p.add_argument('--threshold', type=float, default=5.0,
+                   help='changes below this percentage are not marked')
+    args = p.parse_args()
+
+    baseline = results(args.baseline)
+    contender = results(args.contender)
+
+    print('{:<80} {:>14} {:>14} {:>10}  {}'.format(
+        'Benchmark', 'Baseline', 'Contender', 'Change', 'Unit'))
+    for key in sorted(set(baseline) | set(contender)):
+        old = baseline.get(key)
+        new = contender.get(key)
+        if old is None or new is None:
+            metric = old or new
+            print('{:<80} {:>14} {:>14} {:>10}  {}'.format(
+                format_key(key),
+                '-' if old is None else '{:.3f}'.format(old['score']),
+                '-' if new is None else '{:.3f}'.format(new['score']),
+                '', metric['scoreUnit']))
+            continue
+        change = (new['score'] - old['score']) / old['score'] * 100
+        marker = ''
+        if abs(change) >= args.threshold:
+            # all benchmarks use the average time mode: lower is better
+            marker = 'slower' if change > 0 else 'faster'
+        print('{:<80} {:>14.3f} {:>14.3f} {:>+9.1f}%  {} {}'.format(
+            format_key(key), old['score'], new['score'], change,
+            new['scoreUnit'], marker))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,118 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport;
+
+import io.crate.Streamer;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.jmh.DataDistribution;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a page of rows as it is sent between nodes by distributed queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamBucketBenchmark {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[]{
+        DataTypes.LONG.streamer(),
+        DataTypes.INTEGER.streamer(),
+        DataTypes.DOUBLE.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.STRING.streamer()
+    };
+
+    @Param({"UNIFORM", "ZIPF"})
+    public DataDistribution distribution;
+
+    @Param({"1000", "100000"})
+    public int pageSize;
+
+    private Row[] rows;
+    private BytesReference serialized;
+    private BytesStreamOutput out;
+
+    /**
+     * The rows have an id, a small number, a measurement, a string with few distinct values (like a country)
+     * and a string which is unique per row.
+     */
+    @Setup
+    public void prepare() throws IOException {
+        Random random = new Random(DataDistribution.SEED);
+        int[] smallNumbers = distribution.ordinals(random, pageSize, 1000);
+        int[] categories = distribution.ordinals(random, pageSize, 50);
+        rows = new Row[pageSize];
+        for (int i = 0; i < pageSize; i++) {
+            rows[i] = new RowN(new Object[]{
+                (long) i,
+                smallNumbers[i],
+                random.nextDouble() * 1000,
+                new BytesRef("category_" + categories[i]),
+                new BytesRef("user_" + Long.toHexString(random.nextLong()))
+            });
+        }
+        out = new BytesStreamOutput();
+        // copy, out is re-used by serializePage
+        serialized = serialize().copyBytesArray();
+    }
+
+    private BytesReference serialize() throws IOException {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS);
+        for (Row row : rows) {
+            builder.add(row);
+        }
+        out.reset();
+        builder.writeToStream(out);
+        return out.bytes();
+    }
+
+    @Benchmark
+    public BytesReference serializePage() throws IOException {
+        return serialize();
+    }
+
+    @Benchmark
+    public void deserializePage(Blackhole blackhole) throws IOException {
+        StreamBucket bucket = new StreamBucket(STREAMERS);
+        bucket.readFrom(StreamInput.wrap(serialized));
+        for (Row row : bucket) {
+            for (int i = 0; i < STREAMERS.length; i++) {
+                blackhole.consume(row.get(i));
+            }
+        }
+    }
+}
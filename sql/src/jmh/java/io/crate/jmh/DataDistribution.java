@@ -0,0 +1,87 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.jmh;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Distributions of the values used by the benchmarks.
+ * The values are ordinals in the range [0, cardinality) which the benchmarks map to the actual values.
+ */
+public enum DataDistribution {
+
+    /**
+     * every value has the same probability
+     */
+    UNIFORM {
+        @Override
+        public int[] ordinals(Random random, int numValues, int cardinality) {
+            int[] ordinals = new int[numValues];
+            for (int i = 0; i < numValues; i++) {
+                ordinals[i] = random.nextInt(cardinality);
+            }
+            return ordinals;
+        }
+    },
+
+    /**
+     * the probability of a value is inversely proportional to its rank, few values occur very often
+     * (like countries of users or status codes of requests)
+     */
+    ZIPF {
+        @Override
+        public int[] ordinals(Random random, int numValues, int cardinality) {
+            double[] cumulative = new double[cardinality];
+            double sum = 0;
+            for (int rank = 0; rank < cardinality; rank++) {
+                sum += 1.0d / (rank + 1);
+                cumulative[rank] = sum;
+            }
+            int[] ordinals = new int[numValues];
+            for (int i = 0; i < numValues; i++) {
+                int idx = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                ordinals[i] = Math.min(idx < 0 ? -idx - 1 : idx, cardinality - 1);
+            }
+            return ordinals;
+        }
+    },
+
+    /**
+     * the values are ascending, every value occurs numValues / cardinality times in a row
+     */
+    SORTED {
+        @Override
+        public int[] ordinals(Random random, int numValues, int cardinality) {
+            int[] ordinals = UNIFORM.ordinals(random, numValues, cardinality);
+            Arrays.sort(ordinals);
+            return ordinals;
+        }
+    };
+
+    /**
+     * The seed used by the benchmarks, so all runs and versions work on the same data
+     */
+    public static final long SEED = 42L;
+
+    public abstract int[] ordinals(Random random, int numValues, int cardinality);
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.lucene;
+
+import com.google.common.collect.ImmutableMap;
+import io.crate.analyze.WhereClause;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.analyze.relations.TableRelation;
+import io.crate.metadata.Functions;
+import io.crate.metadata.TableIdent;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.table.TestingTableInfo;
+import io.crate.sql.tree.QualifiedName;
+import io.crate.testing.SqlExpressions;
+import io.crate.types.ArrayType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.MapperService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.index.mapper.core.MapperTestUtils.newMapperService;
+
+/**
+ * Conversion of normalized where clauses into Lucene queries, done once per shard and query.
+ * Queries which need the index cache (LIKE) or field data (geo functions) aren't covered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LuceneQueryBuilderBenchmark {
+
+    private static final Map<String, String> QUERIES = ImmutableMap.<String, String>builder()
+        .put("TERM", "name = 'Arthur'")
+        .put("RANGE_AND", "x > 10 and x <= 100 and d < 20.5")
+        .put("IN_LIST", "x in (" + numbers(100) + ")")
+        .put("OR", "name = 'Arthur' or name = 'Trillian' or x = 42 or d = 0.5")
+        .put("ANY_ARRAY", "10 = any(y_array) and d_array is not null")
+        .put("NOT", "not (name = 'Arthur' or x is null)")
+        .build();
+
+    @Param({"TERM", "RANGE_AND", "IN_LIST", "OR", "ANY_ARRAY", "NOT"})
+    public String query;
+
+    private LuceneQueryBuilder builder;
+    private MapperService mapperService;
+    private WhereClause whereClause;
+
+    @Setup
+    public void prepare() throws Exception {
+        DocTableInfo users = TestingTableInfo.builder(new TableIdent(null, "users"), null)
+            .add("name", DataTypes.STRING)
+            .add("x", DataTypes.INTEGER)
+            .add("d", DataTypes.DOUBLE)
+            .add("d_array", new ArrayType(DataTypes.DOUBLE))
+            .add("y_array", new ArrayType(DataTypes.LONG))
+            .build();
+        TableRelation usersTr = new TableRelation(users);
+        Map<QualifiedName, AnalyzedRelation> sources =
+            ImmutableMap.<QualifiedName, AnalyzedRelation>of(new QualifiedName("users"), usersTr);
+        SqlExpressions expressions = new SqlExpressions(sources, usersTr);
+        builder = new LuceneQueryBuilder(expressions.getInstance(Functions.class));
+
+        Settings indexSettings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .build();
+        mapperService = newMapperService(Files.createTempDirectory("lucene-query-builder-benchmark"), indexSettings);
+        whereClause = new WhereClause(expressions.normalize(expressions.asSymbol(QUERIES.get(query))));
+    }
+
+    @Benchmark
+    public Query convert() {
+        return builder.convert(whereClause, mapperService, null, null).query;
+    }
+
+    private static String numbers(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.merge;
+
+import com.google.common.collect.Ordering;
+import io.crate.core.collections.ArrayBucket;
+import io.crate.core.collections.Bucket;
+import io.crate.core.collections.Row;
+import io.crate.jmh.DataDistribution;
+import io.crate.operation.projectors.sorting.OrderingByPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortedPagingIteratorBenchmark {
+
+    private static final int NUM_ROWS = 1_000_000;
+    private static final Ordering<Row> ORDERING =
+        OrderingByPosition.rowOrdering(new int[]{0}, new boolean[]{false}, new Boolean[]{null});
+
+    @Param({"UNIFORM", "ZIPF"})
+    public DataDistribution distribution;
+
+    @Param({"2", "8"})
+    public int numBuckets;
+
+    private List<KeyIterable<Integer, Row>> firstPage;
+    private List<KeyIterable<Integer, Row>> secondPage;
+
+    /**
+     * Creates two pages with numBuckets sorted buckets each, like the pages of numBuckets upstreams.
+     */
+    @Setup
+    public void prepare() {
+        Random random = new Random(DataDistribution.SEED);
+        int rowsPerBucket = NUM_ROWS / numBuckets / 2;
+        firstPage = new ArrayList<>(numBuckets);
+        secondPage = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            int[] firstOrdinals = distribution.ordinals(random, rowsPerBucket * 2, NUM_ROWS);
+            Arrays.sort(firstOrdinals);
+            firstPage.add(new KeyIterable<Integer, Row>(i, bucket(firstOrdinals, 0, rowsPerBucket)));
+            secondPage.add(new KeyIterable<Integer, Row>(i, bucket(firstOrdinals, rowsPerBucket, rowsPerBucket * 2)));
+        }
+    }
+
+    private static Bucket bucket(int[] sortedOrdinals, int from, int to) {
+        Object[][] rows = new Object[to - from][];
+        for (int i = from; i < to; i++) {
+            rows[i - from] = new Object[]{(long) sortedOrdinals[i]};
+        }
+        return new ArrayBucket(rows);
+    }
+
+    @Benchmark
+    public void mergeTwoPages(Blackhole blackhole) throws Exception {
+        SortedPagingIterator<Integer, Row> iterator = new SortedPagingIterator<>(ORDERING, false);
+        consumeAll(iterator, blackhole);
+    }
+
+    @Benchmark
+    public void mergeTwoPagesAndRepeat(Blackhole blackhole) throws Exception {
+        SortedPagingIterator<Integer, Row> iterator = new SortedPagingIterator<>(ORDERING, true);
+        consumeAll(iterator, blackhole);
+        for (Row row : iterator.repeat()) {
+            blackhole.consume(row.get(0));
+        }
+    }
+
+    private void consumeAll(SortedPagingIterator<Integer, Row> iterator, Blackhole blackhole) {
+        iterator.merge(firstPage);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next().get(0));
+        }
+        iterator.merge(secondPage);
+        iterator.finish();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next().get(0));
+        }
+    }
+}
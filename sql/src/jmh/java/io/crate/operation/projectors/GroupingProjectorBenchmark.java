@@ -6,7 +6,7 @@
  * you may not use this file except in compliance with the License.  You may
  * obtain a copy of the License at
  *
- *     http://www.apache.org/licenses/LICENSE-2.0
+ *   http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
@@ -21,12 +21,13 @@
 
 package io.crate.operation.projectors;
 
-import com.carrotsearch.junitbenchmarks.BenchmarkRule;
 import io.crate.analyze.symbol.Aggregation;
 import io.crate.analyze.symbol.InputColumn;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Bucket;
 import io.crate.core.collections.Row;
+import io.crate.jmh.DataDistribution;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionInfo;
 import io.crate.metadata.Functions;
@@ -45,109 +46,114 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.inject.ModulesBuilder;
-import org.junit.Rule;
-import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
-
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
 public class GroupingProjectorBenchmark {
 
+    private static final int NUM_ROWS = 1_000_000;
     private static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
         new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
 
-    @Rule
-    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+    @Param({"UNIFORM", "ZIPF"})
+    public DataDistribution distribution;
 
-    class SpareRow implements Row {
+    @Param({"200", "100000"})
+    public int cardinality;
 
-        Object value;
+    private Functions functions;
+    private Row[] stringRows;
+    private Row[] longRows;
 
-        @Override
-        public int size() {
-            return 1;
-        }
+    @Setup
+    public void prepare() {
+        functions = new ModulesBuilder().add(new AggregationImplModule())
+            .createInjector().getInstance(Functions.class);
 
-        @Override
-        public Object get(int index) {
-            return value;
+        BytesRef[] keys = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = new BytesRef("key_" + i);
         }
-
-        @Override
-        public Object[] materialize() {
-            return new Object[]{value};
+        int[] ordinals = distribution.ordinals(new Random(DataDistribution.SEED), NUM_ROWS, cardinality);
+        stringRows = new Row[NUM_ROWS];
+        longRows = new Row[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            stringRows[i] = new SingleValueRow(keys[ordinals[i]]);
+            longRows[i] = new SingleValueRow((long) ordinals[i]);
         }
     }
 
-    @Test
-    public void testGroupByMinBytesRef() throws Exception {
-        Functions functions = new ModulesBuilder().add(new AggregationImplModule())
-            .createInjector().getInstance(Functions.class);
+    @Benchmark
+    public Bucket groupByMinString() throws Exception {
+        return groupBy(DataTypes.STRING, MinimumAggregation.NAME, DataTypes.STRING, stringRows);
+    }
 
+    @Benchmark
+    public Bucket groupBySumLong() throws Exception {
+        return groupBy(DataTypes.LONG, SumAggregation.NAME, DataTypes.LONG, longRows);
+    }
+
+    private Bucket groupBy(DataType keyType, String aggregationName, DataType returnType, Row[] rows) throws Exception {
         InputCollectExpression keyInput = new InputCollectExpression(0);
-        List<Input<?>> keyInputs = Arrays.<Input<?>>asList(keyInput);
+        List<Input<?>> keyInputs = Collections.<Input<?>>singletonList(keyInput);
         CollectExpression[] collectExpressions = new CollectExpression[]{keyInput};
 
-        FunctionIdent minStringFuncIdent = new FunctionIdent(MinimumAggregation.NAME,
-            Arrays.<DataType>asList(DataTypes.STRING));
-        FunctionInfo minStringFuncInfo = new FunctionInfo(minStringFuncIdent, DataTypes.STRING, FunctionInfo.Type.AGGREGATE);
-        AggregationFunction minAgg = (AggregationFunction) functions.get(minStringFuncIdent);
-        Aggregation aggregation = Aggregation.finalAggregation(minStringFuncInfo,
+        FunctionIdent functionIdent = new FunctionIdent(aggregationName, Arrays.asList(keyType));
+        FunctionInfo functionInfo = new FunctionInfo(functionIdent, returnType, FunctionInfo.Type.AGGREGATE);
+        Aggregation aggregation = Aggregation.finalAggregation(functionInfo,
             Arrays.<Symbol>asList(new InputColumn(0)), Aggregation.Step.ITER);
-        AggregationContext aggregationContext = new AggregationContext(minAgg, aggregation);
+        AggregationContext aggregationContext =
+            new AggregationContext((AggregationFunction) functions.get(functionIdent), aggregation);
         aggregationContext.addInput(keyInput);
-        AggregationContext[] aggregations = new AggregationContext[]{aggregationContext};
-        GroupingProjector groupingProjector = new GroupingProjector(
-            Arrays.<DataType>asList(DataTypes.STRING), keyInputs, collectExpressions, aggregations, RAM_ACCOUNTING_CONTEXT);
-        RowReceiver finalReceiver = new RowCountRowReceiver();
-        groupingProjector.downstream(finalReceiver);
-
 
-        List<BytesRef> keys = new ArrayList<>(Locale.getISOCountries().length);
-        for (String s : Locale.getISOCountries()) {
-            keys.add(new BytesRef(s));
-        }
-
-        SpareRow row = new SpareRow();
-        for (int i = 0; i < 20_000_000; i++) {
-            row.value = keys.get(i % keys.size());
+        GroupingProjector groupingProjector = new GroupingProjector(
+            Collections.singletonList(keyType),
+            keyInputs,
+            collectExpressions,
+            new AggregationContext[]{aggregationContext},
+            RAM_ACCOUNTING_CONTEXT);
+        RowCountRowReceiver rowReceiver = new RowCountRowReceiver();
+        groupingProjector.downstream(rowReceiver);
+
+        for (Row row : rows) {
             groupingProjector.setNextRow(row);
         }
-
         groupingProjector.finish(RepeatHandle.UNSUPPORTED);
+        return rowReceiver.result();
     }
 
-    @Test
-    public void testGroupBySumInteger() throws Exception {
-        Functions functions = new ModulesBuilder().add(new AggregationImplModule())
-            .createInjector().getInstance(Functions.class);
+    private static class SingleValueRow implements Row {
 
-        InputCollectExpression keyInput = new InputCollectExpression(0);
-        List<Input<?>> keyInputs = Arrays.<Input<?>>asList(keyInput);
-        CollectExpression[] collectExpressions = new CollectExpression[]{keyInput};
+        private final Object value;
 
-        FunctionIdent functionIdent = new FunctionIdent(SumAggregation.NAME,
-            Arrays.<DataType>asList(DataTypes.INTEGER));
-        FunctionInfo functionInfo = new FunctionInfo(functionIdent, DataTypes.INTEGER, FunctionInfo.Type.AGGREGATE);
-        AggregationFunction minAgg = (AggregationFunction) functions.get(functionIdent);
-        Aggregation aggregation = Aggregation.finalAggregation(functionInfo,
-            Arrays.<Symbol>asList(new InputColumn(0)), Aggregation.Step.ITER);
-        AggregationContext aggregationContext = new AggregationContext(minAgg, aggregation);
-        aggregationContext.addInput(keyInput);
-        AggregationContext[] aggregations = new AggregationContext[]{aggregationContext};
-        GroupingProjector groupingProjector = new GroupingProjector(
-            Arrays.<DataType>asList(DataTypes.INTEGER), keyInputs, collectExpressions, aggregations, RAM_ACCOUNTING_CONTEXT);
-        RowReceiver finalReceiver = new RowCountRowReceiver();
-        groupingProjector.downstream(finalReceiver);
+        SingleValueRow(Object value) {
+            this.value = value;
+        }
 
-        SpareRow row = new SpareRow();
-        for (int i = 0; i < 20_000_000; i++) {
-            row.value = i % 200;
-            groupingProjector.setNextRow(row);
+        @Override
+        public int size() {
+            return 1;
         }
 
-        groupingProjector.finish(RepeatHandle.UNSUPPORTED);
+        @Override
+        public Object get(int index) {
+            return value;
+        }
+
+        @Override
+        public Object[] materialize() {
+            return new Object[]{value};
+        }
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.projectors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import io.crate.core.collections.Bucket;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.jmh.DataDistribution;
+import io.crate.operation.Input;
+import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.collect.InputCollectExpression;
+import io.crate.operation.projectors.sorting.OrderingByPosition;
+import io.crate.testing.RowCountRowReceiver;
+import org.apache.lucene.util.BytesRef;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortingTopNProjectorBenchmark {
+
+    private static final int NUM_ROWS = 1_000_000;
+    private static final Ordering<Object[]> FIRST_CELL_ORDERING = OrderingByPosition.arrayOrdering(0, false, null);
+
+    @Param({"UNIFORM", "ZIPF", "SORTED"})
+    public DataDistribution distribution;
+
+    @Param({"10", "10000"})
+    public int limit;
+
+    private Row[] rows;
+
+    @Setup
+    public void prepare() {
+        int[] ordinals = distribution.ordinals(new Random(DataDistribution.SEED), NUM_ROWS, NUM_ROWS);
+        rows = new Row[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows[i] = new RowN(new Object[]{(long) ordinals[i], new BytesRef("payload_" + i)});
+        }
+    }
+
+    @Benchmark
+    public Bucket orderByLimit() throws Exception {
+        InputCollectExpression sortKey = new InputCollectExpression(0);
+        InputCollectExpression payload = new InputCollectExpression(1);
+        List<Input<?>> inputs = ImmutableList.<Input<?>>of(sortKey, payload);
+        List<CollectExpression<Row, ?>> collectExpressions = ImmutableList.<CollectExpression<Row, ?>>of(sortKey, payload);
+
+        SortingTopNProjector projector = new SortingTopNProjector(
+            inputs, collectExpressions, 2, FIRST_CELL_ORDERING, limit, TopN.NO_OFFSET);
+        RowCountRowReceiver rowReceiver = new RowCountRowReceiver();
+        projector.downstream(rowReceiver);
+
+        for (Row row : rows) {
+            projector.setNextRow(row);
+        }
+        projector.finish(RepeatHandle.UNSUPPORTED);
+        return rowReceiver.result();
+    }
+}
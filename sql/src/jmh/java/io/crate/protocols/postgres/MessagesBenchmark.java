@@ -0,0 +1,151 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.jmh.DataDistribution;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of the DataRow messages of a result set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagesBenchmark {
+
+    private static final int NUM_ROWS = 10_000;
+    private static final List<DataType> COLUMN_TYPES = Arrays.<DataType>asList(
+        DataTypes.LONG,
+        DataTypes.INTEGER,
+        DataTypes.DOUBLE,
+        DataTypes.STRING,
+        DataTypes.TIMESTAMP,
+        DataTypes.BOOLEAN
+    );
+
+    @Param({"TEXT", "BINARY"})
+    public FormatCodes.FormatCode formatCode;
+
+    private Row[] rows;
+    private FormatCodes.FormatCode[] formatCodes;
+    private DiscardingChannel channel;
+
+    @Setup
+    public void prepare() {
+        Random random = new Random(DataDistribution.SEED);
+        int[] categories = DataDistribution.ZIPF.ordinals(random, NUM_ROWS, 50);
+        rows = new Row[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows[i] = new RowN(new Object[]{
+                (long) i,
+                random.nextInt(1000),
+                random.nextDouble() * 1000,
+                new BytesRef("category_" + categories[i]),
+                1476000000000L + random.nextInt(1_000_000_000),
+                // every 10th value is null
+                i % 10 == 0 ? null : random.nextBoolean()
+            });
+        }
+        formatCodes = new FormatCodes.FormatCode[]{formatCode};
+        channel = new DiscardingChannel();
+    }
+
+    @Benchmark
+    public long sendDataRows() {
+        for (Row row : rows) {
+            Messages.sendDataRow(channel, row, COLUMN_TYPES, formatCodes);
+        }
+        return channel.bytesWritten;
+    }
+
+    @Benchmark
+    public long sendDataRowsBatched() {
+        ResultSetReceiver receiver = new ResultSetReceiver("select ...", channel, COLUMN_TYPES, formatCodes);
+        for (Row row : rows) {
+            receiver.setNextRow(row);
+        }
+        receiver.batchFinished();
+        return channel.bytesWritten;
+    }
+
+    /**
+     * A channel which only counts the bytes written to it
+     */
+    private static class DiscardingChannel extends AbstractChannel {
+
+        private long bytesWritten = 0;
+
+        DiscardingChannel() {
+            super(null, null, Channels.pipeline(), new AbstractChannelSink() {
+                @Override
+                public void eventSunk(ChannelPipeline pipeline, ChannelEvent e) throws Exception {
+                    if (e instanceof MessageEvent) {
+                        ChannelBuffer buffer = (ChannelBuffer) ((MessageEvent) e).getMessage();
+                        ((DiscardingChannel) e.getChannel()).bytesWritten += buffer.readableBytes();
+                        e.getFuture().setSuccess();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public ChannelConfig getConfig() {
+            return null;
+        }
+
+        @Override
+        public boolean isBound() {
+            return true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+    }
+}
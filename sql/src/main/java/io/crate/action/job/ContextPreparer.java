@@ -46,6 +46,9 @@ import io.crate.operation.collect.JobCollectContext;
 import io.crate.operation.collect.MapSideDataCollectOperation;
 import io.crate.operation.count.CountOperation;
 import io.crate.operation.fetch.FetchContext;
+import io.crate.operation.join.HashJoinKey;
+import io.crate.operation.join.HashJoinOperation;
+import io.crate.operation.join.JoinOperation;
 import io.crate.operation.join.NestedLoopOperation;
 import io.crate.operation.projectors.DistributingDownstreamFactory;
 import io.crate.operation.projectors.FlatProjectorChain;
@@ -464,6 +467,7 @@ public class ContextPreparer extends AbstractComponent {
         @Override
         public Boolean visitMergePhase(final MergePhase phase, final PreparerContext context) {
             RamAccountingContext ramAccountingContext = RamAccountingContext.forExecutionPhase(circuitBreaker, phase);
+            OperationStats operationStats = new OperationStats();
 
             boolean upstreamOnSameNode = context.opCtx.upstreamsAreOnSameNode(phase.phaseId());
 
@@ -479,7 +483,8 @@ public class ContextPreparer extends AbstractComponent {
                         pageDownstreamFactory.projectorFactory(),
                         phase.projections(),
                         rowReceiver,
-                        ramAccountingContext);
+                        ramAccountingContext,
+                        operationStats);
                     context.registerRowReceiver(phase.phaseId(), projectorChainContext.rowReceiver());
                     context.registerSubContext(projectorChainContext);
                     return true;
@@ -495,6 +500,7 @@ public class ContextPreparer extends AbstractComponent {
                     rowReceiver,
                     false,
                     ramAccountingContext,
+                    operationStats,
                     // no separate executor because TransportDistributedResultAction already runs in a threadPool
                     Optional.<Executor>absent());
 
@@ -507,6 +513,7 @@ public class ContextPreparer extends AbstractComponent {
                 pageDownstreamProjectorChain.v1(),
                 DataTypes.getStreamers(phase.inputTypes()),
                 ramAccountingContext,
+                operationStats,
                 phase.numUpstreams(),
                 pageDownstreamProjectorChain.v2()));
             return true;
@@ -516,6 +523,7 @@ public class ContextPreparer extends AbstractComponent {
         @Override
         public Boolean visitRoutedCollectPhase(final RoutedCollectPhase phase, final PreparerContext context) {
             RamAccountingContext ramAccountingContext = RamAccountingContext.forExecutionPhase(circuitBreaker, phase);
+            OperationStats operationStats = new OperationStats();
             RowReceiver rowReceiver = context.getRowReceiver(phase,
                 MoreObjects.firstNonNull(phase.nodePageSizeHint(), Paging.PAGE_SIZE));
             context.registerSubContext(new JobCollectContext(
@@ -523,6 +531,7 @@ public class ContextPreparer extends AbstractComponent {
                 collectOperation,
                 clusterService.state().nodes().localNodeId(),
                 ramAccountingContext,
+                operationStats,
                 rowReceiver,
                 context.sharedShardContexts
             ));
@@ -532,12 +541,14 @@ public class ContextPreparer extends AbstractComponent {
         @Override
         public Boolean visitCollectPhase(CollectPhase phase, PreparerContext context) {
             RamAccountingContext ramAccountingContext = RamAccountingContext.forExecutionPhase(circuitBreaker, phase);
+            OperationStats operationStats = new OperationStats();
             RowReceiver rowReceiver = context.getRowReceiver(phase, Paging.PAGE_SIZE);
             context.registerSubContext(new JobCollectContext(
                 phase,
                 collectOperation,
                 clusterService.state().nodes().localNodeId(),
                 ramAccountingContext,
+                operationStats,
                 rowReceiver,
                 context.sharedShardContexts
             ));
@@ -571,6 +582,7 @@ public class ContextPreparer extends AbstractComponent {
         @Override
         public Boolean visitNestedLoopPhase(NestedLoopPhase phase, PreparerContext context) {
             RamAccountingContext ramAccountingContext = RamAccountingContext.forExecutionPhase(circuitBreaker, phase);
+            OperationStats operationStats = new OperationStats();
             RowReceiver downstreamRowReceiver = context.getRowReceiver(phase, Paging.PAGE_SIZE);
 
             FlatProjectorChain flatProjectorChain;
@@ -578,6 +590,7 @@ public class ContextPreparer extends AbstractComponent {
                 flatProjectorChain = FlatProjectorChain.withAttachedDownstream(
                     pageDownstreamFactory.projectorFactory(),
                     ramAccountingContext,
+                    operationStats,
                     phase.projections(),
                     downstreamRowReceiver,
                     phase.jobId()
@@ -587,20 +600,36 @@ public class ContextPreparer extends AbstractComponent {
             }
             Predicate<Row> joinCondition = RowFilter.create(symbolVisitor, phase.joinCondition());
 
-            NestedLoopOperation nestedLoopOperation = new NestedLoopOperation(
-                phase.phaseId(),
-                flatProjectorChain.firstProjector(),
-                joinCondition,
-                phase.joinType(),
-                phase.numLeftOutputs(),
-                phase.numRightOutputs());
+            JoinOperation joinOperation;
+            if (phase.isHashJoin()) {
+                joinOperation = new HashJoinOperation(
+                    phase.phaseId(),
+                    flatProjectorChain.firstProjector(),
+                    joinCondition,
+                    phase.joinType(),
+                    phase.numLeftOutputs(),
+                    phase.numRightOutputs(),
+                    HashJoinKey.create(symbolVisitor, phase.leftJoinKeys()),
+                    HashJoinKey.create(symbolVisitor, phase.rightJoinKeys()),
+                    phase.buildLeft(),
+                    ramAccountingContext);
+            } else {
+                joinOperation = new NestedLoopOperation(
+                    phase.phaseId(),
+                    flatProjectorChain.firstProjector(),
+                    joinCondition,
+                    phase.joinType(),
+                    phase.numLeftOutputs(),
+                    phase.numRightOutputs());
+            }
             PageDownstreamContext left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
                 (byte) 0,
                 phase.leftMergePhase(),
-                nestedLoopOperation.leftRowReceiver(),
-                ramAccountingContext);
+                joinOperation.leftRowReceiver(),
+                ramAccountingContext,
+                operationStats);
             if (left != null) {
                 context.registerSubContext(left);
             }
@@ -609,8 +638,9 @@ public class ContextPreparer extends AbstractComponent {
                 context,
                 (byte) 1,
                 phase.rightMergePhase(),
-                nestedLoopOperation.rightRowReceiver(),
-                ramAccountingContext
+                joinOperation.rightRowReceiver(),
+                ramAccountingContext,
+                operationStats
             );
             if (right != null) {
                 context.registerSubContext(right);
@@ -619,7 +649,7 @@ public class ContextPreparer extends AbstractComponent {
                 nlContextLogger,
                 phase,
                 flatProjectorChain,
-                nestedLoopOperation,
+                joinOperation,
                 left,
                 right
             ));
@@ -632,7 +662,8 @@ public class ContextPreparer extends AbstractComponent {
                                                                          byte inputId,
                                                                          @Nullable MergePhase mergePhase,
                                                                          RowReceiver downstream,
-                                                                         RamAccountingContext ramAccountingContext) {
+                                                                         RamAccountingContext ramAccountingContext,
+                                                                         OperationStats operationStats) {
             if (mergePhase == null) {
                 ctx.phaseIdToRowReceivers.put(toKey(nlPhaseId, inputId), downstream);
                 return null;
@@ -642,6 +673,7 @@ public class ContextPreparer extends AbstractComponent {
                 downstream,
                 true,
                 ramAccountingContext,
+                operationStats,
                 Optional.of(threadPool.executor(ThreadPool.Names.SEARCH))
             );
             return new PageDownstreamContext(
@@ -652,6 +684,7 @@ public class ContextPreparer extends AbstractComponent {
                 pageDownstreamWithChain.v1(),
                 StreamerVisitor.streamersFromOutputs(mergePhase),
                 ramAccountingContext,
+                operationStats,
                 mergePhase.numUpstreams(),
                 pageDownstreamWithChain.v2()
             );
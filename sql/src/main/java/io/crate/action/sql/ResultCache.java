@@ -0,0 +1,531 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.crate.breaker.ConstSizeEstimator;
+import io.crate.breaker.CrateCircuitBreakerService;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.core.collections.Row;
+import io.crate.metadata.Reference;
+import io.crate.metadata.Schemas;
+import io.crate.metadata.TableIdent;
+import io.crate.metadata.doc.DocTableInfo;
+import io.crate.metadata.table.TableInfo;
+import io.crate.monitor.CacheStats;
+import io.crate.operation.projectors.ResumeHandle;
+import io.crate.operation.scalar.arithmetic.RandomFunction;
+import io.crate.operation.scalar.timestamp.CurrentTimestampFunction;
+import io.crate.sql.tree.*;
+import io.crate.types.DataType;
+import io.crate.types.FixedWidthType;
+import io.crate.types.IpType;
+import io.crate.types.StringType;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequest;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.action.admin.indices.stats.ShardStats;
+import org.elasticsearch.action.admin.indices.stats.TransportIndicesStatsAction;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node wide cache of the results of read-only queries, keyed on the parsed statement, the parameters,
+ * the session settings which influence the result and the concrete indices and columns of the involved tables.
+ * Schema changes like added columns or new partitions therefore lead to a different key.
+ * <p>
+ * Every entry is stored together with the version of the shards it was computed from: the allocation,
+ * the number of index and delete operations and the number of refreshes of every shard copy of the
+ * involved tables. A lookup first fetches the current version using the indices stats of these shards;
+ * an entry is only used if the version didn't change, so writes and refreshes invalidate it.
+ * <p>
+ * The cache is disabled by default. Its memory is bounded by {@link #CACHE_SIZE_SETTING} and
+ * accounted on the query circuit breaker; the least recently used entries are evicted first.
+ */
+@Singleton
+public class ResultCache {
+
+    private static final ESLogger LOGGER = Loggers.getLogger(ResultCache.class);
+
+    public static final String NAME = "result";
+    public static final String CACHE_SIZE_SETTING = "node.sql.result_cache.size";
+
+    /**
+     * Results which need more than this fraction of the cache size are not cached
+     */
+    private static final int MAX_ENTRY_FRACTION = 10;
+
+    private static final String BREAKER_LABEL = "result_cache";
+
+    /**
+     * size of an Object[] and the reference to it in the list, without the cells
+     */
+    private static final long ROW_OVERHEAD = 24;
+
+    /**
+     * rough estimate for values of types without a {@link SizeEstimator}, like objects and arrays
+     */
+    private static final long UNKNOWN_VALUE_SIZE = 64;
+
+    private static final Set<String> NON_DETERMINISTIC_FUNCTIONS =
+        ImmutableSet.of(RandomFunction.NAME, CurrentTimestampFunction.NAME);
+
+    private final Schemas schemas;
+    private final TransportIndicesStatsAction indicesStatsAction;
+    private final CircuitBreaker breaker;
+    private final long maxEntryBytes;
+
+    @Nullable
+    private final Cache<Key, Entry> cache;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Inject
+    public ResultCache(Settings settings,
+                       Schemas schemas,
+                       CrateCircuitBreakerService breakerService,
+                       TransportIndicesStatsAction indicesStatsAction) {
+        this(settings.getAsBytesSize(CACHE_SIZE_SETTING, new ByteSizeValue(0)).bytes(),
+            schemas,
+            breakerService.getBreaker(CrateCircuitBreakerService.QUERY),
+            indicesStatsAction);
+    }
+
+    ResultCache(long maxBytes,
+                Schemas schemas,
+                CircuitBreaker breaker,
+                TransportIndicesStatsAction indicesStatsAction) {
+        this.schemas = schemas;
+        this.breaker = breaker;
+        this.indicesStatsAction = indicesStatsAction;
+        this.maxEntryBytes = Math.min(maxBytes / MAX_ENTRY_FRACTION, Integer.MAX_VALUE);
+        if (maxEntryBytes > 0) {
+            cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(new Weigher<Key, Entry>() {
+                    @Override
+                    public int weigh(@Nonnull Key key, @Nonnull Entry entry) {
+                        return (int) entry.bytes;
+                    }
+                })
+                .removalListener(new RemovalListener<Key, Entry>() {
+                    @Override
+                    public void onRemoval(@Nonnull RemovalNotification<Key, Entry> notification) {
+                        Entry entry = notification.getValue();
+                        if (entry != null) {
+                            usedBytes.addAndGet(-entry.bytes);
+                            ResultCache.this.breaker.addWithoutBreaking(-entry.bytes);
+                        }
+                        if (notification.wasEvicted()) {
+                            evictions.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Returns the key under which the result of the statement can be cached or null if the result
+     * must not be cached, e.g. because the cache is disabled, the statement uses non-deterministic functions,
+     * accesses tables which aren't doc tables or only a part of the result is requested.
+     */
+    @Nullable
+    public Key createKey(Statement statement, List<Object> params, SessionContext sessionContext, int maxRows) {
+        if (cache == null || maxRows != 0 || !(statement instanceof Query)) {
+            return null;
+        }
+        CacheableStatementVisitor.Context context = new CacheableStatementVisitor.Context();
+        CacheableStatementVisitor.INSTANCE.process(statement, context);
+        if (!context.deterministic) {
+            return null;
+        }
+        Set<String> indices = new TreeSet<>();
+        ImmutableSet.Builder<Reference> columns = ImmutableSet.builder();
+        for (Table table : context.tables) {
+            TableInfo tableInfo = schemas.getTableInfo(TableIdent.of(table, sessionContext.defaultSchema()));
+            if (!(tableInfo instanceof DocTableInfo)) {
+                return null;
+            }
+            indices.addAll(Arrays.asList(((DocTableInfo) tableInfo).concreteIndices()));
+            columns.addAll(tableInfo);
+        }
+        return new Key(statement, params, sessionContext, indices.toArray(new String[indices.size()]), columns.build());
+    }
+
+    /**
+     * Fetches the current version of the shards of the tables used by the statement of the key
+     */
+    public ListenableFuture<Version> currentVersion(Key key) {
+        if (key.indices.length == 0) {
+            return Futures.immediateFuture(Version.EMPTY);
+        }
+        final SettableFuture<Version> future = SettableFuture.create();
+        IndicesStatsRequest request = new IndicesStatsRequest()
+            .clear()
+            .indexing(true)
+            .refresh(true);
+        request.indices(key.indices);
+        indicesStatsAction.execute(request, new ActionListener<IndicesStatsResponse>() {
+            @Override
+            public void onResponse(IndicesStatsResponse response) {
+                if (response.getFailedShards() > 0) {
+                    future.setException(new IllegalStateException(
+                        "Couldn't get the version of " + response.getFailedShards() + " shards"));
+                    return;
+                }
+                future.set(Version.of(response.getShards()));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                future.setException(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the cached rows if the result was computed for the given version or null otherwise
+     */
+    @Nullable
+    public List<Object[]> get(Key key, Version version) {
+        assert cache != null : "keys are only created if the cache is enabled";
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!entry.version.equals(version)) {
+            misses.incrementAndGet();
+            // a shard has changed since the result was computed, so it will never be valid again
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.rows;
+    }
+
+    /**
+     * Returns a receiver which puts the rows it receives into the cache once they have been received
+     * completely, unless they require too much memory.
+     */
+    public ResumableResultReceiver cachingReceiver(Key key,
+                                                   Version version,
+                                                   List<? extends DataType> outputTypes,
+                                                   ResultReceiver delegate) {
+        return new CachingResultReceiver(this, key, version, sizeEstimators(outputTypes), delegate);
+    }
+
+    private void put(Key key, Version version, List<Object[]> rows, long bytes) {
+        assert cache != null : "keys are only created if the cache is enabled";
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(bytes, BREAKER_LABEL);
+        } catch (CircuitBreakingException e) {
+            LOGGER.debug("Not caching the result of {} because the circuit breaker tripped", key.statement);
+            return;
+        }
+        usedBytes.addAndGet(bytes);
+        cache.put(key, new Entry(version, rows, bytes));
+    }
+
+    public CacheStats stats() {
+        if (cache == null) {
+            return new CacheStats(NAME, 0L, 0L, 0L, 0L, 0L);
+        }
+        return new CacheStats(NAME, cache.size(), usedBytes.get(), hits.get(), misses.get(), evictions.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SizeEstimator<Object>[] sizeEstimators(List<? extends DataType> rowTypes) {
+        SizeEstimator<Object>[] estimators = new SizeEstimator[rowTypes.size()];
+        for (int i = 0; i < estimators.length; i++) {
+            DataType type = rowTypes.get(i);
+            if (type instanceof FixedWidthType || type.id() == StringType.ID || type.id() == IpType.ID) {
+                estimators[i] = SizeEstimatorFactory.create(type);
+            } else {
+                estimators[i] = new ConstSizeEstimator(UNKNOWN_VALUE_SIZE);
+            }
+        }
+        return estimators;
+    }
+
+    public static class Key {
+
+        private final Statement statement;
+        private final Object[] params;
+        @Nullable
+        private final String defaultSchema;
+        private final Set<Option> options;
+        private final int defaultLimit;
+        private final String[] indices;
+        private final Set<Reference> columns;
+        private final int hashCode;
+
+        private Key(Statement statement,
+                    List<Object> params,
+                    SessionContext sessionContext,
+                    String[] indices,
+                    Set<Reference> columns) {
+            this.statement = statement;
+            this.params = params.toArray();
+            this.defaultSchema = sessionContext.defaultSchema();
+            this.options = sessionContext.options();
+            this.defaultLimit = sessionContext.defaultLimit();
+            this.indices = indices;
+            this.columns = columns;
+            this.hashCode = Objects.hash(statement, Arrays.deepHashCode(this.params), defaultSchema, options,
+                defaultLimit, Arrays.hashCode(indices), columns);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode &&
+                   defaultLimit == key.defaultLimit &&
+                   statement.equals(key.statement) &&
+                   Arrays.deepEquals(params, key.params) &&
+                   Objects.equals(defaultSchema, key.defaultSchema) &&
+                   options.equals(key.options) &&
+                   Arrays.equals(indices, key.indices) &&
+                   columns.equals(key.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The version of all shard copies of a set of indices
+     */
+    public static class Version {
+
+        private static final Version EMPTY = new Version(ImmutableMap.<String, List<Long>>of());
+
+        private final Map<String, List<Long>> shardVersions;
+
+        Version(Map<String, List<Long>> shardVersions) {
+            this.shardVersions = shardVersions;
+        }
+
+        static Version of(ShardStats[] shardStats) {
+            Map<String, List<Long>> shardVersions = new HashMap<>(shardStats.length);
+            for (ShardStats stats : shardStats) {
+                // a relocated or recovered shard starts counting from 0 again, but gets a new allocation id
+                String shardCopy = stats.getShardRouting().shardId() + "[" + stats.getShardRouting().allocationId().getId() + "]";
+                shardVersions.put(shardCopy, ImmutableList.of(
+                    stats.getStats().getRefresh().getTotal(),
+                    stats.getStats().getIndexing().getTotal().getIndexCount(),
+                    stats.getStats().getIndexing().getTotal().getDeleteCount()));
+            }
+            return new Version(shardVersions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return shardVersions.equals(((Version) o).shardVersions);
+        }
+
+        @Override
+        public int hashCode() {
+            return shardVersions.hashCode();
+        }
+    }
+
+    private static class Entry {
+
+        private final Version version;
+        private final List<Object[]> rows;
+        private final long bytes;
+
+        Entry(Version version, List<Object[]> rows, long bytes) {
+            this.version = version;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class CachingResultReceiver implements ResumableResultReceiver {
+
+        private final ResultCache resultCache;
+        private final Key key;
+        private final Version version;
+        private final SizeEstimator<Object>[] sizeEstimators;
+        private final ResultReceiver delegate;
+
+        @Nullable
+        private List<Object[]> rows = new ArrayList<>();
+        private long bytes = 0;
+
+        CachingResultReceiver(ResultCache resultCache,
+                              Key key,
+                              Version version,
+                              SizeEstimator<Object>[] sizeEstimators,
+                              ResultReceiver delegate) {
+            this.resultCache = resultCache;
+            this.key = key;
+            this.version = version;
+            this.sizeEstimators = sizeEstimators;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void setNextRow(Row row) {
+            if (rows != null) {
+                Object[] cells = row.materialize();
+                bytes += ROW_OVERHEAD + 8L * cells.length;
+                for (int i = 0; i < cells.length; i++) {
+                    bytes += sizeEstimators[i].estimateSize(cells[i]);
+                }
+                if (bytes > resultCache.maxEntryBytes) {
+                    rows = null;
+                } else {
+                    rows.add(cells);
+                }
+            }
+            delegate.setNextRow(row);
+        }
+
+        @Override
+        public void batchFinished() {
+            // the result isn't complete, only the first batch is received
+            rows = null;
+            delegate.batchFinished();
+        }
+
+        @Override
+        public void allFinished() {
+            if (rows != null) {
+                resultCache.put(key, version, rows, bytes);
+                rows = null;
+            }
+            delegate.allFinished();
+        }
+
+        @Override
+        public void fail(@Nonnull Throwable t) {
+            rows = null;
+            delegate.fail(t);
+        }
+
+        @Override
+        public boolean isSaturated() {
+            return delegate instanceof ResumableResultReceiver && ((ResumableResultReceiver) delegate).isSaturated();
+        }
+
+        @Override
+        public void resumeWhenReady(ResumeHandle resumeHandle) {
+            ((ResumableResultReceiver) delegate).resumeWhenReady(resumeHandle);
+        }
+
+        @Override
+        public ListenableFuture<?> completionFuture() {
+            return delegate.completionFuture();
+        }
+    }
+
+    /**
+     * Collects the tables a query reads from and checks that it doesn't use non-deterministic functions
+     */
+    private static class CacheableStatementVisitor extends DefaultTraversalVisitor<Void, CacheableStatementVisitor.Context> {
+
+        private static final CacheableStatementVisitor INSTANCE = new CacheableStatementVisitor();
+
+        private static class Context {
+            private final List<Table> tables = new ArrayList<>();
+            private boolean deterministic = true;
+        }
+
+        @Override
+        protected Void visitTable(Table node, Context context) {
+            context.tables.add(node);
+            return null;
+        }
+
+        @Override
+        protected Void visitCurrentTime(CurrentTime node, Context context) {
+            context.deterministic = false;
+            return null;
+        }
+
+        @Override
+        protected Void visitFunctionCall(FunctionCall node, Context context) {
+            if (NON_DETERMINISTIC_FUNCTIONS.contains(node.getName().toString().toLowerCase(Locale.ENGLISH))) {
+                context.deterministic = false;
+            }
+            return super.visitFunctionCall(node, context);
+        }
+
+        @Override
+        public Void visitArrayComparisonExpression(ArrayComparisonExpression node, Context context) {
+            return visitComparisonExpression(node, context);
+        }
+
+        @Override
+        public Void visitArrayLiteral(ArrayLiteral node, Context context) {
+            for (Expression value : node.values()) {
+                process(value, context);
+            }
+            return null;
+        }
+
+        @Override
+        protected Void visitSubscriptExpression(SubscriptExpression node, Context context) {
+            process(node.name(), context);
+            process(node.index(), context);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.operation.projectors.ResumeHandle;
+
+/**
+ * A {@link ResultReceiver} which passes the rows on asynchronously, e.g. to a network channel, and might not
+ * be able to keep up with the rows it receives.
+ * <p>
+ * {@link RowReceiverToResultReceiver} pauses the upstream while the receiver is saturated.
+ */
+public interface ResumableResultReceiver extends ResultReceiver {
+
+    /**
+     * @return true if the receiver can't accept more rows for now and the upstream should pause
+     */
+    boolean isSaturated();
+
+    /**
+     * Called once the upstream has paused because the receiver was saturated.
+     * The receiver must resume the upstream using the resumeHandle once it can accept rows again.
+     */
+    void resumeWhenReady(ResumeHandle resumeHandle);
+}
@@ -34,6 +34,7 @@ public class RowReceiverToResultReceiver implements RowReceiver {
     private long rowCount = 0;
 
     private ResumeHandle resumeHandle = null;
+    private boolean saturated = false;
 
     public RowReceiverToResultReceiver(ResultReceiver resultReceiver, int maxRows) {
         this.resultReceiver = resultReceiver;
@@ -45,14 +46,29 @@ public class RowReceiverToResultReceiver implements RowReceiver {
         rowCount++;
         resultReceiver.setNextRow(row);
 
+        if (resultReceiver.completionFuture().isDone()) {
+            // the result receiver completed early (e.g. the client disconnected), it doesn't need any more rows
+            return Result.STOP;
+        }
         if (maxRows > 0 && rowCount % maxRows == 0) {
             return Result.PAUSE;
         }
+        if (resultReceiver instanceof ResumableResultReceiver
+            && ((ResumableResultReceiver) resultReceiver).isSaturated()) {
+            saturated = true;
+            return Result.PAUSE;
+        }
         return Result.CONTINUE;
     }
 
     @Override
     public void pauseProcessed(ResumeHandle resumeHandle) {
+        if (saturated) {
+            // not a finished batch, the result receiver just needs some time to catch up
+            saturated = false;
+            ((ResumableResultReceiver) resultReceiver).resumeWhenReady(resumeHandle);
+            return;
+        }
         this.resumeHandle = resumeHandle;
         resultReceiver.batchFinished();
     }
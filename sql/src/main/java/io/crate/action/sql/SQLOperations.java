@@ -64,6 +64,8 @@ public class SQLOperations {
     private final Planner planner;
     private final Provider<Executor> executorProvider;
     private final StatsTables statsTables;
+    private final StatementCache statementCache;
+    private final ResultCache resultCache;
     private final ClusterService clusterService;
     private final boolean isReadOnly;
     private volatile boolean disabled;
@@ -73,12 +75,16 @@ public class SQLOperations {
                          Planner planner,
                          Provider<Executor> executorProvider,
                          StatsTables statsTables,
+                         StatementCache statementCache,
+                         ResultCache resultCache,
                          Settings settings,
                          ClusterService clusterService) {
         this.analyzer = analyzer;
         this.planner = planner;
         this.executorProvider = executorProvider;
         this.statsTables = statsTables;
+        this.statementCache = statementCache;
+        this.resultCache = resultCache;
         this.clusterService = clusterService;
         this.isReadOnly = settings.getAsBoolean(NODE_READ_ONLY_SETTING, false);
     }
@@ -152,7 +158,7 @@ public class SQLOperations {
         private Portal getOrCreatePortal(String portalName) {
             Portal portal = portals.get(portalName);
             if (portal == null) {
-                portal = new SimplePortal(portalName, analyzer, executor, isReadOnly, sessionContext);
+                portal = new SimplePortal(portalName, analyzer, executor, isReadOnly, sessionContext, resultCache);
                 portals.put(portalName, portal);
             }
             return portal;
@@ -171,7 +177,7 @@ public class SQLOperations {
 
             Statement statement;
             try {
-                statement = SqlParser.createStatement(query);
+                statement = statementCache.parse(query);
             } catch (Throwable t) {
                 if ("".equals(query)) {
                     statement = EMPTY_STMT;
@@ -0,0 +1,88 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.monitor.CacheStats;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.Statement;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+
+import javax.annotation.Nullable;
+
+/**
+ * Node wide cache of parsed statements, keyed on the statement text.
+ * <p>
+ * Clients which use prepared statements send the same statement text over and over again
+ * (e.g. a Parse message per execution if unnamed statements are used), so parsing it once is sufficient.
+ * The parsed {@link Statement} is immutable and doesn't depend on the schema or the cluster state,
+ * so the entries don't have to be invalidated; they are evicted once the cache is full.
+ */
+@Singleton
+public class StatementCache {
+
+    public static final String NAME = "statement";
+    public static final String CACHE_SIZE_SETTING = "node.sql.statement_cache.size";
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    @Nullable
+    private final Cache<String, Statement> cache;
+
+    @Inject
+    public StatementCache(Settings settings) {
+        int size = settings.getAsInt(CACHE_SIZE_SETTING, DEFAULT_CACHE_SIZE);
+        if (size > 0) {
+            cache = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .recordStats()
+                .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Returns the cached statement or parses the statement and adds it to the cache.
+     */
+    public Statement parse(String query) {
+        if (cache == null) {
+            return SqlParser.createStatement(query);
+        }
+        Statement statement = cache.getIfPresent(query);
+        if (statement == null) {
+            statement = SqlParser.createStatement(query);
+            cache.put(query, statement);
+        }
+        return statement;
+    }
+
+    public CacheStats stats() {
+        if (cache == null) {
+            return new CacheStats(NAME, 0L, null, 0L, 0L, 0L);
+        }
+        com.google.common.cache.CacheStats stats = cache.stats();
+        return new CacheStats(NAME, cache.size(), null, stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+}
@@ -49,6 +49,7 @@ import io.crate.metadata.settings.SettingsAppliers;
 import io.crate.metadata.settings.StringSetting;
 import io.crate.metadata.table.Operation;
 import io.crate.metadata.table.TableInfo;
+import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.planner.projection.WriterProjection;
 import io.crate.sql.tree.*;
 import io.crate.types.CollectionType;
@@ -68,6 +69,9 @@ class CopyAnalyzer {
     private static final StringSetting OUTPUT_FORMAT_SETTINGS =
         new StringSetting("format", ImmutableSet.of("json_object", "json_array"), true);
 
+    private static final StringSetting INPUT_FORMAT_SETTINGS =
+        new StringSetting("format", ImmutableSet.of("json", "csv"), true);
+
     private static final ImmutableMap<String, SettingsApplier> SETTINGS_APPLIERS =
         ImmutableMap.<String, SettingsApplier>builder()
             .put(COMPRESSION_SETTINGS.name(), new SettingsAppliers.StringSettingsApplier(COMPRESSION_SETTINGS))
@@ -122,7 +126,20 @@ class CopyAnalyzer {
             throw CopyFromAnalyzedStatement.raiseInvalidType(uri.valueType());
         }
 
-        return new CopyFromAnalyzedStatement(tableInfo, settings, uri, partitionIdent, nodeFilters);
+        return new CopyFromAnalyzedStatement(
+            tableInfo, settings, uri, partitionIdent, nodeFilters, inputFormat(settings));
+    }
+
+    private static FileReadingCollector.FileFormat inputFormat(Settings settings) {
+        String format = settings.get(INPUT_FORMAT_SETTINGS.name());
+        if (format == null) {
+            return FileReadingCollector.FileFormat.JSON;
+        }
+        String validation = INPUT_FORMAT_SETTINGS.validate(format.toLowerCase(Locale.ENGLISH));
+        if (validation != null) {
+            throw new IllegalArgumentException(validation);
+        }
+        return settingAsEnum(FileReadingCollector.FileFormat.class, format);
     }
 
 
@@ -25,6 +25,7 @@ package io.crate.analyze;
 import com.google.common.base.Predicate;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.metadata.doc.DocTableInfo;
+import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.types.DataType;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.settings.Settings;
@@ -37,16 +38,19 @@ public class CopyFromAnalyzedStatement extends AbstractCopyAnalyzedStatement {
     @Nullable
     private final String partitionIdent;
     private final Predicate<DiscoveryNode> nodePredicate;
+    private final FileReadingCollector.FileFormat inputFormat;
 
     public CopyFromAnalyzedStatement(DocTableInfo table,
                                      Settings settings,
                                      Symbol uri,
                                      @Nullable String partitionIdent,
-                                     Predicate<DiscoveryNode> nodePredicate) {
+                                     Predicate<DiscoveryNode> nodePredicate,
+                                     FileReadingCollector.FileFormat inputFormat) {
         super(settings, uri);
         this.table = table;
         this.partitionIdent = partitionIdent;
         this.nodePredicate = nodePredicate;
+        this.inputFormat = inputFormat;
     }
 
     public DocTableInfo table() {
@@ -71,6 +75,10 @@ public class CopyFromAnalyzedStatement extends AbstractCopyAnalyzedStatement {
         return nodePredicate;
     }
 
+    public FileReadingCollector.FileFormat inputFormat() {
+        return inputFormat;
+    }
+
     @Override
     public boolean isWriteOperation() {
         return true;
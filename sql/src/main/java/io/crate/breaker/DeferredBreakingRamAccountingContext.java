@@ -0,0 +1,51 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.breaker;
+
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+
+/**
+ * A RamAccountingContext that doesn't throw a {@link CircuitBreakingException} if the limit of the breaker
+ * is reached. Instead {@link #trippedBreaker()} has to be checked.
+ * <p>
+ * Used by operations which can free memory (e.g. by writing data to disk) once the limit is reached.
+ * Closing the context releases the accounted bytes from the breaker.
+ */
+public class DeferredBreakingRamAccountingContext extends RamAccountingContext {
+
+    /**
+     * create a context which accounts on the same breaker as the given parent context
+     */
+    public DeferredBreakingRamAccountingContext(RamAccountingContext parent) {
+        super(parent.contextId(), parent.breaker());
+    }
+
+    @Override
+    public void addBytes(long bytes) {
+        try {
+            super.addBytes(bytes);
+        } catch (CircuitBreakingException e) {
+            // bytes are added to the breaker even if it breaks and trippedBreaker() is now true
+        }
+    }
+}
@@ -141,6 +141,17 @@ public class RamAccountingContext {
         return contextId;
     }
 
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /**
+     * Create a new context with the same id which accounts on the same breaker.
+     * The new context is independent of this context and must be closed separately.
+     */
+    public RamAccountingContext createChild() {
+        return new RamAccountingContext(contextId, breaker);
+    }
 
     /**
      * round n up to the nearest multiple of m
@@ -0,0 +1,844 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport;
+
+import io.crate.Streamer;
+import io.crate.core.collections.PrimitiveRow;
+import io.crate.core.collections.Row;
+import io.crate.types.*;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Column oriented encoding of the rows of a {@link StreamBucket}.
+ *
+ * Instead of writing row after row, values are buffered per column and written as one block per column:
+ *
+ * <ul>
+ *     <li>a null bitmap (omitted if the column doesn't contain any nulls)</li>
+ *     <li>fixed width values for numeric and boolean columns (nulls are skipped)</li>
+ *     <li>a dictionary and an ordinal per row for string and ip columns,
+ *     unless most values are distinct, in which case the values are written as they are</li>
+ *     <li>values written by the columns {@link Streamer} for all other types</li>
+ * </ul>
+ *
+ * The receiving side decodes every column once into primitive arrays and exposes the rows as a view on top of them.
+ * Numeric values can be read from these rows without boxing them, see {@link PrimitiveRow}.
+ */
+final class ColumnarBucket {
+
+    /**
+     * Columns with a higher ratio of distinct values to non-null values aren't dictionary encoded
+     */
+    private static final float MAX_DICTIONARY_RATIO = 0.5f;
+
+    private static final byte PLAIN_STRINGS = 0;
+    private static final byte DICTIONARY_STRINGS = 1;
+
+    private ColumnarBucket() {
+    }
+
+    /**
+     * @return true if at least one of the streamers has a specialized columnar encoding.
+     */
+    static boolean supports(Streamer<?>[] streamers) {
+        for (Streamer<?> streamer : streamers) {
+            if (!(newColumnWriter(streamer) instanceof GenericColumnWriter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ColumnWriter newColumnWriter(Streamer<?> streamer) {
+        if (streamer instanceof DataType) {
+            switch (((DataType) streamer).id()) {
+                case LongType.ID:
+                case TimestampType.ID:
+                    return new LongColumnWriter();
+                case IntegerType.ID:
+                    return new IntColumnWriter();
+                case ShortType.ID:
+                    return new ShortColumnWriter();
+                case ByteType.ID:
+                    return new ByteColumnWriter();
+                case DoubleType.ID:
+                    return new DoubleColumnWriter();
+                case FloatType.ID:
+                    return new FloatColumnWriter();
+                case BooleanType.ID:
+                    return new BooleanColumnWriter();
+                case StringType.ID:
+                case IpType.ID:
+                    return new BytesRefColumnWriter();
+            }
+        }
+        return new GenericColumnWriter(streamer);
+    }
+
+    private static ColumnReader newColumnReader(Streamer<?> streamer) {
+        if (streamer instanceof DataType) {
+            switch (((DataType) streamer).id()) {
+                case LongType.ID:
+                case TimestampType.ID:
+                    return new LongColumnReader();
+                case IntegerType.ID:
+                    return new IntColumnReader();
+                case ShortType.ID:
+                    return new ShortColumnReader();
+                case ByteType.ID:
+                    return new ByteColumnReader();
+                case DoubleType.ID:
+                    return new DoubleColumnReader();
+                case FloatType.ID:
+                    return new FloatColumnReader();
+                case BooleanType.ID:
+                    return new BooleanColumnReader();
+                case StringType.ID:
+                case IpType.ID:
+                    return new BytesRefColumnReader();
+            }
+        }
+        return new GenericColumnReader(streamer);
+    }
+
+    static class Writer {
+
+        private final ColumnWriter[] columns;
+
+        Writer(Streamer<?>[] streamers) {
+            columns = new ColumnWriter[streamers.length];
+            for (int i = 0; i < streamers.length; i++) {
+                columns[i] = newColumnWriter(streamers[i]);
+            }
+        }
+
+        void add(Row row) throws IOException {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(row.get(i));
+            }
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            for (ColumnWriter column : columns) {
+                column.writeTo(out);
+            }
+        }
+
+        void reset() {
+            for (ColumnWriter column : columns) {
+                column.reset();
+            }
+        }
+    }
+
+    static class Reader implements Iterable<Row> {
+
+        private final int size;
+        private final ColumnReader[] columns;
+
+        Reader(Streamer<?>[] streamers, int size, StreamInput in) throws IOException {
+            this.size = size;
+            columns = new ColumnReader[streamers.length];
+            for (int i = 0; i < streamers.length; i++) {
+                ColumnReader column = newColumnReader(streamers[i]);
+                column.readFrom(in, size);
+                columns[i] = column;
+            }
+        }
+
+        @Override
+        public Iterator<Row> iterator() {
+            final ColumnRow row = new ColumnRow(columns);
+            return new Iterator<Row>() {
+
+                @Override
+                public boolean hasNext() {
+                    return row.pos + 1 < size;
+                }
+
+                @Override
+                public Row next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException("Iterator exhausted");
+                    }
+                    row.pos++;
+                    return row;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("remove is not supported");
+                }
+            };
+        }
+    }
+
+    /**
+     * A row which reads its values directly from the decoded columns, positioned by the iterator.
+     */
+    private static class ColumnRow implements PrimitiveRow {
+
+        private final ColumnReader[] columns;
+        private int pos = -1;
+
+        ColumnRow(ColumnReader[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public int size() {
+            return columns.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return columns[index].get(pos);
+        }
+
+        @Override
+        public boolean isNull(int index) {
+            return columns[index].isNull(pos);
+        }
+
+        @Override
+        public boolean isIntegral(int index) {
+            return columns[index] instanceof IntegralColumnReader;
+        }
+
+        @Override
+        public boolean isFloatingPoint(int index) {
+            return columns[index] instanceof FloatingPointColumnReader;
+        }
+
+        @Override
+        public long getLong(int index) {
+            return ((IntegralColumnReader) columns[index]).getLong(pos);
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return ((FloatingPointColumnReader) columns[index]).getDouble(pos);
+        }
+
+        @Override
+        public Object[] materialize() {
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i].get(pos);
+            }
+            return values;
+        }
+    }
+
+    private abstract static class ColumnWriter {
+
+        int numRows = 0;
+
+        abstract void add(Object value) throws IOException;
+
+        abstract void writeTo(StreamOutput out) throws IOException;
+
+        void reset() {
+            numRows = 0;
+        }
+    }
+
+    /**
+     * Writes a null bitmap followed by the non-null values.
+     */
+    private abstract static class NullableColumnWriter extends ColumnWriter {
+
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        void add(Object value) throws IOException {
+            if (value == null) {
+                nulls.set(numRows);
+            } else {
+                addValue(numRows, value);
+            }
+            numRows++;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            if (nulls.isEmpty()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                long[] words = nulls.toLongArray();
+                out.writeVInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+            for (int i = 0; i < numRows; i++) {
+                if (!nulls.get(i)) {
+                    writeValue(out, i);
+                }
+            }
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            nulls.clear();
+        }
+
+        abstract void addValue(int row, Object value) throws IOException;
+
+        abstract void writeValue(StreamOutput out, int row) throws IOException;
+    }
+
+    private abstract static class ColumnReader {
+
+        abstract void readFrom(StreamInput in, int size) throws IOException;
+
+        abstract boolean isNull(int row);
+
+        abstract Object get(int row);
+    }
+
+    /**
+     * Reads the null bitmap and the non-null values written by a {@link NullableColumnWriter}.
+     */
+    private abstract static class NullableColumnReader extends ColumnReader {
+
+        private BitSet nulls;
+
+        @Override
+        void readFrom(StreamInput in, int size) throws IOException {
+            if (in.readBoolean()) {
+                long[] words = new long[in.readVInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                nulls = BitSet.valueOf(words);
+            } else {
+                nulls = new BitSet();
+            }
+            init(size);
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)) {
+                    readValue(in, i);
+                }
+            }
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return getValue(row);
+        }
+
+        abstract void init(int size) throws IOException;
+
+        abstract void readValue(StreamInput in, int row) throws IOException;
+
+        abstract Object getValue(int row);
+    }
+
+    private abstract static class IntegralColumnReader extends NullableColumnReader {
+
+        abstract long getLong(int row);
+    }
+
+    private abstract static class FloatingPointColumnReader extends NullableColumnReader {
+
+        abstract double getDouble(int row);
+    }
+
+    private static class LongColumnWriter extends NullableColumnWriter {
+
+        private long[] values = new long[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).longValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeLong(values[row]);
+        }
+    }
+
+    private static class LongColumnReader extends IntegralColumnReader {
+
+        private long[] values;
+
+        @Override
+        void init(int size) {
+            values = new long[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readLong();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+    }
+
+    private static class IntColumnWriter extends NullableColumnWriter {
+
+        private int[] values = new int[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).intValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeInt(values[row]);
+        }
+    }
+
+    private static class IntColumnReader extends IntegralColumnReader {
+
+        private int[] values;
+
+        @Override
+        void init(int size) {
+            values = new int[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readInt();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+    }
+
+    private static class ShortColumnWriter extends NullableColumnWriter {
+
+        private short[] values = new short[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).shortValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeShort(values[row]);
+        }
+    }
+
+    private static class ShortColumnReader extends IntegralColumnReader {
+
+        private short[] values;
+
+        @Override
+        void init(int size) {
+            values = new short[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readShort();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+    }
+
+    private static class ByteColumnWriter extends NullableColumnWriter {
+
+        private byte[] values = new byte[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).byteValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeByte(values[row]);
+        }
+    }
+
+    private static class ByteColumnReader extends IntegralColumnReader {
+
+        private byte[] values;
+
+        @Override
+        void init(int size) {
+            values = new byte[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readByte();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+    }
+
+    private static class DoubleColumnWriter extends NullableColumnWriter {
+
+        private double[] values = new double[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).doubleValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeDouble(values[row]);
+        }
+    }
+
+    private static class DoubleColumnReader extends FloatingPointColumnReader {
+
+        private double[] values;
+
+        @Override
+        void init(int size) {
+            values = new double[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readDouble();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static class FloatColumnWriter extends NullableColumnWriter {
+
+        private float[] values = new float[16];
+
+        @Override
+        void addValue(int row, Object value) {
+            values = ArrayUtil.grow(values, row + 1);
+            values[row] = ((Number) value).floatValue();
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeFloat(values[row]);
+        }
+    }
+
+    private static class FloatColumnReader extends FloatingPointColumnReader {
+
+        private float[] values;
+
+        @Override
+        void init(int size) {
+            values = new float[size];
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values[row] = in.readFloat();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static class BooleanColumnWriter extends NullableColumnWriter {
+
+        private final BitSet values = new BitSet();
+
+        @Override
+        void addValue(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            out.writeBoolean(values.get(row));
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            values.clear();
+        }
+    }
+
+    private static class BooleanColumnReader extends NullableColumnReader {
+
+        private final BitSet values = new BitSet();
+
+        @Override
+        void init(int size) {
+            values.clear();
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            values.set(row, in.readBoolean());
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values.get(row);
+        }
+    }
+
+    /**
+     * Keeps one copy per distinct value and an ordinal per row.
+     * The dictionary is only written if it pays off, otherwise the values are written in row order.
+     */
+    private static class BytesRefColumnWriter extends NullableColumnWriter {
+
+        private final Map<BytesRef, Integer> ordinalByValue = new HashMap<>();
+        private final List<BytesRef> dictionary = new ArrayList<>();
+        private int[] ordinals = new int[16];
+        private int numValues = 0;
+
+        @Override
+        void addValue(int row, Object value) {
+            BytesRef bytesRef = (BytesRef) value;
+            Integer ord = ordinalByValue.get(bytesRef);
+            if (ord == null) {
+                ord = dictionary.size();
+                BytesRef copy = BytesRef.deepCopyOf(bytesRef);
+                dictionary.add(copy);
+                ordinalByValue.put(copy, ord);
+            }
+            ordinals = ArrayUtil.grow(ordinals, row + 1);
+            ordinals[row] = ord;
+            numValues++;
+        }
+
+        private boolean useDictionary() {
+            return dictionary.size() <= numValues * MAX_DICTIONARY_RATIO;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            if (useDictionary()) {
+                out.writeByte(DICTIONARY_STRINGS);
+                out.writeVInt(dictionary.size());
+                for (BytesRef value : dictionary) {
+                    out.writeBytesRef(value);
+                }
+            } else {
+                out.writeByte(PLAIN_STRINGS);
+            }
+            super.writeTo(out);
+        }
+
+        @Override
+        void writeValue(StreamOutput out, int row) throws IOException {
+            if (useDictionary()) {
+                out.writeVInt(ordinals[row]);
+            } else {
+                out.writeBytesRef(dictionary.get(ordinals[row]));
+            }
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            ordinalByValue.clear();
+            dictionary.clear();
+            numValues = 0;
+        }
+    }
+
+    private static class BytesRefColumnReader extends NullableColumnReader {
+
+        private BytesRef[] dictionary;
+        private BytesRef[] values;
+        private int[] ordinals;
+
+        @Override
+        void readFrom(StreamInput in, int size) throws IOException {
+            if (in.readByte() == DICTIONARY_STRINGS) {
+                dictionary = new BytesRef[in.readVInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readBytesRef();
+                }
+            }
+            super.readFrom(in, size);
+        }
+
+        @Override
+        void init(int size) {
+            if (dictionary == null) {
+                values = new BytesRef[size];
+            } else {
+                ordinals = new int[size];
+            }
+        }
+
+        @Override
+        void readValue(StreamInput in, int row) throws IOException {
+            if (dictionary == null) {
+                values[row] = in.readBytesRef();
+            } else {
+                ordinals[row] = in.readVInt();
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            if (dictionary == null) {
+                return values[row];
+            }
+            return dictionary[ordinals[row]];
+        }
+    }
+
+    /**
+     * Fallback for types without a specialized encoding, values (including nulls) are written by the streamer.
+     */
+    private static class GenericColumnWriter extends ColumnWriter {
+
+        private final Streamer<?> streamer;
+        private BytesStreamOutput values = new BytesStreamOutput();
+
+        GenericColumnWriter(Streamer<?> streamer) {
+            this.streamer = streamer;
+        }
+
+        @Override
+        void add(Object value) throws IOException {
+            streamer.writeValueTo(values, value);
+            numRows++;
+        }
+
+        @Override
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(numRows);
+            out.writeBytesReference(values.bytes());
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            values = new BytesStreamOutput();
+        }
+    }
+
+    private static class GenericColumnReader extends ColumnReader {
+
+        private final Streamer<?> streamer;
+        private Object[] values;
+
+        GenericColumnReader(Streamer<?> streamer) {
+            this.streamer = streamer;
+        }
+
+        @Override
+        void readFrom(StreamInput in, int size) throws IOException {
+            int numRows = in.readVInt();
+            assert numRows == size : "number of values must match the bucket size";
+            StreamInput valuesIn = in.readBytesReference().streamInput();
+            values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = streamer.readValueFrom(valuesIn);
+            }
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+    }
+}
@@ -167,6 +167,13 @@ public abstract class ShardRequest<T extends ReplicationRequest<T>, I extends Sh
             return id;
         }
 
+        /**
+         * @return the approximate size of the item in bytes, used to limit the size of the requests
+         */
+        public long estimateSize() {
+            return id.length() + 16;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             id = in.readString();
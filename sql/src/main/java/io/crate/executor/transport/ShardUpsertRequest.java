@@ -27,6 +27,7 @@ import io.crate.analyze.symbol.Symbol;
 import io.crate.analyze.symbol.Symbols;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.bulk.BulkShardProcessor;
 import org.elasticsearch.action.index.IndexRequest;
@@ -42,6 +43,8 @@ import org.elasticsearch.index.shard.ShardId;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 public class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, ShardUpsertRequest.Item> {
@@ -311,6 +314,57 @@ public class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, ShardUp
             return insertValues;
         }
 
+        @Override
+        public long estimateSize() {
+            long size = super.estimateSize();
+            if (source != null) {
+                size += source.length();
+            }
+            if (insertValues != null) {
+                for (Object insertValue : insertValues) {
+                    size += estimateValueSize(insertValue);
+                }
+            }
+            if (updateAssignments != null) {
+                size += updateAssignments.length * 32;
+            }
+            return size;
+        }
+
+        private static long estimateValueSize(@Nullable Object value) {
+            if (value == null) {
+                return 1;
+            }
+            if (value instanceof BytesRef) {
+                return ((BytesRef) value).length + 4;
+            }
+            if (value instanceof String) {
+                return ((String) value).length() + 4;
+            }
+            if (value instanceof Object[]) {
+                long size = 4;
+                for (Object o : (Object[]) value) {
+                    size += estimateValueSize(o);
+                }
+                return size;
+            }
+            if (value instanceof Collection) {
+                long size = 4;
+                for (Object o : (Collection) value) {
+                    size += estimateValueSize(o);
+                }
+                return size;
+            }
+            if (value instanceof Map) {
+                long size = 4;
+                for (Map.Entry entry : ((Map<?, ?>) value).entrySet()) {
+                    size += estimateValueSize(entry.getKey()) + estimateValueSize(entry.getValue());
+                }
+                return size;
+            }
+            return 8;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -40,11 +40,23 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 
+/**
+ * A bucket of rows which are serialized using the {@link Streamer}s of the columns.
+ *
+ * The serialized rows start with a format marker so that the receiving side knows how to decode them:
+ * either row by row, or column by column (see {@link ColumnarBucket}) if at least one of the columns
+ * has a specialized columnar encoding.
+ * Older nodes can't read the format marker, so a cluster can't mix them with nodes of this version.
+ */
 public class StreamBucket implements Bucket, Streamable {
 
+    private static final byte ROW_FORMAT = 0;
+    private static final byte COLUMNAR_FORMAT = 1;
+
     private Streamer<?>[] streamers;
     private int size = -1;
     private BytesReference bytes;
+    private ColumnarBucket.Reader columnarReader;
 
     public static class Builder {
 
@@ -52,39 +64,69 @@ public class StreamBucket implements Bucket, Streamable {
         private static final int INITIAL_PAGE_SIZE = 1024;
         private int size = 0;
         private final Streamer<?>[] streamers;
+        private final ColumnarBucket.Writer columnarWriter;
         private BytesStreamOutput out;
 
         public Builder(Streamer<?>[] streamers) {
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
-            out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            if (streamers != null && ColumnarBucket.supports(streamers)) {
+                columnarWriter = new ColumnarBucket.Writer(streamers);
+            } else {
+                columnarWriter = null;
+                out = newRowOutput(INITIAL_PAGE_SIZE);
+            }
+        }
+
+        private static BytesStreamOutput newRowOutput(int expectedSize) {
+            BytesStreamOutput out = new BytesStreamOutput(expectedSize);
+            out.writeByte(ROW_FORMAT);
+            return out;
         }
 
         public void add(Row row) throws IOException {
             assert streamers.length == row.size() : "number of streamer must match row size";
 
             size++;
-            for (int i = 0; i < row.size(); i++) {
-                streamers[i].writeValueTo(out, row.get(i));
+            if (columnarWriter == null) {
+                for (int i = 0; i < row.size(); i++) {
+                    streamers[i].writeValueTo(out, row.get(i));
+                }
+            } else {
+                columnarWriter.add(row);
+            }
+        }
+
+        private BytesReference bytes() throws IOException {
+            if (columnarWriter == null) {
+                return out.bytes();
             }
+            BytesStreamOutput columnarOut = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            columnarOut.writeByte(COLUMNAR_FORMAT);
+            columnarWriter.writeTo(columnarOut);
+            return columnarOut.bytes();
         }
 
         public void writeToStream(StreamOutput output) throws IOException {
             output.writeVInt(size);
             if (size > 0) {
-                output.writeBytesReference(out.bytes());
+                output.writeBytesReference(bytes());
             }
         }
 
         public StreamBucket build() throws IOException {
             StreamBucket sb = new StreamBucket(streamers);
             sb.size = size;
-            sb.bytes = out.bytes();
+            sb.bytes = bytes();
             return sb;
         }
 
         public void reset() {
-            out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            if (columnarWriter == null) {
+                out = newRowOutput(size); // next bucket is probably going to have the same size
+            } else {
+                columnarWriter.reset();
+            }
             size = 0;
         }
     }
@@ -99,6 +141,13 @@ public class StreamBucket implements Bucket, Streamable {
         return size;
     }
 
+    /**
+     * @return the number of bytes of the serialized rows
+     */
+    public long serializedSize() {
+        return size > 0 ? bytes.length() : 0L;
+    }
+
     public void streamers(Streamer<?>[] streamers) {
         assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
         this.streamers = streamers;
@@ -128,11 +177,15 @@ public class StreamBucket implements Bucket, Streamable {
 
     private class RowIterator implements Iterator<Row> {
 
-        private final StreamInput input = bytes.streamInput();
+        private final StreamInput input;
         private int pos = 0;
         private final Object[] current = new Object[streamers.length];
         private final Row row = new RowN(current);
 
+        RowIterator(StreamInput input) {
+            this.input = input;
+        }
+
         @Override
         public boolean hasNext() {
             return pos < size;
@@ -163,11 +216,25 @@ public class StreamBucket implements Bucket, Streamable {
             return Collections.emptyIterator();
         }
         assert streamers != null;
-        return new RowIterator();
+        if (columnarReader != null) {
+            return columnarReader.iterator();
+        }
+        try {
+            StreamInput input = bytes.streamInput();
+            if (input.readByte() == ROW_FORMAT) {
+                return new RowIterator(input);
+            }
+            // columns are decoded once, following iterations read from the decoded columns
+            columnarReader = new ColumnarBucket.Reader(streamers, size, input);
+            return columnarReader.iterator();
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
+        columnarReader = null;
         size = in.readVInt();
         if (size > 0) {
             bytes = in.readBytesReference();
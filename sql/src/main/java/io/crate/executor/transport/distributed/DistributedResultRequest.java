@@ -24,6 +24,10 @@ package io.crate.executor.transport.distributed;
 import io.crate.Streamer;
 import io.crate.core.collections.Bucket;
 import io.crate.executor.transport.StreamBucket;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.transport.TransportRequest;
@@ -34,6 +38,11 @@ import java.util.UUID;
 
 public class DistributedResultRequest extends TransportRequest {
 
+    /**
+     * compression threshold which disables the compression of the rows
+     */
+    public static final long NO_COMPRESSION = -1L;
+
     private byte inputId;
     private int executionPhaseId;
     private int bucketIdx;
@@ -45,6 +54,10 @@ public class DistributedResultRequest extends TransportRequest {
 
     private Throwable throwable = null;
 
+    private long compressionThreshold = NO_COMPRESSION;
+    private long receivedBytes;
+    private long receivedNetworkBytes;
+
     public DistributedResultRequest() {
     }
 
@@ -63,9 +76,25 @@ public class DistributedResultRequest extends TransportRequest {
                                     Streamer<?>[] streamers,
                                     Bucket rows,
                                     boolean isLast) {
+        this(jobId, executionPhaseId, inputId, bucketIdx, streamers, rows, isLast, NO_COMPRESSION);
+    }
+
+    /**
+     * @param compressionThreshold the rows are compressed if their serialized size is at least this many bytes,
+     *                             {@link #NO_COMPRESSION} disables the compression
+     */
+    public DistributedResultRequest(UUID jobId,
+                                    int executionPhaseId,
+                                    byte inputId,
+                                    int bucketIdx,
+                                    Streamer<?>[] streamers,
+                                    Bucket rows,
+                                    boolean isLast,
+                                    long compressionThreshold) {
         this(jobId, inputId, executionPhaseId, bucketIdx, streamers);
         this.rows = rows;
         this.isLast = isLast;
+        this.compressionThreshold = compressionThreshold;
     }
 
     public DistributedResultRequest(UUID jobId,
@@ -122,6 +151,20 @@ public class DistributedResultRequest extends TransportRequest {
         return throwable;
     }
 
+    /**
+     * @return the size of the received rows, uncompressed
+     */
+    public long receivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * @return the size of the received rows as they have been transferred
+     */
+    public long receivedNetworkBytes() {
+        return receivedNetworkBytes;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -136,7 +179,20 @@ public class DistributedResultRequest extends TransportRequest {
             throwable = in.readThrowable();
         } else {
             StreamBucket bucket = new StreamBucket(streamers);
-            bucket.readFrom(in);
+            boolean compressed = in.readBoolean();
+            if (compressed) {
+                BytesReference compressedRows = in.readBytesReference();
+                receivedNetworkBytes = compressedRows.length();
+                Compressor compressor = CompressorFactory.compressor(compressedRows);
+                try (StreamInput rowsIn = compressor.streamInput(compressedRows.streamInput())) {
+                    bucket.readFrom(rowsIn);
+                }
+                receivedBytes = bucket.serializedSize();
+            } else {
+                bucket.readFrom(in);
+                receivedBytes = bucket.serializedSize();
+                receivedNetworkBytes = receivedBytes;
+            }
             rows = bucket;
         }
     }
@@ -155,9 +211,26 @@ public class DistributedResultRequest extends TransportRequest {
         out.writeBoolean(failure);
         if (failure) {
             out.writeThrowable(throwable);
-        } else {
-            // TODO: we should not rely on another bucket in this class and instead write to the stream directly
+        } else if (compressionThreshold == NO_COMPRESSION) {
+            out.writeBoolean(false);
             StreamBucket.writeBucket(out, streamers, rows);
+        } else {
+            // the rows are buffered to compare their size with the threshold and to compress them
+            BytesStreamOutput rowsOut = new BytesStreamOutput();
+            StreamBucket.writeBucket(rowsOut, streamers, rows);
+            BytesReference rowBytes = rowsOut.bytes();
+
+            boolean compress = rowBytes.length() >= compressionThreshold;
+            out.writeBoolean(compress);
+            if (compress) {
+                BytesStreamOutput compressedOut = new BytesStreamOutput();
+                try (StreamOutput compressingOut = CompressorFactory.defaultCompressor().streamOutput(compressedOut)) {
+                    rowBytes.writeTo(compressingOut);
+                }
+                out.writeBytesReference(compressedOut.bytes());
+            } else {
+                rowBytes.writeTo(out);
+            }
         }
     }
 }
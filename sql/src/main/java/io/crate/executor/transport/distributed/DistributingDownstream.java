@@ -63,6 +63,7 @@ public class DistributingDownstream implements RowReceiver {
     private final TransportDistributedResultAction transportDistributedResultAction;
     private final Streamer<?>[] streamers;
     private final int pageSize;
+    private final long compressionThreshold;
     private final AtomicReference<Throwable> failure = new AtomicReference<>();
     private final AtomicInteger requestsPending = new AtomicInteger(0);
     private final Downstream[] downstreams;
@@ -87,7 +88,8 @@ public class DistributingDownstream implements RowReceiver {
                                   Collection<String> downstreamNodeIds,
                                   TransportDistributedResultAction transportDistributedResultAction,
                                   Streamer<?>[] streamers,
-                                  int pageSize) {
+                                  int pageSize,
+                                  long compressionThreshold) {
         this.logger = logger;
         this.jobId = jobId;
         this.multiBucketBuilder = multiBucketBuilder;
@@ -97,6 +99,7 @@ public class DistributingDownstream implements RowReceiver {
         this.transportDistributedResultAction = transportDistributedResultAction;
         this.streamers = streamers;
         this.pageSize = pageSize;
+        this.compressionThreshold = compressionThreshold;
 
         buckets = new Bucket[downstreamNodeIds.size()];
         downstreams = new Downstream[downstreamNodeIds.size()];
@@ -238,7 +241,8 @@ public class DistributingDownstream implements RowReceiver {
             traceLog("Sending result");
             transportDistributedResultAction.pushResult(
                 targetNode,
-                new DistributedResultRequest(jobId, targetExecutionPhaseId, inputId, bucketIdx, streamers, bucket, isLast),
+                new DistributedResultRequest(
+                    jobId, targetExecutionPhaseId, inputId, bucketIdx, streamers, bucket, isLast, compressionThreshold),
                 this
             );
         }
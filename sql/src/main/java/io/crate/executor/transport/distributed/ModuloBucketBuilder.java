@@ -26,6 +26,7 @@ import io.crate.Streamer;
 import io.crate.core.collections.Bucket;
 import io.crate.core.collections.Row;
 import io.crate.executor.transport.StreamBucket;
+import io.crate.operation.join.HashJoinKey;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.StringHelper;
 
@@ -88,10 +89,12 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
     }
 
     /**
-     * get bucket number by doing modulo hashcode of the defined row-element
+     * get bucket number by doing modulo hashcode of the defined row-element.
+     * The value is normalized first, so that e.g. a String and a BytesRef with the same content
+     * end up in the same bucket.
      */
     private int getBucket(Row row) {
-        int hash = hashCode(row.get(distributedByColumnIdx));
+        int hash = hashCode(HashJoinKey.normalize(row.get(distributedByColumnIdx)));
         if (hash == Integer.MIN_VALUE) {
             hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
         }
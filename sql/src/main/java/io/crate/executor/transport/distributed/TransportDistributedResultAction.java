@@ -30,6 +30,7 @@ import io.crate.jobs.DownstreamExecutionSubContext;
 import io.crate.jobs.JobContextService;
 import io.crate.jobs.JobExecutionContext;
 import io.crate.jobs.PageBucketReceiver;
+import io.crate.operation.OperationStats;
 import io.crate.operation.PageResultListener;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -121,6 +122,10 @@ public class TransportDistributedResultAction extends AbstractComponent implemen
 
         Throwable throwable = request.throwable();
         if (throwable == null) {
+            OperationStats operationStats = pageBucketReceiver.operationStats();
+            if (operationStats != null) {
+                operationStats.addReceivedBytes(request.receivedBytes(), request.receivedNetworkBytes());
+            }
             request.streamers(pageBucketReceiver.streamers());
             pageBucketReceiver.setBucket(
                 request.bucketIdx(),
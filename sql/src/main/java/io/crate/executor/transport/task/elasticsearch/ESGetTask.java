@@ -146,6 +146,7 @@ public class ESGetTask extends JobTask {
                 return FlatProjectorChain.withAttachedDownstream(
                     task.projectorFactory,
                     null,
+                    null,
                     ImmutableList.<Projection>of(topNProjection),
                     downstream,
                     task.jobId()
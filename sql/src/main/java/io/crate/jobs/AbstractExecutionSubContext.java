@@ -24,6 +24,7 @@ package io.crate.jobs;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import io.crate.exceptions.JobKilledException;
+import io.crate.operation.OperationStats;
 import org.elasticsearch.common.logging.ESLogger;
 
 import javax.annotation.Nonnull;
@@ -44,6 +45,12 @@ public abstract class AbstractExecutionSubContext implements ExecutionSubContext
         return id;
     }
 
+    @Nullable
+    @Override
+    public OperationStats operationStats() {
+        return null;
+    }
+
     protected void innerStart() {
     }
 
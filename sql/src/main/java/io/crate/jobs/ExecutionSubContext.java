@@ -23,6 +23,7 @@ package io.crate.jobs;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import io.crate.concurrent.CompletionListenable;
+import io.crate.operation.OperationStats;
 
 import javax.annotation.Nullable;
 
@@ -50,6 +51,12 @@ public interface ExecutionSubContext extends CompletionListenable {
 
     int id();
 
+    /**
+     * @return the statistics of this operation or null if it doesn't record any
+     */
+    @Nullable
+    OperationStats operationStats();
+
     /**
      * Hook to cleanup the resources of this context. This might be called at any time in the lifecycle of the context.
      */
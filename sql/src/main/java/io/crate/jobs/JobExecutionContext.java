@@ -134,7 +134,7 @@ public class JobExecutionContext implements CompletionListenable {
         for (int i = 0; i < orderedContextIds.size(); i++) {
             Integer id = orderedContextIds.get(i);
             ExecutionSubContext subContext = contextMap.get(id);
-            statsTables.operationStarted(id, jobId, subContext.name());
+            statsTables.operationStarted(id, jobId, subContext.name(), subContext.operationStats());
             try {
                 subContext.prepare();
             } catch (Exception e) {
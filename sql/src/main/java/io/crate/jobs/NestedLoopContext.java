@@ -23,7 +23,7 @@ package io.crate.jobs;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
-import io.crate.operation.join.NestedLoopOperation;
+import io.crate.operation.join.JoinOperation;
 import io.crate.operation.projectors.FlatProjectorChain;
 import io.crate.operation.projectors.ListenableRowReceiver;
 import io.crate.planner.node.dql.join.NestedLoopPhase;
@@ -46,7 +46,7 @@ public class NestedLoopContext extends AbstractExecutionSubContext implements Do
     public NestedLoopContext(ESLogger logger,
                              NestedLoopPhase nestedLoopPhase,
                              FlatProjectorChain flatProjectorChain,
-                             NestedLoopOperation nestedLoopOperation,
+                             JoinOperation joinOperation,
                              @Nullable PageBucketReceiver leftBucketReceiver,
                              @Nullable PageBucketReceiver rightBucketReceiver) {
         super(nestedLoopPhase.phaseId(), logger);
@@ -56,10 +56,10 @@ public class NestedLoopContext extends AbstractExecutionSubContext implements Do
         this.leftBucketReceiver = leftBucketReceiver;
         this.rightBucketReceiver = rightBucketReceiver;
 
-        leftRowReceiver = nestedLoopOperation.leftRowReceiver();
-        rightRowReceiver = nestedLoopOperation.rightRowReceiver();
+        leftRowReceiver = joinOperation.leftRowReceiver();
+        rightRowReceiver = joinOperation.rightRowReceiver();
 
-        Futures.addCallback(nestedLoopOperation.completionFuture(), new FutureCallback<Object>() {
+        Futures.addCallback(joinOperation.completionFuture(), new FutureCallback<Object>() {
             @Override
             public void onSuccess(@Nullable Object result) {
                 future.close(null);
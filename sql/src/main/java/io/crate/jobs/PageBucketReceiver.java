@@ -24,8 +24,11 @@ package io.crate.jobs;
 
 import io.crate.Streamer;
 import io.crate.core.collections.Bucket;
+import io.crate.operation.OperationStats;
 import io.crate.operation.PageResultListener;
 
+import javax.annotation.Nullable;
+
 public interface PageBucketReceiver {
 
     void setBucket(int bucketIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener);
@@ -33,4 +36,10 @@ public interface PageBucketReceiver {
     void failure(int bucketIdx, Throwable throwable);
 
     Streamer<?>[] streamers();
+
+    /**
+     * @return the statistics on which the received pages are recorded, or null if they aren't recorded
+     */
+    @Nullable
+    OperationStats operationStats();
 }
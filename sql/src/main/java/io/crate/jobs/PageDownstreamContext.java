@@ -27,6 +27,7 @@ import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.core.collections.Bucket;
 import io.crate.core.collections.BucketPage;
+import io.crate.operation.OperationStats;
 import io.crate.operation.PageConsumeListener;
 import io.crate.operation.PageDownstream;
 import io.crate.operation.PageResultListener;
@@ -48,6 +49,7 @@ public class PageDownstreamContext extends AbstractExecutionSubContext implement
     private final PageDownstream pageDownstream;
     private final Streamer<?>[] streamers;
     private final RamAccountingContext ramAccountingContext;
+    private final OperationStats operationStats;
     private final int numBuckets;
     private final ArrayList<SettableFuture<Bucket>> bucketFutures;
     private final BitSet allFuturesSet;
@@ -64,6 +66,7 @@ public class PageDownstreamContext extends AbstractExecutionSubContext implement
                                  PageDownstream pageDownstream,
                                  Streamer<?>[] streamers,
                                  RamAccountingContext ramAccountingContext,
+                                 OperationStats operationStats,
                                  int numBuckets,
                                  @Nullable FlatProjectorChain projectorChain) {
         super(id, logger);
@@ -72,6 +75,7 @@ public class PageDownstreamContext extends AbstractExecutionSubContext implement
         this.pageDownstream = pageDownstream;
         this.streamers = streamers;
         this.ramAccountingContext = ramAccountingContext;
+        this.operationStats = operationStats;
         this.numBuckets = numBuckets;
         this.projectorChain = projectorChain;
         bucketFutures = new ArrayList<>(numBuckets);
@@ -225,6 +229,11 @@ public class PageDownstreamContext extends AbstractExecutionSubContext implement
         return name;
     }
 
+    @Override
+    public OperationStats operationStats() {
+        return operationStats;
+    }
+
     @Override
     public String toString() {
         return "PageDownstreamContext{" +
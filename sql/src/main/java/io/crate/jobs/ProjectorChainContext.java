@@ -24,6 +24,7 @@ package io.crate.jobs;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.OperationStats;
 import io.crate.operation.projectors.*;
 import io.crate.planner.projection.Projection;
 import org.elasticsearch.common.logging.ESLogger;
@@ -40,6 +41,7 @@ public class ProjectorChainContext extends AbstractExecutionSubContext {
 
     private final String name;
     private final RowReceiver rowReceiver;
+    private final OperationStats operationStats;
 
     public ProjectorChainContext(int id,
                                  String name,
@@ -47,9 +49,11 @@ public class ProjectorChainContext extends AbstractExecutionSubContext {
                                  ProjectorFactory projectorFactory,
                                  List<Projection> projections,
                                  RowReceiver rowReceiver,
-                                 RamAccountingContext ramAccountingContext) {
+                                 RamAccountingContext ramAccountingContext,
+                                 OperationStats operationStats) {
         super(id, LOGGER);
         this.name = name;
+        this.operationStats = operationStats;
         ListenableRowReceiver listenableRowReceiver = RowReceivers.listenableRowReceiver(rowReceiver);
         Futures.addCallback(listenableRowReceiver.finishFuture(), new FutureCallback<Void>() {
             @Override
@@ -65,6 +69,7 @@ public class ProjectorChainContext extends AbstractExecutionSubContext {
         FlatProjectorChain projectorChain = FlatProjectorChain.withAttachedDownstream(
             projectorFactory,
             ramAccountingContext,
+            operationStats,
             projections,
             listenableRowReceiver,
             jobId
@@ -82,6 +87,11 @@ public class ProjectorChainContext extends AbstractExecutionSubContext {
         return name;
     }
 
+    @Override
+    public OperationStats operationStats() {
+        return operationStats;
+    }
+
     public RowReceiver rowReceiver() {
         return rowReceiver;
     }
@@ -49,9 +49,13 @@ public class RecoveryShardReferenceResolver extends AbstractReferenceResolver {
     private final ReferenceResolver<ReferenceImplementation<?>> staticReferencesResolver;
 
     public RecoveryShardReferenceResolver(ReferenceResolver<ReferenceImplementation<?>> shardResolver, IndexShard indexShard) {
+        this(shardResolver, new ShardRecoveryExpression(indexShard));
+    }
+
+    public RecoveryShardReferenceResolver(ReferenceResolver<ReferenceImplementation<?>> shardResolver,
+                                          ShardRecoveryExpression recoveryExpression) {
         staticReferencesResolver = shardResolver;
-        implementations.put(SysShardsTableInfo.ReferenceIdents.RECOVERY,
-            new ShardRecoveryExpression(indexShard));
+        implementations.put(SysShardsTableInfo.ReferenceIdents.RECOVERY, recoveryExpression);
     }
 
     @Override
@@ -45,6 +45,13 @@ public class SysOperationsTableInfo extends StaticTableInfo {
         public final static ColumnIdent NAME = new ColumnIdent("name");
         public final static ColumnIdent STARTED = new ColumnIdent("started");
         public final static ColumnIdent USED_BYTES = new ColumnIdent("used_bytes");
+        public final static ColumnIdent SPILLED_BYTES = new ColumnIdent("spilled_bytes");
+        public final static ColumnIdent SPILLED_PARTITIONS = new ColumnIdent("spilled_partitions");
+        public final static ColumnIdent RECEIVED_BYTES = new ColumnIdent("received_bytes");
+        public final static ColumnIdent RECEIVED_NETWORK_BYTES = new ColumnIdent("received_network_bytes");
+        public final static ColumnIdent SEARCHES = new ColumnIdent("searches");
+        public final static ColumnIdent VISITED_DOCS = new ColumnIdent("visited_docs");
+        public final static ColumnIdent COLLECTED_DOCS = new ColumnIdent("collected_docs");
     }
 
     private final TableColumn nodesTableColumn;
@@ -57,6 +64,13 @@ public class SysOperationsTableInfo extends StaticTableInfo {
                 .register(Columns.NAME, DataTypes.STRING)
                 .register(Columns.STARTED, DataTypes.TIMESTAMP)
                 .register(Columns.USED_BYTES, DataTypes.LONG)
+                .register(Columns.SPILLED_BYTES, DataTypes.LONG)
+                .register(Columns.SPILLED_PARTITIONS, DataTypes.INTEGER)
+                .register(Columns.RECEIVED_BYTES, DataTypes.LONG)
+                .register(Columns.RECEIVED_NETWORK_BYTES, DataTypes.LONG)
+                .register(Columns.SEARCHES, DataTypes.INTEGER)
+                .register(Columns.VISITED_DOCS, DataTypes.LONG)
+                .register(Columns.COLLECTED_DOCS, DataTypes.LONG)
                 .putInfoOnly(SysNodesTableInfo.SYS_COL_IDENT, SysNodesTableInfo.tableColumnInfo(IDENT)),
             Collections.<ColumnIdent>emptyList());
         this.clusterService = clusterService;
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Crate.IO GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of an operation (execution phase) which are shown in sys.operations while the operation is running.
+ * <p>
+ * The memory used by the operation is accounted separately on its {@link io.crate.breaker.RamAccountingContext}.
+ */
+public class OperationStats {
+
+    private final AtomicLong spilledBytes = new AtomicLong(0);
+    private final AtomicInteger spilledPartitions = new AtomicInteger(0);
+    private final AtomicLong receivedBytes = new AtomicLong(0);
+    private final AtomicLong receivedNetworkBytes = new AtomicLong(0);
+    private final AtomicInteger searches = new AtomicInteger(0);
+    private final AtomicLong visitedDocs = new AtomicLong(0);
+    private final AtomicLong collectedDocs = new AtomicLong(0);
+
+    /**
+     * Record bytes that have been written to disk because they didn't fit into memory
+     */
+    public void addSpilledBytes(long bytes) {
+        spilledBytes.addAndGet(bytes);
+    }
+
+    /**
+     * @return the number of bytes that have been written to disk because they didn't fit into memory
+     */
+    public long spilledBytes() {
+        return spilledBytes.get();
+    }
+
+    /**
+     * Record partitions (files) that have been created to write data to disk
+     */
+    public void addSpilledPartitions(int partitions) {
+        spilledPartitions.addAndGet(partitions);
+    }
+
+    /**
+     * @return the number of partitions (files) that have been created to write data to disk
+     */
+    public int spilledPartitions() {
+        return spilledPartitions.get();
+    }
+
+    /**
+     * Record a page of rows that has been received from another node
+     *
+     * @param bytes        the size of the page
+     * @param networkBytes the size of the page as it has been transferred, which is smaller if it was compressed
+     */
+    public void addReceivedBytes(long bytes, long networkBytes) {
+        receivedBytes.addAndGet(bytes);
+        receivedNetworkBytes.addAndGet(networkBytes);
+    }
+
+    /**
+     * @return the size of all pages that have been received from other nodes
+     */
+    public long receivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * @return the number of bytes that have been transferred to receive the pages from other nodes
+     */
+    public long receivedNetworkBytes() {
+        return receivedNetworkBytes.get();
+    }
+
+    /**
+     * Record a search on a shard
+     *
+     * @param visitedDocs   the number of matching docs the search had to visit
+     * @param collectedDocs the number of docs the search returned
+     */
+    public void addSearch(long visitedDocs, long collectedDocs) {
+        searches.incrementAndGet();
+        this.visitedDocs.addAndGet(visitedDocs);
+        this.collectedDocs.addAndGet(collectedDocs);
+    }
+
+    /**
+     * @return the number of searches that have been executed on the shards
+     */
+    public int searches() {
+        return searches.get();
+    }
+
+    /**
+     * @return the number of matching docs that have been visited by all searches
+     */
+    public long visitedDocs() {
+        return visitedDocs.get();
+    }
+
+    /**
+     * @return the number of docs that have been returned by all searches
+     */
+    public long collectedDocs() {
+        return collectedDocs.get();
+    }
+}
@@ -86,12 +86,14 @@ public class PageDownstreamFactory {
                                                                                    RowReceiver downstream,
                                                                                    boolean requiresRepeatSupport,
                                                                                    RamAccountingContext ramAccountingContext,
+                                                                                   OperationStats operationStats,
                                                                                    Optional<Executor> executorOptional) {
         FlatProjectorChain projectorChain = null;
         if (!mergeNode.projections().isEmpty()) {
             projectorChain = FlatProjectorChain.withAttachedDownstream(
                 projectionToProjectorVisitor,
                 ramAccountingContext,
+                operationStats,
                 mergeNode.projections(),
                 downstream,
                 mergeNode.jobId()
@@ -0,0 +1,81 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation;
+
+import io.crate.core.collections.PrimitiveRow;
+
+import java.util.List;
+
+/**
+ * An {@link InputRow} which reads the values of {@link LongInput}s and {@link DoubleInput}s without boxing them.
+ */
+public class PrimitiveInputRow extends InputRow implements PrimitiveRow {
+
+    private final LongInput[] longInputs;
+    private final DoubleInput[] doubleInputs;
+
+    public PrimitiveInputRow(List<? extends Input<?>> inputs) {
+        super(inputs);
+        longInputs = new LongInput[inputs.size()];
+        doubleInputs = new DoubleInput[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            Input<?> input = inputs.get(i);
+            if (input instanceof LongInput) {
+                longInputs[i] = (LongInput) input;
+            } else if (input instanceof DoubleInput) {
+                doubleInputs[i] = (DoubleInput) input;
+            }
+        }
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        if (longInputs[index] != null) {
+            return longInputs[index].isNull();
+        }
+        if (doubleInputs[index] != null) {
+            return doubleInputs[index].isNull();
+        }
+        return get(index) == null;
+    }
+
+    @Override
+    public boolean isIntegral(int index) {
+        return longInputs[index] != null;
+    }
+
+    @Override
+    public boolean isFloatingPoint(int index) {
+        return doubleInputs[index] != null;
+    }
+
+    @Override
+    public long getLong(int index) {
+        return longInputs[index].longValue();
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return doubleInputs[index].doubleValue();
+    }
+}
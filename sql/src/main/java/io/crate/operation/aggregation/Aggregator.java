@@ -33,6 +33,7 @@ import java.util.Locale;
  */
 public class Aggregator {
 
+    private final RamAccountingContext ramAccountingContext;
     private final Input[] inputs;
     private final AggregationFunction aggregationFunction;
     private final FromImpl fromImpl;
@@ -72,6 +73,7 @@ public class Aggregator {
                 throw new UnsupportedOperationException(String.format(Locale.ENGLISH, "invalid to step %s", a.toStep().name()));
         }
 
+        this.ramAccountingContext = ramAccountingContext;
         this.inputs = inputs;
         this.aggregationFunction = aggregationFunction;
     }
@@ -89,6 +91,14 @@ public class Aggregator {
         return toImpl.finishCollect(state);
     }
 
+    /**
+     * merge two states which have been created by this aggregator
+     */
+    @SuppressWarnings("unchecked")
+    public Object reduce(Object state1, Object state2) {
+        return aggregationFunction.reduce(ramAccountingContext, state1, state2);
+    }
+
     abstract class FromImpl {
 
         protected final RamAccountingContext ramAccountingContext;
@@ -0,0 +1,330 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import io.crate.Streamer;
+import io.crate.analyze.symbol.Function;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.metadata.*;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.types.DataType;
+import io.crate.types.DataTypeFactory;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Approximate count of distinct values using a HyperLogLog sketch.
+ * <p>
+ * In contrast to collect_set the partial state has a fixed size which only depends on the precision:
+ * 2^precision registers of one byte each. The relative standard error is about 1.04 / sqrt(2^precision).
+ * <p>
+ * <pre>
+ *     hyperloglog_distinct(column [, precision])
+ * </pre>
+ */
+public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLogLogDistinctAggregation.HllState, Long> {
+
+    public static final String NAME = "hyperloglog_distinct";
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+    static final int DEFAULT_PRECISION = 14;
+
+    static {
+        DataTypes.register(HllStateType.ID, HllStateType.INSTANCE);
+    }
+
+    private final FunctionInfo info;
+
+    public static void register(AggregationImplModule mod) {
+        mod.register(NAME, new HyperLogLogDistinctFunctionResolver());
+    }
+
+    private static class HyperLogLogDistinctFunctionResolver implements DynamicFunctionResolver {
+
+        @Override
+        public FunctionImplementation<Function> getForTypes(List<DataType> dataTypes) throws IllegalArgumentException {
+            if (dataTypes.isEmpty() || dataTypes.size() > 2) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "%s requires one or two arguments, got %d", NAME, dataTypes.size()));
+            }
+            if (!DataTypes.PRIMITIVE_TYPES.contains(dataTypes.get(0))) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "%s doesn't support values of type %s", NAME, dataTypes.get(0)));
+            }
+            if (dataTypes.size() == 2 && !DataTypes.NUMERIC_PRIMITIVE_TYPES.contains(dataTypes.get(1))) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "the precision of %s must be an integer, got %s", NAME, dataTypes.get(1)));
+            }
+            return new HyperLogLogDistinctAggregation(new FunctionInfo(
+                new FunctionIdent(NAME, dataTypes), DataTypes.LONG, FunctionInfo.Type.AGGREGATE));
+        }
+    }
+
+    private HyperLogLogDistinctAggregation(FunctionInfo info) {
+        this.info = info;
+    }
+
+    @Override
+    public FunctionInfo info() {
+        return info;
+    }
+
+    /**
+     * The state is created on the first value because the precision is one of the arguments
+     */
+    @Nullable
+    @Override
+    public HllState newState(RamAccountingContext ramAccountingContext) {
+        return null;
+    }
+
+    @Override
+    public HllState iterate(RamAccountingContext ramAccountingContext, HllState state, Input... args) {
+        Object value = args[0].value();
+        if (value == null) {
+            return state;
+        }
+        if (state == null) {
+            int precision = DEFAULT_PRECISION;
+            if (args.length > 1) {
+                Integer precisionArg = DataTypes.INTEGER.value(args[1].value());
+                if (precisionArg != null) {
+                    precision = precisionArg;
+                }
+            }
+            state = new HllState(precision);
+            ramAccountingContext.addBytes(state.sizeInBytes());
+        }
+        state.add(hash(value));
+        return state;
+    }
+
+    @Override
+    public HllState reduce(RamAccountingContext ramAccountingContext, HllState state1, HllState state2) {
+        if (state1 == null) {
+            return state2;
+        }
+        if (state2 == null) {
+            return state1;
+        }
+        state1.merge(state2);
+        return state1;
+    }
+
+    @Override
+    public Long terminatePartial(RamAccountingContext ramAccountingContext, HllState state) {
+        if (state == null) {
+            return 0L;
+        }
+        return state.cardinality();
+    }
+
+    @Override
+    public DataType partialType() {
+        return HllStateType.INSTANCE;
+    }
+
+    static long hash(Object value) {
+        if (value instanceof BytesRef) {
+            return hash((BytesRef) value);
+        }
+        if (value instanceof String) {
+            return hash(new BytesRef((String) value));
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return mix64(Double.doubleToLongBits(((Number) value).doubleValue()));
+        }
+        if (value instanceof Number) {
+            return mix64(((Number) value).longValue());
+        }
+        if (value instanceof Boolean) {
+            return mix64((Boolean) value ? 1L : 0L);
+        }
+        throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+            "%s doesn't support values of type %s", NAME, value.getClass().getSimpleName()));
+    }
+
+    private static long hash(BytesRef bytes) {
+        // two 32 bit hashes with different seeds make up the 64 bits the sketch needs
+        long high = StringHelper.murmurhash3_x86_32(bytes, 0x9747b28c);
+        long low = StringHelper.murmurhash3_x86_32(bytes, StringHelper.GOOD_FAST_HASH_SEED);
+        return (high << 32) | (low & 0xffffffffL);
+    }
+
+    /**
+     * finalization step of MurmurHash3 which distributes the bits of the value over the whole long
+     */
+    private static long mix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    public static class HllState {
+
+        private final int precision;
+        private final byte[] registers;
+
+        HllState(int precision) {
+            if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "precision of %s must be between %d and %d, got %d",
+                    NAME, MIN_PRECISION, MAX_PRECISION, precision));
+            }
+            this.precision = precision;
+            this.registers = new byte[1 << precision];
+        }
+
+        long sizeInBytes() {
+            // array header and the precision field
+            return registers.length + 24;
+        }
+
+        void add(long hash) {
+            int index = (int) (hash >>> (64 - precision));
+            // the lowest bit limits the rank to the number of bits remaining after the index
+            long remaining = (hash << precision) | (1L << (precision - 1));
+            byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+            if (rank > registers[index]) {
+                registers[index] = rank;
+            }
+        }
+
+        void merge(HllState other) {
+            if (other.precision != precision) {
+                throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "can't merge the states of %s with different precisions %d and %d",
+                    NAME, precision, other.precision));
+            }
+            for (int i = 0; i < registers.length; i++) {
+                if (other.registers[i] > registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        }
+
+        long cardinality() {
+            int m = registers.length;
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = alpha(m) * m * m / sum;
+            if (estimate <= 2.5 * m && zeros > 0) {
+                // linear counting is more accurate for small cardinalities
+                estimate = m * Math.log((double) m / zeros);
+            }
+            return Math.round(estimate);
+        }
+
+        private static double alpha(int m) {
+            switch (m) {
+                case 16:
+                    return 0.673;
+                case 32:
+                    return 0.697;
+                case 64:
+                    return 0.709;
+                default:
+                    return 0.7213 / (1 + 1.079 / m);
+            }
+        }
+    }
+
+    public static class HllStateType extends DataType<HllState> implements Streamer<HllState>, DataTypeFactory {
+
+        public static final int ID = 32768;
+        public static final HllStateType INSTANCE = new HllStateType();
+
+        private HllStateType() {
+        }
+
+        @Override
+        public int id() {
+            return ID;
+        }
+
+        @Override
+        public String getName() {
+            return "hyperloglog_state";
+        }
+
+        @Override
+        public Streamer<?> streamer() {
+            return this;
+        }
+
+        @Override
+        public HllState value(Object value) throws IllegalArgumentException, ClassCastException {
+            return (HllState) value;
+        }
+
+        @Override
+        public int compareValueTo(HllState val1, HllState val2) {
+            return 0;
+        }
+
+        @Override
+        public DataType<?> create() {
+            return INSTANCE;
+        }
+
+        @Override
+        public HllState readValueFrom(StreamInput in) throws IOException {
+            if (!in.readBoolean()) {
+                return null;
+            }
+            HllState state = new HllState(in.readVInt());
+            in.readBytes(state.registers, 0, state.registers.length);
+            return state;
+        }
+
+        @Override
+        public void writeValueTo(StreamOutput out, Object v) throws IOException {
+            HllState state = (HllState) v;
+            if (state == null) {
+                out.writeBoolean(false);
+                return;
+            }
+            out.writeBoolean(true);
+            out.writeVInt(state.precision);
+            out.writeBytes(state.registers);
+        }
+    }
+}
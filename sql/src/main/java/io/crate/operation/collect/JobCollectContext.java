@@ -32,6 +32,7 @@ import io.crate.action.sql.query.CrateSearchContext;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.jobs.AbstractExecutionSubContext;
 import io.crate.metadata.RowGranularity;
+import io.crate.operation.OperationStats;
 import io.crate.operation.projectors.ListenableRowReceiver;
 import io.crate.operation.projectors.RepeatHandle;
 import io.crate.operation.projectors.RowReceiver;
@@ -56,6 +57,7 @@ public class JobCollectContext extends AbstractExecutionSubContext {
     private final CollectPhase collectPhase;
     private final MapSideDataCollectOperation collectOperation;
     private final RamAccountingContext queryPhaseRamAccountingContext;
+    private final OperationStats operationStats;
     private final RowReceiver rowReceiver;
     private final SharedShardContexts sharedShardContexts;
 
@@ -70,12 +72,14 @@ public class JobCollectContext extends AbstractExecutionSubContext {
                              MapSideDataCollectOperation collectOperation,
                              String localNodeId,
                              RamAccountingContext queryPhaseRamAccountingContext,
+                             OperationStats operationStats,
                              final RowReceiver rowReceiver,
                              SharedShardContexts sharedShardContexts) {
         super(collectPhase.phaseId(), LOGGER);
         this.collectPhase = collectPhase;
         this.collectOperation = collectOperation;
         this.queryPhaseRamAccountingContext = queryPhaseRamAccountingContext;
+        this.operationStats = operationStats;
         this.sharedShardContexts = sharedShardContexts;
 
         listenableRowReceiver = RowReceivers.listenableRowReceiver(rowReceiver);
@@ -196,6 +200,11 @@ public class JobCollectContext extends AbstractExecutionSubContext {
         return queryPhaseRamAccountingContext;
     }
 
+    @Override
+    public OperationStats operationStats() {
+        return operationStats;
+    }
+
     public SharedShardContexts sharedShardContexts() {
         return sharedShardContexts;
     }
@@ -48,6 +48,7 @@ import io.crate.operation.projectors.ProjectionToProjectorVisitor;
 import io.crate.operation.projectors.Requirement;
 import io.crate.operation.projectors.RowReceiver;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
+import io.crate.operation.reference.sys.shard.blob.BlobShardRecoveryExpression;
 import io.crate.planner.node.dql.RoutedCollectPhase;
 import io.crate.planner.projection.Projection;
 import io.crate.planner.projection.Projections;
@@ -148,6 +149,14 @@ public class ShardCollectService {
         );
     }
 
+    private RecoveryShardReferenceResolver recoveryShardReferenceResolver() {
+        if (isBlobShard) {
+            return new RecoveryShardReferenceResolver(shardResolver,
+                new BlobShardRecoveryExpression(indexShard, blobIndicesService.blobShardSafe(shardId)));
+        }
+        return new RecoveryShardReferenceResolver(shardResolver, indexShard);
+    }
+
     @Nullable
     public Object[] getRowForShard(RoutedCollectPhase collectPhase) {
         assert collectPhase.maxRowGranularity() == RowGranularity.SHARD : "granularity must be SHARD";
@@ -156,7 +165,7 @@ public class ShardCollectService {
             functions,
             RowGranularity.SHARD,
             ReplaceMode.COPY,
-            new RecoveryShardReferenceResolver(shardResolver, indexShard),
+            recoveryShardReferenceResolver(),
             null
         );
         collectPhase = collectPhase.normalize(shardNormalizer, null);
@@ -198,6 +207,12 @@ public class ShardCollectService {
                 builder = RowsCollector.builder(
                     getBlobRows(collectPhase, downstreamRequirements.contains(Requirement.REPEAT)));
             } else {
+                CrateCollector.Builder aggregateCollector =
+                    getDocValuesAggregateCollector(normalizedCollectNode, jobCollectContext);
+                if (aggregateCollector != null) {
+                    // the collector computes the shard projection itself
+                    return aggregateCollector;
+                }
                 builder = getLuceneIndexCollector(threadPool, normalizedCollectNode, jobCollectContext);
             }
         }
@@ -209,6 +224,7 @@ public class ShardCollectService {
             final FlatProjectorChain.Builder chainBuilder = new FlatProjectorChain.Builder(
                 normalizedCollectNode.jobId(),
                 jobCollectContext.queryPhaseRamAccountingContext(),
+                jobCollectContext.operationStats(),
                 projectorFactory,
                 shardProjections
             );
@@ -232,6 +248,43 @@ public class ShardCollectService {
         return rows;
     }
 
+    /**
+     * @return a collector which computes the global aggregates of the shard projection on the doc values or null
+     * if the shard projections can't be computed that way.
+     */
+    @Nullable
+    private CrateCollector.Builder getDocValuesAggregateCollector(RoutedCollectPhase collectPhase,
+                                                                  JobCollectContext jobCollectContext) {
+        if (Symbols.containsColumn(collectPhase.whereClause().query(), DocSysColumns.SCORE)) {
+            return null;
+        }
+        List<DocValuesAggregates.DocValuesAggregator> aggregators =
+            DocValuesAggregates.createAggregators(collectPhase, mapperService, indexFieldDataService);
+        if (aggregators == null) {
+            return null;
+        }
+        SharedShardContext sharedShardContext = jobCollectContext.sharedShardContexts().getOrCreateContext(shardId);
+        Engine.Searcher searcher = sharedShardContext.searcher();
+        CrateSearchContext searchContext = null;
+        try {
+            searchContext = searchContextFactory.createContext(
+                sharedShardContext.readerId(),
+                sharedShardContext.indexShard(),
+                searcher,
+                collectPhase.whereClause()
+            );
+            jobCollectContext.addSearchContext(sharedShardContext.readerId(), searchContext);
+            return new DocValuesAggregateCollector.Builder(searchContext, aggregators);
+        } catch (Throwable t) {
+            if (searchContext == null) {
+                searcher.close();
+            } else {
+                searchContext.close(); // will close searcher too
+            }
+            throw t;
+        }
+    }
+
     private CrateCollector.Builder getLuceneIndexCollector(ThreadPool threadPool,
                                                            final RoutedCollectPhase collectPhase,
                                                            final JobCollectContext jobCollectContext) throws Exception {
@@ -323,10 +376,11 @@ public class ShardCollectService {
             Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
             batchSize,
             collectorContext,
-            collectPhase.orderBy(),
             LuceneSortGenerator.generateLuceneSort(collectorContext, collectPhase.orderBy(), docInputSymbolVisitor),
             ctx.topLevelInputs(),
-            ctx.docLevelExpressions()
+            ctx.docLevelExpressions(),
+            jobCollectContext.queryPhaseRamAccountingContext(),
+            jobCollectContext.operationStats()
         );
     }
 }
@@ -26,6 +26,7 @@ import com.twitter.jsr166e.LongAdder;
 import io.crate.core.collections.BlockingEvictingQueue;
 import io.crate.core.collections.NoopQueue;
 import io.crate.metadata.settings.CrateSettings;
+import io.crate.operation.OperationStats;
 import io.crate.operation.reference.sys.job.JobContext;
 import io.crate.operation.reference.sys.job.JobContextLog;
 import io.crate.operation.reference.sys.operation.OperationContext;
@@ -166,10 +167,20 @@ public class StatsTables {
     }
 
     public void operationStarted(int operationId, UUID jobId, String name) {
+        operationStarted(operationId, jobId, name, null);
+    }
+
+    /**
+     * @param operationStats the statistics of the operation, exposed while the operation is running
+     */
+    public void operationStarted(int operationId,
+                                 UUID jobId,
+                                 String name,
+                                 @Nullable OperationStats operationStats) {
         if (isEnabled()) {
             operationsTable.put(
                 uniqueOperationId(operationId, jobId),
-                new OperationContext(operationId, jobId, name, System.currentTimeMillis()));
+                new OperationContext(operationId, jobId, name, System.currentTimeMillis(), operationStats));
         }
     }
 
@@ -27,7 +27,7 @@ import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.core.collections.Row;
 import io.crate.operation.Input;
-import io.crate.operation.InputRow;
+import io.crate.operation.PrimitiveInputRow;
 import io.crate.operation.collect.CollectionFinishedEarlyException;
 import io.crate.operation.collect.CollectionPauseException;
 import io.crate.operation.collect.CrateCollector;
@@ -125,7 +125,7 @@ public class CrateDocCollector implements CrateCollector, RepeatHandle {
             ramAccountingContext,
             rowReceiver,
             this.doScores,
-            new InputRow(inputs),
+            new PrimitiveInputRow(inputs),
             expressions
         );
         if (searchContext.minimumScore() != null) {
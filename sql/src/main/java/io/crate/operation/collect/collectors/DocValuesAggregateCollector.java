@@ -0,0 +1,161 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.collectors;
+
+import io.crate.action.sql.query.CrateSearchContext;
+import io.crate.core.collections.RowN;
+import io.crate.operation.collect.CrateCollector;
+import io.crate.operation.collect.RowsCollector;
+import io.crate.operation.collect.collectors.DocValuesAggregates.DocValuesAggregator;
+import io.crate.operation.projectors.RowReceiver;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Collector which computes global aggregates directly on the doc values of a shard
+ * (see {@link DocValuesAggregates}) and emits a single row with the partial aggregation states.
+ */
+public class DocValuesAggregateCollector implements CrateCollector {
+
+    private static final ESLogger LOGGER = Loggers.getLogger(DocValuesAggregateCollector.class);
+
+    /**
+     * number of matching documents which are passed to the aggregators at once
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    private final CrateSearchContext searchContext;
+    private final List<DocValuesAggregator> aggregators;
+    private final RowReceiver rowReceiver;
+    private volatile boolean killed = false;
+
+    public static class Builder implements CrateCollector.Builder {
+
+        private final CrateSearchContext searchContext;
+        private final List<DocValuesAggregator> aggregators;
+
+        public Builder(CrateSearchContext searchContext, List<DocValuesAggregator> aggregators) {
+            this.searchContext = searchContext;
+            this.aggregators = aggregators;
+        }
+
+        @Override
+        public CrateCollector build(RowReceiver rowReceiver) {
+            return new DocValuesAggregateCollector(searchContext, aggregators, rowReceiver);
+        }
+    }
+
+    public DocValuesAggregateCollector(CrateSearchContext searchContext,
+                                       List<DocValuesAggregator> aggregators,
+                                       RowReceiver rowReceiver) {
+        this.searchContext = searchContext;
+        this.aggregators = aggregators;
+        this.rowReceiver = rowReceiver;
+    }
+
+    @Override
+    public void doCollect() {
+        Object[] states;
+        try {
+            aggregate();
+            states = new Object[aggregators.size()];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = aggregators.get(i).partialState();
+            }
+        } catch (Throwable t) {
+            if (!killed) {
+                rowReceiver.fail(t);
+            }
+            return;
+        }
+        RowsCollector.single(new RowN(states), rowReceiver).doCollect();
+    }
+
+    private void aggregate() throws IOException {
+        Query query = searchContext.query();
+        boolean matchAll = query instanceof MatchAllDocsQuery;
+        Weight weight = searchContext.engineSearcher().searcher().createNormalizedWeight(query, false);
+        List<DocValuesAggregator> toCollect = new ArrayList<>(aggregators.size());
+        int[] docs = new int[BLOCK_SIZE];
+        for (LeafReaderContext leaf : searchContext.searcher().getTopReaderContext().leaves()) {
+            toCollect.clear();
+            for (DocValuesAggregator aggregator : aggregators) {
+                aggregator.setNextReader(leaf);
+                if (!matchAll || !aggregator.collectAll(leaf.reader())) {
+                    toCollect.add(aggregator);
+                }
+            }
+            if (toCollect.isEmpty()) {
+                continue;
+            }
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) {
+                continue;
+            }
+            DocIdSetIterator iterator = scorer.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            int numDocs = 0;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) {
+                    continue;
+                }
+                docs[numDocs++] = doc;
+                if (numDocs == docs.length) {
+                    collect(toCollect, docs, numDocs);
+                    numDocs = 0;
+                }
+            }
+            collect(toCollect, docs, numDocs);
+        }
+    }
+
+    private void collect(List<DocValuesAggregator> aggregators, int[] docs, int numDocs) {
+        if (killed) {
+            throw new CancellationException();
+        }
+        for (DocValuesAggregator aggregator : aggregators) {
+            aggregator.collect(docs, numDocs);
+        }
+    }
+
+    @Override
+    public void kill(@Nullable Throwable throwable) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("kill searchContext={}", searchContext);
+        }
+        killed = true;
+        rowReceiver.kill(throwable);
+    }
+}
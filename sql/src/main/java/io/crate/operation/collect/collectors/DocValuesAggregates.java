@@ -0,0 +1,540 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.collectors;
+
+import com.google.common.collect.ImmutableSet;
+import io.crate.Constants;
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.InputColumn;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RowGranularity;
+import io.crate.operation.aggregation.impl.AverageAggregation;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.aggregation.impl.MaximumAggregation;
+import io.crate.operation.aggregation.impl.MinimumAggregation;
+import io.crate.operation.aggregation.impl.SumAggregation;
+import io.crate.planner.node.dql.RoutedCollectPhase;
+import io.crate.planner.projection.AggregationProjection;
+import io.crate.planner.projection.Projection;
+import io.crate.planner.projection.Projections;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Computes the partial states of global aggregates on a shard directly from the doc values of numeric columns,
+ * instead of collecting every document into a row and passing it through the aggregation projector.
+ * <p>
+ * Supported are count(*) and count, sum, avg, min and max on numeric columns which have doc values.
+ * If a segment has no deletions and all documents match, count(*) is taken from the segment and
+ * count, min and max are taken from the indexed terms of the column, unless a document has more than one value.
+ */
+public final class DocValuesAggregates {
+
+    private static final String[] DEFAULT_MAPPING_TYPES = new String[]{Constants.DEFAULT_MAPPING_TYPE};
+
+    private static final Set<DataType> NUMERIC_TYPES = ImmutableSet.<DataType>of(
+        DataTypes.BYTE,
+        DataTypes.SHORT,
+        DataTypes.INTEGER,
+        DataTypes.LONG,
+        DataTypes.TIMESTAMP,
+        DataTypes.FLOAT,
+        DataTypes.DOUBLE
+    );
+
+    private DocValuesAggregates() {
+    }
+
+    /**
+     * @return the aggregators for the shard level aggregation projection of the collect phase or null if
+     * the shard projections of the collect phase can't be computed from the doc values.
+     */
+    @Nullable
+    public static List<DocValuesAggregator> createAggregators(RoutedCollectPhase collectPhase,
+                                                              MapperService mapperService,
+                                                              IndexFieldDataService fieldDataService) {
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        if (shardProjections.size() != 1) {
+            return null;
+        }
+        Projection shardProjection = shardProjections.iterator().next();
+        if (!(shardProjection instanceof AggregationProjection)) {
+            return null;
+        }
+        AggregationProjection projection = (AggregationProjection) shardProjection;
+        List<Symbol> toCollect = collectPhase.toCollect();
+        Map<Reference, ColumnStats> columnStats = new HashMap<>();
+        List<DocValuesAggregator> aggregators = new ArrayList<>(projection.aggregations().size());
+        for (Aggregation aggregation : projection.aggregations()) {
+            if (aggregation.fromStep() != Aggregation.Step.ITER || aggregation.toStep() != Aggregation.Step.PARTIAL) {
+                return null;
+            }
+            String name = aggregation.functionIdent().name();
+            List<Symbol> inputs = aggregation.inputs();
+            if (inputs.isEmpty()) {
+                if (!name.equals(CountAggregation.NAME)) {
+                    return null;
+                }
+                aggregators.add(new CountStarAggregator());
+                continue;
+            }
+            Reference reference = numericColumn(inputs, toCollect);
+            if (reference == null) {
+                return null;
+            }
+            ColumnStats stats = columnStats.get(reference);
+            if (stats == null) {
+                stats = createColumnStats(reference, mapperService, fieldDataService);
+                if (stats == null) {
+                    return null;
+                }
+                columnStats.put(reference, stats);
+            }
+            DocValuesAggregator aggregator = createColumnAggregator(name, stats);
+            if (aggregator == null) {
+                return null;
+            }
+            aggregators.add(aggregator);
+        }
+        return aggregators;
+    }
+
+    @Nullable
+    private static Reference numericColumn(List<Symbol> inputs, List<Symbol> toCollect) {
+        if (inputs.size() != 1 || !(inputs.get(0) instanceof InputColumn)) {
+            return null;
+        }
+        Symbol symbol = toCollect.get(((InputColumn) inputs.get(0)).index());
+        if (!(symbol instanceof Reference)) {
+            return null;
+        }
+        Reference reference = (Reference) symbol;
+        if (reference.granularity() != RowGranularity.DOC
+            || reference.ident().columnIdent().isSystemColumn()
+            || !NUMERIC_TYPES.contains(reference.valueType())) {
+            return null;
+        }
+        return reference;
+    }
+
+    /**
+     * @return the stats of the column or null if the column has no doc values
+     */
+    @Nullable
+    private static ColumnStats createColumnStats(Reference reference,
+                                                 MapperService mapperService,
+                                                 IndexFieldDataService fieldDataService) {
+        String fieldName = reference.ident().columnIdent().fqn();
+        MappedFieldType fieldType = mapperService.smartNameFieldType(fieldName, DEFAULT_MAPPING_TYPES);
+        IndexNumericFieldData fieldData = null;
+        int precisionStep = 0;
+        if (fieldType != null) {
+            if (!fieldType.hasDocValues()) {
+                // the field data would have to be loaded from the indexed terms into the heap
+                return null;
+            }
+            fieldData = fieldDataService.getForField(fieldType);
+            precisionStep = fieldType.numericPrecisionStep();
+        }
+        DataType type = reference.valueType();
+        if (type.equals(DataTypes.DOUBLE) || type.equals(DataTypes.FLOAT)) {
+            return new DoubleColumnStats(fieldName, type, fieldData, precisionStep);
+        }
+        return new LongColumnStats(fieldName, type, fieldData, precisionStep);
+    }
+
+    @Nullable
+    private static DocValuesAggregator createColumnAggregator(String name, final ColumnStats stats) {
+        switch (name) {
+            case CountAggregation.NAME:
+                return new ColumnAggregator(stats, false) {
+                    @Override
+                    public Object partialState() {
+                        return new CountAggregation.LongState(stats.count);
+                    }
+                };
+            case SumAggregation.NAME:
+                return new ColumnAggregator(stats, true) {
+                    @Override
+                    public Object partialState() {
+                        return stats.count == 0 ? null : stats.sum;
+                    }
+                };
+            case "avg":
+            case "mean":
+                return new ColumnAggregator(stats, true) {
+                    @Override
+                    public Object partialState() {
+                        return new AverageAggregation.AverageState(stats.sum, stats.count);
+                    }
+                };
+            case MinimumAggregation.NAME:
+                return new ColumnAggregator(stats, false) {
+                    @Override
+                    public Object partialState() {
+                        return stats.min();
+                    }
+                };
+            case MaximumAggregation.NAME:
+                return new ColumnAggregator(stats, false) {
+                    @Override
+                    public Object partialState() {
+                        return stats.max();
+                    }
+                };
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Aggregates the documents of a shard; the documents are passed segment by segment.
+     */
+    public interface DocValuesAggregator {
+
+        void setNextReader(LeafReaderContext context) throws IOException;
+
+        /**
+         * Called instead of {@link #collect(int[], int)} if all live documents of the segment match.
+         *
+         * @return false if the aggregator couldn't use the segment statistics and the documents must be collected
+         */
+        boolean collectAll(LeafReader reader) throws IOException;
+
+        void collect(int[] docs, int numDocs);
+
+        /**
+         * @return the partial state of the aggregation, as it would have been produced by the AggregationFunction
+         */
+        Object partialState();
+    }
+
+    private static class CountStarAggregator implements DocValuesAggregator {
+
+        private long count = 0;
+
+        @Override
+        public void setNextReader(LeafReaderContext context) {
+        }
+
+        @Override
+        public boolean collectAll(LeafReader reader) {
+            count += reader.numDocs();
+            return true;
+        }
+
+        @Override
+        public void collect(int[] docs, int numDocs) {
+            count += numDocs;
+        }
+
+        @Override
+        public Object partialState() {
+            return new CountAggregation.LongState(count);
+        }
+    }
+
+    /**
+     * An aggregation on a column. The values of the column are aggregated by the {@link ColumnStats}
+     * which are shared between all aggregations on the same column.
+     */
+    private abstract static class ColumnAggregator implements DocValuesAggregator {
+
+        private final ColumnStats stats;
+        private final boolean needsSum;
+
+        ColumnAggregator(ColumnStats stats, boolean needsSum) {
+            this.stats = stats;
+            this.needsSum = needsSum;
+            if (needsSum) {
+                stats.needsSum = true;
+            }
+        }
+
+        @Override
+        public void setNextReader(LeafReaderContext context) throws IOException {
+            if (stats.owner == null) {
+                stats.owner = this;
+            }
+            if (stats.owner == this) {
+                stats.setNextReader(context);
+            }
+        }
+
+        @Override
+        public boolean collectAll(LeafReader reader) throws IOException {
+            if (stats.owner != this) {
+                return true;
+            }
+            return !stats.needsSum && stats.collectAll(reader);
+        }
+
+        @Override
+        public void collect(int[] docs, int numDocs) {
+            if (stats.owner == this) {
+                stats.collect(docs, numDocs);
+            }
+        }
+    }
+
+    /**
+     * count, sum, min and max of the values of a column.
+     * The first aggregator using the stats is the owner and the only one passing the documents on.
+     */
+    private abstract static class ColumnStats {
+
+        final String fieldName;
+        final DataType type;
+        @Nullable
+        final IndexNumericFieldData fieldData;
+        final int precisionStep;
+        DocValuesAggregator owner;
+        boolean needsSum = false;
+
+        long count = 0;
+        double sum = 0;
+
+        ColumnStats(String fieldName, DataType type, @Nullable IndexNumericFieldData fieldData, int precisionStep) {
+            this.fieldName = fieldName;
+            this.type = type;
+            this.fieldData = fieldData;
+            this.precisionStep = precisionStep;
+        }
+
+        abstract void setNextReader(LeafReaderContext context) throws IOException;
+
+        /**
+         * uses the indexed terms to compute count, min and max of the segment
+         */
+        abstract boolean collectAll(LeafReader reader) throws IOException;
+
+        /**
+         * @param bits the number of bits of the encoded values, 32 or 64
+         * @return the terms of the segment if count, min and max can be taken from them: the segment has
+         * no deletions and no document has more than one value, otherwise null
+         */
+        @Nullable
+        Terms singleValuedTerms(LeafReader reader, int bits) throws IOException {
+            if (reader.getLiveDocs() != null) {
+                // the terms include the values of deleted documents
+                return null;
+            }
+            Terms terms = reader.terms(fieldName);
+            if (terms == null || terms.getDocCount() < 0 || precisionStep < 1) {
+                return null;
+            }
+            // every value is indexed as one term per precision step, additional postings mean that
+            // some documents have more than one value, e.g. the elements of an array
+            long termsPerValue = (bits + (long) precisionStep - 1) / precisionStep;
+            if (terms.getSumDocFreq() != terms.getDocCount() * termsPerValue) {
+                return null;
+            }
+            return terms;
+        }
+
+        abstract void collect(int[] docs, int numDocs);
+
+        @Nullable
+        abstract Object min();
+
+        @Nullable
+        abstract Object max();
+    }
+
+    private static class LongColumnStats extends ColumnStats {
+
+        private final boolean intEncoded;
+        private SortedNumericDocValues values;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        LongColumnStats(String fieldName, DataType type, @Nullable IndexNumericFieldData fieldData, int precisionStep) {
+            super(fieldName, type, fieldData, precisionStep);
+            intEncoded = !type.equals(DataTypes.LONG) && !type.equals(DataTypes.TIMESTAMP);
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext context) {
+            values = fieldData == null ? null : fieldData.load(context).getLongValues();
+        }
+
+        @Override
+        boolean collectAll(LeafReader reader) throws IOException {
+            if (fieldData == null) {
+                return true;
+            }
+            Terms terms = singleValuedTerms(reader, intEncoded ? 32 : 64);
+            if (terms == null) {
+                return false;
+            }
+            if (terms.getDocCount() > 0) {
+                count += terms.getDocCount();
+                if (intEncoded) {
+                    min = Math.min(min, NumericUtils.getMinInt(terms));
+                    max = Math.max(max, NumericUtils.getMaxInt(terms));
+                } else {
+                    min = Math.min(min, NumericUtils.getMinLong(terms));
+                    max = Math.max(max, NumericUtils.getMaxLong(terms));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void collect(int[] docs, int numDocs) {
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < numDocs; i++) {
+                values.setDocument(docs[i]);
+                switch (values.count()) {
+                    case 0:
+                        break;
+                    case 1:
+                        long value = values.valueAt(0);
+                        count++;
+                        sum += (double) value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                        break;
+                    default:
+                        throw new GroupByOnArrayUnsupportedException(fieldName);
+                }
+            }
+        }
+
+        @Override
+        Object min() {
+            return count == 0 ? null : type.value(min);
+        }
+
+        @Override
+        Object max() {
+            return count == 0 ? null : type.value(max);
+        }
+    }
+
+    private static class DoubleColumnStats extends ColumnStats {
+
+        private final boolean floatEncoded;
+        private SortedNumericDoubleValues values;
+        private boolean hasMinMax = false;
+        private double min;
+        private double max;
+
+        DoubleColumnStats(String fieldName, DataType type, @Nullable IndexNumericFieldData fieldData, int precisionStep) {
+            super(fieldName, type, fieldData, precisionStep);
+            floatEncoded = type.equals(DataTypes.FLOAT);
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext context) {
+            values = fieldData == null ? null : fieldData.load(context).getDoubleValues();
+        }
+
+        @Override
+        boolean collectAll(LeafReader reader) throws IOException {
+            if (fieldData == null) {
+                return true;
+            }
+            Terms terms = singleValuedTerms(reader, floatEncoded ? 32 : 64);
+            if (terms == null) {
+                return false;
+            }
+            if (terms.getDocCount() > 0) {
+                count += terms.getDocCount();
+                if (floatEncoded) {
+                    update(NumericUtils.sortableIntToFloat(NumericUtils.getMinInt(terms)));
+                    update(NumericUtils.sortableIntToFloat(NumericUtils.getMaxInt(terms)));
+                } else {
+                    update(NumericUtils.sortableLongToDouble(NumericUtils.getMinLong(terms)));
+                    update(NumericUtils.sortableLongToDouble(NumericUtils.getMaxLong(terms)));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void collect(int[] docs, int numDocs) {
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < numDocs; i++) {
+                values.setDocument(docs[i]);
+                switch (values.count()) {
+                    case 0:
+                        break;
+                    case 1:
+                        double value = values.valueAt(0);
+                        count++;
+                        sum += value;
+                        update(value);
+                        break;
+                    default:
+                        throw new GroupByOnArrayUnsupportedException(fieldName);
+                }
+            }
+        }
+
+        private void update(double value) {
+            if (!hasMinMax) {
+                hasMinMax = true;
+                min = value;
+                max = value;
+                return;
+            }
+            // Double.compare to order NaN and -0.0 the same way as the min/max aggregations do
+            if (Double.compare(value, min) < 0) {
+                min = value;
+            }
+            if (Double.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+
+        @Override
+        Object min() {
+            return count == 0 ? null : type.value(min);
+        }
+
+        @Override
+        Object max() {
+            return count == 0 ? null : type.value(max);
+        }
+    }
+}
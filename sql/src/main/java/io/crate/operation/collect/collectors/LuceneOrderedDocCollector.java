@@ -24,22 +24,20 @@ package io.crate.operation.collect.collectors;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Iterables;
-import io.crate.analyze.OrderBy;
-import io.crate.analyze.symbol.Symbol;
+import io.crate.breaker.RamAccountingContext;
 import io.crate.core.collections.Row;
-import io.crate.lucene.QueryBuilderHelper;
-import io.crate.metadata.Reference;
 import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
+import io.crate.operation.Paging;
 import io.crate.operation.merge.KeyIterable;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
 import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
-import io.crate.operation.reference.doc.lucene.LuceneMissingValue;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.index.shard.ShardId;
-import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 
 import javax.annotation.Nullable;
@@ -56,34 +54,53 @@ public class LuceneOrderedDocCollector extends OrderedDocCollector {
     private final boolean doDocsScores;
     private final int batchSize;
     private final CollectorContext collectorContext;
-    private final OrderBy orderBy;
     private final Sort sort;
     private final Collection<LuceneCollectorExpression<?>> expressions;
     private final ScoreDocRowFunction rowFunction;
     private final DummyScorer scorer;
-    private final ContextIndexSearcher searcher;
-
-    private final Object[] missingValues;
+    private final IndexSearcher searcher;
+    private final RamAccountingContext ramAccountingContext;
+    private final OperationStats operationStats;
+    private final long fieldDocBytes;
 
     @Nullable
     private volatile FieldDoc lastDoc = null;
 
+    /**
+     * number of docs the next search collects. It grows with every page, so that paging through
+     * a shard needs a logarithmic instead of a linear number of passes over the matching docs.
+     */
+    private int pageSize;
+
+    private volatile int numSearches = 0;
+    private volatile long numDocsVisited = 0;
+    private volatile long numRowsCollected = 0;
+
+    /**
+     * @param ramAccountingContext the context of the collect phase; the priority queue of the searches is
+     *                             accounted on it.
+     * @param operationStats       the statistics of the collect phase on which the searches are recorded.
+     */
     public LuceneOrderedDocCollector(SearchContext searchContext,
                                      boolean doDocsScores,
                                      int batchSize,
                                      CollectorContext collectorContext,
-                                     OrderBy orderBy,
                                      Sort sort,
                                      List<Input<?>> inputs,
-                                     Collection<LuceneCollectorExpression<?>> expressions) {
+                                     Collection<LuceneCollectorExpression<?>> expressions,
+                                     RamAccountingContext ramAccountingContext,
+                                     OperationStats operationStats) {
         super(searchContext.indexShard().shardId());
         this.searchContext = searchContext;
         this.doDocsScores = doDocsScores;
         this.batchSize = batchSize;
+        this.pageSize = batchSize;
         searcher = searchContext.searcher();
         this.collectorContext = collectorContext;
-        this.orderBy = orderBy;
         this.sort = sort;
+        this.ramAccountingContext = ramAccountingContext;
+        this.operationStats = operationStats;
+        this.fieldDocBytes = fieldDocBytes(sort.getSort().length);
         this.scorer = new DummyScorer();
         this.expressions = expressions;
         this.rowFunction = new ScoreDocRowFunction(
@@ -92,17 +109,13 @@ public class LuceneOrderedDocCollector extends OrderedDocCollector {
             expressions,
             scorer
         );
-        missingValues = new Object[orderBy.orderBySymbols().size()];
-        for (int i = 0; i < orderBy.orderBySymbols().size(); i++) {
-            missingValues[i] = LuceneMissingValue.missingValue(orderBy, i);
-        }
     }
 
     /**
      * On the first call this will do an initial search and provide {@link #batchSize} number of rows
      * (or less if there aren't more available)
      * </p>
-     * On subsequent calls it will return more rows (max {@link #batchSize} or less.
+     * On subsequent calls it will return more rows (at least {@link #batchSize} or less if the shard is exhausted).
      * These rows are always the rows that come after the last row of the previously returned rows
      * <p/>
      * Basically, calling this function multiple times pages through the shard in batches.
@@ -117,25 +130,44 @@ public class LuceneOrderedDocCollector extends OrderedDocCollector {
 
     @Override
     public void close() {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("{} collected {} rows with {} searches visiting {} docs",
+                shardId(), numRowsCollected, numSearches, numDocsVisited);
+        }
         searchContext.clearReleasables(SearchContext.Lifetime.PHASE);
         searchContext.close();
     }
 
+    /**
+     * number of searches which have been executed to collect the rows so far
+     */
+    public int numSearches() {
+        return numSearches;
+    }
+
+    /**
+     * number of matching docs which have been visited by all searches; the cost of paging
+     */
+    public long numDocsVisited() {
+        return numDocsVisited;
+    }
+
+    /**
+     * number of rows which have been returned by all searches
+     */
+    public long numRowsCollected() {
+        return numRowsCollected;
+    }
+
     private KeyIterable<ShardId, Row> initialSearch() throws IOException {
         for (LuceneCollectorExpression<?> expression : expressions) {
             expression.startCollect(collectorContext);
             expression.setScorer(scorer);
         }
-        TopFieldCollector topFieldCollector = TopFieldCollector.create(sort, batchSize, true, doDocsScores, doDocsScores);
-        Collector collector = topFieldCollector;
-        if (searchContext.minimumScore() != null) {
-            collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
-        }
         assert searchContext.queryCollectors().isEmpty() : "queryCollectors not supported";
         assert searchContext.parsedPostFilter() == null : "parsedPostFilter not supported";
-
-        searcher.search(searchContext.query(), collector);
-        return scoreDocToIterable(topFieldCollector.topDocs().scoreDocs);
+        ramAccountingContext.addBytes(pageSize * fieldDocBytes);
+        return search(null);
     }
 
     private KeyIterable<ShardId, Row> searchMore() throws IOException {
@@ -144,72 +176,83 @@ public class LuceneOrderedDocCollector extends OrderedDocCollector {
             return empty();
         }
         LOGGER.debug("searchMore from [{}]", lastDoc);
-        TopDocs topDocs = searcher.searchAfter(lastDoc, query(lastDoc), batchSize, sort, doDocsScores, false);
+        int newPageSize = nextPageSize(pageSize, batchSize);
+        // the queue and the FieldDocs of the previous pages become garbage, but the memory of the grown queue
+        // is accounted, so that the breaker trips before the shards of a node exhaust the heap
+        ramAccountingContext.addBytes((long) (newPageSize - pageSize) * fieldDocBytes);
+        pageSize = newPageSize;
+        return search(lastDoc);
+    }
+
+    private KeyIterable<ShardId, Row> search(@Nullable FieldDoc after) throws IOException {
+        TopDocs topDocs = searchAfter(
+            searcher, searchContext.query(), searchContext.minimumScore(), sort, after, pageSize, doDocsScores);
+        numSearches++;
+        numDocsVisited += topDocs.totalHits;
+        operationStats.addSearch(topDocs.totalHits, topDocs.scoreDocs.length);
         return scoreDocToIterable(topDocs.scoreDocs);
     }
 
     private KeyIterable<ShardId, Row> scoreDocToIterable(ScoreDoc[] scoreDocs) {
-        exhausted = scoreDocs.length < batchSize;
+        exhausted = scoreDocs.length < pageSize;
+        numRowsCollected += scoreDocs.length;
         if (scoreDocs.length > 0) {
             lastDoc = (FieldDoc) scoreDocs[scoreDocs.length - 1];
         }
         return new KeyIterable<>(shardId(), Iterables.transform(Arrays.asList(scoreDocs), rowFunction));
     }
 
-    private Query query(FieldDoc lastDoc) {
-        Query query = nextPageQuery(lastDoc, orderBy, missingValues);
-        if (query == null) {
-            return searchContext.query();
+    /**
+     * Collects the top {@code numHits} docs which are sorted after {@code after}.
+     * <p>
+     * The sort values of {@code after} are compared against the doc values of every matching doc,
+     * ties are broken by the doc id. So in contrast to re-writing the query to exclude the previous
+     * pages this neither depends on the type of the order by symbols nor requires an additional
+     * range query per page.
+     * </p>
+     * The {@link TopDocs#totalHits} of the result is the number of docs that have been visited.
+     */
+    @VisibleForTesting
+    static TopDocs searchAfter(IndexSearcher searcher,
+                               Query query,
+                               @Nullable Float minimumScore,
+                               Sort sort,
+                               @Nullable FieldDoc after,
+                               int numHits,
+                               boolean doDocsScores) throws IOException {
+        TopFieldCollector topFieldCollector = TopFieldCollector.create(
+            sort, numHits, after, true, doDocsScores, doDocsScores);
+        Collector collector = topFieldCollector;
+        if (minimumScore != null) {
+            collector = new MinimumScoreCollector(collector, minimumScore);
         }
-        BooleanQuery.Builder searchAfterQuery = new BooleanQuery.Builder();
-        searchAfterQuery.add(searchContext.query(), BooleanClause.Occur.MUST);
-        searchAfterQuery.add(query, BooleanClause.Occur.MUST_NOT);
-        return searchAfterQuery.build();
+        searcher.search(query, collector);
+        return topFieldCollector.topDocs();
     }
 
-    @Nullable
+    /**
+     * estimated size of a {@link FieldDoc} in the priority queue of a search, including its boxed sort values
+     */
     @VisibleForTesting
-    static Query nextPageQuery(FieldDoc lastCollected, OrderBy orderBy, Object[] missingValues) {
-        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
-        for (int i = 0; i < orderBy.orderBySymbols().size(); i++) {
-            Symbol order = orderBy.orderBySymbols().get(i);
-            Object value = lastCollected.fields[i];
-            if (order instanceof Reference) {
-                boolean nullsFirst = orderBy.nullsFirst()[i] == null ? false : orderBy.nullsFirst()[i];
-                value = value == null || value.equals(missingValues[i]) ? null : value;
-                if (nullsFirst && value == null) {
-                    // no filter needed
-                    continue;
-                }
-                QueryBuilderHelper helper = QueryBuilderHelper.forType(order.valueType());
-                String columnName = ((Reference) order).ident().columnIdent().fqn();
-
-                Query orderQuery;
-                // nulls already gone, so they should be excluded
-                if (nullsFirst) {
-                    BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder();
-                    booleanQuery.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
-                    if (orderBy.reverseFlags()[i]) {
-                        booleanQuery.add(helper.rangeQuery(columnName, null, value, false, true), BooleanClause.Occur.MUST_NOT);
-                    } else {
-                        booleanQuery.add(helper.rangeQuery(columnName, value, null, true, false), BooleanClause.Occur.MUST_NOT);
-                    }
-                    orderQuery = booleanQuery.build();
-                } else {
-                    if (orderBy.reverseFlags()[i]) {
-                        orderQuery = helper.rangeQuery(columnName, value, null, false, false);
-                    } else {
-                        orderQuery = helper.rangeQuery(columnName, null, value, false, false);
-                    }
-                }
-                queryBuilder.add(orderQuery, BooleanClause.Occur.MUST);
-            }
-        }
-        BooleanQuery query = queryBuilder.build();
-        if (query.clauses().size() > 0) {
-            return query;
-        } else {
-            return null;
-        }
+    static long fieldDocBytes(int numSortFields) {
+        long sortValues = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                          + numSortFields * (RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+                                             + RamUsageEstimator.NUM_BYTES_LONG);
+        return RamUsageEstimator.NUM_BYTES_OBJECT_REF
+               + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+                                                   + 3 * RamUsageEstimator.NUM_BYTES_INT
+                                                   + RamUsageEstimator.NUM_BYTES_OBJECT_REF)
+               + sortValues;
+    }
+
+    /**
+     * Every search has to visit all matching docs, so the number of docs collected per search is doubled
+     * for every page. It is bounded by {@link Paging#PAGE_SIZE} to limit the size of the priority queue,
+     * unless the batchSize is already larger.
+     */
+    @VisibleForTesting
+    static int nextPageSize(int pageSize, int batchSize) {
+        int maxPageSize = Math.max(batchSize, Paging.PAGE_SIZE);
+        return (int) Math.min((long) pageSize * 2, maxPageSize);
     }
 }
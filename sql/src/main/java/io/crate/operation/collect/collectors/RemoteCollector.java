@@ -36,6 +36,7 @@ import io.crate.jobs.JobContextService;
 import io.crate.jobs.JobExecutionContext;
 import io.crate.jobs.PageDownstreamContext;
 import io.crate.operation.NodeOperation;
+import io.crate.operation.OperationStats;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.merge.IteratorPageDownstream;
 import io.crate.operation.merge.PassThroughPagingIterator;
@@ -170,6 +171,7 @@ public class RemoteCollector implements CrateCollector {
             new IteratorPageDownstream(rowReceiver, pagingIterator, Optional.<Executor>absent()),
             DataTypes.getStreamers(collectPhase.outputTypes()),
             ramAccountingContext,
+            new OperationStats(),
             1,
             null
         ));
@@ -0,0 +1,220 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Parser for comma separated values with a header line containing the column names.
+ *
+ * Values are converted to the type of the column with the same name. Values of object, array and geo columns
+ * starting with <code>{</code> or <code>[</code> are embedded as JSON, values of unknown columns as strings.
+ * Unquoted empty values are treated as null, quoted values must not contain line breaks.
+ */
+class CsvLineParser implements LineParser {
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte[] UTF8_BOM = new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final Map<String, DataType> columnTypes;
+    private final List<String> fields = new ArrayList<>();
+    private final BytesRefBuilder scratch = new BytesRefBuilder();
+
+    private String[] columns;
+    private DataType[] types;
+    private Map<String, Integer> columnIndices;
+    private Object[] values;
+
+    CsvLineParser(Map<String, DataType> columnTypes) {
+        this.columnTypes = columnTypes;
+    }
+
+    @Override
+    public boolean hasHeader() {
+        return true;
+    }
+
+    @Override
+    public void parseHeader(byte[] line) {
+        if (startsWithBOM(line)) {
+            line = Arrays.copyOfRange(line, UTF8_BOM.length, line.length);
+        }
+        split(line);
+        columns = new String[fields.size()];
+        types = new DataType[fields.size()];
+        columnIndices = new HashMap<>(fields.size());
+        Set<String> uniqueColumns = new HashSet<>(fields.size());
+        for (int i = 0; i < columns.length; i++) {
+            String column = fields.get(i);
+            if (column == null || column.trim().isEmpty()) {
+                throw new ElasticsearchParseException("Empty column name in CSV header");
+            }
+            column = column.trim();
+            if (!uniqueColumns.add(column)) {
+                throw new ElasticsearchParseException("Duplicate column name \"{}\" in CSV header", column);
+            }
+            columns[i] = column;
+            types[i] = columnTypes.get(column);
+            if (types[i] == null || DataTypes.isPrimitive(types[i])) {
+                columnIndices.put(column, i);
+            }
+        }
+    }
+
+    @Override
+    public byte[] parse(byte[] line) {
+        if (columns == null) {
+            throw new ElasticsearchParseException("CSV header is missing");
+        }
+        split(line);
+        if (fields.size() != columns.length) {
+            throw new ElasticsearchParseException("Expected {} values but got {}", columns.length, fields.size());
+        }
+        values = new Object[columns.length];
+        try {
+            XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+            for (int i = 0; i < columns.length; i++) {
+                String value = fields.get(i);
+                if (value != null) {
+                    values[i] = writeValue(builder, columns[i], types[i], value);
+                }
+            }
+            return builder.endObject().bytes().toBytes();
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to convert CSV values", e);
+        }
+    }
+
+    /**
+     * @return the value converted to the type of the column
+     */
+    @Nullable
+    private static Object writeValue(XContentBuilder builder,
+                                     String column,
+                                     @Nullable DataType type,
+                                     String value) throws IOException {
+        if (type == null || type.equals(DataTypes.STRING) || type.equals(DataTypes.IP)) {
+            builder.field(column, value);
+            return new BytesRef(value);
+        }
+        if (DataTypes.isPrimitive(type)) {
+            Object converted;
+            try {
+                converted = type.value(value);
+            } catch (IllegalArgumentException e) {
+                throw new ElasticsearchParseException("Cannot convert value \"{}\" of column \"{}\" to {}",
+                    e, value, column, type.getName());
+            }
+            builder.field(column, converted);
+            return converted;
+        }
+        String trimmed = value.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            builder.rawField(column, new BytesArray(trimmed));
+        } else {
+            builder.field(column, value);
+        }
+        // object, array and geo values aren't part of columnIndices, they are extracted from the source if required
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Object[] values() {
+        return values;
+    }
+
+    @Nullable
+    @Override
+    public Map<String, Integer> columnIndices() {
+        return columnIndices;
+    }
+
+    /**
+     * splits the line into {@link #fields}, unquoted empty values are added as null
+     */
+    private void split(byte[] line) {
+        fields.clear();
+        int i = 0;
+        while (true) {
+            if (i < line.length && line[i] == QUOTE) {
+                scratch.clear();
+                i++;
+                while (true) {
+                    if (i >= line.length) {
+                        throw new ElasticsearchParseException("Unterminated quoted value");
+                    }
+                    if (line[i] == QUOTE) {
+                        if (i + 1 < line.length && line[i + 1] == QUOTE) {
+                            scratch.append(QUOTE);
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    scratch.append(line[i]);
+                    i++;
+                }
+                if (i < line.length && line[i] != DELIMITER) {
+                    throw new ElasticsearchParseException("Unexpected character after quoted value at position {}", i);
+                }
+                fields.add(scratch.get().utf8ToString());
+            } else {
+                int start = i;
+                while (i < line.length && line[i] != DELIMITER) {
+                    i++;
+                }
+                fields.add(i == start ? null : new String(line, start, i - start, StandardCharsets.UTF_8));
+            }
+            if (i >= line.length) {
+                return;
+            }
+            i++; // skip delimiter
+        }
+    }
+
+    private static boolean startsWithBOM(byte[] line) {
+        if (line.length < UTF8_BOM.length) {
+            return false;
+        }
+        for (int i = 0; i < UTF8_BOM.length; i++) {
+            if (line[i] != UTF8_BOM[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -23,6 +23,7 @@ package io.crate.operation.collect.files;
 
 import com.google.common.base.Predicate;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -44,5 +45,17 @@ public interface FileInput {
 
     InputStream getStream(URI uri) throws IOException;
 
+    /**
+     * @param offset the byte offset within the file at which the stream starts
+     * @return a stream or null if the file doesn't exist
+     */
+    @Nullable
+    InputStream getStream(URI uri, long offset) throws IOException;
+
+    /**
+     * @return the size of the file in bytes or -1 if it is unknown
+     */
+    long size(URI uri) throws IOException;
+
     boolean sharedStorageDefault();
 }
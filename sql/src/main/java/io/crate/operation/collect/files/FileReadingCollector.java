@@ -21,38 +21,71 @@
 
 package io.crate.operation.collect.files;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import io.crate.operation.Input;
 import io.crate.operation.InputRow;
 import io.crate.operation.collect.CrateCollector;
+import io.crate.operation.projectors.ExecutorResumeHandle;
 import io.crate.operation.projectors.RepeatHandle;
 import io.crate.operation.projectors.RowReceiver;
+import io.crate.operation.reference.file.LineContext;
+import io.crate.operation.reference.file.SourceLineExpression;
+import io.crate.types.DataType;
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.xcontent.XContentHelper;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Collects the lines of one or more files.
+ * Each line is converted into a JSON source by the {@link LineParser} of the {@link FileFormat}.
+ *
+ * The files are read (and parsed, if any column other than _raw is collected) by a reader task which runs
+ * in the given executor and hands batches of lines to the collecting thread. This way reading the next lines
+ * overlaps with the processing of the previous lines by the downstream.
+ *
+ * On shared storage each file is read by one of the readers, except for uncompressed files which are at least
+ * {@link #MIN_SPLIT_SIZE} large: these are split into one byte range per reader.
+ * A reader reads all lines which start within its range.
+ */
 public class FileReadingCollector implements CrateCollector {
 
     private static final ESLogger LOGGER = Loggers.getLogger(FileReadingCollector.class);
     public static final int MAX_SOCKET_TIMEOUT_RETRIES = 5;
+
+    /**
+     * minimum size of an uncompressed file on shared storage to be split into byte ranges among the readers
+     */
+    static final long MIN_SPLIT_SIZE = 64 * 1024 * 1024;
+
+    private static final int LINES_PER_BATCH = 1000;
+    private static final int MAX_PENDING_BATCHES = 4;
+    /**
+     * how long the reader and the collecting thread wait for the queue before they check if they've been stopped
+     */
+    private static final long QUEUE_TIMEOUT_MS = 100;
+    private static final long WHOLE_FILE = -1L;
+
     private final Map<String, FileInputFactory> fileInputFactories;
     private final Boolean shared;
     private final int numReaders;
@@ -61,6 +94,19 @@ public class FileReadingCollector implements CrateCollector {
     private final RowReceiver downstream;
     private final boolean compressed;
     private final List<LineCollectorExpression<?>> collectorExpressions;
+    private final Executor executor;
+    private final FileFormat format;
+    private final LineParser parser;
+    private final long minSplitSize;
+    private final boolean parseInReader;
+    private final BlockingQueue<LineBatch> batches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+    private volatile boolean stopped = false;
+
+    // state of the consumer, kept to be able to resume after the downstream paused
+    private LineContext lineContext;
+    private LineBatch currentBatch;
+    private int currentIdx;
+    private final ExecutorResumeHandle resumeable;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = new Predicate<URI>() {
@@ -72,7 +118,23 @@ public class FileReadingCollector implements CrateCollector {
     private final List<UriWithGlob> fileUris;
 
     public enum FileFormat {
-        JSON
+        JSON {
+            @Override
+            LineParser newParser(Map<String, DataType> columnTypes) {
+                return JsonLineParser.INSTANCE;
+            }
+        },
+        CSV {
+            @Override
+            LineParser newParser(Map<String, DataType> columnTypes) {
+                return new CsvLineParser(columnTypes);
+            }
+        };
+
+        /**
+         * @param columnTypes types of the top level columns of the target table, used to convert untyped values
+         */
+        abstract LineParser newParser(Map<String, DataType> columnTypes);
     }
 
     public FileReadingCollector(Collection<String> fileUris,
@@ -80,12 +142,34 @@ public class FileReadingCollector implements CrateCollector {
                                 List<LineCollectorExpression<?>> collectorExpressions,
                                 RowReceiver downstream,
                                 FileFormat format,
+                                Map<String, DataType> columnTypes,
                                 String compression,
                                 Map<String, FileInputFactory> fileInputFactories,
                                 Boolean shared,
                                 int numReaders,
-                                int readerNumber) {
+                                int readerNumber,
+                                Executor executor) {
+        this(fileUris, inputs, collectorExpressions, downstream, format, columnTypes, compression, fileInputFactories,
+            shared, numReaders, readerNumber, executor, MIN_SPLIT_SIZE);
+    }
+
+    @VisibleForTesting
+    FileReadingCollector(Collection<String> fileUris,
+                         List<Input<?>> inputs,
+                         List<LineCollectorExpression<?>> collectorExpressions,
+                         RowReceiver downstream,
+                         FileFormat format,
+                         Map<String, DataType> columnTypes,
+                         String compression,
+                         Map<String, FileInputFactory> fileInputFactories,
+                         Boolean shared,
+                         int numReaders,
+                         int readerNumber,
+                         Executor executor,
+                         long minSplitSize) {
         this.fileUris = getUrisWithGlob(fileUris);
+        this.format = format;
+        this.parser = format.newParser(columnTypes);
         this.downstream = downstream;
         this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
         this.row = new InputRow(inputs);
@@ -94,6 +178,24 @@ public class FileReadingCollector implements CrateCollector {
         this.shared = shared;
         this.numReaders = numReaders;
         this.readerNumber = readerNumber;
+        this.executor = executor;
+        this.resumeable = new ExecutorResumeHandle(executor, new Runnable() {
+            @Override
+            public void run() {
+                consumeBatches();
+            }
+        });
+        this.minSplitSize = minSplitSize;
+        this.parseInReader = requiresParsedSource(collectorExpressions);
+    }
+
+    private static boolean requiresParsedSource(List<LineCollectorExpression<?>> collectorExpressions) {
+        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+            if (!(collectorExpression instanceof SourceLineExpression)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static class UriWithGlob {
@@ -109,6 +211,58 @@ public class FileReadingCollector implements CrateCollector {
         }
     }
 
+    /**
+     * Lines handed from the reader task to the collecting thread.
+     * A batch contains lines of a single file only.
+     */
+    private static class LineBatch {
+
+        static final LineBatch END = new LineBatch(null, false);
+
+        @Nullable
+        final URI uri;
+        /**
+         * if true the positions are byte offsets within the file, otherwise line numbers
+         */
+        final boolean positionIsOffset;
+        final byte[][] lines = new byte[LINES_PER_BATCH][];
+        final long[] positions = new long[LINES_PER_BATCH];
+        final Map[] sources = new Map[LINES_PER_BATCH];
+        final Object[][] values = new Object[LINES_PER_BATCH][];
+        @Nullable
+        Map<String, Integer> columnIndices;
+        int size = 0;
+        Throwable failure;
+
+        LineBatch(@Nullable URI uri, boolean positionIsOffset) {
+            this.uri = uri;
+            this.positionIsOffset = positionIsOffset;
+        }
+
+        static LineBatch failure(Throwable failure) {
+            LineBatch batch = new LineBatch(null, false);
+            batch.failure = failure;
+            return batch;
+        }
+
+        void add(byte[] line,
+                 long position,
+                 @Nullable Map<String, Object> source,
+                 @Nullable Object[] lineValues,
+                 @Nullable Map<String, Integer> columnIndices) {
+            lines[size] = line;
+            positions[size] = position;
+            sources[size] = source;
+            values[size] = lineValues;
+            this.columnIndices = columnIndices;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == LINES_PER_BATCH;
+        }
+    }
+
     private List<UriWithGlob> getUrisWithGlob(Collection<String> fileUris) {
         List<UriWithGlob> uris = new ArrayList<>(fileUris.size());
         for (String fileUri : fileUris) {
@@ -158,102 +312,371 @@ public class FileReadingCollector implements CrateCollector {
         for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
             collectorExpression.startCollect(collectorContext);
         }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    readFiles();
+                }
+            });
+        } catch (Throwable t) {
+            downstream.fail(t);
+            return;
+        }
+        lineContext = collectorContext.lineContext();
+        consumeBatches();
+    }
 
-        fileUriLoop:
-        for (UriWithGlob fileUri : fileUris) {
-            FileInput fileInput;
-            try {
-                fileInput = getFileInput(fileUri.uri);
-            } catch (IOException e) {
-                downstream.fail(e);
-                return;
+    @Override
+    public void kill(@Nullable Throwable throwable) {
+        stop();
+        // wake up the collecting thread if it is waiting for the next batch
+        batches.offer(LineBatch.END);
+        downstream.kill(throwable);
+    }
+
+    private void stop() {
+        stopped = true;
+        // the reader task might wait for space in the queue
+        batches.clear();
+    }
+
+    private void consumeBatches() {
+        LineBatch batch = currentBatch;
+        int idx = currentIdx;
+        currentBatch = null;
+        try {
+            while (true) {
+                if (batch == null) {
+                    batch = nextBatch();
+                    idx = 0;
+                }
+                if (batch == null || stopped) {
+                    return;
+                }
+                if (batch.failure != null) {
+                    stop();
+                    downstream.fail(batch.failure);
+                    return;
+                }
+                if (batch == LineBatch.END) {
+                    break;
+                }
+                for (; idx < batch.size; idx++) {
+                    if (batch.values[idx] == null) {
+                        //noinspection unchecked
+                        lineContext.source(batch.lines[idx], batch.sources[idx]);
+                    } else {
+                        lineContext.source(batch.lines[idx], batch.columnIndices, batch.values[idx]);
+                    }
+                    RowReceiver.Result result = downstream.setNextRow(row);
+                    switch (result) {
+                        case CONTINUE:
+                            continue;
+                        case PAUSE:
+                            currentBatch = batch;
+                            currentIdx = idx + 1;
+                            downstream.pauseProcessed(resumeable);
+                            return;
+                        case STOP:
+                            stop();
+                            downstream.finish(RepeatHandle.UNSUPPORTED);
+                            return;
+                    }
+                    throw new AssertionError("Unrecognized setNextRow result: " + result);
+                }
+                batch = null;
+            }
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+            downstream.fail(e);
+            return;
+        } catch (ElasticsearchParseException e) {
+            stop();
+            downstream.fail(parseFailure(e, batch.uri, batch.positions[idx], batch.positionIsOffset));
+            return;
+        } catch (Throwable t) {
+            stop();
+            // it's nice to know which exact file/uri threw an error
+            // when COPY FROM returns less rows than expected
+            LOGGER.info("Error during COPY FROM '{}'", t, batch == null ? null : batch.uri);
+            downstream.fail(t);
+            return;
+        }
+        downstream.finish(RepeatHandle.UNSUPPORTED);
+    }
+
+    /**
+     * @return the next batch of the reader or null if the collector has been stopped
+     */
+    @Nullable
+    private LineBatch nextBatch() throws InterruptedException {
+        while (!stopped) {
+            LineBatch batch = batches.poll(QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (batch != null) {
+                return batch;
             }
+        }
+        return null;
+    }
 
-            Predicate<URI> uriPredicate = generateUriPredicate(fileInput, fileUri.globPredicate);
-            List<URI> uris;
-            try {
-                uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
+    private ElasticsearchParseException parseFailure(ElasticsearchParseException e,
+                                                     URI uri,
+                                                     long position,
+                                                     boolean positionIsOffset) {
+        String location;
+        if (positionIsOffset) {
+            location = String.format(Locale.ENGLISH, "line starting at byte %d", position);
+        } else {
+            location = String.format(Locale.ENGLISH, "line: %d", position);
+        }
+        return new ElasticsearchParseException(String.format(Locale.ENGLISH,
+            "Failed to parse %s in %s in file: \"%s\"%n" +
+            "Original error message: %s", format.name(), location, uri, e.getMessage()), e);
+    }
+
+    /**
+     * Reader task, reads all files and publishes their lines in batches.
+     */
+    private void readFiles() {
+        try {
+            for (UriWithGlob fileUri : fileUris) {
+                FileInput fileInput = getFileInput(fileUri.uri);
+                boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
+                Predicate<URI> uriPredicate = MoreObjects.firstNonNull(fileUri.globPredicate, MATCH_ALL_PREDICATE);
+                List<URI> uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
                 for (URI uri : uris) {
-                    if (!readLines(fileInput, collectorContext, uri, 0, 0)) {
-                        // break out nested loop and finish normally
-                        break fileUriLoop;
+                    if (!readFile(fileInput, uri, sharedStorage)) {
+                        return;
                     }
                 }
-            } catch (Throwable e) {
-                downstream.fail(e);
-                return;
+            }
+            publish(LineBatch.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batches.offer(LineBatch.failure(e));
+        } catch (Throwable t) {
+            try {
+                publish(LineBatch.failure(t));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batches.offer(LineBatch.failure(t));
             }
         }
-        downstream.finish(RepeatHandle.UNSUPPORTED);
     }
 
-    @Override
-    public void kill(@Nullable Throwable throwable) {
-        downstream.kill(throwable);
+    /**
+     * @return false if reading has been stopped
+     */
+    private boolean readFile(FileInput fileInput, URI uri, boolean sharedStorage) throws IOException, InterruptedException {
+        if (!sharedStorage) {
+            return readLines(fileInput, uri, 0, WHOLE_FILE);
+        }
+        if (numReaders > 1 && !compressed) {
+            long size = fileInput.size(uri);
+            if (size >= minSplitSize) {
+                if (readerNumber < 0) {
+                    return true;
+                }
+                long start = size * readerNumber / numReaders;
+                long end = size * (readerNumber + 1) / numReaders;
+                return readLines(fileInput, uri, start, end);
+            }
+        }
+        if (isAssignedToThisReader(uri)) {
+            return readLines(fileInput, uri, 0, WHOLE_FILE);
+        }
+        return true;
     }
 
-    private boolean readLines(FileInput fileInput,
-                              CollectorContext collectorContext,
-                              URI uri,
-                              long startLine,
-                              int retry) throws IOException {
-        InputStream inputStream = fileInput.getStream(uri);
-        if (inputStream == null) {
-            return true;
+    private boolean isAssignedToThisReader(URI uri) {
+        int hash = uri.hashCode();
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
         }
+        return Math.abs(hash) % numReaders == readerNumber;
+    }
 
-        String line;
-        long linesRead = 0L;
-        try (BufferedReader reader = createReader(inputStream)) {
-            while ((line = reader.readLine()) != null) {
-                linesRead++;
-                if (linesRead < startLine) {
-                    continue;
+    /**
+     * Reads the lines which start within [start, end) or all lines if end is {@link #WHOLE_FILE}.
+     *
+     * @return false if reading has been stopped
+     */
+    private boolean readLines(FileInput fileInput, URI uri, long start, long end) throws IOException, InterruptedException {
+        boolean isRange = end != WHOLE_FILE;
+        LineBatch batch = new LineBatch(uri, isRange);
+        // offset of the next line which hasn't been read yet, -1 if it is not known yet
+        long nextLineOffset = start == 0 ? 0 : -1;
+        // number of lines which have already been read, these are skipped if the file has to be re-opened
+        long linesDone = 0;
+        boolean headerPending = parser.hasHeader();
+        if (headerPending && isRange && start > 0) {
+            readHeader(fileInput, uri);
+            headerPending = false;
+        }
+        int retry = 0;
+        while (true) {
+            LineReader reader;
+            if (isRange) {
+                reader = openReader(fileInput, uri, nextLineOffset == -1 ? start - 1 : nextLineOffset);
+            } else {
+                reader = openReader(fileInput, uri, 0);
+            }
+            if (reader == null) {
+                return true;
+            }
+            try (LineReader lineReader = reader) {
+                byte[] line;
+                if (isRange) {
+                    if (nextLineOffset == -1) {
+                        // the line which contains start - 1 belongs to the previous range
+                        lineReader.readLine();
+                        nextLineOffset = lineReader.offset();
+                    }
+                    while (nextLineOffset < end && (line = lineReader.readLine()) != null) {
+                        long lineOffset = nextLineOffset;
+                        nextLineOffset = lineReader.offset();
+                        if (line.length == 0) {
+                            continue;
+                        }
+                        if (headerPending) {
+                            parseHeader(line, uri, lineOffset, true);
+                            headerPending = false;
+                            continue;
+                        }
+                        batch = addLine(batch, line, lineOffset);
+                        if (batch == null) {
+                            return false;
+                        }
+                    }
+                } else {
+                    long lineNumber = 0;
+                    while ((line = lineReader.readLine()) != null) {
+                        lineNumber++;
+                        if (lineNumber <= linesDone) {
+                            continue;
+                        }
+                        linesDone = lineNumber;
+                        if (line.length == 0) { // skip empty lines
+                            continue;
+                        }
+                        if (headerPending) {
+                            parseHeader(line, uri, lineNumber, false);
+                            headerPending = false;
+                            continue;
+                        }
+                        batch = addLine(batch, line, lineNumber);
+                        if (batch == null) {
+                            return false;
+                        }
+                    }
                 }
-                if (line.length() == 0) { // skip empty lines
-                    continue;
+                return batch.size == 0 || publish(batch);
+            } catch (SocketTimeoutException e) {
+                if (retry > MAX_SOCKET_TIMEOUT_RETRIES) {
+                    LOGGER.info("Timeout during COPY FROM '{}' after {} retries", e, uri.toString(), retry);
+                    throw e;
                 }
-                collectorContext.lineContext().rawSource(line.getBytes(StandardCharsets.UTF_8));
-                RowReceiver.Result result = downstream.setNextRow(row);
-                switch (result) {
-                    case CONTINUE:
-                        continue;
-                    case PAUSE:
-                        throw new UnsupportedOperationException("FileReadingCollector doesn't support pause");
-                    case STOP:
-                        return false;
+                retry++;
+            } catch (ElasticsearchParseException | InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                // it's nice to know which exact file/uri threw an error
+                // when COPY FROM returns less rows than expected
+                LOGGER.info("Error during COPY FROM '{}'", e, uri.toString());
+                throw Throwables.propagate(e);
+            }
+        }
+    }
+
+    @Nullable
+    private LineReader openReader(FileInput fileInput, URI uri, long offset) throws IOException {
+        InputStream inputStream;
+        if (offset == 0) {
+            inputStream = fileInput.getStream(uri);
+        } else {
+            inputStream = fileInput.getStream(uri, offset);
+        }
+        if (inputStream == null) {
+            return null;
+        }
+        if (compressed) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        return new LineReader(inputStream, offset);
+    }
+
+    /**
+     * parses the first non empty line of the file as header
+     */
+    private void readHeader(FileInput fileInput, URI uri) throws IOException {
+        LineReader reader = openReader(fileInput, uri, 0);
+        if (reader == null) {
+            return;
+        }
+        try (LineReader lineReader = reader) {
+            byte[] line;
+            long lineNumber = 0;
+            while ((line = lineReader.readLine()) != null) {
+                lineNumber++;
+                if (line.length > 0) {
+                    parseHeader(line, uri, lineNumber, false);
+                    return;
                 }
-                throw new AssertionError("Unrecognized setNextRow result: " + result);
             }
-        } catch (SocketTimeoutException e) {
-            if (retry > MAX_SOCKET_TIMEOUT_RETRIES) {
-                LOGGER.info("Timeout during COPY FROM '{}' after {} retries", e, uri.toString(), retry);
-                throw e;
-            } else {
-                return readLines(fileInput, collectorContext, uri, linesRead + 1, retry + 1);
+        }
+    }
+
+    private void parseHeader(byte[] line, URI uri, long position, boolean positionIsOffset) {
+        try {
+            parser.parseHeader(line);
+        } catch (ElasticsearchParseException e) {
+            throw parseFailure(e, uri, position, positionIsOffset);
+        }
+    }
+
+    /**
+     * Adds the line to the batch, publishes the batch if it is full.
+     *
+     * @return the batch to add the next line to or null if reading has been stopped
+     */
+    @Nullable
+    private LineBatch addLine(LineBatch batch, byte[] line, long position) throws InterruptedException {
+        byte[] source;
+        Map<String, Object> parsedSource = null;
+        try {
+            source = parser.parse(line);
+            if (parseInReader && parser.values() == null) {
+                parsedSource = XContentHelper.convertToMap(new BytesArray(source), false).v2();
             }
         } catch (ElasticsearchParseException e) {
-            throw new ElasticsearchParseException(String.format(Locale.ENGLISH,
-                "Failed to parse JSON in line: %d in file: \"%s\"%n" +
-                "Original error message: %s", linesRead, uri, e.getMessage()), e);
-        } catch (Exception e) {
-            // it's nice to know which exact file/uri threw an error
-            // when COPY FROM returns less rows than expected
-            LOGGER.info("Error during COPY FROM '{}'", e, uri.toString());
-            throw Throwables.propagate(e);
+            // the lines before the invalid one are still emitted, like they would without the reader task
+            if (batch.size > 0) {
+                publish(batch);
+            }
+            throw parseFailure(e, batch.uri, position, batch.positionIsOffset);
         }
-        return true;
+        batch.add(source, position, parsedSource, parser.values(), parser.columnIndices());
+        if (batch.isFull()) {
+            if (!publish(batch)) {
+                return null;
+            }
+            return new LineBatch(batch.uri, batch.positionIsOffset);
+        }
+        return batch;
     }
 
-    private BufferedReader createReader(InputStream inputStream) throws IOException {
-        BufferedReader reader;
-        if (compressed) {
-            reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream),
-                StandardCharsets.UTF_8));
-        } else {
-            reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    /**
+     * @return false if reading has been stopped
+     */
+    private boolean publish(LineBatch batch) throws InterruptedException {
+        while (!stopped) {
+            if (batches.offer(batch, QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
         }
-        return reader;
+        return false;
     }
 
     private static List<URI> getUris(FileInput fileInput, URI fileUri, URI preGlobUri, Predicate<URI> uriPredicate) throws IOException {
@@ -268,30 +691,6 @@ public class FileReadingCollector implements CrateCollector {
         return uris;
     }
 
-    private Predicate<URI> generateUriPredicate(FileInput fileInput, @Nullable Predicate<URI> globPredicate) {
-        Predicate<URI> moduloPredicate;
-        boolean sharedStorage = MoreObjects.firstNonNull(shared, fileInput.sharedStorageDefault());
-        if (sharedStorage) {
-            moduloPredicate = new Predicate<URI>() {
-                @Override
-                public boolean apply(URI input) {
-                    int hash = input.hashCode();
-                    if (hash == Integer.MIN_VALUE) {
-                        hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
-                    }
-                    return Math.abs(hash) % numReaders == readerNumber;
-                }
-            };
-        } else {
-            moduloPredicate = MATCH_ALL_PREDICATE;
-        }
-
-        if (globPredicate != null) {
-            return Predicates.and(moduloPredicate, globPredicate);
-        }
-        return moduloPredicate;
-    }
-
     private static class GlobPredicate implements Predicate<URI> {
         private final Pattern globPattern;
 
@@ -0,0 +1,62 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Converts the lines of a file into the JSON source which is indexed.
+ *
+ * A parser is used by one reader at a time and may keep state between the lines of a file (e.g. the header).
+ */
+interface LineParser {
+
+    /**
+     * @return true if the first line of every file is a header which has to be passed to {@link #parseHeader(byte[])}
+     */
+    boolean hasHeader();
+
+    /**
+     * Reads the header of a file. Parsers without a header ignore the line.
+     */
+    void parseHeader(byte[] line);
+
+    /**
+     * @return the JSON source of the line
+     * @throws org.elasticsearch.ElasticsearchParseException if the line is invalid
+     */
+    byte[] parse(byte[] line);
+
+    /**
+     * @return the top level column values of the last parsed line, indexed by {@link #columnIndices()},
+     * or null if the values have to be extracted from the source.
+     */
+    @Nullable
+    Object[] values();
+
+    /**
+     * @return the index of the top level columns within {@link #values()}
+     */
+    @Nullable
+    Map<String, Integer> columnIndices();
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads newline delimited lines as raw (utf-8) bytes and keeps track of the byte offset within the file.
+ *
+ * A trailing carriage return is removed from the lines.
+ */
+class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final InputStream inputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] scratch = new byte[256];
+    private int scratchLength = 0;
+    private int pos = 0;
+    private int limit = 0;
+    private long offset;
+
+    /**
+     * @param offset the byte offset of the first byte of the inputStream within the file
+     */
+    LineReader(InputStream inputStream, long offset) {
+        this.inputStream = inputStream;
+        this.offset = offset;
+    }
+
+    /**
+     * @return the byte offset of the next byte which will be read
+     */
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * @return the next line without the line terminator or null if the end of the stream has been reached
+     */
+    @Nullable
+    byte[] readLine() throws IOException {
+        scratchLength = 0;
+        boolean readAny = false;
+        while (pos < limit || fill()) {
+            readAny = true;
+            int newLine = indexOfNewLine();
+            if (newLine >= 0) {
+                byte[] line;
+                if (scratchLength == 0) {
+                    line = trimCarriageReturn(buffer, pos, newLine - pos);
+                } else {
+                    append(newLine - pos);
+                    line = trimCarriageReturn(scratch, 0, scratchLength);
+                }
+                offset += newLine - pos + 1;
+                pos = newLine + 1;
+                return line;
+            }
+            offset += limit - pos;
+            append(limit - pos);
+            pos = limit;
+        }
+        if (readAny) {
+            // last line without a line terminator
+            return trimCarriageReturn(scratch, 0, scratchLength);
+        }
+        return null;
+    }
+
+    private int indexOfNewLine() {
+        for (int i = pos; i < limit; i++) {
+            if (buffer[i] == NEW_LINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(int length) {
+        if (scratchLength + length > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, scratchLength + length));
+        }
+        System.arraycopy(buffer, pos, scratch, scratchLength, length);
+        scratchLength += length;
+    }
+
+    private static byte[] trimCarriageReturn(byte[] bytes, int start, int length) {
+        if (length > 0 && bytes[start + length - 1] == CARRIAGE_RETURN) {
+            length--;
+        }
+        return Arrays.copyOfRange(bytes, start, start + length);
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = inputStream.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read == -1) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
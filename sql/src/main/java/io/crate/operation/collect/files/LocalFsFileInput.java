@@ -81,6 +81,32 @@ public class LocalFsFileInput implements FileInput {
         }
     }
 
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        FileInputStream inputStream;
+        try {
+            inputStream = new FileInputStream(new File(uri));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            inputStream.getChannel().position(offset);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+        return inputStream;
+    }
+
+    @Override
+    public long size(URI uri) throws IOException {
+        Path path = Paths.get(uri);
+        if (Files.exists(path)) {
+            return Files.size(path);
+        }
+        return -1L;
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return false;
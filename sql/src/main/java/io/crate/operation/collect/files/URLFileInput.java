@@ -23,6 +23,7 @@
 package io.crate.operation.collect.files;
 
 import com.google.common.base.Predicate;
+import com.google.common.io.ByteStreams;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -57,6 +58,20 @@ class URLFileInput implements FileInput {
         }
     }
 
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        InputStream inputStream = getStream(uri);
+        if (inputStream != null && offset > 0) {
+            ByteStreams.skipFully(inputStream, offset);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public long size(URI uri) throws IOException {
+        return -1L;
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return true;
@@ -40,6 +40,7 @@ import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.*;
 
@@ -49,10 +50,15 @@ public class FileCollectSource implements CollectSource {
     private final ClusterService clusterService;
     private final FileCollectInputSymbolVisitor fileInputSymbolVisitor;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
+    private final ThreadPool threadPool;
 
     @Inject
-    public FileCollectSource(Functions functions, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(Functions functions,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
+        this.threadPool = threadPool;
         fileInputSymbolVisitor = new FileCollectInputSymbolVisitor(functions, FileLineReferenceResolver.INSTANCE);
         this.clusterService = clusterService;
     }
@@ -74,11 +80,13 @@ public class FileCollectSource implements CollectSource {
             context.expressions(),
             downstream,
             fileUriCollectPhase.fileFormat(),
+            fileUriCollectPhase.columnTypes(),
             fileUriCollectPhase.compression(),
             fileInputFactoryMap,
             fileUriCollectPhase.sharedStorage(),
             readers.length,
-            Arrays.binarySearch(readers, clusterService.state().nodes().localNodeId())
+            Arrays.binarySearch(readers, clusterService.state().nodes().localNodeId()),
+            threadPool.executor(ThreadPool.Names.GENERIC)
         ));
     }
 
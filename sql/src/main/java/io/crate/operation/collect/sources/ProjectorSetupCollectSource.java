@@ -48,6 +48,7 @@ public class ProjectorSetupCollectSource implements CollectSource {
         FlatProjectorChain projectorChain = FlatProjectorChain.withAttachedDownstream(
             projectorFactory,
             jobCollectContext.queryPhaseRamAccountingContext(),
+            jobCollectContext.operationStats(),
             collectPhase.projections(),
             downstream,
             collectPhase.jobId()
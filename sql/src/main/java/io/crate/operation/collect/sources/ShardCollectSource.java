@@ -175,6 +175,7 @@ public class ShardCollectSource implements CollectSource {
         FlatProjectorChain chain = FlatProjectorChain.withAttachedDownstream(
             projectorFactory,
             jobCollectContext.queryPhaseRamAccountingContext(),
+            jobCollectContext.operationStats(),
             Projections.nodeProjections(normalizedPhase.projections()),
             lastRR,
             collectPhase.jobId());
@@ -25,6 +25,9 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import io.crate.action.sql.ResultCache;
+import io.crate.action.sql.StatementCache;
+import io.crate.blob.BlobReadCache;
 import io.crate.core.collections.Row;
 import io.crate.metadata.Functions;
 import io.crate.metadata.RowCollectExpression;
@@ -73,7 +76,10 @@ public class SystemCollectSource implements CollectSource {
                                Set<SysNodeCheck> sysNodeChecks,
                                SysRepositoriesService sysRepositoriesService,
                                SysSnapshots sysSnapshots,
-                               PgCatalogTables pgCatalogTables) {
+                               PgCatalogTables pgCatalogTables,
+                               final StatementCache statementCache,
+                               final ResultCache resultCache,
+                               final BlobReadCache blobReadCache) {
         docInputSymbolVisitor = new CollectInputSymbolVisitor<>(functions, RowContextReferenceResolver.INSTANCE);
 
         iterableGetters = ImmutableMap.<String, Supplier<Iterable<?>>>builder()
@@ -93,6 +99,12 @@ public class SystemCollectSource implements CollectSource {
             .put(SysRepositoriesTableInfo.IDENT.fqn(), sysRepositoriesService)
             .put(SysSnapshotsTableInfo.IDENT.fqn(), sysSnapshots)
             .put(SysSummitsTableInfo.IDENT.fqn(), new SummitsIterable())
+            .put(SysCachesTableInfo.IDENT.fqn(), new Supplier<Iterable<?>>() {
+                @Override
+                public Iterable<?> get() {
+                    return ImmutableList.of(statementCache.stats(), resultCache.stats(), blobReadCache.stats());
+                }
+            })
             .put(PgTypeTable.IDENT.fqn(), pgCatalogTables.pgTypes())
             .build();
         this.discoveryService = discoveryService;
@@ -25,22 +25,39 @@ package io.crate.operation.fetch;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import io.crate.Streamer;
+import io.crate.core.collections.RowN;
 import io.crate.executor.transport.StreamBucket;
 import io.crate.operation.InputRow;
 import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
 import io.crate.operation.reference.doc.lucene.CollectorContext;
 import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.MapperService;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Fetches the values of the requested documents of one reader.
+ * <p>
+ * The documents are read in the order of their doc ids, segment by segment, so that every segment is
+ * only visited once and its stored fields can be read sequentially. The rows are returned
+ * in the order of the requested doc ids.
+ */
 class FetchCollector {
 
+    /**
+     * Minimum number of documents of a segment for which its stored fields are read with a sequential reader,
+     * which decompresses every block of documents only once but needs to be created per segment.
+     */
+    private static final int MIN_DOCS_FOR_SEQUENTIAL_READER = 8;
+
     private final CollectorFieldsVisitor fieldsVisitor;
     private final boolean visitorEnabled;
     private final LuceneCollectorExpression[] collectorExpressions;
@@ -68,26 +85,118 @@ class FetchCollector {
 
     }
 
-    private void setNextDocId(LeafReaderContext readerContext, int doc) throws IOException {
+    public StreamBucket collect(IntContainer docIds) throws IOException {
+        int numDocs = docIds.size();
+        // the position of each doc id is kept in the lower bits so that the requested order can be restored
+        long[] docIdsAndPositions = new long[numDocs];
+        boolean ordered = true;
+        int previousDocId = -1;
+        int position = 0;
+        for (IntCursor cursor : docIds) {
+            int docId = cursor.value;
+            ordered &= docId >= previousDocId;
+            previousDocId = docId;
+            docIdsAndPositions[position] = ((long) docId << 32) | position;
+            position++;
+        }
+        Object[][] rows = null;
+        if (!ordered) {
+            Arrays.sort(docIdsAndPositions);
+            rows = new Object[numDocs][];
+        }
+
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers);
+        int[] leafDocs = new int[numDocs];
+        int start = 0;
+        while (start < numDocs) {
+            LeafReaderContext readerContext = readerContexts.get(
+                ReaderUtil.subIndex(docId(docIdsAndPositions[start]), readerContexts));
+            int leafEnd = readerContext.docBase + readerContext.reader().maxDoc();
+            int numLeafDocs = 0;
+            for (int i = start; i < numDocs; i++) {
+                int docId = docId(docIdsAndPositions[i]);
+                if (docId >= leafEnd) {
+                    break;
+                }
+                leafDocs[numLeafDocs++] = docId - readerContext.docBase;
+            }
+            setNextReader(readerContext);
+            StoredFieldsReader storedFieldsReader = sequentialStoredFieldsReader(readerContext, numLeafDocs);
+            for (int i = 0; i < numLeafDocs; i++) {
+                setNextDocId(readerContext, storedFieldsReader, leafDocs[i]);
+                if (rows == null) {
+                    builder.add(row);
+                } else {
+                    rows[(int) docIdsAndPositions[start + i]] = materialize(row);
+                }
+            }
+            start += numLeafDocs;
+        }
+        if (rows != null) {
+            RowN rowN = new RowN(row.size());
+            for (Object[] cells : rows) {
+                rowN.cells(cells);
+                builder.add(rowN);
+            }
+        }
+        return builder.build();
+    }
+
+    private void setNextReader(LeafReaderContext readerContext) {
+        for (LuceneCollectorExpression e : collectorExpressions) {
+            e.setNextReader(readerContext);
+        }
+    }
+
+    private void setNextDocId(LeafReaderContext readerContext,
+                              @Nullable StoredFieldsReader storedFieldsReader,
+                              int doc) throws IOException {
         if (visitorEnabled) {
             fieldsVisitor.reset();
-            readerContext.reader().document(doc, fieldsVisitor);
+            if (storedFieldsReader == null) {
+                readerContext.reader().document(doc, fieldsVisitor);
+            } else {
+                storedFieldsReader.visitDocument(doc, fieldsVisitor);
+            }
         }
         for (LuceneCollectorExpression e : collectorExpressions) {
-            e.setNextReader(readerContext);
             e.setNextDocId(doc);
         }
     }
 
-    public StreamBucket collect(IntContainer docIds) throws IOException {
-        StreamBucket.Builder builder = new StreamBucket.Builder(streamers);
-        for (IntCursor cursor : docIds) {
-            int docId = cursor.value;
-            int readerIndex = ReaderUtil.subIndex(docId, readerContexts);
-            LeafReaderContext subReaderContext = readerContexts.get(readerIndex);
-            setNextDocId(subReaderContext, docId - subReaderContext.docBase);
-            builder.add(row);
+    /**
+     * Returns a reader optimized for reading the stored fields of ascending documents of the segment
+     * or null if the documents should be read using the default reader.
+     */
+    @Nullable
+    private StoredFieldsReader sequentialStoredFieldsReader(LeafReaderContext readerContext, int numDocs)
+        throws IOException {
+        if (!visitorEnabled || numDocs < MIN_DOCS_FOR_SEQUENTIAL_READER) {
+            return null;
         }
-        return builder.build();
+        LeafReader reader = FilterLeafReader.unwrap(readerContext.reader());
+        if (reader instanceof CodecReader) {
+            return ((CodecReader) reader).getFieldsReader().getMergeInstance();
+        }
+        return null;
+    }
+
+    /**
+     * Copies the values of the row; the values of some expressions are re-used for the next document
+     */
+    private static Object[] materialize(InputRow row) {
+        Object[] cells = new Object[row.size()];
+        for (int i = 0; i < cells.length; i++) {
+            Object value = row.get(i);
+            if (value instanceof BytesRef) {
+                value = BytesRef.deepCopyOf((BytesRef) value);
+            }
+            cells[i] = value;
+        }
+        return cells;
+    }
+
+    private static int docId(long docIdAndPosition) {
+        return (int) (docIdAndPosition >>> 32);
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.join;
+
+import com.google.common.base.Function;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.core.collections.Row;
+import io.crate.operation.ImplementationSymbolVisitor;
+import io.crate.operation.Input;
+import io.crate.operation.collect.CollectExpression;
+import org.apache.lucene.util.BytesRef;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evaluates the join key symbols of one side of a hash join against a row of that side.
+ * <p>
+ * A single key is returned as is (apart from normalization), multiple keys are wrapped into a list so that they can be used
+ * as a key of a hash map. If any of the key values is null, null is returned because a null value
+ * never satisfies an equi-join condition.
+ */
+public class HashJoinKey implements Function<Row, Object> {
+
+    private final List<Input<?>> keyInputs;
+    private final Collection<CollectExpression<Row, ?>> keyExpressions;
+
+    public static HashJoinKey create(ImplementationSymbolVisitor symbolVisitor, List<? extends Symbol> keySymbols) {
+        assert !keySymbols.isEmpty() : "hash join requires at least one join key";
+        ImplementationSymbolVisitor.Context ctx = symbolVisitor.extractImplementations(keySymbols);
+        return new HashJoinKey(ctx.topLevelInputs(), ctx.collectExpressions());
+    }
+
+    private HashJoinKey(List<Input<?>> keyInputs, Collection<CollectExpression<Row, ?>> keyExpressions) {
+        this.keyInputs = keyInputs;
+        this.keyExpressions = keyExpressions;
+    }
+
+    @Nullable
+    @Override
+    public Object apply(@Nullable Row row) {
+        for (CollectExpression<Row, ?> keyExpression : keyExpressions) {
+            keyExpression.setNextRow(row);
+        }
+        if (keyInputs.size() == 1) {
+            return normalize(keyInputs.get(0).value());
+        }
+        Object[] values = new Object[keyInputs.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = normalize(keyInputs.get(i).value());
+            if (value == null) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * depending on the source, values of the same type might be represented by different classes
+     * (e.g. String or BytesRef) which wouldn't be equal as hash keys.
+     * Also used to distribute the rows of a shuffled join, so that equal keys of both sides end up on the same node.
+     */
+    @Nullable
+    public static Object normalize(@Nullable Object value) {
+        if (value instanceof String) {
+            return new BytesRef((String) value);
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+}
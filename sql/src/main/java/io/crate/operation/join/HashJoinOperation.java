@@ -0,0 +1,544 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.join;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.operation.projectors.*;
+import io.crate.planner.node.dql.join.JoinType;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push based hash join for equi-join conditions:
+ * <pre>
+ *     for (buildRow in build) {
+ *         table[key(buildRow)].add(buildRow)
+ *     }
+ *     for (probeRow in probe) {
+ *         for (buildRow in table[key(probeRow)]) {
+ *             if matched
+ *                  emit(left + right)
+ *         }
+ *     }
+ * </pre>
+ * <p>
+ * The build side is fully materialized into a hash table (accounted for with the {@link RamAccountingContext}),
+ * the probe side is streamed through and never has to be repeated.
+ * The join predicate is still evaluated for each pair of rows with equal keys, so the join condition may
+ * contain additional non-equi parts.
+ * <p>
+ * If the right side is used as build side the rows are emitted in the same order as the
+ * {@link NestedLoopOperation} would emit them.
+ * <p>
+ * <h2>outer joins</h2>
+ * Probe rows without any match are emitted with the build side nulled.
+ * Build rows are marked once matched and any unmatched build rows are emitted with the probe side nulled
+ * after the probe side has finished.
+ * <p>
+ * <h2>Implementation details:</h2>
+ * <p>
+ * Both upstreams start concurrently. The probe side is paused on its first row (or its finish) until the build
+ * side has finished. {@link #probeBarrier} is used to resume the probe side exactly once after both the
+ * build side finished and the probe side is paused. From then on everything happens on the probe thread.
+ */
+public class HashJoinOperation implements JoinOperation {
+
+    private final static ESLogger LOGGER = Loggers.getLogger(HashJoinOperation.class);
+
+    /**
+     * HashMap.Node: header, hash, key, value and next reference + the ArrayList holding the rows
+     */
+    private static final long ENTRY_OVERHEAD = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+                                               + RamUsageEstimator.NUM_BYTES_INT
+                                               + 3 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                                               + RamUsageEstimator.shallowSizeOfInstance(ArrayList.class)
+                                               + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+    private static final long BUILD_ROW_OVERHEAD = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+                                                   + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                                                   + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+
+    private final SettableFuture<Void> completionFuture = SettableFuture.create();
+
+    private final int phaseId;
+    private final RowReceiver downstream;
+    private final Predicate<Row> joinPredicate;
+    private final RamAccountingContext ramAccountingContext;
+    private final boolean buildLeft;
+    private final boolean emitUnmatchedProbeRows;
+    private final boolean emitUnmatchedBuildRows;
+
+    private final BuildRowReceiver build;
+    private final ProbeRowReceiver probe;
+    private final CombinedRow combinedRow;
+    private final RowN buildRowView;
+    private final Row buildNullRow;
+    private final Row probeNullRow;
+
+    private final Map<Object, List<BuildRow>> buildTable = new HashMap<>();
+    private final List<BuildRow> allBuildRows = new ArrayList<>();
+
+    private final AtomicInteger probeBarrier = new AtomicInteger(2);
+    private final AtomicBoolean killed = new AtomicBoolean(false);
+
+    private volatile boolean stop = false;
+    private Throwable buildFailure;
+
+    public HashJoinOperation(int phaseId,
+                             RowReceiver rowReceiver,
+                             Predicate<Row> joinPredicate,
+                             JoinType joinType,
+                             int leftNumOutputs,
+                             int rightNumOutputs,
+                             Function<Row, Object> leftKey,
+                             Function<Row, Object> rightKey,
+                             boolean buildLeft,
+                             RamAccountingContext ramAccountingContext) {
+        this.phaseId = phaseId;
+        this.downstream = rowReceiver;
+        this.joinPredicate = joinPredicate;
+        this.buildLeft = buildLeft;
+        this.ramAccountingContext = ramAccountingContext;
+
+        boolean leftOuter = joinType == JoinType.LEFT || joinType == JoinType.FULL;
+        boolean rightOuter = joinType == JoinType.RIGHT || joinType == JoinType.FULL;
+        emitUnmatchedProbeRows = buildLeft ? rightOuter : leftOuter;
+        emitUnmatchedBuildRows = buildLeft ? leftOuter : rightOuter;
+
+        combinedRow = new CombinedRow(leftNumOutputs, rightNumOutputs);
+        if (buildLeft) {
+            buildNullRow = combinedRow.outerNullRow;
+            probeNullRow = combinedRow.innerNullRow;
+            buildRowView = new RowN(leftNumOutputs);
+            build = new BuildRowReceiver(leftKey);
+            probe = new ProbeRowReceiver(rightKey);
+        } else {
+            buildNullRow = combinedRow.innerNullRow;
+            probeNullRow = combinedRow.outerNullRow;
+            buildRowView = new RowN(rightNumOutputs);
+            build = new BuildRowReceiver(rightKey);
+            probe = new ProbeRowReceiver(leftKey);
+        }
+    }
+
+    @Override
+    public ListenableFuture<?> completionFuture() {
+        return completionFuture;
+    }
+
+    @Override
+    public ListenableRowReceiver leftRowReceiver() {
+        return buildLeft ? build : probe;
+    }
+
+    @Override
+    public ListenableRowReceiver rightRowReceiver() {
+        return buildLeft ? probe : build;
+    }
+
+    private static class BuildRow {
+        final Object[] cells;
+        boolean matched = false;
+
+        BuildRow(Object[] cells) {
+            this.cells = cells;
+        }
+    }
+
+    private void setRows(Row buildRow, Row probeRow) {
+        if (buildLeft) {
+            combinedRow.outerRow = buildRow;
+            combinedRow.innerRow = probeRow;
+        } else {
+            combinedRow.outerRow = probeRow;
+            combinedRow.innerRow = buildRow;
+        }
+    }
+
+    private RowReceiver.Result emit(Row row) {
+        RowReceiver.Result result = downstream.setNextRow(row);
+        if (result == RowReceiver.Result.STOP) {
+            stop = true;
+        }
+        return result;
+    }
+
+    private abstract class AbstractRowReceiver implements ListenableRowReceiver {
+
+        final SettableFuture<Void> finished = SettableFuture.create();
+
+        @Override
+        public ListenableFuture<Void> finishFuture() {
+            return finished;
+        }
+
+        @Override
+        public Set<Requirement> requirements() {
+            return downstream.requirements();
+        }
+
+        @Override
+        public void kill(Throwable throwable) {
+            if (killed.compareAndSet(false, true)) {
+                stop = true;
+                build.finished.setException(throwable);
+                probe.finished.setException(throwable);
+                downstream.kill(throwable);
+                completionFuture.setException(throwable);
+            }
+        }
+    }
+
+    private class BuildRowReceiver extends AbstractRowReceiver {
+
+        private final Function<Row, Object> keyFunction;
+        private final RowN row = new RowN(0);
+
+        BuildRowReceiver(Function<Row, Object> keyFunction) {
+            this.keyFunction = keyFunction;
+        }
+
+        @Override
+        public Result setNextRow(Row input) {
+            if (stop) {
+                return Result.STOP;
+            }
+            BuildRow buildRow = new BuildRow(input.materialize());
+            row.cells(buildRow.cells);
+            Object key = keyFunction.apply(row);
+            try {
+                if (key == null) {
+                    // null keys never match, the row is only kept if it has to be emitted as unmatched row
+                    if (emitUnmatchedBuildRows) {
+                        ramAccountingContext.addBytes(BUILD_ROW_OVERHEAD + sizeOf(buildRow.cells));
+                        allBuildRows.add(buildRow);
+                    }
+                    return Result.CONTINUE;
+                }
+                List<BuildRow> rows = buildTable.get(key);
+                long bytes = BUILD_ROW_OVERHEAD + sizeOf(buildRow.cells);
+                if (rows == null) {
+                    bytes += ENTRY_OVERHEAD;
+                    rows = new ArrayList<>(1);
+                    buildTable.put(key, rows);
+                }
+                ramAccountingContext.addBytes(bytes);
+                rows.add(buildRow);
+                if (emitUnmatchedBuildRows) {
+                    allBuildRows.add(buildRow);
+                }
+            } catch (CircuitBreakingException e) {
+                buildFailure = e;
+                return Result.STOP;
+            }
+            return Result.CONTINUE;
+        }
+
+        @Override
+        public void pauseProcessed(ResumeHandle resumeable) {
+            throw new IllegalStateException("build side of a hash join is never paused");
+        }
+
+        @Override
+        public void finish(RepeatHandle repeatable) {
+            LOGGER.trace("phase={} side=build method=finish rows={}", phaseId, buildTable.size());
+            releaseProbe();
+        }
+
+        @Override
+        public void fail(Throwable throwable) {
+            LOGGER.trace("phase={} side=build method=fail error={}", phaseId, throwable);
+            if (buildFailure == null) {
+                buildFailure = throwable;
+            }
+            releaseProbe();
+        }
+    }
+
+    private class ProbeRowReceiver extends AbstractRowReceiver {
+
+        private final Function<Row, Object> keyFunction;
+
+        /**
+         * true once the build side has finished and the probe side got resumed
+         */
+        private volatile boolean released = false;
+
+        private Row firstRow;
+        private ResumeHandle firstResumeHandle;
+        private boolean finishedBeforeRelease = false;
+        private Throwable failureBeforeRelease;
+
+        private Row probeRow;
+        private List<BuildRow> matches;
+        private int matchIdx;
+        private boolean probeRowMatched;
+        private boolean probeRowDone = true;
+
+        ProbeRowReceiver(Function<Row, Object> keyFunction) {
+            this.keyFunction = keyFunction;
+        }
+
+        @Override
+        public Result setNextRow(Row row) {
+            if (stop) {
+                return Result.STOP;
+            }
+            if (!released) {
+                // the build side hasn't finished yet, keep the row and wait
+                firstRow = new RowN(row.materialize());
+                return Result.PAUSE;
+            }
+            startProbeRow(row);
+            return continueProbeRow();
+        }
+
+        @Override
+        public void pauseProcessed(final ResumeHandle resumeable) {
+            if (!released) {
+                firstResumeHandle = resumeable;
+                if (probeBarrier.decrementAndGet() == 0) {
+                    resumeProbe();
+                }
+                return;
+            }
+            // pause request came from the downstream; the current probe row might not be done yet
+            probeRow = new RowN(probeRow.materialize());
+            downstream.pauseProcessed(new ResumeHandle() {
+                @Override
+                public void resume(boolean async) {
+                    resumeUpstream(continueProbeRow(), resumeable, this, async);
+                }
+            });
+        }
+
+        @Override
+        public void finish(RepeatHandle repeatable) {
+            LOGGER.trace("phase={} side=probe method=finish released={}", phaseId, released);
+            doFinish(null);
+        }
+
+        @Override
+        public void fail(Throwable throwable) {
+            LOGGER.trace("phase={} side=probe method=fail released={} error={}", phaseId, released, throwable);
+            doFinish(throwable);
+        }
+
+        private void doFinish(@Nullable Throwable throwable) {
+            if (released) {
+                finishJoin(throwable);
+                return;
+            }
+            finishedBeforeRelease = true;
+            failureBeforeRelease = throwable;
+            if (probeBarrier.decrementAndGet() == 0) {
+                resumeProbe();
+            }
+        }
+
+        /**
+         * called once both, the build side and the probe side reached the barrier
+         */
+        private void resumeProbe() {
+            released = true;
+            LOGGER.trace("phase={} method=resumeProbe buildRows={} probeFinished={}",
+                phaseId, buildTable.size(), finishedBeforeRelease);
+            if (buildFailure != null) {
+                stop = true;
+            }
+            if (finishedBeforeRelease) {
+                finishJoin(failureBeforeRelease);
+                return;
+            }
+            Row row = firstRow;
+            firstRow = null;
+            Result result;
+            if (stop) {
+                result = Result.STOP;
+            } else {
+                startProbeRow(row);
+                result = continueProbeRow();
+            }
+            if (result == Result.PAUSE) {
+                pauseProcessed(firstResumeHandle);
+            } else {
+                firstResumeHandle.resume(false);
+            }
+        }
+
+        private void resumeUpstream(Result result, ResumeHandle upstreamHandle, ResumeHandle self, boolean async) {
+            if (result == Result.PAUSE) {
+                downstream.pauseProcessed(self);
+            } else {
+                // on STOP the upstream needs to be resumed as well so that it can process the STOP and call finish
+                upstreamHandle.resume(async);
+            }
+        }
+
+        private void startProbeRow(Row row) {
+            probeRow = row;
+            Object key = keyFunction.apply(row);
+            matches = key == null ? null : buildTable.get(key);
+            matchIdx = 0;
+            probeRowMatched = false;
+            probeRowDone = false;
+        }
+
+        private Result continueProbeRow() {
+            if (probeRowDone) {
+                return stop ? Result.STOP : Result.CONTINUE;
+            }
+            if (matches != null) {
+                while (matchIdx < matches.size()) {
+                    BuildRow buildRow = matches.get(matchIdx++);
+                    buildRowView.cells(buildRow.cells);
+                    setRows(buildRowView, probeRow);
+                    if (!joinPredicate.apply(combinedRow)) {
+                        continue;
+                    }
+                    probeRowMatched = true;
+                    buildRow.matched = true;
+                    Result result = emit(combinedRow);
+                    if (result != Result.CONTINUE) {
+                        return result;
+                    }
+                }
+            }
+            probeRowDone = true;
+            if (!probeRowMatched && emitUnmatchedProbeRows) {
+                setRows(buildNullRow, probeRow);
+                return emit(combinedRow);
+            }
+            return Result.CONTINUE;
+        }
+    }
+
+    private void releaseProbe() {
+        if (probeBarrier.decrementAndGet() == 0) {
+            probe.resumeProbe();
+        }
+    }
+
+    /**
+     * emits any unmatched build rows (if required) and finishes the downstream
+     */
+    private void finishJoin(@Nullable Throwable probeFailure) {
+        final Throwable failure = buildFailure == null ? probeFailure : buildFailure;
+        if (failure == null && emitUnmatchedBuildRows && !stop) {
+            emitUnmatchedBuildRows(allBuildRows.iterator());
+        } else {
+            finishDownstream(failure);
+        }
+    }
+
+    private void emitUnmatchedBuildRows(final Iterator<BuildRow> it) {
+        while (it.hasNext()) {
+            BuildRow buildRow = it.next();
+            if (buildRow.matched) {
+                continue;
+            }
+            buildRowView.cells(buildRow.cells);
+            setRows(buildRowView, probeNullRow);
+            RowReceiver.Result result = emit(combinedRow);
+            if (result == RowReceiver.Result.PAUSE) {
+                downstream.pauseProcessed(new ResumeHandle() {
+                    @Override
+                    public void resume(boolean async) {
+                        emitUnmatchedBuildRows(it);
+                    }
+                });
+                return;
+            }
+            if (result == RowReceiver.Result.STOP) {
+                break;
+            }
+        }
+        finishDownstream(null);
+    }
+
+    private void finishDownstream(@Nullable Throwable failure) {
+        if (killed.get()) {
+            return;
+        }
+        if (failure == null) {
+            downstream.finish(RepeatHandle.UNSUPPORTED);
+            completionFuture.set(null);
+            build.finished.set(null);
+            probe.finished.set(null);
+        } else {
+            downstream.fail(failure);
+            completionFuture.setException(failure);
+            build.finished.setException(failure);
+            probe.finished.setException(failure);
+        }
+    }
+
+    private static long sizeOf(Object[] cells) {
+        long size = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + cells.length * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+        for (Object cell : cells) {
+            size += sizeOf(cell);
+        }
+        return RamAccountingContext.roundUp(size);
+    }
+
+    private static long sizeOf(@Nullable Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof BytesRef) {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                   + 2 * RamUsageEstimator.NUM_BYTES_INT + RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                   + ((BytesRef) value).length;
+        }
+        if (value instanceof String) {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+                   + RamUsageEstimator.NUM_BYTES_INT + RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                   + 2 * ((String) value).length();
+        }
+        if (value instanceof Object[]) {
+            return sizeOf((Object[]) value);
+        }
+        if (value instanceof Map) {
+            // rough estimate for object columns
+            long size = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += ENTRY_OVERHEAD + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+            }
+            return size;
+        }
+        // boxed primitives
+        return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_LONG;
+    }
+}
@@ -132,11 +132,16 @@ public class ColumnIndexWriterProjector extends AbstractProjector {
         ShardUpsertRequest.Item item = new ShardUpsertRequest.Item(
             rowShardResolver.id(), assignments, insertValues.materialize(), null);
         if (bulkShardProcessor.add(indexNameResolver.get(), item, rowShardResolver.routing())) {
-            return Result.CONTINUE;
+            return bulkShardProcessor.isSaturated() ? Result.PAUSE : Result.CONTINUE;
         }
         return Result.STOP;
     }
 
+    @Override
+    public void pauseProcessed(ResumeHandle resumeable) {
+        bulkShardProcessor.resumeWhenReady(() -> resumeable.resume(true));
+    }
+
     @Override
     public void finish(RepeatHandle repeatHandle) {
         bulkShardProcessor.close();
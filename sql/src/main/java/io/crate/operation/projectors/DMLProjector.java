@@ -59,8 +59,15 @@ class DMLProjector<Request extends ShardRequest> extends AbstractProjector {
         collectUidExpression.setNextRow(row);
         Uid uid = Uid.createUid(((BytesRef) collectUidExpression.value()).utf8ToString());
         // routing is already resolved
-        bulkShardProcessor.addForExistingShard(shardId, itemFactory.apply(uid.id()), null);
-        return Result.CONTINUE;
+        if (bulkShardProcessor.addForExistingShard(shardId, itemFactory.apply(uid.id()), null)) {
+            return bulkShardProcessor.isSaturated() ? Result.PAUSE : Result.CONTINUE;
+        }
+        return Result.STOP;
+    }
+
+    @Override
+    public void pauseProcessed(ResumeHandle resumeable) {
+        bulkShardProcessor.resumeWhenReady(() -> resumeable.resume(true));
     }
 
     @Override
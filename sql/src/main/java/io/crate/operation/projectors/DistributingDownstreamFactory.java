@@ -35,6 +35,8 @@ import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -43,9 +45,14 @@ import java.util.UUID;
 @Singleton
 public class DistributingDownstreamFactory extends AbstractComponent {
 
+    public static final String COMPRESSION_ENABLED_SETTING = "node.sql.distributed_results.compression.enabled";
+    public static final String COMPRESSION_THRESHOLD_SETTING = "node.sql.distributed_results.compression.threshold";
+    public static final ByteSizeValue DEFAULT_COMPRESSION_THRESHOLD = new ByteSizeValue(64, ByteSizeUnit.KB);
+
     private final ClusterService clusterService;
     private final TransportDistributedResultAction transportDistributedResultAction;
     private final ESLogger distributingDownstreamLogger;
+    private final long compressionThreshold;
 
     @Inject
     public DistributingDownstreamFactory(Settings settings,
@@ -55,6 +62,12 @@ public class DistributingDownstreamFactory extends AbstractComponent {
         this.clusterService = clusterService;
         this.transportDistributedResultAction = transportDistributedResultAction;
         distributingDownstreamLogger = Loggers.getLogger(DistributingDownstream.class, settings);
+        if (settings.getAsBoolean(COMPRESSION_ENABLED_SETTING, false)) {
+            compressionThreshold = settings.getAsBytesSize(
+                COMPRESSION_THRESHOLD_SETTING, DEFAULT_COMPRESSION_THRESHOLD).bytes();
+        } else {
+            compressionThreshold = DistributedResultRequest.NO_COMPRESSION;
+        }
     }
 
     public RowReceiver create(NodeOperation nodeOperation,
@@ -98,7 +111,8 @@ public class DistributingDownstreamFactory extends AbstractComponent {
             nodeOperation.downstreamNodes(),
             transportDistributedResultAction,
             streamers,
-            pageSize
+            pageSize,
+            compressionThreshold
         );
     }
 }
@@ -24,6 +24,7 @@ package io.crate.operation.projectors;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.OperationStats;
 import io.crate.planner.projection.Projection;
 
 import java.util.*;
@@ -58,15 +59,18 @@ public class FlatProjectorChain {
     public static class Builder {
         private final UUID jobId;
         private final RamAccountingContext ramAccountingContext;
+        private final OperationStats operationStats;
         private final ProjectorFactory projectorFactory;
         private final Collection<? extends Projection> projections;
 
         public Builder(UUID jobId,
                        RamAccountingContext ramAccountingContext,
+                       OperationStats operationStats,
                        ProjectorFactory projectorFactory,
                        Collection<? extends Projection> projections) {
             this.jobId = jobId;
             this.ramAccountingContext = ramAccountingContext;
+            this.operationStats = operationStats;
             this.projectorFactory = projectorFactory;
             this.projections = projections;
         }
@@ -75,6 +79,7 @@ public class FlatProjectorChain {
             return FlatProjectorChain.withAttachedDownstream(
                 projectorFactory,
                 ramAccountingContext,
+                operationStats,
                 projections,
                 rowReceiver,
                 jobId
@@ -84,6 +89,7 @@ public class FlatProjectorChain {
 
     public static FlatProjectorChain withAttachedDownstream(final ProjectorFactory projectorFactory,
                                                             final RamAccountingContext ramAccountingContext,
+                                                            final OperationStats operationStats,
                                                             Collection<? extends Projection> projections,
                                                             RowReceiver downstream,
                                                             UUID jobId) {
@@ -93,7 +99,7 @@ public class FlatProjectorChain {
         List<RowReceiver> rowReceivers = new ArrayList<>(projections.size() + 1);
         Projector previousProjector = null;
         for (Projection projection : projections) {
-            Projector projector = projectorFactory.create(projection, ramAccountingContext, jobId);
+            Projector projector = projectorFactory.create(projection, ramAccountingContext, operationStats, jobId);
             rowReceivers.add(projector);
             if (previousProjector != null) {
                 previousProjector.downstream(projector);
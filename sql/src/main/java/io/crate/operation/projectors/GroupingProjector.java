@@ -23,8 +23,10 @@ package io.crate.operation.projectors;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import io.crate.breaker.DeferredBreakingRamAccountingContext;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
@@ -32,8 +34,12 @@ import io.crate.core.collections.Row;
 import io.crate.core.collections.RowN;
 import io.crate.operation.AggregationContext;
 import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
 import io.crate.operation.aggregation.Aggregator;
 import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.projectors.grouping.GroupBySpill;
+import io.crate.operation.projectors.grouping.GroupByTable;
+import io.crate.operation.projectors.grouping.GroupByTables;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
@@ -42,6 +48,7 @@ import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.unit.ByteSizeValue;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
 
 import static io.crate.operation.projectors.RowReceiver.Result.CONTINUE;
@@ -55,17 +62,53 @@ public class GroupingProjector extends AbstractProjector {
 
     private final Grouper grouper;
     private EnumSet<Requirement> requirements;
-    private boolean killed = false;
+    private volatile boolean killed = false;
 
     public GroupingProjector(List<? extends DataType> keyTypes,
                              List<Input<?>> keyInputs,
                              CollectExpression[] collectExpressions,
                              AggregationContext[] aggregations,
                              RamAccountingContext ramAccountingContext) {
+        this(keyTypes, keyInputs, collectExpressions, aggregations, ramAccountingContext, new OperationStats(), 0);
+    }
+
+    /**
+     * @param spillPartitions if &gt; 0 the groups are written to this number of temporary files instead of
+     *                        tripping the circuit breaker once the memory limit is reached.
+     *                        Only supported for key types which have a {@link GroupByTable} implementation.
+     * @param operationStats  records the spilled bytes and partitions
+     */
+    public GroupingProjector(List<? extends DataType> keyTypes,
+                             List<Input<?>> keyInputs,
+                             CollectExpression[] collectExpressions,
+                             AggregationContext[] aggregations,
+                             RamAccountingContext ramAccountingContext,
+                             OperationStats operationStats,
+                             int spillPartitions) {
         assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         assert allTypesKnown(keyTypes) : "must have a known type for each key input";
         this.ramAccountingContext = ramAccountingContext;
 
+        // grouper object size overhead
+        ramAccountingContext.addBytes(8);
+        if (spillPartitions > 0 && GroupByTables.isSupported(keyTypes)) {
+            grouper = new SpillingGrouper(
+                keyTypes, keyInputs, collectExpressions, aggregations, operationStats, spillPartitions);
+        } else {
+            Aggregator[] aggregators = createAggregators(aggregations, ramAccountingContext);
+            GroupByTable groupByTable = GroupByTables.create(keyTypes, keyInputs, aggregators, ramAccountingContext);
+            if (groupByTable != null) {
+                grouper = new TableGrouper(groupByTable, collectExpressions);
+            } else if (keyInputs.size() == 1) {
+                grouper = new SingleKeyGrouper(keyInputs.get(0), keyTypes.get(0), collectExpressions, aggregators);
+            } else {
+                grouper = new ManyKeyGrouper(keyInputs, keyTypes, collectExpressions, aggregators);
+            }
+        }
+    }
+
+    private static Aggregator[] createAggregators(AggregationContext[] aggregations,
+                                                  RamAccountingContext ramAccountingContext) {
         Aggregator[] aggregators = new Aggregator[aggregations.length];
         for (int i = 0; i < aggregations.length; i++) {
             aggregators[i] = new Aggregator(
@@ -75,14 +118,7 @@ public class GroupingProjector extends AbstractProjector {
                 aggregations[i].inputs()
             );
         }
-
-        // grouper object size overhead
-        ramAccountingContext.addBytes(8);
-        if (keyInputs.size() == 1) {
-            grouper = new SingleKeyGrouper(keyInputs.get(0), keyTypes.get(0), collectExpressions, aggregators);
-        } else {
-            grouper = new ManyKeyGrouper(keyInputs, keyTypes, collectExpressions, aggregators);
-        }
+        return aggregators;
     }
 
     private static boolean allTypesKnown(List<? extends DataType> keyTypes) {
@@ -120,6 +156,15 @@ public class GroupingProjector extends AbstractProjector {
     @Override
     public void fail(Throwable throwable) {
         downstream.fail(throwable);
+        closeGrouper();
+    }
+
+    private void closeGrouper() {
+        try {
+            grouper.close();
+        } catch (Exception e) {
+            logger.warn("failed to close grouper", e);
+        }
     }
 
     /**
@@ -163,6 +208,192 @@ public class GroupingProjector extends AbstractProjector {
         void kill(Throwable t);
     }
 
+    /**
+     * Grouper using a {@link GroupByTable} that is specialized for the key types
+     */
+    private class TableGrouper implements Grouper {
+
+        private final GroupByTable table;
+        private final CollectExpression[] collectExpressions;
+        private volatile IterableRowEmitter rowEmitter = null;
+
+        TableGrouper(GroupByTable table, CollectExpression[] collectExpressions) {
+            this.table = table;
+            this.collectExpressions = collectExpressions;
+        }
+
+        @Override
+        public Result setNextRow(Row row) {
+            for (CollectExpression collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+            table.add();
+            return CONTINUE;
+        }
+
+        @Override
+        public void finish() {
+            rowEmitter = new IterableRowEmitter(downstream, table.rows());
+            rowEmitter.run();
+        }
+
+        @Override
+        public void kill(Throwable t) {
+            IterableRowEmitter emitter = rowEmitter;
+            if (emitter == null) {
+                downstream.kill(t);
+            } else {
+                emitter.kill(t);
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+        }
+    }
+
+    /**
+     * Grouper which writes the groups to disk once the memory limit is reached.
+     * <p>
+     * The table and the aggregations account their memory on a separate context which doesn't break.
+     * Once that context tripped the breaker, the table is written to a {@link GroupBySpill} and the memory
+     * of the context is released.
+     * <p>
+     * A kill closes the grouper right away, while the upstream or the emitter may still be running. Replacing the
+     * table and writing to the spill is therefore synchronized with {@link #close()}; the spill itself makes sure
+     * that its files aren't deleted while a partition is read.
+     */
+    private class SpillingGrouper implements Grouper {
+
+        private final List<? extends DataType> keyTypes;
+        private final List<Input<?>> keyInputs;
+        private final CollectExpression[] collectExpressions;
+        private final AggregationContext[] aggregations;
+        private final OperationStats operationStats;
+        private final int spillPartitions;
+
+        private DeferredBreakingRamAccountingContext tableContext;
+        private GroupByTable table;
+        @Nullable
+        private GroupBySpill spill;
+        private boolean closed = false;
+        private volatile IterableRowEmitter rowEmitter = null;
+
+        SpillingGrouper(List<? extends DataType> keyTypes,
+                        List<Input<?>> keyInputs,
+                        CollectExpression[] collectExpressions,
+                        AggregationContext[] aggregations,
+                        OperationStats operationStats,
+                        int spillPartitions) {
+            this.keyTypes = keyTypes;
+            this.keyInputs = keyInputs;
+            this.collectExpressions = collectExpressions;
+            this.aggregations = aggregations;
+            this.operationStats = operationStats;
+            this.spillPartitions = spillPartitions;
+            newTable();
+        }
+
+        private void newTable() {
+            if (tableContext != null) {
+                tableContext.close();
+            }
+            tableContext = new DeferredBreakingRamAccountingContext(ramAccountingContext);
+            table = GroupByTables.create(
+                keyTypes, keyInputs, createAggregators(aggregations, tableContext), tableContext);
+        }
+
+        @Override
+        public Result setNextRow(Row row) {
+            for (CollectExpression collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+            table.add();
+            if (tableContext.trippedBreaker()) {
+                synchronized (this) {
+                    if (closed) {
+                        return STOP;
+                    }
+                    try {
+                        if (spill == null) {
+                            spill = new GroupBySpill(
+                                spillPartitions, keyTypes, aggregations, ramAccountingContext, operationStats);
+                        }
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("memory limit reached, spilling {} groups", table.size());
+                        }
+                        spill.spill(table);
+                    } catch (IOException e) {
+                        throw Throwables.propagate(e);
+                    }
+                    newTable();
+                }
+            }
+            return CONTINUE;
+        }
+
+        @Override
+        public void finish() {
+            Iterable<Row> rows;
+            synchronized (this) {
+                if (closed) {
+                    // killed, the downstream doesn't expect any rows
+                    return;
+                }
+                if (spill == null) {
+                    rows = table.rows();
+                } else {
+                    try {
+                        spill.spill(table);
+                        tableContext.close();
+                        rows = spill.rows();
+                    } catch (IOException e) {
+                        closeGrouper();
+                        downstream.fail(e);
+                        return;
+                    }
+                }
+            }
+            // the spilled partitions are deleted once the emitter is done, also if the merge fails
+            // or the downstream stops early
+            RowReceiver closingReceiver = new ForwardingRowReceiver(downstream) {
+                @Override
+                public void finish(RepeatHandle repeatHandle) {
+                    closeGrouper();
+                    super.finish(repeatHandle);
+                }
+
+                @Override
+                public void fail(Throwable throwable) {
+                    closeGrouper();
+                    super.fail(throwable);
+                }
+            };
+            rowEmitter = new IterableRowEmitter(closingReceiver, rows);
+            rowEmitter.run();
+        }
+
+        @Override
+        public void kill(Throwable t) {
+            IterableRowEmitter emitter = rowEmitter;
+            if (emitter == null) {
+                downstream.kill(t);
+            } else {
+                emitter.kill(t);
+            }
+            closeGrouper();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            tableContext.close();
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
+
     private class SingleKeyGrouper implements Grouper {
 
         private final Map<Object, Object[]> result;
@@ -135,11 +135,16 @@ public class IndexWriterProjector extends AbstractProjector {
         ShardUpsertRequest.Item item = new ShardUpsertRequest.Item(
             rowShardResolver.id(), null, new Object[]{sourceInput.value()}, null);
         if (bulkShardProcessor.add(indexNameResolver.get(), item, rowShardResolver.routing())) {
-            return Result.CONTINUE;
+            return bulkShardProcessor.isSaturated() ? Result.PAUSE : Result.CONTINUE;
         }
         return Result.STOP;
     }
 
+    @Override
+    public void pauseProcessed(ResumeHandle resumeable) {
+        bulkShardProcessor.resumeWhenReady(() -> resumeable.resume(true));
+    }
+
     @Override
     public void finish(RepeatHandle repeatHandle) {
         bulkShardProcessor.close();
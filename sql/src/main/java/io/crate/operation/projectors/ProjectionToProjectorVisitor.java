@@ -36,15 +36,19 @@ import io.crate.metadata.expressions.WritableExpression;
 import io.crate.metadata.settings.CrateSettings;
 import io.crate.operation.ImplementationSymbolVisitor;
 import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
 import io.crate.operation.RowFilter;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.operation.collect.CollectInputSymbolVisitor;
 import io.crate.operation.projectors.fetch.FetchProjector;
 import io.crate.operation.projectors.fetch.FetchProjectorContext;
 import io.crate.operation.projectors.fetch.TransportFetchOperation;
+import io.crate.operation.projectors.grouping.GroupBySpill;
 import io.crate.operation.projectors.sorting.OrderingByPosition;
+import io.crate.operation.projectors.sorting.SortSpill;
 import io.crate.operation.reference.sys.RowContextReferenceResolver;
 import io.crate.planner.projection.*;
+import io.crate.types.DataType;
 import io.crate.types.StringType;
 import org.elasticsearch.action.bulk.BulkRetryCoordinatorPool;
 import org.elasticsearch.action.bulk.BulkShardProcessor;
@@ -67,6 +71,8 @@ public class ProjectionToProjectorVisitor
     private final IndexNameExpressionResolver indexNameExpressionResolver;
     private final ThreadPool threadPool;
     private final Settings settings;
+    private final int groupBySpillPartitions;
+    private final boolean orderBySpillEnabled;
     private final TransportActionProvider transportActionProvider;
     private final BulkRetryCoordinatorPool bulkRetryCoordinatorPool;
     private final ImplementationSymbolVisitor symbolVisitor;
@@ -95,6 +101,13 @@ public class ProjectionToProjectorVisitor
         this.symbolVisitor = symbolVisitor;
         this.normalizer = normalizer;
         this.shardId = shardId;
+        if (settings.getAsBoolean(GroupBySpill.SPILL_ENABLED_SETTING, false)) {
+            groupBySpillPartitions = settings.getAsInt(
+                GroupBySpill.SPILL_PARTITIONS_SETTING, GroupBySpill.DEFAULT_PARTITIONS);
+        } else {
+            groupBySpillPartitions = 0;
+        }
+        orderBySpillEnabled = settings.getAsBoolean(SortSpill.SPILL_ENABLED_SETTING, false);
     }
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -143,12 +156,19 @@ public class ProjectionToProjectorVisitor
                     projection.offset()
                 );
             } else {
+                List<DataType> rowTypes = new ArrayList<>(inputs.size());
+                rowTypes.addAll(Symbols.extractTypes(projection.outputs()));
+                rowTypes.addAll(Symbols.extractTypes(projection.orderBy()));
                 projector = new SortingProjector(
                     inputs,
                     collectExpressions,
                     numOutputs,
                     OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-                    projection.offset()
+                    projection.offset(),
+                    rowTypes,
+                    context.ramAccountingContext,
+                    context.operationStats,
+                    orderBySpillEnabled
                 );
             }
         } else if (projection.limit() == TopN.NO_LIMIT
@@ -177,7 +197,9 @@ public class ProjectionToProjectorVisitor
             keyInputs,
             symbolContext.collectExpressions().toArray(new CollectExpression[symbolContext.collectExpressions().size()]),
             symbolContext.aggregations(),
-            context.ramAccountingContext
+            context.ramAccountingContext,
+            context.operationStats,
+            groupBySpillPartitions
         );
     }
 
@@ -452,8 +474,11 @@ public class ProjectionToProjectorVisitor
     }
 
     @Override
-    public Projector create(Projection projection, RamAccountingContext ramAccountingContext, UUID jobId) {
-        return process(projection, new Context(ramAccountingContext, jobId));
+    public Projector create(Projection projection,
+                            RamAccountingContext ramAccountingContext,
+                            OperationStats operationStats,
+                            UUID jobId) {
+        return process(projection, new Context(ramAccountingContext, operationStats, jobId));
     }
 
     @Override
@@ -464,11 +489,13 @@ public class ProjectionToProjectorVisitor
     static class Context {
 
         private final RamAccountingContext ramAccountingContext;
+        private final OperationStats operationStats;
         private final UUID jobId;
         private final TransactionContext transactionContext = new TransactionContext(SessionContext.SYSTEM_SESSION);
 
-        public Context(RamAccountingContext ramAccountingContext, UUID jobId) {
+        public Context(RamAccountingContext ramAccountingContext, OperationStats operationStats, UUID jobId) {
             this.ramAccountingContext = ramAccountingContext;
+            this.operationStats = operationStats;
             this.jobId = jobId;
         }
     }
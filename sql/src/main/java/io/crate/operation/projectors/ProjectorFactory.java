@@ -22,11 +22,15 @@
 package io.crate.operation.projectors;
 
 import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.OperationStats;
 import io.crate.planner.projection.Projection;
 
 import java.util.UUID;
 
 public interface ProjectorFactory {
 
-    Projector create(Projection projection, RamAccountingContext ramAccountingContext, UUID jobId);
+    Projector create(Projection projection,
+                     RamAccountingContext ramAccountingContext,
+                     OperationStats operationStats,
+                     UUID jobId);
 }
@@ -22,22 +22,58 @@
 package io.crate.operation.projectors;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import io.crate.breaker.ConstSizeEstimator;
+import io.crate.breaker.DeferredBreakingRamAccountingContext;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
+import io.crate.core.collections.Buckets;
 import io.crate.core.collections.CollectionBucket;
 import io.crate.core.collections.Row;
 import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
 import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.projectors.sorting.SortSpill;
+import io.crate.types.DataType;
+import io.crate.types.FixedWidthType;
+import io.crate.types.IpType;
+import io.crate.types.StringType;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Sort rows by ordering criteria and process given offset before emitting.
  * <p>
  * Compared to {@link SortingTopNProjector} this projector does not support limiting,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
+ * <p>
+ * The buffered rows are accounted on the {@link RamAccountingContext}. If spilling is enabled the rows are
+ * accounted on a separate context which doesn't break; once it tripped the breaker the buffered rows are sorted
+ * and written as a run to a {@link SortSpill}. The runs are merged while emitting. If the downstream may
+ * repeat, the rows are kept in memory like in any other repeatable source and spilling is disabled.
  */
 class SortingProjector extends AbstractProjector {
 
+    private static final ESLogger LOGGER = Loggers.getLogger(SortingProjector.class);
+
+    /**
+     * size of an Object[] and the reference to it in the list, without the cells
+     */
+    private static final long ROW_OVERHEAD = 24;
+
+    /**
+     * rough estimate for values of types without a {@link SizeEstimator}, like objects and arrays
+     */
+    private static final long UNKNOWN_VALUE_SIZE = 64;
+
     private final Collection<? extends Input<?>> inputs;
     private final Iterable<? extends CollectExpression<Row, ?>> collectExpressions;
     private Set<Requirement> requirements;
@@ -45,43 +81,122 @@ class SortingProjector extends AbstractProjector {
     private final Ordering<Object[]> ordering;
     private final int offset;
     private final int numOutputs;
-    private final List<Object[]> rows = new ArrayList<>();
+    private final List<? extends DataType> rowTypes;
+    private final SizeEstimator<Object>[] sizeEstimators;
+    private final RamAccountingContext ramAccountingContext;
+    private final OperationStats operationStats;
+    private boolean spillEnabled;
+    private boolean started = false;
+    private RamAccountingContext rowsContext;
+    private List<Object[]> rows = new ArrayList<>();
+    @Nullable
+    private SortSpill spill;
     private IterableRowEmitter rowEmitter = null;
+    private final AtomicBoolean released = new AtomicBoolean(false);
 
     /**
-     * @param inputs             contains output {@link io.crate.operation.Input}s and orderBy {@link io.crate.operation.Input}s
-     * @param collectExpressions gathered from outputs and orderBy inputs
-     * @param numOutputs         <code>inputs</code> contains this much output {@link io.crate.operation.Input}s starting form index 0
-     * @param ordering           ordering that is used to compare the rows
-     * @param offset             the initial offset, this number of rows are skipped
+     * @param inputs               contains output {@link io.crate.operation.Input}s and orderBy {@link io.crate.operation.Input}s
+     * @param collectExpressions   gathered from outputs and orderBy inputs
+     * @param numOutputs           <code>inputs</code> contains this much output {@link io.crate.operation.Input}s starting form index 0
+     * @param ordering             ordering that is used to compare the rows
+     * @param offset               the initial offset, this number of rows are skipped
+     * @param rowTypes             the types of the <code>inputs</code>
+     * @param ramAccountingContext context on which the buffered rows are accounted
+     * @param operationStats       records the spilled bytes and runs
+     * @param spillEnabled         if true sorted runs are written to temporary files instead of tripping the
+     *                             circuit breaker once the memory limit is reached.
+     *                             Ignored if the downstream may repeat.
      */
     SortingProjector(Collection<? extends Input<?>> inputs,
                      Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
                      int numOutputs,
                      Ordering<Object[]> ordering,
-                     int offset) {
+                     int offset,
+                     List<? extends DataType> rowTypes,
+                     RamAccountingContext ramAccountingContext,
+                     OperationStats operationStats,
+                     boolean spillEnabled) {
         Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
+        assert rowTypes.size() == inputs.size() : "number of row types must match the number of inputs";
         this.numOutputs = numOutputs;
         this.inputs = inputs;
         this.collectExpressions = collectExpressions;
         this.ordering = ordering;
         this.offset = offset;
+        this.rowTypes = rowTypes;
+        this.ramAccountingContext = ramAccountingContext;
+        this.operationStats = operationStats;
+        this.spillEnabled = spillEnabled;
+        this.sizeEstimators = sizeEstimators(rowTypes);
+        this.rowsContext = newRowsContext();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SizeEstimator<Object>[] sizeEstimators(List<? extends DataType> rowTypes) {
+        SizeEstimator<Object>[] estimators = new SizeEstimator[rowTypes.size()];
+        for (int i = 0; i < estimators.length; i++) {
+            DataType type = rowTypes.get(i);
+            if (type instanceof FixedWidthType || type.id() == StringType.ID || type.id() == IpType.ID) {
+                estimators[i] = SizeEstimatorFactory.create(type);
+            } else {
+                estimators[i] = new ConstSizeEstimator(UNKNOWN_VALUE_SIZE);
+            }
+        }
+        return estimators;
+    }
+
+    private RamAccountingContext newRowsContext() {
+        return spillEnabled ? new DeferredBreakingRamAccountingContext(ramAccountingContext) : ramAccountingContext;
     }
 
     @Override
     public Result setNextRow(Row row) {
+        if (!started) {
+            started = true;
+            if (spillEnabled && downstream.requirements().contains(Requirement.REPEAT)) {
+                // spilled runs can only be merged once
+                spillEnabled = false;
+                rowsContext.close();
+                rowsContext = ramAccountingContext;
+            }
+        }
         for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
             collectExpression.setNextRow(row);
         }
         Object[] newRow = new Object[inputs.size()];
+        long size = ROW_OVERHEAD + 8L * newRow.length;
         int i = 0;
         for (Input<?> input : inputs) {
-            newRow[i++] = input.value();
+            Object value = input.value();
+            size += sizeEstimators[i].estimateSize(value);
+            newRow[i++] = value;
         }
+        rowsContext.addBytes(RamAccountingContext.roundUp(size));
         rows.add(newRow);
+        if (rowsContext.trippedBreaker()) {
+            spillRows();
+        }
         return Result.CONTINUE;
     }
 
+    private void spillRows() {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("memory limit reached, spilling {} sorted rows", rows.size());
+        }
+        try {
+            if (spill == null) {
+                spill = new SortSpill(rowTypes, operationStats);
+            }
+            Collections.sort(rows, Collections.reverseOrder(ordering));
+            spill.spill(rows);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        rows = new ArrayList<>();
+        rowsContext.close();
+        rowsContext = newRowsContext();
+    }
+
     @Override
     public void finish(RepeatHandle repeatHandle) {
         // sort, we must reverse the order (back to original one) because order was reserved for used on queues
@@ -93,6 +208,31 @@ class SortingProjector extends AbstractProjector {
     }
 
     private IterableRowEmitter createRowEmitter() {
+        if (spillEnabled) {
+            Iterable<Object[]> sortedRows = rows;
+            if (spill != null) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("merging {} spilled runs and {} rows in memory", spill.numRuns(), rows.size());
+                }
+                sortedRows = spill.merge(rows, Collections.reverseOrder(ordering));
+            }
+            // the files and the memory are released once the emitter is done
+            RowReceiver releasingReceiver = new ForwardingRowReceiver(downstream) {
+                @Override
+                public void finish(RepeatHandle repeatHandle) {
+                    release();
+                    super.finish(repeatHandle);
+                }
+
+                @Override
+                public void fail(Throwable throwable) {
+                    release();
+                    super.fail(throwable);
+                }
+            };
+            return new IterableRowEmitter(releasingReceiver,
+                Iterables.transform(Iterables.skip(sortedRows, offset), Buckets.arrayToRowFunction(numOutputs)));
+        }
         CollectionBucket collectionBucket;
         // process offset
         if (offset != 0) {
@@ -104,6 +244,25 @@ class SortingProjector extends AbstractProjector {
         return new IterableRowEmitter(downstream, collectionBucket);
     }
 
+    /**
+     * Deletes the spilled runs and releases the memory of the buffered rows.
+     * Must only be called once the rows can't be emitted (again) anymore.
+     */
+    private void release() {
+        if (!spillEnabled || !released.compareAndSet(false, true)) {
+            return;
+        }
+        rowsContext.close();
+        SortSpill sortSpill = spill;
+        if (sortSpill != null) {
+            try {
+                sortSpill.close();
+            } catch (IOException e) {
+                LOGGER.warn("failed to close spill", e);
+            }
+        }
+    }
+
     @Override
     public void kill(Throwable throwable) {
         IterableRowEmitter emitter = rowEmitter;
@@ -112,11 +271,13 @@ class SortingProjector extends AbstractProjector {
         } else {
             emitter.kill(throwable);
         }
+        release();
     }
 
     @Override
     public void fail(Throwable t) {
         downstream.fail(t);
+        release();
     }
 
     @Override
@@ -0,0 +1,151 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.Aggregator;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * {@link GroupByTable} for a single string key.
+ * The bytes of all keys are copied into one growing byte array, the offset, length and hash of each key
+ * are stored in int arrays.
+ */
+class BytesRefGroupByTable extends GroupByTable {
+
+    private static final int NULL_HASH = 0;
+    private static final int INITIAL_BYTES = 1024;
+
+    private final Input<?> keyInput;
+
+    private byte[] bytes;
+    private int bytesUsed = 0;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] hashes;
+    private int nullGroup = -1;
+
+    private BytesRef currentKey;
+
+    BytesRefGroupByTable(Input<?> keyInput,
+                         Aggregator[] aggregators,
+                         RamAccountingContext ramAccountingContext) {
+        super(1, aggregators, ramAccountingContext);
+        this.keyInput = keyInput;
+        addBytes(sizeOfByteArray(INITIAL_BYTES));
+        bytes = new byte[INITIAL_BYTES];
+        resizeKeys(0, INITIAL_CAPACITY);
+    }
+
+    @Override
+    protected int readKey() {
+        Object value = keyInput.value();
+        if (value == null) {
+            currentKey = null;
+            return NULL_HASH;
+        }
+        if (value instanceof BytesRef) {
+            currentKey = (BytesRef) value;
+        } else {
+            currentKey = new BytesRef(value.toString());
+        }
+        return hash(currentKey.bytes, currentKey.offset, currentKey.length);
+    }
+
+    @Override
+    protected boolean keyEquals(int group) {
+        if (currentKey == null) {
+            return group == nullGroup;
+        }
+        if (group == nullGroup || lengths[group] != currentKey.length) {
+            return false;
+        }
+        int offset = offsets[group];
+        byte[] currentBytes = currentKey.bytes;
+        int currentOffset = currentKey.offset;
+        for (int i = 0; i < currentKey.length; i++) {
+            if (bytes[offset + i] != currentBytes[currentOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void storeKey(int group, int hash) {
+        hashes[group] = hash;
+        if (currentKey == null) {
+            nullGroup = group;
+            return;
+        }
+        int length = currentKey.length;
+        if (bytesUsed + length > bytes.length) {
+            int newLength = ArrayUtil.oversize(bytesUsed + length, RamUsageEstimator.NUM_BYTES_BYTE);
+            addBytes(sizeOfByteArray(newLength));
+            byte[] newBytes = new byte[newLength];
+            System.arraycopy(bytes, 0, newBytes, 0, bytesUsed);
+            addBytes(-sizeOfByteArray(bytes.length));
+            bytes = newBytes;
+        }
+        System.arraycopy(currentKey.bytes, currentKey.offset, bytes, bytesUsed, length);
+        offsets[group] = bytesUsed;
+        lengths[group] = length;
+        bytesUsed += length;
+    }
+
+    @Override
+    protected int hashOf(int group) {
+        return hashes[group];
+    }
+
+    @Override
+    protected void resizeKeys(int oldCapacity, int newCapacity) {
+        addBytes(3 * sizeOfIntArray(newCapacity));
+        int[] newOffsets = new int[newCapacity];
+        int[] newLengths = new int[newCapacity];
+        int[] newHashes = new int[newCapacity];
+        if (offsets != null) {
+            System.arraycopy(offsets, 0, newOffsets, 0, oldCapacity);
+            System.arraycopy(lengths, 0, newLengths, 0, oldCapacity);
+            System.arraycopy(hashes, 0, newHashes, 0, oldCapacity);
+            addBytes(-3 * sizeOfIntArray(oldCapacity));
+        }
+        offsets = newOffsets;
+        lengths = newLengths;
+        hashes = newHashes;
+    }
+
+    @Override
+    protected void writeKey(int group, Object[] cells) {
+        // the key bytes are never overwritten, so it's safe to reference them in the emitted values
+        cells[0] = group == nullGroup ? null : new BytesRef(bytes, offsets[group], lengths[group]);
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        return StringHelper.murmurhash3_x86_32(bytes, offset, length, StringHelper.GOOD_FAST_HASH_SEED);
+    }
+}
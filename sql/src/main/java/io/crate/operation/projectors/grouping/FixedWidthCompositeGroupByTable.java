@@ -0,0 +1,142 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.Aggregator;
+
+import java.util.List;
+
+/**
+ * {@link GroupByTable} for multiple keys which are all of a fixed width type.
+ * The keys of a group are stored next to each other in one long array,
+ * null values are marked in a bitmask per group.
+ */
+class FixedWidthCompositeGroupByTable extends GroupByTable {
+
+    /**
+     * the null mask is a long, so this is the maximum number of keys that can be handled
+     */
+    static final int MAX_KEYS = 64;
+
+    private final List<Input<?>> keyInputs;
+    private final FixedWidthKeyCodec[] codecs;
+    private final int numKeys;
+
+    private long[] keys;
+    private long[] nullMasks;
+
+    private final long[] currentKeys;
+    private long currentNullMask;
+
+    FixedWidthCompositeGroupByTable(List<Input<?>> keyInputs,
+                                    FixedWidthKeyCodec[] codecs,
+                                    Aggregator[] aggregators,
+                                    RamAccountingContext ramAccountingContext) {
+        super(keyInputs.size(), aggregators, ramAccountingContext);
+        assert keyInputs.size() == codecs.length : "must have a codec for each key input";
+        assert keyInputs.size() <= MAX_KEYS : "too many keys";
+        this.keyInputs = keyInputs;
+        this.codecs = codecs;
+        this.numKeys = codecs.length;
+        this.currentKeys = new long[numKeys];
+        resizeKeys(0, INITIAL_CAPACITY);
+    }
+
+    @Override
+    protected int readKey() {
+        long nullMask = 0;
+        for (int i = 0; i < numKeys; i++) {
+            Object value = keyInputs.get(i).value();
+            if (value == null) {
+                nullMask |= 1L << i;
+                currentKeys[i] = 0;
+            } else {
+                currentKeys[i] = codecs[i].encode(value);
+            }
+        }
+        currentNullMask = nullMask;
+        return hash(currentKeys, 0, numKeys, nullMask);
+    }
+
+    @Override
+    protected boolean keyEquals(int group) {
+        if (nullMasks[group] != currentNullMask) {
+            return false;
+        }
+        int offset = group * numKeys;
+        for (int i = 0; i < numKeys; i++) {
+            if (keys[offset + i] != currentKeys[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void storeKey(int group, int hash) {
+        System.arraycopy(currentKeys, 0, keys, group * numKeys, numKeys);
+        nullMasks[group] = currentNullMask;
+    }
+
+    @Override
+    protected int hashOf(int group) {
+        return hash(keys, group * numKeys, numKeys, nullMasks[group]);
+    }
+
+    @Override
+    protected void resizeKeys(int oldCapacity, int newCapacity) {
+        addBytes(sizeOfLongArray(newCapacity * numKeys) + sizeOfLongArray(newCapacity));
+        long[] newKeys = new long[newCapacity * numKeys];
+        long[] newNullMasks = new long[newCapacity];
+        if (keys != null) {
+            System.arraycopy(keys, 0, newKeys, 0, oldCapacity * numKeys);
+            System.arraycopy(nullMasks, 0, newNullMasks, 0, oldCapacity);
+            addBytes(-(sizeOfLongArray(oldCapacity * numKeys) + sizeOfLongArray(oldCapacity)));
+        }
+        keys = newKeys;
+        nullMasks = newNullMasks;
+    }
+
+    @Override
+    protected void writeKey(int group, Object[] cells) {
+        long nullMask = nullMasks[group];
+        int offset = group * numKeys;
+        for (int i = 0; i < numKeys; i++) {
+            if ((nullMask & (1L << i)) != 0) {
+                cells[i] = null;
+            } else {
+                cells[i] = codecs[i].decode(keys[offset + i]);
+            }
+        }
+    }
+
+    private static int hash(long[] keys, int offset, int numKeys, long nullMask) {
+        long h = nullMask;
+        for (int i = 0; i < numKeys; i++) {
+            h = 31 * h + keys[offset + i];
+        }
+        return mix(h);
+    }
+}
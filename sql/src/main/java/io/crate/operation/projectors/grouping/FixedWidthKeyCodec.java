@@ -0,0 +1,154 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.types.*;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lossless conversion between the values of fixed width types and their primitive long representation.
+ */
+enum FixedWidthKeyCodec {
+
+    LONG(false) {
+        @Override
+        long encode(Object value) {
+            return ((Number) value).longValue();
+        }
+
+        @Override
+        Object decode(long key) {
+            return key;
+        }
+    },
+    DOUBLE(false) {
+        @Override
+        long encode(Object value) {
+            return Double.doubleToLongBits(((Number) value).doubleValue());
+        }
+
+        @Override
+        Object decode(long key) {
+            return Double.longBitsToDouble(key);
+        }
+    },
+    INTEGER(true) {
+        @Override
+        long encode(Object value) {
+            return ((Number) value).intValue();
+        }
+
+        @Override
+        Object decode(long key) {
+            return (int) key;
+        }
+    },
+    SHORT(true) {
+        @Override
+        long encode(Object value) {
+            return ((Number) value).shortValue();
+        }
+
+        @Override
+        Object decode(long key) {
+            return (short) key;
+        }
+    },
+    BYTE(true) {
+        @Override
+        long encode(Object value) {
+            return ((Number) value).byteValue();
+        }
+
+        @Override
+        Object decode(long key) {
+            return (byte) key;
+        }
+    },
+    FLOAT(true) {
+        @Override
+        long encode(Object value) {
+            return Float.floatToIntBits(((Number) value).floatValue());
+        }
+
+        @Override
+        Object decode(long key) {
+            return Float.intBitsToFloat((int) key);
+        }
+    },
+    BOOLEAN(true) {
+        @Override
+        long encode(Object value) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+
+        @Override
+        Object decode(long key) {
+            return key == 1;
+        }
+    };
+
+    private final boolean fitsInt;
+
+    FixedWidthKeyCodec(boolean fitsInt) {
+        this.fitsInt = fitsInt;
+    }
+
+    /**
+     * @return true if all encoded values fit into an int
+     */
+    boolean fitsInt() {
+        return fitsInt;
+    }
+
+    abstract long encode(Object value);
+
+    abstract Object decode(long key);
+
+    /**
+     * @return the codec for the given type or null if values of the type can't be encoded as long
+     */
+    @Nullable
+    static FixedWidthKeyCodec forType(DataType type) {
+        switch (type.id()) {
+            case LongType.ID:
+            case TimestampType.ID:
+                return LONG;
+            case DoubleType.ID:
+                return DOUBLE;
+            case IntegerType.ID:
+                return INTEGER;
+            case ShortType.ID:
+                return SHORT;
+            case ByteType.ID:
+                return BYTE;
+            case FloatType.ID:
+                return FLOAT;
+            case BooleanType.ID:
+                return BOOLEAN;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.CountingOutputStream;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Row;
+import io.crate.operation.AggregationContext;
+import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
+import io.crate.operation.aggregation.Aggregator;
+import io.crate.types.DataType;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Temporary files to which the groups of a {@link GroupByTable} are written if the table doesn't fit into memory.
+ * <p>
+ * The groups are hash-partitioned by their key, so all partial states of a key end up in the same partition.
+ * Once all rows have been processed the partitions are read one after another and the partial states
+ * of each key are merged in a new table, so only one partition has to fit into memory at once.
+ * <p>
+ * The accounted memory of a partition is released once the next partition is read.
+ * Partitions which don't fit into memory will trip the circuit breaker.
+ * <p>
+ * The spill may be closed by another thread, e.g. if the operation is killed. Writing and reading the files is
+ * synchronized with {@link #close()}; once closed no more partitions are read.
+ */
+public class GroupBySpill implements Closeable {
+
+    public static final String SPILL_ENABLED_SETTING = "node.sql.group_by.spill.enabled";
+    public static final String SPILL_PARTITIONS_SETTING = "node.sql.group_by.spill.partitions";
+    public static final int DEFAULT_PARTITIONS = 16;
+
+    /**
+     * the partition is chosen using the upper 8 bits of the hash, the lower bits are used by the table
+     */
+    static final int MAX_PARTITIONS = 256;
+
+    private final List<? extends DataType> keyTypes;
+    private final AggregationContext[] aggregations;
+    private final RamAccountingContext ramAccountingContext;
+    private final OperationStats operationStats;
+    private final Streamer[] keyStreamers;
+    private final Streamer[] stateStreamers;
+    private final int numPartitions;
+    private final Path directory;
+    private final Path[] files;
+    private final CountingOutputStream[] countingStreams;
+    private final StreamOutput[] outputs;
+    private final int[] numEntries;
+    private long spilledBytes = 0;
+    private boolean writing = true;
+    private boolean closed = false;
+
+    @Nullable
+    private RamAccountingContext mergeContext;
+
+    public GroupBySpill(int numPartitions,
+                        List<? extends DataType> keyTypes,
+                        AggregationContext[] aggregations,
+                        RamAccountingContext ramAccountingContext,
+                        OperationStats operationStats) throws IOException {
+        if (numPartitions < 1 || numPartitions > MAX_PARTITIONS) {
+            throw new IllegalArgumentException("number of spill partitions must be between 1 and " + MAX_PARTITIONS);
+        }
+        this.numPartitions = numPartitions;
+        this.keyTypes = keyTypes;
+        this.aggregations = aggregations;
+        this.ramAccountingContext = ramAccountingContext;
+        this.operationStats = operationStats;
+
+        keyStreamers = new Streamer[keyTypes.size()];
+        for (int i = 0; i < keyStreamers.length; i++) {
+            keyStreamers[i] = keyTypes.get(i).streamer();
+        }
+        stateStreamers = new Streamer[aggregations.length];
+        for (int i = 0; i < stateStreamers.length; i++) {
+            stateStreamers[i] = aggregations[i].function().partialType().streamer();
+        }
+
+        directory = Files.createTempDirectory("crate-group-by-");
+        files = new Path[numPartitions];
+        countingStreams = new CountingOutputStream[numPartitions];
+        outputs = new StreamOutput[numPartitions];
+        numEntries = new int[numPartitions];
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                files[i] = directory.resolve("partition-" + i);
+                countingStreams[i] = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(files[i])));
+                outputs[i] = new OutputStreamStreamOutput(countingStreams[i]);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        operationStats.addSpilledPartitions(numPartitions);
+    }
+
+    /**
+     * Write all groups of the table to the partitions. The table can be discarded afterwards.
+     */
+    public synchronized void spill(GroupByTable table) throws IOException {
+        if (closed) {
+            throw new IOException("spill files have already been closed");
+        }
+        table.spillTo(this);
+        long bytes = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            outputs[i].flush();
+            bytes += countingStreams[i].getCount();
+        }
+        operationStats.addSpilledBytes(bytes - spilledBytes);
+        spilledBytes = bytes;
+    }
+
+    void write(int hash, Object[] keys, Object[] states, int offset) throws IOException {
+        int partition = (hash >>> 24) % numPartitions;
+        StreamOutput out = outputs[partition];
+        for (int i = 0; i < keyStreamers.length; i++) {
+            //noinspection unchecked
+            keyStreamers[i].writeValueTo(out, keys[i]);
+        }
+        for (int i = 0; i < stateStreamers.length; i++) {
+            //noinspection unchecked
+            stateStreamers[i].writeValueTo(out, states[offset + i]);
+        }
+        numEntries[partition]++;
+    }
+
+    /**
+     * Finishes writing and returns the merged groups. The partitions are read lazily while iterating.
+     * Each row contains the key values followed by the aggregation results.
+     */
+    public synchronized Iterable<Row> rows() throws IOException {
+        writing = false;
+        IOUtils.close(outputs);
+        return new Iterable<Row>() {
+            @Override
+            public Iterator<Row> iterator() {
+                return new PartitionsIterator();
+            }
+        };
+    }
+
+    /**
+     * @return the merged groups of the partition or null if the spill has been closed
+     */
+    @Nullable
+    private synchronized GroupByTable mergePartition(int partition) throws IOException {
+        if (closed) {
+            return null;
+        }
+        if (mergeContext != null) {
+            mergeContext.close();
+        }
+        mergeContext = ramAccountingContext.createChild();
+
+        final Object[] keyCells = new Object[keyTypes.size()];
+        List<Input<?>> keyInputs = new ArrayList<>(keyCells.length);
+        for (int i = 0; i < keyCells.length; i++) {
+            final int idx = i;
+            keyInputs.add(new Input<Object>() {
+                @Override
+                public Object value() {
+                    return keyCells[idx];
+                }
+            });
+        }
+        Aggregator[] aggregators = new Aggregator[aggregations.length];
+        for (int i = 0; i < aggregations.length; i++) {
+            aggregators[i] = new Aggregator(
+                mergeContext,
+                aggregations[i].symbol(),
+                aggregations[i].function(),
+                aggregations[i].inputs()
+            );
+        }
+        GroupByTable table = GroupByTables.create(keyTypes, keyInputs, aggregators, mergeContext);
+        assert table != null : "spilling is only supported for key types with a GroupByTable implementation";
+
+        Object[] partialStates = new Object[aggregations.length];
+        try (StreamInput in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(files[partition])))) {
+            for (int entry = 0; entry < numEntries[partition]; entry++) {
+                for (int i = 0; i < keyStreamers.length; i++) {
+                    keyCells[i] = keyStreamers[i].readValueFrom(in);
+                }
+                for (int i = 0; i < stateStreamers.length; i++) {
+                    partialStates[i] = stateStreamers[i].readValueFrom(in);
+                }
+                table.merge(partialStates);
+            }
+        }
+        Files.delete(files[partition]);
+        return table;
+    }
+
+    /**
+     * closes and deletes all files and releases the memory of the partition which has been read last
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (mergeContext != null) {
+            mergeContext.close();
+            mergeContext = null;
+        }
+        try {
+            if (writing) {
+                writing = false;
+                IOUtils.close(outputs);
+            }
+        } finally {
+            IOUtils.rm(directory);
+        }
+    }
+
+    private class PartitionsIterator implements Iterator<Row> {
+
+        private int partition = -1;
+        private Iterator<Row> partitionRows = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!partitionRows.hasNext()) {
+                if (partition + 1 >= numPartitions) {
+                    return false;
+                }
+                partition++;
+                try {
+                    GroupByTable table = mergePartition(partition);
+                    if (table == null) {
+                        return false;
+                    }
+                    partitionRows = table.rows().iterator();
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator exhausted");
+            }
+            return partitionRows.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove is not supported");
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.operation.aggregation.Aggregator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing hash table used to group rows by their key and to aggregate them.
+ * <p>
+ * Groups are numbered in insertion order. Keys are stored by the concrete implementations in
+ * primitive arrays indexed by the group number, the aggregation states of all groups are stored
+ * in one flat array ({@code group * numAggregations + aggregationIdx}).
+ * The hash table itself only contains {@code group + 1} per slot (0 marks an empty slot), so
+ * growing the table only requires to re-distribute integers.
+ * <p>
+ * All arrays are accounted with their exact size on the {@link RamAccountingContext} before they're
+ * allocated, the accounting of arrays that got replaced is released.
+ */
+public abstract class GroupByTable {
+
+    static final int INITIAL_CAPACITY = 16;
+
+    private final RamAccountingContext ramAccountingContext;
+    private final Aggregator[] aggregators;
+    private final int numKeys;
+
+    private int[] slots;
+    private int mask;
+    private Object[] states;
+    private int capacity;
+    private int size = 0;
+
+    protected GroupByTable(int numKeys, Aggregator[] aggregators, RamAccountingContext ramAccountingContext) {
+        this.numKeys = numKeys;
+        this.aggregators = aggregators;
+        this.ramAccountingContext = ramAccountingContext;
+
+        capacity = INITIAL_CAPACITY;
+        addBytes(sizeOfIntArray(capacity * 2) + sizeOfObjectArray(capacity * aggregators.length));
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+        states = new Object[capacity * aggregators.length];
+    }
+
+    /**
+     * Reads the current key from the key inputs and aggregates the current row into the states of its group.
+     * The collect expressions of the aggregations must already point to the current row.
+     */
+    public void add() {
+        int group = findOrAddGroup();
+        if (group < 0) {
+            int offset = (-group - 1) * aggregators.length;
+            for (int i = 0; i < aggregators.length; i++) {
+                Object state = aggregators[i].prepareState();
+                states[offset + i] = aggregators[i].processRow(state);
+            }
+        } else {
+            int offset = group * aggregators.length;
+            for (int i = 0; i < aggregators.length; i++) {
+                states[offset + i] = aggregators[i].processRow(states[offset + i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the current key from the key inputs and merges the given partial states into the states of its group.
+     * The partial states of a new group are reduced into new states, so that their memory is accounted.
+     */
+    public void merge(Object[] partialStates) {
+        int group = findOrAddGroup();
+        if (group < 0) {
+            int offset = (-group - 1) * aggregators.length;
+            for (int i = 0; i < aggregators.length; i++) {
+                states[offset + i] = aggregators[i].reduce(aggregators[i].prepareState(), partialStates[i]);
+            }
+        } else {
+            int offset = group * aggregators.length;
+            for (int i = 0; i < aggregators.length; i++) {
+                states[offset + i] = aggregators[i].reduce(states[offset + i], partialStates[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes the keys and the partial states of all groups to the given spill files.
+     */
+    public void spillTo(GroupBySpill spill) throws IOException {
+        Object[] keyCells = new Object[numKeys];
+        for (int group = 0; group < size; group++) {
+            writeKey(group, keyCells);
+            spill.write(hashOf(group), keyCells, states, group * aggregators.length);
+        }
+    }
+
+    /**
+     * @return the number of groups
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the groups as rows. Each row contains the key values followed by the aggregation results.
+     * The row instance is re-used.
+     */
+    public Iterable<Row> rows() {
+        return new Iterable<Row>() {
+            @Override
+            public Iterator<Row> iterator() {
+                return new RowIterator();
+            }
+        };
+    }
+
+    /**
+     * Reads the key of the current row from the key inputs
+     *
+     * @return the hash of the key
+     */
+    protected abstract int readKey();
+
+    /**
+     * @return true if the key read by the last {@link #readKey()} call equals the key of the given group
+     */
+    protected abstract boolean keyEquals(int group);
+
+    /**
+     * store the key read by the last {@link #readKey()} call as key of the given group.
+     * {@code group} is always smaller than the capacity passed to the last {@link #resizeKeys(int, int)} call.
+     */
+    protected abstract void storeKey(int group, int hash);
+
+    /**
+     * @return the hash of the key of the given group; must be the same as returned by {@link #readKey()}
+     */
+    protected abstract int hashOf(int group);
+
+    /**
+     * Resize the key storage from {@code oldCapacity} to {@code newCapacity} groups.
+     * Implementations must account the memory of the key storage using {@link #addBytes(long)}.
+     * <p>
+     * Implementations have to call {@code resizeKeys(0, INITIAL_CAPACITY)} in their constructor.
+     */
+    protected abstract void resizeKeys(int oldCapacity, int newCapacity);
+
+    /**
+     * write the key values of the given group into cells[0..numKeys)
+     */
+    protected abstract void writeKey(int group, Object[] cells);
+
+    protected void addBytes(long bytes) {
+        ramAccountingContext.addBytes(bytes);
+    }
+
+    protected static long sizeOfLongArray(int length) {
+        return RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_LONG * length);
+    }
+
+    protected static long sizeOfIntArray(int length) {
+        return RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_INT * length);
+    }
+
+    protected static long sizeOfByteArray(int length) {
+        return RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) length);
+    }
+
+    protected static long sizeOfObjectArray(int length) {
+        return RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * length);
+    }
+
+    /**
+     * finalization step of murmur3 (fmix64); spreads the entropy of all bits to the lower bits used for the slot
+     */
+    protected static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Looks up the group of the current key and adds a new group if there is none yet.
+     *
+     * @return the group or {@code -(group + 1)} if the group has been added
+     */
+    private int findOrAddGroup() {
+        int hash = readKey();
+        int slot = hash & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int group = entry - 1;
+            if (keyEquals(group)) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int group = size;
+        if (group == capacity) {
+            grow();
+        }
+        storeKey(group, hash);
+        slots[slot] = group + 1;
+        size++;
+        if (size > slots.length >>> 1) {
+            rehash();
+        }
+        return -group - 1;
+    }
+
+    /**
+     * called once the key storage is exhausted. Resizes the key storage and the aggregation states.
+     */
+    private void grow() {
+        int newCapacity = capacity << 1;
+        if (newCapacity < 0) {
+            throw new IllegalStateException("Too many groups");
+        }
+        resizeKeys(capacity, newCapacity);
+
+        addBytes(sizeOfObjectArray(newCapacity * aggregators.length));
+        Object[] newStates = new Object[newCapacity * aggregators.length];
+        System.arraycopy(states, 0, newStates, 0, size * aggregators.length);
+        states = newStates;
+        addBytes(-sizeOfObjectArray(capacity * aggregators.length));
+        capacity = newCapacity;
+    }
+
+    private void rehash() {
+        int newLength = slots.length << 1;
+        addBytes(sizeOfIntArray(newLength));
+        int[] newSlots = new int[newLength];
+        int newMask = newLength - 1;
+        for (int group = 0; group < size; group++) {
+            int slot = hashOf(group) & newMask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & newMask;
+            }
+            newSlots[slot] = group + 1;
+        }
+        addBytes(-sizeOfIntArray(slots.length));
+        slots = newSlots;
+        mask = newMask;
+    }
+
+    private class RowIterator implements Iterator<Row> {
+
+        private final Object[] cells = new Object[numKeys + aggregators.length];
+        private final RowN row = new RowN(cells);
+        private int group = 0;
+
+        @Override
+        public boolean hasNext() {
+            return group < size;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator exhausted");
+            }
+            writeKey(group, cells);
+            int offset = group * aggregators.length;
+            for (int i = 0; i < aggregators.length; i++) {
+                cells[numKeys + i] = aggregators[i].finishCollect(states[offset + i]);
+            }
+            group++;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove is not supported");
+        }
+    }
+}
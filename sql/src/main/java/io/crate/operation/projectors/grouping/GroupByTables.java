@@ -0,0 +1,103 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.Aggregator;
+import io.crate.types.DataType;
+import io.crate.types.IpType;
+import io.crate.types.StringType;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+public class GroupByTables {
+
+    /**
+     * Create a {@link GroupByTable} which is specialized for the given key types.
+     *
+     * @return the table or null if there is no specialized implementation for the key types
+     */
+    @Nullable
+    public static GroupByTable create(List<? extends DataType> keyTypes,
+                                      List<Input<?>> keyInputs,
+                                      Aggregator[] aggregators,
+                                      RamAccountingContext ramAccountingContext) {
+        assert keyTypes.size() == keyInputs.size() : "number of key types must match with number of key inputs";
+        if (keyTypes.size() == 1) {
+            return createSingleKeyTable(keyTypes.get(0), keyInputs.get(0), aggregators, ramAccountingContext);
+        }
+        if (keyTypes.size() > FixedWidthCompositeGroupByTable.MAX_KEYS) {
+            return null;
+        }
+        FixedWidthKeyCodec[] codecs = new FixedWidthKeyCodec[keyTypes.size()];
+        for (int i = 0; i < codecs.length; i++) {
+            codecs[i] = FixedWidthKeyCodec.forType(keyTypes.get(i));
+            if (codecs[i] == null) {
+                return null;
+            }
+        }
+        return new FixedWidthCompositeGroupByTable(keyInputs, codecs, aggregators, ramAccountingContext);
+    }
+
+    /**
+     * @return true if {@link #create(List, List, Aggregator[], RamAccountingContext)} returns a table for the key types
+     */
+    public static boolean isSupported(List<? extends DataType> keyTypes) {
+        if (keyTypes.size() == 1 && isBytesRefType(keyTypes.get(0))) {
+            return true;
+        }
+        if (keyTypes.size() > FixedWidthCompositeGroupByTable.MAX_KEYS) {
+            return false;
+        }
+        for (DataType keyType : keyTypes) {
+            if (FixedWidthKeyCodec.forType(keyType) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBytesRefType(DataType type) {
+        return type.id() == StringType.ID || type.id() == IpType.ID;
+    }
+
+    @Nullable
+    private static GroupByTable createSingleKeyTable(DataType keyType,
+                                                     Input<?> keyInput,
+                                                     Aggregator[] aggregators,
+                                                     RamAccountingContext ramAccountingContext) {
+        if (isBytesRefType(keyType)) {
+            return new BytesRefGroupByTable(keyInput, aggregators, ramAccountingContext);
+        }
+        FixedWidthKeyCodec codec = FixedWidthKeyCodec.forType(keyType);
+        if (codec == null) {
+            return null;
+        }
+        if (codec.fitsInt()) {
+            return new IntGroupByTable(keyInput, codec, aggregators, ramAccountingContext);
+        }
+        return new LongGroupByTable(keyInput, codec, aggregators, ramAccountingContext);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import io.crate.breaker.RamAccountingContext;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.Aggregator;
+
+/**
+ * {@link GroupByTable} for a single key whose values are stored as primitive ints
+ */
+class IntGroupByTable extends GroupByTable {
+
+    private static final int NULL_HASH = 0;
+
+    private final Input<?> keyInput;
+    private final FixedWidthKeyCodec codec;
+
+    private int[] keys;
+    private int nullGroup = -1;
+
+    private boolean currentIsNull;
+    private int currentKey;
+
+    IntGroupByTable(Input<?> keyInput,
+                    FixedWidthKeyCodec codec,
+                    Aggregator[] aggregators,
+                    RamAccountingContext ramAccountingContext) {
+        super(1, aggregators, ramAccountingContext);
+        this.keyInput = keyInput;
+        this.codec = codec;
+        resizeKeys(0, INITIAL_CAPACITY);
+    }
+
+    @Override
+    protected int readKey() {
+        Object value = keyInput.value();
+        if (value == null) {
+            currentIsNull = true;
+            return NULL_HASH;
+        }
+        currentIsNull = false;
+        currentKey = (int) codec.encode(value);
+        return mix(currentKey);
+    }
+
+    @Override
+    protected boolean keyEquals(int group) {
+        if (currentIsNull) {
+            return group == nullGroup;
+        }
+        return keys[group] == currentKey && group != nullGroup;
+    }
+
+    @Override
+    protected void storeKey(int group, int hash) {
+        if (currentIsNull) {
+            nullGroup = group;
+        } else {
+            keys[group] = currentKey;
+        }
+    }
+
+    @Override
+    protected int hashOf(int group) {
+        if (group == nullGroup) {
+            return NULL_HASH;
+        }
+        return mix(keys[group]);
+    }
+
+    @Override
+    protected void resizeKeys(int oldCapacity, int newCapacity) {
+        addBytes(sizeOfIntArray(newCapacity));
+        int[] newKeys = new int[newCapacity];
+        if (keys != null) {
+            System.arraycopy(keys, 0, newKeys, 0, oldCapacity);
+            addBytes(-sizeOfIntArray(oldCapacity));
+        }
+        keys = newKeys;
+    }
+
+    @Override
+    protected void writeKey(int group, Object[] cells) {
+        cells[0] = group == nullGroup ? null : codec.decode(keys[group]);
+    }
+}
@@ -23,6 +23,7 @@ package io.crate.operation.projectors.sorting;
 
 import com.google.common.collect.Ordering;
 import io.crate.analyze.OrderBy;
+import io.crate.core.collections.PrimitiveRow;
 import io.crate.core.collections.Row;
 import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.consumer.OrderByPositionVisitor;
@@ -65,12 +66,35 @@ public abstract class OrderingByPosition<T> extends Ordering<T> {
 
     private static class RowOrdering extends OrderingByPosition<Row> {
 
+        private final boolean reverse;
+
         public RowOrdering(int position, boolean reverse, Boolean nullsFirst) {
             super(position, reverse, nullsFirst);
+            this.reverse = reverse;
         }
 
         @Override
         public int compare(@Nullable Row left, @Nullable Row right) {
+            if (left instanceof PrimitiveRow && right instanceof PrimitiveRow) {
+                PrimitiveRow l = (PrimitiveRow) left;
+                PrimitiveRow r = (PrimitiveRow) right;
+                if (!l.isNull(position) && !r.isNull(position)) {
+                    int cmp;
+                    if (l.isIntegral(position) && r.isIntegral(position)) {
+                        cmp = Long.compare(l.getLong(position), r.getLong(position));
+                    } else if (l.isFloatingPoint(position) && r.isFloatingPoint(position)) {
+                        cmp = Double.compare(l.getDouble(position), r.getDouble(position));
+                    } else {
+                        return compareValues(left, right);
+                    }
+                    // same direction as the inner ordering, which is reversed for the queue
+                    return reverse ? cmp : -cmp;
+                }
+            }
+            return compareValues(left, right);
+        }
+
+        private int compareValues(@Nullable Row left, @Nullable Row right) {
             Comparable l = left != null ? (Comparable) left.get(position) : null;
             Comparable r = right != null ? (Comparable) right.get(position) : null;
             return ordering.compare(l, r);
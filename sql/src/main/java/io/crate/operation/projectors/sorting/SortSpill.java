@@ -0,0 +1,176 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.projectors.sorting;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.CountingOutputStream;
+import io.crate.Streamer;
+import io.crate.operation.OperationStats;
+import io.crate.types.DataType;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Temporary files to which sorted runs of rows are written if the rows to sort don't fit into memory.
+ * <p>
+ * Each call to {@link #spill(List)} writes one run. Once all rows have been processed the runs are
+ * merged with the remaining in-memory run, reading the files sequentially, so only one buffer per run
+ * is held in memory.
+ */
+public class SortSpill implements Closeable {
+
+    public static final String SPILL_ENABLED_SETTING = "node.sql.order_by.spill.enabled";
+
+    private final Streamer[] streamers;
+    private final OperationStats operationStats;
+    private final Path directory;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Integer> runSizes = new ArrayList<>();
+    private final List<StreamInput> openInputs = new ArrayList<>();
+    private boolean closed = false;
+
+    /**
+     * @param operationStats the statistics of the operation on which the written runs are recorded
+     */
+    public SortSpill(List<? extends DataType> rowTypes, OperationStats operationStats) throws IOException {
+        this.operationStats = operationStats;
+        streamers = new Streamer[rowTypes.size()];
+        for (int i = 0; i < streamers.length; i++) {
+            streamers[i] = rowTypes.get(i).streamer();
+        }
+        directory = Files.createTempDirectory("crate-order-by-");
+    }
+
+    /**
+     * Write the rows, which must be sorted already, as a new run. The rows can be discarded afterwards.
+     */
+    public void spill(List<Object[]> sortedRows) throws IOException {
+        Path file = directory.resolve("run-" + runs.size());
+        runs.add(file);
+        runSizes.add(sortedRows.size());
+        CountingOutputStream countingStream =
+            new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        try (StreamOutput out = new OutputStreamStreamOutput(countingStream)) {
+            for (Object[] row : sortedRows) {
+                for (int i = 0; i < streamers.length; i++) {
+                    //noinspection unchecked
+                    streamers[i].writeValueTo(out, row[i]);
+                }
+            }
+        }
+        operationStats.addSpilledPartitions(1);
+        operationStats.addSpilledBytes(countingStream.getCount());
+    }
+
+    /**
+     * @return the number of runs which have been written
+     */
+    public int numRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Merges the written runs and the last run, which is kept in memory.
+     * The files are opened lazily once the returned iterable is iterated.
+     *
+     * @param lastRun    the rows which haven't been spilled, sorted by the comparator
+     * @param comparator the comparator which has been used to sort the runs
+     */
+    public Iterable<Object[]> merge(final List<Object[]> lastRun, final Comparator<Object[]> comparator) {
+        return new Iterable<Object[]>() {
+            @Override
+            public Iterator<Object[]> iterator() {
+                List<Iterator<Object[]>> iterators = new ArrayList<>(runs.size() + 1);
+                try {
+                    for (int i = 0; i < runs.size(); i++) {
+                        iterators.add(readRun(runs.get(i), runSizes.get(i)));
+                    }
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+                iterators.add(lastRun.iterator());
+                return Iterators.mergeSorted(iterators, comparator);
+            }
+        };
+    }
+
+    private Iterator<Object[]> readRun(Path file, final int numRows) throws IOException {
+        final StreamInput in = new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(file)));
+        openInputs.add(in);
+        return new AbstractIterator<Object[]>() {
+
+            private int row = 0;
+
+            @Override
+            protected Object[] computeNext() {
+                if (row >= numRows) {
+                    // the run is read again from a new stream if the rows are repeated
+                    openInputs.remove(in);
+                    IOUtils.closeWhileHandlingException(in);
+                    return endOfData();
+                }
+                row++;
+                Object[] cells = new Object[streamers.length];
+                try {
+                    for (int i = 0; i < streamers.length; i++) {
+                        cells[i] = streamers[i].readValueFrom(in);
+                    }
+                } catch (IOException e) {
+                    throw Throwables.propagate(e);
+                }
+                return cells;
+            }
+        };
+    }
+
+    /**
+     * closes and deletes all files
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            IOUtils.close(openInputs);
+        } finally {
+            IOUtils.rm(directory);
+        }
+    }
+}
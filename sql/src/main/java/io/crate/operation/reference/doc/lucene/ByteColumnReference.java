@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.LongInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 
-public class ByteColumnReference extends FieldCacheExpression<IndexNumericFieldData, Byte> {
+public class ByteColumnReference extends FieldCacheExpression<IndexNumericFieldData, Byte> implements LongInput {
 
     private SortedNumericDocValues values;
-    private Byte value;
+    private boolean missing = true;
+    private long value;
 
     public ByteColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class ByteColumnReference extends FieldCacheExpression<IndexNumericFieldD
 
     @Override
     public Byte value() {
+        return missing ? null : (byte) value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public long longValue() {
         return value;
     }
 
@@ -46,10 +58,11 @@ public class ByteColumnReference extends FieldCacheExpression<IndexNumericFieldD
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
-                value = (byte) values.valueAt(0);
+                missing = false;
+                value = values.valueAt(0);
                 break;
             default:
                 throw new GroupByOnArrayUnsupportedException(columnName());
@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.DoubleInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 
-public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFieldData, Double> {
+public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFieldData, Double> implements DoubleInput {
 
     private SortedNumericDoubleValues values;
-    private Double value;
+    private boolean missing = true;
+    private double value;
 
     public DoubleColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFiel
 
     @Override
     public Double value() {
+        return missing ? null : value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public double doubleValue() {
         return value;
     }
 
@@ -46,9 +58,10 @@ public class DoubleColumnReference extends FieldCacheExpression<IndexNumericFiel
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
+                missing = false;
                 value = values.valueAt(0);
                 break;
             default:
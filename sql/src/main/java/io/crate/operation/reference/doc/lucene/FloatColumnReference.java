@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.DoubleInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 
-public class FloatColumnReference extends FieldCacheExpression<IndexNumericFieldData, Float> {
+public class FloatColumnReference extends FieldCacheExpression<IndexNumericFieldData, Float> implements DoubleInput {
 
     private SortedNumericDoubleValues values;
-    private Float value;
+    private boolean missing = true;
+    private double value;
 
     public FloatColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class FloatColumnReference extends FieldCacheExpression<IndexNumericField
 
     @Override
     public Float value() {
+        return missing ? null : (float) value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public double doubleValue() {
         return value;
     }
 
@@ -46,10 +58,11 @@ public class FloatColumnReference extends FieldCacheExpression<IndexNumericField
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
-                value = (float) values.valueAt(0);
+                missing = false;
+                value = values.valueAt(0);
                 break;
             default:
                 throw new GroupByOnArrayUnsupportedException(columnName());
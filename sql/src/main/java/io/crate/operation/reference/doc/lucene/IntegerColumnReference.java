@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.LongInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 
-public class IntegerColumnReference extends FieldCacheExpression<IndexNumericFieldData, Integer> {
+public class IntegerColumnReference extends FieldCacheExpression<IndexNumericFieldData, Integer> implements LongInput {
 
     private SortedNumericDocValues values;
-    private Integer value;
+    private boolean missing = true;
+    private long value;
 
     public IntegerColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class IntegerColumnReference extends FieldCacheExpression<IndexNumericFie
 
     @Override
     public Integer value() {
+        return missing ? null : (int) value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public long longValue() {
         return value;
     }
 
@@ -46,10 +58,11 @@ public class IntegerColumnReference extends FieldCacheExpression<IndexNumericFie
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
-                value = (int) values.valueAt(0);
+                missing = false;
+                value = values.valueAt(0);
                 break;
             default:
                 throw new GroupByOnArrayUnsupportedException(columnName());
@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.LongInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 
-public class LongColumnReference extends FieldCacheExpression<IndexNumericFieldData, Long> {
+public class LongColumnReference extends FieldCacheExpression<IndexNumericFieldData, Long> implements LongInput {
 
     private SortedNumericDocValues values;
-    private Long value;
+    private boolean missing = true;
+    private long value;
 
     public LongColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class LongColumnReference extends FieldCacheExpression<IndexNumericFieldD
 
     @Override
     public Long value() {
+        return missing ? null : value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public long longValue() {
         return value;
     }
 
@@ -46,9 +58,10 @@ public class LongColumnReference extends FieldCacheExpression<IndexNumericFieldD
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
+                missing = false;
                 value = values.valueAt(0);
                 break;
             default:
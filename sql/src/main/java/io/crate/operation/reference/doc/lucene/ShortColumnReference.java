@@ -22,14 +22,16 @@
 package io.crate.operation.reference.doc.lucene;
 
 import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.LongInput;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 
-public class ShortColumnReference extends FieldCacheExpression<IndexNumericFieldData, Short> {
+public class ShortColumnReference extends FieldCacheExpression<IndexNumericFieldData, Short> implements LongInput {
 
     private SortedNumericDocValues values;
-    private Short value;
+    private boolean missing = true;
+    private long value;
 
     public ShortColumnReference(String columnName) {
         super(columnName);
@@ -37,6 +39,16 @@ public class ShortColumnReference extends FieldCacheExpression<IndexNumericField
 
     @Override
     public Short value() {
+        return missing ? null : (short) value;
+    }
+
+    @Override
+    public boolean isNull() {
+        return missing;
+    }
+
+    @Override
+    public long longValue() {
         return value;
     }
 
@@ -46,10 +58,11 @@ public class ShortColumnReference extends FieldCacheExpression<IndexNumericField
         values.setDocument(docId);
         switch (values.count()) {
             case 0:
-                value = null;
+                missing = true;
                 break;
             case 1:
-                value = (short) values.valueAt(0);
+                missing = false;
+                value = values.valueAt(0);
                 break;
             default:
                 throw new GroupByOnArrayUnsupportedException(columnName());
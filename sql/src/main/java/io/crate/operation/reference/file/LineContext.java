@@ -34,6 +34,8 @@ public class LineContext {
 
     private byte[] rawSource;
     private Map<String, Object> parsedSource;
+    private Map<String, Integer> columnIndices;
+    private Object[] values;
 
     @Nullable
     public BytesRef sourceAsBytesRef() {
@@ -55,6 +57,12 @@ public class LineContext {
     }
 
     public Object get(ColumnIdent columnIdent) {
+        if (values != null) {
+            Integer idx = columnIndices.get(columnIdent.fqn());
+            if (idx != null) {
+                return values[idx];
+            }
+        }
         // TODO: change interface in order to not compute the path for every row
         if (parsedSource == null) {
             // TODO: optimize if collectorContext has prefetchColumns
@@ -87,7 +95,27 @@ public class LineContext {
     }
 
     public void rawSource(byte[] bytes) {
+        source(bytes, null);
+    }
+
+    /**
+     * set the raw source together with its already parsed representation
+     */
+    public void source(byte[] bytes, @Nullable Map<String, Object> parsedSource) {
+        this.rawSource = bytes;
+        this.parsedSource = parsedSource;
+        this.columnIndices = null;
+        this.values = null;
+    }
+
+    /**
+     * set the raw source together with the already converted values of its top level columns.
+     * Columns which aren't contained in columnIndices are extracted from the raw source.
+     */
+    public void source(byte[] bytes, Map<String, Integer> columnIndices, Object[] values) {
         this.rawSource = bytes;
         this.parsedSource = null;
+        this.columnIndices = columnIndices;
+        this.values = values;
     }
 }
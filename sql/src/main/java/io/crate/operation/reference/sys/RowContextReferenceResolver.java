@@ -31,6 +31,7 @@ import io.crate.metadata.information.*;
 import io.crate.metadata.pg_catalog.PgCatalogTables;
 import io.crate.metadata.pg_catalog.PgTypeTable;
 import io.crate.metadata.sys.*;
+import io.crate.monitor.CacheStats;
 import io.crate.operation.collect.files.SummitsContext;
 import io.crate.operation.reference.ReferenceResolver;
 import io.crate.operation.reference.information.InformationSchemaExpressionFactories;
@@ -72,6 +73,7 @@ public class RowContextReferenceResolver implements ReferenceResolver<RowCollect
         tableFactories.put(SysRepositoriesTableInfo.IDENT, getSysRepositoriesExpressions());
         tableFactories.put(SysSnapshotsTableInfo.IDENT, getSysSnapshotsExpressions());
         tableFactories.put(SysSummitsTableInfo.IDENT, getSummitsExpressions());
+        tableFactories.put(SysCachesTableInfo.IDENT, getSysCachesExpressions());
 
         tableFactories.put(InformationSchemataTableInfo.IDENT, InformationSchemaExpressionFactories.schemataFactories());
         tableFactories.put(InformationRoutinesTableInfo.IDENT, InformationSchemaExpressionFactories.routineFactories());
@@ -233,6 +235,182 @@ public class RowContextReferenceResolver implements ReferenceResolver<RowCollect
                     };
                 }
             })
+            .put(SysOperationsTableInfo.Columns.SPILLED_BYTES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Long>() {
+                        @Override
+                        public Long value() {
+                            long spilledBytes = row.spilledBytes();
+                            if (spilledBytes == 0) {
+                                return null;
+                            }
+                            return spilledBytes;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.SPILLED_PARTITIONS, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Integer>() {
+                        @Override
+                        public Integer value() {
+                            int spilledPartitions = row.spilledPartitions();
+                            if (spilledPartitions == 0) {
+                                return null;
+                            }
+                            return spilledPartitions;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.RECEIVED_BYTES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Long>() {
+                        @Override
+                        public Long value() {
+                            long receivedBytes = row.receivedBytes();
+                            if (receivedBytes == 0) {
+                                return null;
+                            }
+                            return receivedBytes;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.RECEIVED_NETWORK_BYTES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Long>() {
+                        @Override
+                        public Long value() {
+                            long receivedNetworkBytes = row.receivedNetworkBytes();
+                            if (receivedNetworkBytes == 0) {
+                                return null;
+                            }
+                            return receivedNetworkBytes;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.SEARCHES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Integer>() {
+                        @Override
+                        public Integer value() {
+                            int searches = row.searches();
+                            if (searches == 0) {
+                                return null;
+                            }
+                            return searches;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.VISITED_DOCS, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Long>() {
+                        @Override
+                        public Long value() {
+                            long visitedDocs = row.visitedDocs();
+                            if (visitedDocs == 0) {
+                                return null;
+                            }
+                            return visitedDocs;
+                        }
+                    };
+                }
+            })
+            .put(SysOperationsTableInfo.Columns.COLLECTED_DOCS, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<OperationContext, Long>() {
+                        @Override
+                        public Long value() {
+                            long collectedDocs = row.collectedDocs();
+                            if (collectedDocs == 0) {
+                                return null;
+                            }
+                            return collectedDocs;
+                        }
+                    };
+                }
+            })
+            .build();
+    }
+
+    private Map<ColumnIdent, RowCollectExpressionFactory> getSysCachesExpressions() {
+        return ImmutableMap.<ColumnIdent, RowCollectExpressionFactory>builder()
+            .put(SysCachesTableInfo.Columns.NAME, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, BytesRef>() {
+                        @Override
+                        public BytesRef value() {
+                            return BytesRefs.toBytesRef(row.name());
+                        }
+                    };
+                }
+            })
+            .put(SysCachesTableInfo.Columns.SIZE, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, Long>() {
+                        @Override
+                        public Long value() {
+                            return row.size();
+                        }
+                    };
+                }
+            })
+            .put(SysCachesTableInfo.Columns.USED_BYTES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, Long>() {
+                        @Override
+                        public Long value() {
+                            return row.usedBytes();
+                        }
+                    };
+                }
+            })
+            .put(SysCachesTableInfo.Columns.HITS, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, Long>() {
+                        @Override
+                        public Long value() {
+                            return row.hits();
+                        }
+                    };
+                }
+            })
+            .put(SysCachesTableInfo.Columns.MISSES, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, Long>() {
+                        @Override
+                        public Long value() {
+                            return row.misses();
+                        }
+                    };
+                }
+            })
+            .put(SysCachesTableInfo.Columns.EVICTIONS, new RowCollectExpressionFactory() {
+                @Override
+                public RowCollectExpression create() {
+                    return new RowContextCollectorExpression<CacheStats, Long>() {
+                        @Override
+                        public Long value() {
+                            return row.evictions();
+                        }
+                    };
+                }
+            })
             .build();
     }
 
@@ -21,6 +21,9 @@
 
 package io.crate.operation.reference.sys.operation;
 
+import io.crate.operation.OperationStats;
+
+import javax.annotation.Nullable;
 import java.util.UUID;
 
 public class OperationContext {
@@ -31,11 +34,51 @@ public class OperationContext {
     public final long started;
     public long usedBytes;
 
+    @Nullable
+    private final OperationStats operationStats;
+
     public OperationContext(int id, UUID jobId, String name, long started) {
+        this(id, jobId, name, started, null);
+    }
+
+    public OperationContext(int id,
+                            UUID jobId,
+                            String name,
+                            long started,
+                            @Nullable OperationStats operationStats) {
         this.id = id;
         this.jobId = jobId;
         this.name = name;
         this.started = started;
+        this.operationStats = operationStats;
+    }
+
+    public long spilledBytes() {
+        return operationStats == null ? 0L : operationStats.spilledBytes();
+    }
+
+    public int spilledPartitions() {
+        return operationStats == null ? 0 : operationStats.spilledPartitions();
+    }
+
+    public long receivedBytes() {
+        return operationStats == null ? 0L : operationStats.receivedBytes();
+    }
+
+    public long receivedNetworkBytes() {
+        return operationStats == null ? 0L : operationStats.receivedNetworkBytes();
+    }
+
+    public int searches() {
+        return operationStats == null ? 0 : operationStats.searches();
+    }
+
+    public long visitedDocs() {
+        return operationStats == null ? 0L : operationStats.visitedDocs();
+    }
+
+    public long collectedDocs() {
+        return operationStats == null ? 0L : operationStats.collectedDocs();
     }
 
     @Override
@@ -34,12 +34,21 @@ public class ShardRecoveryExpression extends NestedObjectExpression {
     private static final String TOTAL_TIME = "total_time";
     private static final String STAGE = "stage";
     private static final String TYPE = "type";
-    private static final String SIZE = "size";
-    private static final String FILES = "files";
+    protected static final String SIZE = "size";
+    protected static final String FILES = "files";
 
 
     public ShardRecoveryExpression(IndexShard indexShard) {
-        addChildImplementations(indexShard.recoveryState());
+        this(indexShard.recoveryState());
+        childImplementations.put(SIZE, new ShardRecoverySizeExpression(indexShard.recoveryState()));
+        childImplementations.put(FILES, new ShardRecoveryFilesExpression(indexShard.recoveryState()));
+    }
+
+    /**
+     * Only adds the time, stage and type of the recovery, the size and files are added by the subclass.
+     */
+    protected ShardRecoveryExpression(RecoveryState recoveryState) {
+        addChildImplementations(recoveryState);
     }
 
     private void addChildImplementations(final RecoveryState recoveryState) {
@@ -61,8 +70,6 @@ public class ShardRecoveryExpression extends NestedObjectExpression {
                 return BytesRefs.toBytesRef(recoveryState.getType().name());
             }
         });
-        childImplementations.put(SIZE, new ShardRecoverySizeExpression(recoveryState));
-        childImplementations.put(FILES, new ShardRecoveryFilesExpression(recoveryState));
     }
 
 }
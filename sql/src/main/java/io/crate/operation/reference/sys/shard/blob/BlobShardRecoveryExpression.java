@@ -0,0 +1,108 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.reference.sys.shard.blob;
+
+import io.crate.blob.recovery.BlobRecoveryProgress;
+import io.crate.blob.v2.BlobShard;
+import io.crate.metadata.SimpleObjectExpression;
+import io.crate.operation.reference.NestedObjectExpression;
+import io.crate.operation.reference.sys.shard.ShardRecoveryExpression;
+import org.elasticsearch.index.shard.IndexShard;
+
+/**
+ * Recovery expression of blob shards, the size and files are taken from the progress of the blob recovery
+ * instead of the (empty) lucene index.
+ */
+public class BlobShardRecoveryExpression extends ShardRecoveryExpression {
+
+    private static final String USED = "used";
+    private static final String REUSED = "reused";
+    private static final String RECOVERED = "recovered";
+    private static final String PERCENT = "percent";
+
+    public BlobShardRecoveryExpression(IndexShard indexShard, BlobShard blobShard) {
+        super(indexShard.recoveryState());
+        BlobRecoveryProgress progress = blobShard.recoveryProgress();
+        childImplementations.put(SIZE, new SizeExpression(progress));
+        childImplementations.put(FILES, new FilesExpression(progress));
+    }
+
+    private static class SizeExpression extends NestedObjectExpression {
+
+        SizeExpression(final BlobRecoveryProgress progress) {
+            childImplementations.put(USED, new SimpleObjectExpression<Long>() {
+                @Override
+                public Long value() {
+                    return progress.totalBytes();
+                }
+            });
+            childImplementations.put(REUSED, new SimpleObjectExpression<Long>() {
+                @Override
+                public Long value() {
+                    return progress.reusedBytes();
+                }
+            });
+            childImplementations.put(RECOVERED, new SimpleObjectExpression<Long>() {
+                @Override
+                public Long value() {
+                    return progress.recoveredBytes();
+                }
+            });
+            childImplementations.put(PERCENT, new SimpleObjectExpression<Float>() {
+                @Override
+                public Float value() {
+                    return progress.recoveredBytesPercent();
+                }
+            });
+        }
+    }
+
+    private static class FilesExpression extends NestedObjectExpression {
+
+        FilesExpression(final BlobRecoveryProgress progress) {
+            childImplementations.put(USED, new SimpleObjectExpression<Integer>() {
+                @Override
+                public Integer value() {
+                    return (int) progress.totalFiles();
+                }
+            });
+            childImplementations.put(REUSED, new SimpleObjectExpression<Integer>() {
+                @Override
+                public Integer value() {
+                    return (int) progress.reusedFiles();
+                }
+            });
+            childImplementations.put(RECOVERED, new SimpleObjectExpression<Integer>() {
+                @Override
+                public Integer value() {
+                    return (int) progress.recoveredFiles();
+                }
+            });
+            childImplementations.put(PERCENT, new SimpleObjectExpression<Float>() {
+                @Override
+                public Float value() {
+                    return progress.recoveredFilesPercent();
+                }
+            });
+        }
+    }
+}
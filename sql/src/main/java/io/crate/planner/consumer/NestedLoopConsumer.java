@@ -30,9 +30,12 @@ import io.crate.analyze.symbol.*;
 import io.crate.exceptions.ValidationException;
 import io.crate.metadata.Functions;
 import io.crate.metadata.TableIdent;
+import io.crate.operation.operator.AndOperator;
+import io.crate.operation.operator.EqOperator;
 import io.crate.operation.projectors.TopN;
 import io.crate.planner.*;
 import io.crate.planner.distribution.DistributionInfo;
+import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.MergePhase;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.planner.node.dql.join.NestedLoop;
@@ -43,15 +46,25 @@ import io.crate.planner.projection.TopNProjection;
 import io.crate.planner.projection.builder.InputCreatingVisitor;
 import io.crate.planner.projection.builder.ProjectionBuilder;
 import io.crate.sql.tree.QualifiedName;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 
+import javax.annotation.Nullable;
+
 import java.util.*;
 
 class NestedLoopConsumer implements Consumer {
 
     private final static ESLogger LOGGER = Loggers.getLogger(NestedLoopConsumer.class);
+
+    /**
+     * equi-joins where both relations have at least this number of rows are executed as distributed hash join
+     * with both sides being hash-partitioned on the join key
+     */
+    static final long SHUFFLE_JOIN_MIN_ROWS = 100_000L;
     private final Visitor visitor;
 
     NestedLoopConsumer(ClusterService clusterService,
@@ -137,6 +150,23 @@ class NestedLoopConsumer implements Consumer {
             boolean isDistributed = hasDocTables && filterNeeded && !joinType.isOuter();
             Limits limits = context.plannerContext().getLimits(querySpec);
 
+            List<Symbol> leftJoinKeys = new ArrayList<>();
+            List<Symbol> rightJoinKeys = new ArrayList<>();
+            int numLeftOutputs = statement.left().querySpec().outputs().size();
+            InputCreatingVisitor.Context leftInputs = new InputCreatingVisitor.Context(
+                nlOutputs.subList(0, numLeftOutputs));
+            InputCreatingVisitor.Context rightInputs = new InputCreatingVisitor.Context(
+                nlOutputs.subList(numLeftOutputs, nlOutputs.size()));
+            if (joinCondition != null) {
+                extractEquiJoinKeys(joinCondition, statement.leftName(), statement.rightName(),
+                    leftInputs, rightInputs, leftJoinKeys, rightJoinKeys);
+            }
+            if (filterNeeded && !joinType.isOuter()) {
+                // implicit joins like "from t1, t2 where t1.x = t2.y"; the filter is still applied after the join
+                extractEquiJoinKeys(where.query(), statement.leftName(), statement.rightName(),
+                    leftInputs, rightInputs, leftJoinKeys, rightJoinKeys);
+            }
+
             if (filterNeeded || joinCondition != null || statement.remainingOrderBy().isPresent()) {
                 left.querySpec().limit(Optional.<Symbol>absent());
                 right.querySpec().limit(Optional.<Symbol>absent());
@@ -165,80 +195,105 @@ class NestedLoopConsumer implements Consumer {
 
             ResultDescription leftResultDesc = leftPlan.resultDescription();
             ResultDescription rightResultDesc = rightPlan.resultDescription();
-            isDistributed = isDistributed &&
+            Collection<String> shuffleNodes = shuffleNodes(
+                left, right, leftResultDesc, rightResultDesc, leftJoinKeys, rightJoinKeys);
+            isDistributed = isDistributed && shuffleNodes == null &&
                             (!leftResultDesc.nodeIds().isEmpty() && !rightResultDesc.nodeIds().isEmpty());
-            boolean broadcastLeftTable = false;
-            if (isDistributed) {
-                broadcastLeftTable = isLeftSmallerThanRight(left, right);
-                if (broadcastLeftTable) {
-                    Plan tmpPlan = leftPlan;
-                    leftPlan = rightPlan;
-                    rightPlan = tmpPlan;
-
-                    QueriedRelation tmpRelation = left;
-                    left = right;
-                    right = tmpRelation;
-                    joinType = joinType.invert();
-                    leftResultDesc = leftPlan.resultDescription();
-                    rightResultDesc = rightPlan.resultDescription();
-                }
-            }
+            // in a distributed nested loop the bigger relation is collected on the nodes holding its shards
+            // and the smaller one is broadcast to these nodes. Otherwise the right side is sent to the handler.
+            boolean broadcastLeftTable = isDistributed && isLeftSmallerThanRight(left, right);
+            QueriedRelation collectRelation = broadcastLeftTable ? right : left;
+            QueriedRelation broadcastRelation = broadcastLeftTable ? left : right;
+            Plan collectPlan = broadcastLeftTable ? rightPlan : leftPlan;
+            Plan broadcastPlan = broadcastLeftTable ? leftPlan : rightPlan;
+            ResultDescription collectResultDesc = collectPlan.resultDescription();
+            ResultDescription broadcastResultDesc = broadcastPlan.resultDescription();
+
             Set<String> handlerNodes = ImmutableSet.of(clusterService.localNode().id());
             Collection<String> nlExecutionNodes = handlerNodes;
 
             MergePhase leftMerge = null;
             MergePhase rightMerge = null;
-            if (isDistributed) {
-                leftPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
-                nlExecutionNodes = leftResultDesc.nodeIds();
-            } else {
-                if (isMergePhaseNeeded(nlExecutionNodes, leftResultDesc.nodeIds(), false)) {
-                    leftMerge = new MergePhase(
-                        context.plannerContext().jobId(),
-                        context.plannerContext().nextExecutionPhaseId(),
-                        "nl-merge",
-                        leftResultDesc.nodeIds().size(),
-                        nlExecutionNodes,
-                        leftResultDesc.streamOutputs(),
-                        Collections.emptyList(),
-                        DistributionInfo.DEFAULT_SAME_NODE,
-                        PositionalOrderBy.of(left.querySpec().orderBy().orNull(), left.querySpec().outputs())
-                    );
+            if (shuffleNodes == null) {
+                MergePhase collectMerge = null;
+                MergePhase broadcastMerge = null;
+                if (isDistributed) {
+                    collectPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+                    nlExecutionNodes = collectResultDesc.nodeIds();
+                } else {
+                    if (isMergePhaseNeeded(nlExecutionNodes, collectResultDesc.nodeIds(), false)) {
+                        collectMerge = new MergePhase(
+                            context.plannerContext().jobId(),
+                            context.plannerContext().nextExecutionPhaseId(),
+                            "nl-merge",
+                            collectResultDesc.nodeIds().size(),
+                            nlExecutionNodes,
+                            collectResultDesc.streamOutputs(),
+                            Collections.emptyList(),
+                            DistributionInfo.DEFAULT_SAME_NODE,
+                            PositionalOrderBy.of(collectRelation.querySpec().orderBy().orNull(),
+                                collectRelation.querySpec().outputs())
+                        );
+                    }
                 }
-            }
-            if (nlExecutionNodes.size() == 1
-                && nlExecutionNodes.equals(rightResultDesc.nodeIds())) {
-                // if the left and the right plan are executed on the same single node the mergePhase
-                // should be omitted. This is the case if the left and right table have only one shards which
-                // are on the same node
-                rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
-            } else {
-                if (isMergePhaseNeeded(nlExecutionNodes, rightResultDesc.nodeIds(), isDistributed)) {
-                    rightMerge = new MergePhase(
-                        context.plannerContext().jobId(),
-                        context.plannerContext().nextExecutionPhaseId(),
-                        "nl-merge",
-                        rightResultDesc.nodeIds().size(),
-                        nlExecutionNodes,
-                        rightResultDesc.streamOutputs(),
-                        Collections.emptyList(),
-                        DistributionInfo.DEFAULT_SAME_NODE,
-                        PositionalOrderBy.of(right.querySpec().orderBy().orNull(), right.querySpec().outputs())
-                    );
+                if (nlExecutionNodes.size() == 1
+                    && nlExecutionNodes.equals(broadcastResultDesc.nodeIds())) {
+                    // if the left and the right plan are executed on the same single node the mergePhase
+                    // should be omitted. This is the case if the left and right table have only one shards which
+                    // are on the same node
+                    broadcastPlan.setDistributionInfo(DistributionInfo.DEFAULT_SAME_NODE);
+                } else {
+                    if (isMergePhaseNeeded(nlExecutionNodes, broadcastResultDesc.nodeIds(), isDistributed)) {
+                        broadcastMerge = new MergePhase(
+                            context.plannerContext().jobId(),
+                            context.plannerContext().nextExecutionPhaseId(),
+                            "nl-merge",
+                            broadcastResultDesc.nodeIds().size(),
+                            nlExecutionNodes,
+                            broadcastResultDesc.streamOutputs(),
+                            Collections.emptyList(),
+                            DistributionInfo.DEFAULT_SAME_NODE,
+                            PositionalOrderBy.of(broadcastRelation.querySpec().orderBy().orNull(),
+                                broadcastRelation.querySpec().outputs())
+                        );
+                    }
+                    broadcastPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
                 }
-                rightPlan.setDistributionInfo(DistributionInfo.DEFAULT_BROADCAST);
+                leftMerge = broadcastLeftTable ? broadcastMerge : collectMerge;
+                rightMerge = broadcastLeftTable ? collectMerge : broadcastMerge;
+            } else {
+                // both sides are hash-partitioned on the join key, each node joins one partition
+                isDistributed = true;
+                nlExecutionNodes = shuffleNodes;
+                int keyIdx = indexOfColumnKeys(leftJoinKeys, rightJoinKeys);
+                leftPlan.setDistributionInfo(new DistributionInfo(
+                    DistributionType.MODULO, ((InputColumn) leftJoinKeys.get(keyIdx)).index()));
+                rightPlan.setDistributionInfo(new DistributionInfo(
+                    DistributionType.MODULO, ((InputColumn) rightJoinKeys.get(keyIdx)).index()));
+                leftMerge = new MergePhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    "hash-join-merge",
+                    leftResultDesc.nodeIds().size(),
+                    nlExecutionNodes,
+                    leftResultDesc.streamOutputs(),
+                    Collections.emptyList(),
+                    DistributionInfo.DEFAULT_SAME_NODE,
+                    PositionalOrderBy.of(left.querySpec().orderBy().orNull(), left.querySpec().outputs())
+                );
+                rightMerge = new MergePhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    "hash-join-merge",
+                    rightResultDesc.nodeIds().size(),
+                    nlExecutionNodes,
+                    rightResultDesc.streamOutputs(),
+                    Collections.emptyList(),
+                    DistributionInfo.DEFAULT_SAME_NODE,
+                    PositionalOrderBy.of(right.querySpec().orderBy().orNull(), right.querySpec().outputs())
+                );
             }
 
-
-            if (broadcastLeftTable) {
-                Plan tmpPlan = leftPlan;
-                leftPlan = rightPlan;
-                rightPlan = tmpPlan;
-                leftMerge = rightMerge;
-                rightMerge = null;
-                leftResultDesc = leftPlan.resultDescription();
-                rightResultDesc = rightPlan.resultDescription();
-            }
             List<Projection> projections = new ArrayList<>();
 
             if (filterNeeded) {
@@ -277,19 +332,46 @@ class NestedLoopConsumer implements Consumer {
             );
             projections.add(topN);
 
-            NestedLoopPhase nl = new NestedLoopPhase(
-                context.plannerContext().jobId(),
-                context.plannerContext().nextExecutionPhaseId(),
-                isDistributed ? "distributed-nested-loop" : "nested-loop",
-                projections,
-                leftMerge,
-                rightMerge,
-                nlExecutionNodes,
-                joinType,
-                joinCondition,
-                left.querySpec().outputs().size(),
-                right.querySpec().outputs().size()
-            );
+            NestedLoopPhase nl;
+            if (leftJoinKeys.isEmpty()) {
+                nl = new NestedLoopPhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    isDistributed ? "distributed-nested-loop" : "nested-loop",
+                    projections,
+                    leftMerge,
+                    rightMerge,
+                    nlExecutionNodes,
+                    joinType,
+                    joinCondition,
+                    left.querySpec().outputs().size(),
+                    right.querySpec().outputs().size()
+                );
+            } else {
+                // building on the right side keeps the order of the left side intact.
+                // If there is no ordering, the smaller relation is used to build the hash table,
+                // with a broadcast this is the broadcast side.
+                boolean buildLeft = orderByBeforeSplit == null
+                                    && (isDistributed && shuffleNodes == null
+                                        ? broadcastLeftTable
+                                        : isLeftSmallerThanRight(left, right));
+                nl = new NestedLoopPhase(
+                    context.plannerContext().jobId(),
+                    context.plannerContext().nextExecutionPhaseId(),
+                    isDistributed ? "distributed-hash-join" : "hash-join",
+                    projections,
+                    leftMerge,
+                    rightMerge,
+                    nlExecutionNodes,
+                    joinType,
+                    joinCondition,
+                    left.querySpec().outputs().size(),
+                    right.querySpec().outputs().size(),
+                    leftJoinKeys,
+                    rightJoinKeys,
+                    buildLeft
+                );
+            }
             if (isDistributed) {
                 return new NestedLoop(
                     nl,
@@ -317,6 +399,107 @@ class NestedLoopConsumer implements Consumer {
             }
         }
 
+        /**
+         * Extracts the arguments of all {@code left.x = right.y} conditions which are part of the (AND concatenated)
+         * join condition. The extracted keys are converted to InputColumns relative to the outputs of their relation.
+         */
+        private static void extractEquiJoinKeys(Symbol joinCondition,
+                                                QualifiedName leftName,
+                                                QualifiedName rightName,
+                                                InputCreatingVisitor.Context leftInputs,
+                                                InputCreatingVisitor.Context rightInputs,
+                                                List<Symbol> leftJoinKeys,
+                                                List<Symbol> rightJoinKeys) {
+            if (!(joinCondition instanceof Function)) {
+                return;
+            }
+            Function function = (Function) joinCondition;
+            String functionName = function.info().ident().name();
+            if (functionName.equals(AndOperator.NAME)) {
+                for (Symbol argument : function.arguments()) {
+                    extractEquiJoinKeys(
+                        argument, leftName, rightName, leftInputs, rightInputs, leftJoinKeys, rightJoinKeys);
+                }
+                return;
+            }
+            if (!functionName.equals(EqOperator.NAME)) {
+                return;
+            }
+            Symbol first = function.arguments().get(0);
+            Symbol second = function.arguments().get(1);
+            if (!isHashJoinKeyType(first.valueType()) || !first.valueType().equals(second.valueType())) {
+                return;
+            }
+            if (refersOnlyTo(first, leftName) && refersOnlyTo(second, rightName)) {
+                leftJoinKeys.add(InputCreatingVisitor.INSTANCE.process(first, leftInputs));
+                rightJoinKeys.add(InputCreatingVisitor.INSTANCE.process(second, rightInputs));
+            } else if (refersOnlyTo(first, rightName) && refersOnlyTo(second, leftName)) {
+                leftJoinKeys.add(InputCreatingVisitor.INSTANCE.process(second, leftInputs));
+                rightJoinKeys.add(InputCreatingVisitor.INSTANCE.process(first, rightInputs));
+            }
+        }
+
+        /**
+         * Returns the nodes on which a large on large equi-join is executed, or null if a shuffle isn't possible
+         * or if it is cheaper to join on a single node or to broadcast one side.
+         * Both sides are distributed using the first join key pair which refers to plain output columns.
+         * The key values are normalized before they're hashed, so it doesn't matter whether one side provides
+         * them e.g. as String and the other one as BytesRef.
+         */
+        @Nullable
+        private Collection<String> shuffleNodes(QueriedRelation left,
+                                                QueriedRelation right,
+                                                ResultDescription leftResultDesc,
+                                                ResultDescription rightResultDesc,
+                                                List<Symbol> leftJoinKeys,
+                                                List<Symbol> rightJoinKeys) {
+            if (indexOfColumnKeys(leftJoinKeys, rightJoinKeys) < 0
+                || leftResultDesc.nodeIds().isEmpty()
+                || rightResultDesc.nodeIds().isEmpty()) {
+                return null;
+            }
+            if (numDocs(left) < SHUFFLE_JOIN_MIN_ROWS || numDocs(right) < SHUFFLE_JOIN_MIN_ROWS) {
+                return null;
+            }
+            // sorted to have the same bucket to node assignment on both sides
+            Set<String> nodes = new TreeSet<>(leftResultDesc.nodeIds());
+            nodes.addAll(rightResultDesc.nodeIds());
+            if (nodes.size() < 2) {
+                return null;
+            }
+            return nodes;
+        }
+
+        private static int indexOfColumnKeys(List<Symbol> leftJoinKeys, List<Symbol> rightJoinKeys) {
+            for (int i = 0; i < leftJoinKeys.size(); i++) {
+                if (leftJoinKeys.get(i) instanceof InputColumn && rightJoinKeys.get(i) instanceof InputColumn) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private long numDocs(QueriedRelation relation) {
+            if (relation instanceof QueriedTableRelation) {
+                return tableStatsService.numDocs(((QueriedTableRelation) relation).tableRelation().tableInfo().ident());
+            }
+            return -1;
+        }
+
+        private static boolean refersOnlyTo(Symbol symbol, QualifiedName relationName) {
+            Set<QualifiedName> relationNames = new HashSet<>();
+            ManyTableConsumer.QualifiedNameCounter.INSTANCE.process(symbol, relationNames);
+            return relationNames.size() == 1 && relationNames.contains(relationName);
+        }
+
+        /**
+         * floating point values are excluded because their equals() semantic differs from the = operator
+         * (e.g. 0.0 and -0.0), other types like arrays or objects don't implement value based hashing.
+         */
+        private static boolean isHashJoinKeyType(DataType type) {
+            return DataTypes.isPrimitive(type) && !type.equals(DataTypes.DOUBLE) && !type.equals(DataTypes.FLOAT);
+        }
+
         private boolean isLeftSmallerThanRight(QueriedRelation qrLeft, QueriedRelation qrRight) {
             if (qrLeft instanceof QueriedTableRelation && qrRight instanceof QueriedTableRelation) {
                 return isLeftSmallerThanRight(
@@ -332,7 +515,7 @@ class NestedLoopConsumer implements Consumer {
             long rightNumDocs = tableStatsService.numDocs(rightIdent);
 
             if (leftNumDocs < rightNumDocs) {
-                LOGGER.debug("Right table is larger with {} docs (left has {}. Will change left plan to broadcast its result",
+                LOGGER.debug("Right table is larger with {} docs (left has {})",
                     rightNumDocs, leftNumDocs);
                 return true;
             }
@@ -30,15 +30,14 @@ import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.node.ExecutionPhaseVisitor;
 import io.crate.planner.projection.Projection;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 public class FileUriCollectPhase extends AbstractProjectionsPhase implements CollectPhase {
 
@@ -54,6 +53,8 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
     private List<Symbol> toCollect;
     private String compression;
     private Boolean sharedStorage;
+    private FileReadingCollector.FileFormat fileFormat;
+    private Map<String, DataType> columnTypes;
     private DistributionInfo distributionInfo = DistributionInfo.DEFAULT_BROADCAST;
 
     private FileUriCollectPhase() {
@@ -68,13 +69,17 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
                                List<Symbol> toCollect,
                                List<Projection> projections,
                                String compression,
-                               Boolean sharedStorage) {
+                               Boolean sharedStorage,
+                               FileReadingCollector.FileFormat fileFormat,
+                               Map<String, DataType> columnTypes) {
         super(jobId, phaseId, name, projections);
         this.executionNodes = executionNodes;
         this.targetUri = targetUri;
         this.toCollect = toCollect;
         this.compression = compression;
         this.sharedStorage = sharedStorage;
+        this.fileFormat = fileFormat;
+        this.columnTypes = columnTypes;
         outputTypes = extractOutputTypes(toCollect, projections);
     }
 
@@ -97,7 +102,14 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
     }
 
     public FileReadingCollector.FileFormat fileFormat() {
-        return FileReadingCollector.FileFormat.JSON;
+        return fileFormat;
+    }
+
+    /**
+     * @return the types of the top level columns of the target table, used to convert the values of untyped formats
+     */
+    public Map<String, DataType> columnTypes() {
+        return columnTypes;
     }
 
     @Override
@@ -121,7 +133,9 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
             normalizedToCollect,
             projections(),
             compression(),
-            sharedStorage());
+            sharedStorage(),
+            fileFormat,
+            columnTypes);
     }
 
     @Nullable
@@ -134,6 +148,12 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         super.readFrom(in);
         compression = in.readOptionalString();
         sharedStorage = in.readOptionalBoolean();
+        fileFormat = FileReadingCollector.FileFormat.values()[in.readVInt()];
+        int numColumnTypes = in.readVInt();
+        columnTypes = new HashMap<>(numColumnTypes);
+        for (int i = 0; i < numColumnTypes; i++) {
+            columnTypes.put(in.readString(), DataTypes.fromStream(in));
+        }
         targetUri = Symbols.fromStream(in);
 
         int numNodes = in.readVInt();
@@ -150,6 +170,12 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         super.writeTo(out);
         out.writeOptionalString(compression);
         out.writeOptionalBoolean(sharedStorage);
+        out.writeVInt(fileFormat.ordinal());
+        out.writeVInt(columnTypes.size());
+        for (Map.Entry<String, DataType> entry : columnTypes.entrySet()) {
+            out.writeString(entry.getKey());
+            DataTypes.toStream(entry.getValue(), out);
+        }
         Symbols.toStream(targetUri, out);
         out.writeVInt(executionNodes.size());
         for (String node : executionNodes) {
@@ -166,6 +192,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
             .add("projections", projections)
             .add("outputTypes", outputTypes)
             .add("compression", compression)
+            .add("fileFormat", fileFormat)
             .add("sharedStorageDefault", sharedStorage)
             .toString();
     }
@@ -38,6 +38,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
@@ -57,6 +58,10 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
     private int numLeftOutputs;
     private int numRightOutputs;
 
+    private List<Symbol> leftJoinKeys = Collections.emptyList();
+    private List<Symbol> rightJoinKeys = Collections.emptyList();
+    private boolean buildLeft = false;
+
     public NestedLoopPhase() {
     }
 
@@ -84,6 +89,35 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         this.numRightOutputs = numRightOutputs;
     }
 
+    /**
+     * Creates a phase which is executed as hash join.
+     *
+     * @param leftJoinKeys  the key symbols of the equi-join condition, as InputColumns relative to the left outputs
+     * @param rightJoinKeys the key symbols of the equi-join condition, as InputColumns relative to the right outputs
+     * @param buildLeft     if true the left side is used to build the hash table, otherwise the right side is used
+     */
+    public NestedLoopPhase(UUID jobId,
+                           int executionNodeId,
+                           String name,
+                           List<Projection> projections,
+                           @Nullable MergePhase leftMergePhase,
+                           @Nullable MergePhase rightMergePhase,
+                           Collection<String> executionNodes,
+                           JoinType joinType,
+                           @Nullable Symbol joinCondition,
+                           int numLeftOutputs,
+                           int numRightOutputs,
+                           List<Symbol> leftJoinKeys,
+                           List<Symbol> rightJoinKeys,
+                           boolean buildLeft) {
+        this(jobId, executionNodeId, name, projections, leftMergePhase, rightMergePhase, executionNodes,
+            joinType, joinCondition, numLeftOutputs, numRightOutputs);
+        assert leftJoinKeys.size() == rightJoinKeys.size() : "number of left and right join keys must match";
+        this.leftJoinKeys = leftJoinKeys;
+        this.rightJoinKeys = rightJoinKeys;
+        this.buildLeft = buildLeft;
+    }
+
     @Override
     public Type type() {
         return Type.NESTED_LOOP;
@@ -125,6 +159,25 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         return numRightOutputs;
     }
 
+    /**
+     * @return true if the join condition is an equi-join and the phase can be executed as hash join.
+     */
+    public boolean isHashJoin() {
+        return !leftJoinKeys.isEmpty();
+    }
+
+    public List<Symbol> leftJoinKeys() {
+        return leftJoinKeys;
+    }
+
+    public List<Symbol> rightJoinKeys() {
+        return rightJoinKeys;
+    }
+
+    public boolean buildLeft() {
+        return buildLeft;
+    }
+
     @Override
     public <C, R> R accept(ExecutionPhaseVisitor<C, R> visitor, C context) {
         return visitor.visitNestedLoopPhase(this, context);
@@ -158,6 +211,10 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         joinType = JoinType.values()[in.readVInt()];
         numLeftOutputs = in.readVInt();
         numRightOutputs = in.readVInt();
+        // the join keys aren't understood by older nodes; upgrading requires a full cluster restart
+        leftJoinKeys = Symbols.listFromStream(in);
+        rightJoinKeys = Symbols.listFromStream(in);
+        buildLeft = in.readBoolean();
     }
 
     @Override
@@ -198,6 +255,9 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
         out.writeVInt(joinType.ordinal());
         out.writeVInt(numLeftOutputs);
         out.writeVInt(numRightOutputs);
+        Symbols.toStream(leftJoinKeys, out);
+        Symbols.toStream(rightJoinKeys, out);
+        out.writeBoolean(buildLeft);
     }
 
     @Override
@@ -207,6 +267,9 @@ public class NestedLoopPhase extends AbstractProjectionsPhase implements Upstrea
             .add("name", name())
             .add("joinType", joinType)
             .add("joinCondition", joinCondition)
+            .add("leftJoinKeys", leftJoinKeys)
+            .add("rightJoinKeys", rightJoinKeys)
+            .add("buildLeft", buildLeft)
             .add("outputTypes", outputTypes)
             .add("jobId", jobId())
             .add("executionNodes", executionNodes);
@@ -35,6 +35,7 @@ import io.crate.metadata.PartitionName;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.metadata.doc.DocTableInfo;
+import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.operation.projectors.TopN;
 import io.crate.planner.Merge;
 import io.crate.planner.Plan;
@@ -47,6 +48,7 @@ import io.crate.planner.projection.Projection;
 import io.crate.planner.projection.SourceIndexWriterProjection;
 import io.crate.planner.projection.WriterProjection;
 import io.crate.planner.projection.builder.ProjectionBuilder;
+import io.crate.types.DataType;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -168,13 +170,27 @@ public class CopyStatementPlanner {
             toCollect,
             projections,
             analysis.settings().get("compression", null),
-            analysis.settings().getAsBoolean("shared", null)
+            analysis.settings().getAsBoolean("shared", null),
+            analysis.inputFormat(),
+            columnTypes(table, analysis.inputFormat())
         );
 
         Collect collect = new Collect(collectPhase, TopN.NO_LIMIT, 0, 1, 1, null);
         return Merge.mergeToHandler(collect, context, Collections.singletonList(MergeCountProjection.INSTANCE));
     }
 
+    private static Map<String, DataType> columnTypes(DocTableInfo table, FileReadingCollector.FileFormat inputFormat) {
+        if (inputFormat == FileReadingCollector.FileFormat.JSON) {
+            // json values are typed already
+            return Collections.emptyMap();
+        }
+        Map<String, DataType> columnTypes = new HashMap<>(table.columns().size());
+        for (Reference reference : table.columns()) {
+            columnTypes.put(reference.ident().columnIdent().fqn(), reference.valueType());
+        }
+        return columnTypes;
+    }
+
     public Plan planCopyTo(CopyToAnalyzedStatement statement, Planner.Context context) {
         WriterProjection.OutputFormat outputFormat = statement.outputFormat();
         if (outputFormat == null) {
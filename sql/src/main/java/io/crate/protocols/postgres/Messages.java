@@ -287,40 +287,65 @@ class Messages {
      * The value of the column, in the format indicated by the associated format code. n is the above length.
      */
     static void sendDataRow(Channel channel, Row row, List<? extends DataType> columnTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
-        int length = 4 + 2;
         assert columnTypes.size() == row.size()
             : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + columnTypes;
 
         ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
-        buffer.writeByte('D');
-        buffer.writeInt(0); // will be set at the end
-        buffer.writeShort(row.size());
-
-        for (int i = 0; i < row.size(); i++) {
-            DataType dataType = columnTypes.get(i);
-            PGType pgType = PGTypes.get(dataType);
-            Object value = row.get(i);
-            if (value == null) {
-                buffer.writeInt(-1);
-                length += 4;
-            } else {
-                FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
-                switch (formatCode) {
-                    case TEXT:
-                        length += pgType.writeAsText(buffer, value);
-                        break;
-                    case BINARY:
-                        length += pgType.writeAsBinary(buffer, value);
-                        break;
-
-                    default:
-                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
+        writeDataRow(buffer, row, pgTypes(columnTypes), formatCodes);
+        channel.write(buffer);
+    }
+
+    /**
+     * Write a DataRow message (see {@link #sendDataRow(Channel, Row, List, FormatCodes.FormatCode[])})
+     * into the buffer, after the messages which have already been written to it.
+     * If a value can't be encoded the buffer is reset to where the row started.
+     */
+    static void writeDataRow(ChannelBuffer buffer, Row row, PGType[] pgTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
+        assert pgTypes.length == row.size()
+            : "Number of columns in the row must match number of pgTypes. Row: " + row + " types: " + pgTypes.length;
+
+        int start = buffer.writerIndex();
+        try {
+            buffer.writeByte('D');
+            buffer.writeInt(0); // will be set at the end
+            buffer.writeShort(row.size());
+
+            for (int i = 0; i < row.size(); i++) {
+                PGType pgType = pgTypes[i];
+                Object value = row.get(i);
+                if (value == null) {
+                    buffer.writeInt(-1);
+                } else {
+                    FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
+                    switch (formatCode) {
+                        case TEXT:
+                            pgType.writeAsText(buffer, value);
+                            break;
+                        case BINARY:
+                            pgType.writeAsBinary(buffer, value);
+                            break;
+
+                        default:
+                            throw new AssertionError("Unrecognized formatCode: " + formatCode);
+                    }
                 }
             }
+        } catch (RuntimeException e) {
+            // drop the partially written row, the messages in front of it are still valid
+            buffer.writerIndex(start);
+            throw e;
         }
 
-        buffer.setInt(1, length);
-        channel.write(buffer);
+        // length excluding the message type
+        buffer.setInt(start + 1, buffer.writerIndex() - start - 1);
+    }
+
+    static PGType[] pgTypes(List<? extends DataType> columnTypes) {
+        PGType[] pgTypes = new PGType[columnTypes.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = PGTypes.get(columnTypes.get(i));
+        }
+        return pgTypes;
     }
 
     static void writeCString(ChannelBuffer buffer, byte[] valBytes) {
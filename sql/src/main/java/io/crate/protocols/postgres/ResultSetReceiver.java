@@ -25,22 +25,35 @@ package io.crate.protocols.postgres;
 import io.crate.action.sql.BaseResultReceiver;
 import io.crate.core.collections.Row;
 import io.crate.exceptions.Exceptions;
+import io.crate.protocols.postgres.types.PGType;
 import io.crate.types.DataType;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
 
+/**
+ * Sends the rows as DataRow messages.
+ * <p>
+ * The rows are encoded into a shared buffer which is only written to the channel once it exceeds
+ * {@link #FLUSH_THRESHOLD_BYTES} or if the batch is finished, so that a large result doesn't cause a
+ * write (and an allocation) per row.
+ */
 class ResultSetReceiver extends BaseResultReceiver {
 
+    static final int FLUSH_THRESHOLD_BYTES = 64 * 1024;
+
     private final String query;
     private final Channel channel;
-    private final List<? extends DataType> columnTypes;
+    private final PGType[] pgTypes;
 
     @Nullable
     private final FormatCodes.FormatCode[] formatCodes;
 
+    private ChannelBuffer buffer;
     private long rowCount = 0;
 
     ResultSetReceiver(String query,
@@ -49,30 +62,46 @@ class ResultSetReceiver extends BaseResultReceiver {
                       @Nullable FormatCodes.FormatCode[] formatCodes) {
         this.query = query;
         this.channel = channel;
-        this.columnTypes = columnTypes;
+        this.pgTypes = Messages.pgTypes(columnTypes);
         this.formatCodes = formatCodes;
+        this.buffer = ChannelBuffers.dynamicBuffer();
     }
 
     @Override
     public void setNextRow(Row row) {
+        Messages.writeDataRow(buffer, row, pgTypes, formatCodes);
         rowCount++;
-        Messages.sendDataRow(channel, row, columnTypes, formatCodes);
+        if (buffer.readableBytes() >= FLUSH_THRESHOLD_BYTES) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        int bytes = buffer.readableBytes();
+        if (bytes > 0) {
+            channel.write(buffer);
+            // size the next buffer by the last one, so that it doesn't have to grow while the rows are written
+            buffer = ChannelBuffers.dynamicBuffer(Math.min(bytes, FLUSH_THRESHOLD_BYTES) + FLUSH_THRESHOLD_BYTES / 4);
+        }
     }
 
     @Override
     public void batchFinished() {
+        flush();
         Messages.sendPortalSuspended(channel);
         Messages.sendReadyForQuery(channel);
     }
 
     @Override
     public void allFinished() {
+        flush();
         Messages.sendCommandComplete(channel, query, rowCount);
         super.allFinished();
     }
 
     @Override
     public void fail(@Nonnull Throwable throwable) {
+        flush();
         Messages.sendErrorResponse(channel, Exceptions.createSQLActionException(throwable));
         super.fail(throwable);
     }
@@ -22,10 +22,13 @@
 
 package io.crate.protocols.postgres;
 
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.crate.Constants;
+import io.crate.action.sql.ResultCache;
 import io.crate.action.sql.ResultReceiver;
+import io.crate.action.sql.ResumableResultReceiver;
 import io.crate.action.sql.RowReceiverToResultReceiver;
 import io.crate.action.sql.SessionContext;
 import io.crate.analyze.Analysis;
@@ -51,6 +54,7 @@ import org.elasticsearch.common.logging.Loggers;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -70,14 +74,17 @@ public class SimplePortal extends AbstractPortal {
     private int maxRows = 0;
     private int defaultLimit;
     private Row rowParams;
+    private final ResultCache resultCache;
 
     public SimplePortal(String name,
                         Analyzer analyzer,
                         Executor executor,
                         boolean isReadOnly,
-                        SessionContext sessionContext) {
+                        SessionContext sessionContext,
+                        ResultCache resultCache) {
         super(name, analyzer, executor, isReadOnly, sessionContext);
         this.defaultLimit = sessionContext.defaultLimit();
+        this.resultCache = resultCache;
     }
 
     @Override
@@ -150,7 +157,55 @@ public class SimplePortal extends AbstractPortal {
     }
 
     @Override
-    public ListenableFuture<?> sync(Planner planner, StatsTables statsTables) {
+    public ListenableFuture<?> sync(final Planner planner, final StatsTables statsTables) {
+        final ResultCache.Key cacheKey = cacheKey();
+        if (cacheKey == null) {
+            return execute(planner, statsTables, resultReceiver);
+        }
+        final ResultReceiver receiver = resultReceiver;
+        Futures.addCallback(resultCache.currentVersion(cacheKey), new FutureCallback<ResultCache.Version>() {
+            @Override
+            public void onSuccess(@Nullable ResultCache.Version version) {
+                assert version != null : "version must not be null";
+                List<Object[]> rows = resultCache.get(cacheKey, version);
+                if (rows == null) {
+                    executeAsync(planner, statsTables,
+                        resultCache.cachingReceiver(cacheKey, version, outputTypes, receiver));
+                } else {
+                    emitCachedRows(rows, statsTables, receiver);
+                }
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                LOGGER.debug("Couldn't get the shard versions, executing statement without cache", t);
+                executeAsync(planner, statsTables, receiver);
+            }
+        });
+        return receiver.completionFuture();
+    }
+
+    @Nullable
+    private ResultCache.Key cacheKey() {
+        if (analysis.analyzedStatement().isWriteOperation() || analysis.rootRelation() == null) {
+            return null;
+        }
+        if (rowReceiver != null && rowReceiver.resumeHandle() != null) {
+            // a suspended execution is resumed
+            return null;
+        }
+        return resultCache.createKey(statement, params, sessionContext, maxRows);
+    }
+
+    private void executeAsync(Planner planner, StatsTables statsTables, ResultReceiver receiver) {
+        try {
+            execute(planner, statsTables, receiver);
+        } catch (Throwable t) {
+            receiver.fail(t);
+        }
+    }
+
+    private ListenableFuture<?> execute(Planner planner, StatsTables statsTables, ResultReceiver resultReceiver) {
         UUID jobId = UUID.randomUUID();
         Plan plan;
         try {
@@ -173,6 +228,7 @@ public class SimplePortal extends AbstractPortal {
                 jobId,
                 sessionContext);
         }
+        this.resultReceiver = resultReceiver;
         if (!resumeIfSuspended()) {
             this.rowReceiver = new RowReceiverToResultReceiver(resultReceiver, maxRows);
             portalContext.getExecutor().execute(plan, rowReceiver, this.rowParams);
@@ -180,6 +236,13 @@ public class SimplePortal extends AbstractPortal {
         return resultReceiver.completionFuture();
     }
 
+    private void emitCachedRows(List<Object[]> rows, StatsTables statsTables, ResultReceiver receiver) {
+        UUID jobId = UUID.randomUUID();
+        statsTables.logExecutionStart(jobId, query);
+        Futures.addCallback(receiver.completionFuture(), new StatsTablesUpdateListener(jobId, statsTables));
+        new CachedRowsEmitter(rows, receiver).resume(false);
+    }
+
     @Override
     public void close() {
         if (rowReceiver != null) {
@@ -212,7 +275,38 @@ public class SimplePortal extends AbstractPortal {
         }
     }
 
-    private static class ResultReceiverRetryWrapper implements ResultReceiver {
+    /**
+     * Emits cached rows and, like {@link RowReceiverToResultReceiver}, pauses while the receiver is saturated.
+     */
+    private static class CachedRowsEmitter implements ResumeHandle {
+
+        private final Iterator<Object[]> rows;
+        private final ResultReceiver receiver;
+
+        CachedRowsEmitter(List<Object[]> rows, ResultReceiver receiver) {
+            this.rows = rows.iterator();
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void resume(boolean async) {
+            try {
+                while (rows.hasNext()) {
+                    receiver.setNextRow(new RowN(rows.next()));
+                    if (receiver instanceof ResumableResultReceiver
+                        && ((ResumableResultReceiver) receiver).isSaturated()) {
+                        ((ResumableResultReceiver) receiver).resumeWhenReady(this);
+                        return;
+                    }
+                }
+                receiver.allFinished();
+            } catch (Throwable t) {
+                receiver.fail(t);
+            }
+        }
+    }
+
+    private static class ResultReceiverRetryWrapper implements ResumableResultReceiver {
 
         private final ResultReceiver delegate;
         private final SimplePortal portal;
@@ -254,6 +348,16 @@ public class SimplePortal extends AbstractPortal {
             delegate.allFinished();
         }
 
+        @Override
+        public boolean isSaturated() {
+            return delegate instanceof ResumableResultReceiver && ((ResumableResultReceiver) delegate).isSaturated();
+        }
+
+        @Override
+        public void resumeWhenReady(ResumeHandle resumeHandle) {
+            ((ResumableResultReceiver) delegate).resumeWhenReady(resumeHandle);
+        }
+
         @Override
         public void fail(@Nonnull Throwable t) {
             if (attempt <= Constants.MAX_SHARD_MISSING_RETRIES && Exceptions.isShardFailure(t)) {
@@ -28,6 +28,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -45,29 +46,34 @@ class JsonType extends PGType {
         super(OID, TYPE_LEN, TYPE_MOD, "json");
     }
 
+    /**
+     * The binary representation of json is the same as the text representation.
+     * The value is written directly into the buffer instead of encoding it into an intermediate byte array.
+     */
     @Override
     public int writeAsBinary(ChannelBuffer buffer, @Nonnull Object value) {
-        byte[] bytes = encodeAsUTF8Text(value);
-        buffer.writeInt(bytes.length);
-        buffer.writeBytes(bytes);
-        return INT32_BYTE_SIZE + bytes.length;
+        int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        try {
+            writeJson(new XContentBuilder(JsonXContent.jsonXContent, new ChannelBufferOutputStream(buffer)), value);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        int length = buffer.writerIndex() - lenIndex - INT32_BYTE_SIZE;
+        buffer.setInt(lenIndex, length);
+        return INT32_BYTE_SIZE + length;
+    }
+
+    @Override
+    public int writeAsText(ChannelBuffer buffer, @Nonnull Object value) {
+        return writeAsBinary(buffer, value);
     }
 
     @Override
     protected byte[] encodeAsUTF8Text(@Nonnull Object value) {
         try {
             XContentBuilder builder = JsonXContent.contentBuilder();
-            if (value.getClass().isArray()) {
-                Object[] values = ((Object[]) value);
-                builder.startArray();
-                for (Object o : values) {
-                    builder.value(o);
-                }
-                builder.endArray();
-            } else {
-                builder.map((Map) value);
-            }
-            builder.close();
+            writeJson(builder, value);
             BytesReference bytes = builder.bytes();
             return bytes.toBytes();
         } catch (IOException e) {
@@ -75,6 +81,20 @@ class JsonType extends PGType {
         }
     }
 
+    private static void writeJson(XContentBuilder builder, Object value) throws IOException {
+        if (value.getClass().isArray()) {
+            Object[] values = ((Object[]) value);
+            builder.startArray();
+            for (Object o : values) {
+                builder.value(o);
+            }
+            builder.endArray();
+        } else {
+            builder.map((Map) value);
+        }
+        builder.close();
+    }
+
     @Override
     public Object readBinaryValue(ChannelBuffer buffer, int valueLength) {
         byte[] bytes = new byte[valueLength];
@@ -22,10 +22,15 @@
 
 package io.crate.protocols.postgres.types;
 
+import com.google.common.base.Throwables;
 import com.google.common.primitives.Bytes;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -63,7 +68,6 @@ class PGArray extends PGType {
         List<Integer> dimensionsList = new ArrayList<>();
         buildDimensions((Object[]) value, dimensionsList, dimensions, 1);
 
-        int bytesWritten = 4 + 4 + 4;
         int lenIndex = buffer.writerIndex();
         buffer.writeInt(0);
         buffer.writeInt(dimensions);
@@ -71,13 +75,13 @@ class PGArray extends PGType {
         buffer.writeInt(typElem());
 
         for (Integer dim : dimensionsList) {
-            buffer.writeInt(dim); // upper bound
-            buffer.writeInt(dim); // lower bound
-            bytesWritten += 8;
+            buffer.writeInt(dim); // number of elements
+            buffer.writeInt(1); // lower bound
         }
-        int len = bytesWritten + writeArrayAsBinary(buffer, (Object[]) value, dimensionsList, 1);
+        writeArrayAsBinary(buffer, (Object[]) value, dimensionsList, 1);
+        int len = buffer.writerIndex() - lenIndex - INT32_BYTE_SIZE;
         buffer.setInt(lenIndex, len);
-        return len;
+        return INT32_BYTE_SIZE + len;
     }
 
     private int getDimensions(@Nonnull Object value) {
@@ -121,55 +125,61 @@ class PGArray extends PGType {
         return array;
     }
 
+    @Override
+    public int writeAsText(ChannelBuffer buffer, @Nonnull Object value) {
+        int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        try {
+            encodeAsUTF8Text((Object[]) value, new ChannelBufferOutputStream(buffer));
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        int len = buffer.writerIndex() - lenIndex - INT32_BYTE_SIZE;
+        buffer.setInt(lenIndex, len);
+        return INT32_BYTE_SIZE + len;
+    }
+
     @Override
     byte[] encodeAsUTF8Text(@Nonnull Object array) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            encodeAsUTF8Text((Object[]) array, out);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void encodeAsUTF8Text(Object[] values, OutputStream out) throws IOException {
         boolean isJson = JsonType.OID == innerType.oid();
-        Object[] values = (Object[]) array;
-        List<Byte> encodedValues = new ArrayList<>();
-        encodedValues.add((byte) '{');
+        out.write('{');
         for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
             Object o = values[i];
             if (o instanceof Object[]) { // Nested Array -> recursive call
-                byte[] bytes = encodeAsUTF8Text(o);
-                for (byte b : bytes) {
-                    encodedValues.add(b);
-                }
-                if (i == 0) {
-                    encodedValues.add((byte) ',');
-                }
+                encodeAsUTF8Text((Object[]) o, out);
+            } else if (o == null) {
+                out.write(NULL_BYTES);
             } else {
-                if (i > 0) {
-                    encodedValues.add((byte) ',');
-                }
-                byte[] bytes;
-                if (o == null) {
-                    bytes = NULL_BYTES;
+                byte[] bytes = innerType.encodeAsUTF8Text(o);
+                out.write('"');
+                if (isJson) {
                     for (byte aByte : bytes) {
-                        encodedValues.add(aByte);
-                    }
-                } else {
-                    bytes = innerType.encodeAsUTF8Text(o);
-
-                    encodedValues.add((byte) '"');
-                    if (isJson) {
-                        for (byte aByte : bytes) {
-                            // Escape double quotes with backslash for json
-                            if ((char) aByte == '"') {
-                                encodedValues.add((byte) '\\');
-                            }
-                            encodedValues.add(aByte);
-                        }
-                    } else {
-                        for (byte aByte : bytes) {
-                            encodedValues.add(aByte);
+                        // Escape double quotes with backslash for json
+                        if ((char) aByte == '"') {
+                            out.write('\\');
                         }
+                        out.write(aByte);
                     }
-                    encodedValues.add((byte) '"');
+                } else {
+                    out.write(bytes);
                 }
+                out.write('"');
             }
         }
-        encodedValues.add((byte) '}');
-        return Bytes.toArray(encodedValues);
+        out.write('}');
     }
 
     @Override
@@ -56,30 +56,33 @@ class CrateThrowableRestResponse extends RestResponse {
     }
 
     private static XContentBuilder convert(RestChannel channel, Throwable t) throws IOException {
-        XContentBuilder builder = channel.newBuilder().startObject()
-            .startObject("error");
-
-        SQLActionException sqlActionException = null;
-        builder.field("message", detailedMessage(t));
-        if (t instanceof SQLActionException) {
-            sqlActionException = (SQLActionException) t;
-            builder.field("code", sqlActionException.errorCode());
-        } else {
-            builder.field("code", 5000);
-        }
-
-        builder.endObject();
+        XContentBuilder builder = channel.newBuilder().startObject();
+        errorToXContent(builder, t);
 
         if (t != null && channel.request().paramAsBoolean("error_trace", false)
-            && sqlActionException != null) {
+            && t instanceof SQLActionException) {
             StringWriter stackTrace = new StringWriter();
-            sqlActionException.printStackTrace(new PrintWriter(stackTrace));
+            t.printStackTrace(new PrintWriter(stackTrace));
             builder.field("error_trace", stackTrace.toString());
         }
         builder.endObject();
         return builder;
     }
 
+    /**
+     * adds the "error" object with message and code of the throwable to the builder
+     */
+    static XContentBuilder errorToXContent(XContentBuilder builder, Throwable t) throws IOException {
+        builder.startObject("error");
+        builder.field("message", detailedMessage(t));
+        if (t instanceof SQLActionException) {
+            builder.field("code", ((SQLActionException) t).errorCode());
+        } else {
+            builder.field("code", 5000);
+        }
+        return builder.endObject();
+    }
+
     @Override
     public String contentType() {
         return contentType;
@@ -35,7 +35,9 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.http.netty.NettyHttpRequest;
 import org.elasticsearch.rest.*;
+import org.jboss.netty.handler.codec.http.HttpVersion;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -49,6 +51,7 @@ public class RestSQLAction extends BaseRestHandler {
 
     private static final String REQUEST_HEADER_USER = "User";
     private static final String REQUEST_HEADER_SCHEMA = "Default-Schema";
+    private static final String REQUEST_PARAM_STREAM = "stream";
     private static final int DEFAULT_SOFT_LIMIT = 10_000;
 
     private final SQLOperations sqlOperations;
@@ -104,6 +107,16 @@ public class RestSQLAction extends BaseRestHandler {
         return Option.NONE;
     }
 
+    /**
+     * Streaming requires direct access to the netty channel and a chunked transfer encoding, which isn't
+     * available with HTTP 1.0.
+     */
+    private static boolean isStreamingRequest(RestRequest request) {
+        return request.paramAsBoolean(REQUEST_PARAM_STREAM, false)
+               && request instanceof NettyHttpRequest
+               && HttpVersion.HTTP_1_1.equals(((NettyHttpRequest) request).request().getProtocolVersion());
+    }
+
     private void executeSimpleRequest(SQLXContentSourceContext context, final RestRequest request, final RestChannel channel) {
         SQLOperations.Session session = sqlOperations.createSession(
             request.header(REQUEST_HEADER_SCHEMA),
@@ -120,8 +133,18 @@ public class RestSQLAction extends BaseRestHandler {
                     = new RestRowCountReceiver(channel, startTime, request.paramAsBoolean("types", false));
                 session.execute(UNNAMED, 1, resultReceiver);
             } else {
-                ResultReceiver resultReceiver =
-                    new RestResultSetReceiver(channel, outputFields, startTime, request.paramAsBoolean("types", false));
+                ResultReceiver resultReceiver;
+                if (isStreamingRequest(request)) {
+                    resultReceiver = new RestStreamingResultSetReceiver(
+                        channel,
+                        ((NettyHttpRequest) request).getChannel(),
+                        outputFields,
+                        startTime,
+                        request.paramAsBoolean("types", false));
+                } else {
+                    resultReceiver = new RestResultSetReceiver(
+                        channel, outputFields, startTime, request.paramAsBoolean("types", false));
+                }
                 session.execute(UNNAMED, 0, resultReceiver);
             }
             session.sync();
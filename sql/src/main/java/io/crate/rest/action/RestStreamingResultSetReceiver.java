@@ -0,0 +1,216 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.ResumableResultReceiver;
+import io.crate.analyze.symbol.Field;
+import io.crate.core.collections.Row;
+import io.crate.operation.projectors.ResumeHandle;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestStatus;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.handler.codec.http.*;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ResultReceiver which streams the rows of a result set as chunked HTTP response.
+ * <p>
+ * Rows are serialized into a buffer which is written as a chunk to the netty channel once it reaches
+ * {@link #CHUNK_SIZE_BYTES}. The response is only started with the first chunk; a result set which
+ * fits into a single chunk is sent as regular response over the {@link RestChannel}.
+ * <p>
+ * If the client can't keep up with reading the chunks the channel becomes un-writable;
+ * the receiver then reports itself as saturated, which pauses the upstream until the pending writes completed.
+ * <p>
+ * Once the response has been started an error can't change the status code anymore. Instead the rows array is
+ * closed and an "error" object is added to the response.
+ * The connection is closed after a streamed response.
+ * <p>
+ * If the client disconnects the receiver completes with a failure, which causes the upstream to stop.
+ */
+class RestStreamingResultSetReceiver extends BaseResultReceiver implements ResumableResultReceiver {
+
+    private static final ESLogger LOGGER = Loggers.getLogger(RestStreamingResultSetReceiver.class);
+
+    static final int CHUNK_SIZE_BYTES = 64 * 1024;
+
+    private final RestChannel restChannel;
+    private final Channel channel;
+    private final List<Field> outputFields;
+    private final BytesStreamOutput out;
+    private final XContentBuilder xContentBuilder;
+    private final ResultToXContentBuilder builder;
+    private final long startTime;
+    private long rowCount;
+    private boolean responseStarted = false;
+    private final AtomicBoolean responseSent = new AtomicBoolean(false);
+    private ChannelFuture lastWrite;
+
+    RestStreamingResultSetReceiver(RestChannel restChannel,
+                                   Channel channel,
+                                   List<Field> outputFields,
+                                   long startTime,
+                                   boolean includeTypesOnResponse) throws IOException {
+        this.restChannel = restChannel;
+        this.channel = channel;
+        this.outputFields = outputFields;
+        this.startTime = startTime;
+        this.out = new BytesStreamOutput(CHUNK_SIZE_BYTES);
+        this.xContentBuilder = XContentFactory.contentBuilder(XContentType.JSON, out);
+        if (restChannel.request().paramAsBoolean("pretty", false)) {
+            xContentBuilder.prettyPrint().lfAtEnd();
+        }
+        builder = ResultToXContentBuilder.builder(xContentBuilder);
+        builder.cols(outputFields);
+        if (includeTypesOnResponse) {
+            builder.colTypes(outputFields);
+        }
+        builder.startRows();
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        if (!channel.isOpen()) {
+            // client went away; there is nobody to send the remaining rows to
+            if (responseSent.compareAndSet(false, true)) {
+                super.fail(new CancellationException("Client disconnected"));
+            }
+            return;
+        }
+        try {
+            builder.addRow(row, outputFields.size());
+            rowCount++;
+            if (out.size() >= CHUNK_SIZE_BYTES) {
+                writeChunk();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return responseStarted && !channel.isWritable();
+    }
+
+    @Override
+    public void resumeWhenReady(final ResumeHandle resumeHandle) {
+        if (lastWrite == null) {
+            resumeHandle.resume(true);
+            return;
+        }
+        // once the last write completed all pending writes are flushed and the channel is writable again
+        lastWrite.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                resumeHandle.resume(true);
+            }
+        });
+    }
+
+    @Override
+    public void allFinished() {
+        if (!responseSent.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            builder.finishRows()
+                .rowCount(rowCount)
+                .duration(startTime)
+                .build();
+            if (responseStarted) {
+                writeChunk();
+                writeLastChunk();
+            } else {
+                restChannel.sendResponse(new BytesRestResponse(RestStatus.OK, xContentBuilder));
+            }
+            super.allFinished();
+        } catch (Throwable e) {
+            LOGGER.error("failed to send response", e);
+            channel.close();
+            super.fail(e);
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        if (!responseSent.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (responseStarted) {
+                builder.finishRows();
+                CrateThrowableRestResponse.errorToXContent(xContentBuilder, t);
+                builder.build();
+                writeChunk();
+                writeLastChunk();
+            } else {
+                restChannel.sendResponse(new CrateThrowableRestResponse(restChannel, t));
+            }
+        } catch (Throwable e) {
+            LOGGER.error("failed to send failure response", e);
+            channel.close();
+        } finally {
+            super.fail(t);
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        xContentBuilder.flush();
+        BytesReference bytes = out.bytes();
+        if (!responseStarted) {
+            responseStarted = true;
+            HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            response.setChunked(true);
+            response.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+            response.headers().set(HttpHeaders.Names.CONTENT_TYPE, XContentType.JSON.restContentType());
+            response.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+            channel.write(response);
+        }
+        if (bytes.length() > 0) {
+            // the bytes are copied because the stream is re-used for the next chunk
+            lastWrite = channel.write(new DefaultHttpChunk(ChannelBuffers.copiedBuffer(bytes.toChannelBuffer())));
+        }
+        out.reset();
+    }
+
+    private void writeLastChunk() {
+        channel.write(HttpChunk.LAST_CHUNK).addListener(ChannelFutureListener.CLOSE);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the bytes in flight and the latency of the bulk requests sent to a single shard.
+ * <p>
+ * The size of the next request is adapted to the latency: it grows while the requests are answered faster than
+ * the target latency and shrinks if they are slower or rejected.
+ */
+class BulkShardLoad {
+
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    private final long minRequestBytes;
+    private final long maxRequestBytes;
+    private final long targetLatencyNanos;
+    private final long maxInFlightBytes;
+    private final AtomicLong inFlightBytes = new AtomicLong(0);
+
+    private volatile long requestBytes;
+    private long latencyNanos = -1;
+
+    BulkShardLoad(long minRequestBytes, long initialRequestBytes, long maxRequestBytes,
+                  long targetLatencyNanos, long maxInFlightBytes) {
+        this.minRequestBytes = minRequestBytes;
+        this.maxRequestBytes = maxRequestBytes;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.requestBytes = Math.max(minRequestBytes, Math.min(initialRequestBytes, maxRequestBytes));
+    }
+
+    /**
+     * @return the number of bytes after which a request to this shard should be sent
+     */
+    long requestBytes() {
+        return requestBytes;
+    }
+
+    long inFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    /**
+     * @return true if the shard became saturated by this request
+     */
+    boolean requestSent(long bytes) {
+        long inFlight = inFlightBytes.addAndGet(bytes);
+        return inFlight > maxInFlightBytes && inFlight - bytes <= maxInFlightBytes;
+    }
+
+    /**
+     * @return true if the shard isn't saturated anymore after this request is done
+     */
+    boolean requestDone(long bytes) {
+        long inFlight = inFlightBytes.addAndGet(-bytes);
+        return inFlight <= maxInFlightBytes && inFlight + bytes > maxInFlightBytes;
+    }
+
+    /**
+     * Adapts the request size to the latency of a successful request
+     */
+    synchronized void responseReceived(long bytes, long tookNanos) {
+        if (latencyNanos < 0) {
+            latencyNanos = tookNanos;
+        } else {
+            latencyNanos = (long) (LATENCY_SMOOTHING * tookNanos + (1 - LATENCY_SMOOTHING) * latencyNanos);
+        }
+        if (latencyNanos > targetLatencyNanos) {
+            requestBytes = Math.max(minRequestBytes, requestBytes / 2);
+        } else if (bytes >= requestBytes / 2) {
+            // only grow if the request size was actually limited by requestBytes
+            requestBytes = Math.min(maxRequestBytes, requestBytes + requestBytes / 2);
+        }
+    }
+
+    /**
+     * A request has been rejected because the bulk queue of the shard is full
+     */
+    synchronized void rejected() {
+        requestBytes = Math.max(minRequestBytes, requestBytes / 2);
+    }
+}
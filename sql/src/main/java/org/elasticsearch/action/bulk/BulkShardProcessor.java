@@ -46,12 +46,17 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.shard.ShardId;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,12 +67,27 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p>
  * If the Bulk threadPool Queue is full retries are made and
  * the {@link #add} method will start to block.
+ * <p>
+ * If adaptive batching is enabled the request of a shard is sent as soon as it reaches the request size of the
+ * shard, which is adapted to the latency of the previous requests (see {@link BulkShardLoad}).
+ * If too many bytes are in flight to a shard the processor is {@link #isSaturated() saturated} and producers should
+ * pause until {@link #resumeWhenReady(Runnable)} calls them back.
  */
 public class BulkShardProcessor<Request extends ShardRequest> {
 
     public static final int MAX_CREATE_INDICES_BULK_SIZE = 100;
     public static final int DEFAULT_BULK_SIZE = 10_000;
 
+    public static final String ADAPTIVE_ENABLED_SETTING = "node.sql.bulk.adaptive.enabled";
+    public static final String MAX_REQUEST_SIZE_SETTING = "node.sql.bulk.adaptive.max_request_size";
+    public static final String MAX_IN_FLIGHT_SIZE_SETTING = "node.sql.bulk.adaptive.max_in_flight_size_per_shard";
+    public static final String TARGET_LATENCY_SETTING = "node.sql.bulk.adaptive.target_latency";
+    public static final ByteSizeValue DEFAULT_MAX_REQUEST_SIZE = new ByteSizeValue(5, ByteSizeUnit.MB);
+    public static final ByteSizeValue DEFAULT_MAX_IN_FLIGHT_SIZE = new ByteSizeValue(20, ByteSizeUnit.MB);
+    public static final TimeValue DEFAULT_TARGET_LATENCY = TimeValue.timeValueSeconds(1);
+    private static final long MIN_REQUEST_SIZE = new ByteSizeValue(64, ByteSizeUnit.KB).bytes();
+    private static final long INITIAL_REQUEST_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
+
     private final boolean autoCreateIndices;
     private final Predicate<String> shouldAutocreateIndexPredicate;
 
@@ -75,7 +95,19 @@ public class BulkShardProcessor<Request extends ShardRequest> {
     private final UUID jobId;
     private final int createIndicesBulkSize;
 
+    private final boolean adaptive;
+    private final long maxRequestBytes;
+    private final long maxInFlightBytes;
+    private final long targetLatencyNanos;
+
     private final Map<ShardId, Request> requestsByShard = new HashMap<>();
+    private final Map<ShardId, Long> requestBytesByShard = new HashMap<>();
+    private final Set<ShardId> fullRequests = new HashSet<>();
+    private volatile boolean hasFullRequests = false;
+    private final ConcurrentMap<ShardId, BulkShardLoad> shardLoads = new ConcurrentHashMap<>();
+    private final AtomicInteger saturatedShards = new AtomicInteger(0);
+    private final Object resumeLock = new Object();
+    private Runnable resumeCallback;
     private final AtomicInteger globalCounter = new AtomicInteger(0);
     private final AtomicInteger requestItemCounter = new AtomicInteger(0);
     private final AtomicInteger pending = new AtomicInteger(0);
@@ -118,7 +150,10 @@ public class BulkShardProcessor<Request extends ShardRequest> {
         this.bulkSize = bulkSize;
         this.jobId = jobId;
         this.createIndicesBulkSize = Math.min(bulkSize, MAX_CREATE_INDICES_BULK_SIZE);
-
+        this.adaptive = settings.getAsBoolean(ADAPTIVE_ENABLED_SETTING, true);
+        this.maxRequestBytes = settings.getAsBytesSize(MAX_REQUEST_SIZE_SETTING, DEFAULT_MAX_REQUEST_SIZE).bytes();
+        this.maxInFlightBytes = settings.getAsBytesSize(MAX_IN_FLIGHT_SIZE_SETTING, DEFAULT_MAX_IN_FLIGHT_SIZE).bytes();
+        this.targetLatencyNanos = settings.getAsTime(TARGET_LATENCY_SETTING, DEFAULT_TARGET_LATENCY).nanos();
 
         if (autoCreateIndices) {
             final AutoCreateIndex autoCreateIndex = new AutoCreateIndex(settings, indexNameExpressionResolver);
@@ -238,6 +273,15 @@ public class BulkShardProcessor<Request extends ShardRequest> {
             }
             requestItemCounter.getAndIncrement();
             request.add(globalCounter.getAndIncrement(), item);
+            if (adaptive) {
+                Long requestBytes = requestBytesByShard.get(shardId);
+                long newRequestBytes = (requestBytes == null ? 0L : requestBytes) + item.estimateSize();
+                requestBytesByShard.put(shardId, newRequestBytes);
+                if (newRequestBytes >= shardLoad(shardId).requestBytes()) {
+                    fullRequests.add(shardId);
+                    hasFullRequests = true;
+                }
+            }
         } catch (InterruptedException e) {
             Thread.interrupted();
         } finally {
@@ -245,39 +289,125 @@ public class BulkShardProcessor<Request extends ShardRequest> {
         }
     }
 
-    private void executeRequests() {
+    private BulkShardLoad shardLoad(ShardId shardId) {
+        BulkShardLoad shardLoad = shardLoads.get(shardId);
+        if (shardLoad == null) {
+            shardLoad = new BulkShardLoad(
+                MIN_REQUEST_SIZE, INITIAL_REQUEST_SIZE, maxRequestBytes, targetLatencyNanos, maxInFlightBytes);
+            BulkShardLoad existing = shardLoads.putIfAbsent(shardId, shardLoad);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return shardLoad;
+    }
+
+    /**
+     * @param all if false only the requests which reached the request size of their shard are executed
+     */
+    private void executeRequests(boolean all) {
         try {
             executeLock.acquire();
-            for (Iterator<Map.Entry<ShardId, Request>> it = requestsByShard.entrySet().iterator(); it.hasNext(); ) {
+            List<ShardId> shardIds = new ArrayList<>(all ? requestsByShard.keySet() : fullRequests);
+            for (final ShardId shardId : shardIds) {
                 if (failure.get() != null) {
                     return;
                 }
-                Map.Entry<ShardId, Request> entry = it.next();
-                final Request request = entry.getValue();
-                final ShardId shardId = entry.getKey();
+                final Request request = requestsByShard.get(shardId);
+                Long requestBytes = requestBytesByShard.get(shardId);
+                final InFlightRequest inFlightRequest = requestSent(shardId, requestBytes == null ? 0L : requestBytes);
                 requestExecutor.execute(request, new ActionListener<ShardResponse>() {
                     @Override
                     public void onResponse(ShardResponse response) {
                         processResponse(response);
+                        requestDone(inFlightRequest, true);
                     }
 
                     @Override
                     public void onFailure(Throwable e) {
-                        processFailure(e, shardId, request, com.google.common.base.Optional.<BulkRetryCoordinator>absent());
+                        processFailure(e, shardId, request,
+                            com.google.common.base.Optional.<BulkRetryCoordinator>absent(), inFlightRequest);
                     }
                 });
-                it.remove();
+                requestsByShard.remove(shardId);
+                requestBytesByShard.remove(shardId);
+                fullRequests.remove(shardId);
+                requestItemCounter.addAndGet(-request.itemIndices().size());
             }
         } catch (InterruptedException e) {
             Thread.interrupted();
         } catch (Throwable e) {
             setFailure(e);
         } finally {
-            requestItemCounter.set(0);
+            if (all) {
+                requestItemCounter.set(0);
+            }
+            hasFullRequests = !fullRequests.isEmpty();
             executeLock.release();
         }
     }
 
+    @Nullable
+    private InFlightRequest requestSent(ShardId shardId, long bytes) {
+        if (!adaptive) {
+            return null;
+        }
+        BulkShardLoad shardLoad = shardLoad(shardId);
+        if (shardLoad.requestSent(bytes)) {
+            saturatedShards.incrementAndGet();
+        }
+        return new InFlightRequest(shardLoad, bytes, System.nanoTime());
+    }
+
+    /**
+     * @param success true if the request succeeded without retries and its latency can be used to adapt the request size
+     */
+    private void requestDone(@Nullable InFlightRequest inFlightRequest, boolean success) {
+        if (inFlightRequest == null) {
+            return;
+        }
+        BulkShardLoad shardLoad = inFlightRequest.shardLoad;
+        if (success) {
+            shardLoad.responseReceived(inFlightRequest.bytes, System.nanoTime() - inFlightRequest.startedNanos);
+        }
+        if (shardLoad.requestDone(inFlightRequest.bytes) && saturatedShards.decrementAndGet() == 0) {
+            resume(false);
+        }
+    }
+
+    /**
+     * @return true if too many bytes are in flight to one of the shards and the producer should pause.
+     */
+    public boolean isSaturated() {
+        return saturatedShards.get() > 0;
+    }
+
+    /**
+     * Calls the callback once the processor isn't {@link #isSaturated() saturated} anymore or has failed.
+     * The callback may be called from the current thread.
+     */
+    public void resumeWhenReady(Runnable callback) {
+        synchronized (resumeLock) {
+            if (isSaturated() && failure.get() == null && !result.isDone()) {
+                resumeCallback = callback;
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    private void resume(boolean force) {
+        Runnable callback;
+        synchronized (resumeLock) {
+            if (resumeCallback == null || (!force && isSaturated())) {
+                return;
+            }
+            callback = resumeCallback;
+            resumeCallback = null;
+        }
+        callback.run();
+    }
+
     private void createPendingIndices() {
         final List<PendingRequest> pendings = new ArrayList<>();
         final Set<String> indices;
@@ -371,11 +501,13 @@ public class BulkShardProcessor<Request extends ShardRequest> {
     public void kill(@Nullable Throwable throwable) {
         failure.compareAndSet(null, throwable);
         result.setException(new InterruptedException(JobKilledException.MESSAGE));
+        resume(true);
     }
 
     private void setFailure(Throwable e) {
         failure.compareAndSet(null, e);
         result.setException(e);
+        resume(true);
     }
 
     private void setResult() {
@@ -403,8 +535,13 @@ public class BulkShardProcessor<Request extends ShardRequest> {
     }
 
     private void executeRequestsIfNeeded() {
-        if ((closed || requestItemCounter.get() >= bulkSize) && failure.get() == null) {
-            executeRequests();
+        if (failure.get() != null) {
+            return;
+        }
+        if (closed || requestItemCounter.get() >= bulkSize) {
+            executeRequests(true);
+        } else if (hasFullRequests) {
+            executeRequests(false);
         }
     }
 
@@ -429,7 +566,11 @@ public class BulkShardProcessor<Request extends ShardRequest> {
         trace("response executed.");
     }
 
-    private void processFailure(Throwable e, final ShardId shardId, final Request request, com.google.common.base.Optional<BulkRetryCoordinator> retryCoordinator) {
+    private void processFailure(Throwable e,
+                                final ShardId shardId,
+                                final Request request,
+                                com.google.common.base.Optional<BulkRetryCoordinator> retryCoordinator,
+                                @Nullable final InFlightRequest inFlightRequest) {
         trace("execute failure");
         e = Exceptions.unwrap(e);
 
@@ -449,6 +590,7 @@ public class BulkShardProcessor<Request extends ShardRequest> {
                 // release failed retry
                 retryCoordinator.get().releaseWriteLock();
             }
+            requestDone(inFlightRequest, false);
             return;
         }
 
@@ -460,20 +602,25 @@ public class BulkShardProcessor<Request extends ShardRequest> {
                 coordinator = bulkRetryCoordinatorPool.coordinator(shardId);
             } catch (Throwable coordinatorException) {
                 setFailure(coordinatorException);
+                requestDone(inFlightRequest, false);
                 return;
             }
         }
         if (e instanceof EsRejectedExecutionException) {
             trace("rejected execution: [%s] - retrying", e.getMessage());
+            if (inFlightRequest != null) {
+                inFlightRequest.shardLoad.rejected();
+            }
             coordinator.retry(request, requestExecutor, new ActionListener<ShardResponse>() {
                 @Override
                 public void onResponse(ShardResponse response) {
                     processResponse(response);
+                    requestDone(inFlightRequest, false);
                 }
 
                 @Override
                 public void onFailure(Throwable e) {
-                    processFailure(e, shardId, request, com.google.common.base.Optional.of(coordinator));
+                    processFailure(e, shardId, request, com.google.common.base.Optional.of(coordinator), inFlightRequest);
                 }
             });
         } else {
@@ -487,6 +634,20 @@ public class BulkShardProcessor<Request extends ShardRequest> {
                 }
             }
             setFailure(e);
+            requestDone(inFlightRequest, false);
+        }
+    }
+
+    private static class InFlightRequest {
+
+        private final BulkShardLoad shardLoad;
+        private final long bytes;
+        private final long startedNanos;
+
+        InFlightRequest(BulkShardLoad shardLoad, long bytes, long startedNanos) {
+            this.shardLoad = shardLoad;
+            this.bytes = bytes;
+            this.startedNanos = startedNanos;
         }
     }
 
@@ -0,0 +1,230 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.crate.breaker.CrateCircuitBreakerService;
+import io.crate.core.collections.RowN;
+import io.crate.metadata.Schemas;
+import io.crate.metadata.TableIdent;
+import io.crate.metadata.table.TableInfo;
+import io.crate.metadata.table.TestingTableInfo;
+import io.crate.monitor.CacheStats;
+import io.crate.sql.parser.SqlParser;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.T3;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.admin.indices.stats.TransportIndicesStatsAction;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResultCacheTest extends CrateUnitTest {
+
+    private static final List<DataType> OUTPUT_TYPES = ImmutableList.<DataType>of(DataTypes.STRING, DataTypes.LONG);
+    private static final SessionContext SESSION_CONTEXT = new SessionContext(0, Option.NONE, null);
+
+    private Schemas schemas;
+
+    @Before
+    public void prepare() throws Exception {
+        schemas = mock(Schemas.class);
+        when(schemas.getTableInfo(any(TableIdent.class))).thenReturn((TableInfo) T3.T1_INFO);
+    }
+
+    private ResultCache newCache(long maxBytes, CircuitBreaker breaker) {
+        return new ResultCache(maxBytes, schemas, breaker, mock(TransportIndicesStatsAction.class));
+    }
+
+    private ResultCache newCache() {
+        return newCache(1024 * 1024, new NoopCircuitBreaker(CircuitBreaker.QUERY));
+    }
+
+    private static ResultCache.Key key(ResultCache cache, String stmt, Object... params) {
+        return cache.createKey(SqlParser.createStatement(stmt), ImmutableList.copyOf(params), SESSION_CONTEXT, 0);
+    }
+
+    private static ResultCache.Version version(long numRefreshes) {
+        return new ResultCache.Version(ImmutableMap.<String, List<Long>>of(
+            "[t1][0][allocation]", ImmutableList.of(numRefreshes, 10L, 0L)));
+    }
+
+    private static void cacheResult(ResultCache cache, ResultCache.Key key, ResultCache.Version version, int numRows) {
+        ResultReceiver receiver = cache.cachingReceiver(key, version, OUTPUT_TYPES, new BaseResultReceiver());
+        for (long i = 0; i < numRows; i++) {
+            receiver.setNextRow(new RowN(new Object[]{new BytesRef("foo"), i}));
+        }
+        receiver.allFinished();
+    }
+
+    @Test
+    public void testResultIsCachedForTheSameVersion() throws Exception {
+        ResultCache cache = newCache();
+        ResultCache.Key key = key(cache, "select a, x from t1 where x = ?", 1);
+        assertThat(key, notNullValue());
+        assertThat(cache.get(key, version(1)), nullValue());
+
+        cacheResult(cache, key, version(1), 2);
+        List<Object[]> rows = cache.get(key(cache, "select a, x from t1 where x = ?", 1), version(1));
+        assertThat(rows, notNullValue());
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(1), is(new Object[]{new BytesRef("foo"), 1L}));
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.size(), is(1L));
+        assertThat(stats.usedBytes(), greaterThan(0L));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void testParametersArePartOfTheKey() throws Exception {
+        ResultCache cache = newCache();
+        cacheResult(cache, key(cache, "select a, x from t1 where x = ?", 1), version(1), 2);
+        assertThat(cache.get(key(cache, "select a, x from t1 where x = ?", 2), version(1)), nullValue());
+    }
+
+    @Test
+    public void testAddedColumnChangesTheKey() throws Exception {
+        ResultCache cache = newCache();
+        cacheResult(cache, key(cache, "select * from t1"), version(1), 2);
+
+        TableInfo t1WithNewColumn = new TestingTableInfo.Builder(T3.T1_INFO.ident(), T3.T1_INFO.getRouting(null, null))
+            .add("a", DataTypes.STRING)
+            .add("x", DataTypes.INTEGER)
+            .add("i", DataTypes.INTEGER)
+            .add("c", DataTypes.INTEGER)
+            .build();
+        when(schemas.getTableInfo(any(TableIdent.class))).thenReturn(t1WithNewColumn);
+
+        assertThat(cache.get(key(cache, "select * from t1"), version(1)), nullValue());
+    }
+
+    @Test
+    public void testChangedVersionInvalidatesEntry() throws Exception {
+        ResultCache cache = newCache();
+        ResultCache.Key key = key(cache, "select a, x from t1");
+        cacheResult(cache, key, version(1), 2);
+
+        assertThat(cache.get(key, version(2)), nullValue());
+        assertThat(cache.stats().size(), is(0L));
+        assertThat(cache.stats().usedBytes(), is(0L));
+    }
+
+    @Test
+    public void testIncompleteResultIsNotCached() throws Exception {
+        ResultCache cache = newCache();
+        ResultCache.Key key = key(cache, "select a, x from t1");
+        ResultReceiver receiver = cache.cachingReceiver(key, version(1), OUTPUT_TYPES, new BaseResultReceiver());
+        receiver.setNextRow(new RowN(new Object[]{new BytesRef("foo"), 1L}));
+        receiver.fail(new IllegalStateException("dummy"));
+
+        assertThat(cache.stats().size(), is(0L));
+    }
+
+    @Test
+    public void testLargeResultIsNotCached() throws Exception {
+        ResultCache cache = newCache(10 * 1024, new NoopCircuitBreaker(CircuitBreaker.QUERY));
+        ResultCache.Key key = key(cache, "select a, x from t1");
+        cacheResult(cache, key, version(1), 100);
+
+        assertThat(cache.stats().size(), is(0L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() throws Exception {
+        ResultCache cache = newCache(10 * 1024, new NoopCircuitBreaker(CircuitBreaker.QUERY));
+        for (int i = 0; i < 20; i++) {
+            cacheResult(cache, key(cache, "select a, x from t1 where x = ?", i), version(1), 5);
+        }
+        CacheStats stats = cache.stats();
+        assertThat(stats.evictions(), greaterThan(0L));
+        assertThat(stats.usedBytes(), lessThanOrEqualTo(10 * 1024L));
+        assertThat(cache.get(key(cache, "select a, x from t1 where x = ?", 19), version(1)), notNullValue());
+    }
+
+    @Test
+    public void testCacheIsAccountedOnTheCircuitBreaker() throws Exception {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(1024 * 1024), 1.0, logger);
+        ResultCache cache = newCache(1024 * 1024, breaker);
+        ResultCache.Key key = key(cache, "select a, x from t1");
+        cacheResult(cache, key, version(1), 2);
+        assertThat(breaker.getUsed(), is(cache.stats().usedBytes()));
+
+        cache.get(key, version(2));
+        assertThat(breaker.getUsed(), is(0L));
+    }
+
+    @Test
+    public void testResultIsNotCachedIfBreakerTrips() throws Exception {
+        ResultCache cache = newCache(1024 * 1024, new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        cacheResult(cache, key(cache, "select a, x from t1"), version(1), 2);
+        assertThat(cache.stats().size(), is(0L));
+    }
+
+    @Test
+    public void testNonDeterministicStatementsAreNotCached() throws Exception {
+        ResultCache cache = newCache();
+        assertThat(key(cache, "select random() from t1"), nullValue());
+        assertThat(key(cache, "select a from t1 where x > random()"), nullValue());
+        assertThat(key(cache, "select a, current_timestamp from t1"), nullValue());
+    }
+
+    @Test
+    public void testOnlyCompleteResultsOfQueriesAreCached() throws Exception {
+        ResultCache cache = newCache();
+        assertThat(key(cache, "insert into t1 (a) values ('foo')"), nullValue());
+        assertThat(cache.createKey(SqlParser.createStatement("select a from t1"),
+            Collections.emptyList(), SESSION_CONTEXT, 10), nullValue());
+    }
+
+    @Test
+    public void testQueriesOnSystemTablesAreNotCached() throws Exception {
+        when(schemas.getTableInfo(any(TableIdent.class))).thenReturn(mock(TableInfo.class));
+        ResultCache cache = newCache();
+        assertThat(key(cache, "select * from sys.nodes"), nullValue());
+    }
+
+    @Test
+    public void testDisabledCacheCreatesNoKeys() throws Exception {
+        ResultCache cache = new ResultCache(
+            Settings.EMPTY, schemas, mock(CrateCircuitBreakerService.class),
+            mock(TransportIndicesStatsAction.class));
+        assertThat(key(cache, "select a, x from t1"), nullValue());
+        assertThat(cache.stats().size(), is(0L));
+    }
+}
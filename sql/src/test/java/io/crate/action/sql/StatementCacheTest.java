@@ -0,0 +1,78 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.monitor.CacheStats;
+import io.crate.sql.tree.Statement;
+import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StatementCacheTest extends CrateUnitTest {
+
+    @Test
+    public void testStatementIsParsedOnce() throws Exception {
+        StatementCache cache = new StatementCache(Settings.EMPTY);
+        Statement first = cache.parse("select * from t where id = ?");
+        Statement second = cache.parse("select * from t where id = ?");
+        assertThat(second, sameInstance(first));
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.size(), is(1L));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void testStatementsAreEvictedIfCacheIsFull() throws Exception {
+        StatementCache cache = new StatementCache(
+            Settings.builder().put(StatementCache.CACHE_SIZE_SETTING, 1).build());
+        Statement first = cache.parse("select 1");
+        cache.parse("select 2");
+        assertThat(cache.parse("select 1"), not(sameInstance(first)));
+        assertThat(cache.stats().evictions(), is(2L));
+    }
+
+    @Test
+    public void testDisabledCacheParsesEveryTime() throws Exception {
+        StatementCache cache = new StatementCache(
+            Settings.builder().put(StatementCache.CACHE_SIZE_SETTING, 0).build());
+        Statement first = cache.parse("select 1");
+        assertThat(cache.parse("select 1"), not(sameInstance(first)));
+        assertThat(cache.stats().hits(), is(0L));
+    }
+
+    @Test
+    public void testInvalidStatementIsNotCached() throws Exception {
+        StatementCache cache = new StatementCache(Settings.EMPTY);
+        try {
+            cache.parse("selec 1");
+            fail("expected a parsing exception");
+        } catch (Exception ignored) {
+        }
+        assertThat(cache.stats().size(), is(0L));
+    }
+}
@@ -29,6 +29,7 @@ import io.crate.exceptions.TableUnknownException;
 import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.metadata.PartitionName;
 import io.crate.metadata.table.TableInfo;
+import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.planner.projection.WriterProjection;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.SQLExecutor;
@@ -66,6 +67,25 @@ public class CopyAnalyzerTest extends CrateUnitTest {
         assertThat(analysis.uri(), isLiteral("/some/distant/file.ext"));
     }
 
+    @Test
+    public void testCopyFromDefaultsToJsonFormat() throws Exception {
+        CopyFromAnalyzedStatement analysis = e.analyze("copy users from '/some/distant/file.ext'");
+        assertThat(analysis.inputFormat(), is(FileReadingCollector.FileFormat.JSON));
+    }
+
+    @Test
+    public void testCopyFromCsvFormat() throws Exception {
+        CopyFromAnalyzedStatement analysis = e.analyze("copy users from '/some/distant/file.csv' with (format='CSV')");
+        assertThat(analysis.inputFormat(), is(FileReadingCollector.FileFormat.CSV));
+    }
+
+    @Test
+    public void testCopyFromInvalidFormat() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("'parquet' is not an allowed value. Allowed values are: json, csv");
+        e.analyze("copy users from '/some/distant/file.ext' with (format='parquet')");
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testCopyFromPartitionedTablePARTITIONKeywordTooManyArgs() throws Exception {
         e.analyze("copy parted partition (a=1, b=2, c=3) from '/some/distant/file.ext'");
@@ -0,0 +1,164 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.executor.transport;
+
+import io.crate.Streamer;
+import io.crate.core.collections.Bucket;
+import io.crate.core.collections.Buckets;
+import io.crate.core.collections.PrimitiveRow;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import static org.hamcrest.Matchers.is;
+
+public class StreamBucketTest extends CrateUnitTest {
+
+    private static StreamBucket streamed(Streamer<?>[] streamers, Object[][] rows) throws IOException {
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers);
+        for (Object[] row : rows) {
+            builder.add(new RowN(row));
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        builder.writeToStream(out);
+
+        StreamInput in = StreamInput.wrap(out.bytes());
+        StreamBucket bucket = new StreamBucket(streamers);
+        bucket.readFrom(in);
+        return bucket;
+    }
+
+    @Test
+    public void testColumnarRoundTripWithNulls() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{
+            DataTypes.LONG.streamer(),
+            DataTypes.INTEGER.streamer(),
+            DataTypes.SHORT.streamer(),
+            DataTypes.BYTE.streamer(),
+            DataTypes.DOUBLE.streamer(),
+            DataTypes.FLOAT.streamer(),
+            DataTypes.BOOLEAN.streamer(),
+            DataTypes.TIMESTAMP.streamer(),
+            DataTypes.STRING.streamer(),
+            DataTypes.IP.streamer()
+        };
+        Object[][] rows = new Object[][]{
+            new Object[]{1L, 2, (short) 3, (byte) 4, 5.5d, 6.5f, true, 1000L, new BytesRef("foo"), new BytesRef("127.0.0.1")},
+            new Object[]{null, null, null, null, null, null, null, null, null, null},
+            new Object[]{-1L, -2, (short) -3, (byte) -4, -5.5d, -6.5f, false, 2000L, new BytesRef(""), new BytesRef("10.0.0.1")}
+        };
+        Bucket bucket = streamed(streamers, rows);
+
+        assertThat(bucket.size(), is(3));
+        assertThat(Buckets.materialize(bucket), is(rows));
+        // the columns are decoded once, iterating again must return the same rows
+        assertThat(Buckets.materialize(bucket), is(rows));
+    }
+
+    @Test
+    public void testDictionaryAndPlainStrings() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer(), DataTypes.STRING.streamer()};
+        Object[][] rows = new Object[100][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{new BytesRef("value" + (i % 3)), new BytesRef("distinct" + i)};
+        }
+        Bucket bucket = streamed(streamers, rows);
+
+        assertThat(Buckets.materialize(bucket), is(rows));
+    }
+
+    @Test
+    public void testGenericColumnsAreWrittenByTheirStreamer() throws Exception {
+        HashMap<String, Object> obj = new HashMap<>();
+        obj.put("x", 10);
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.LONG.streamer(), DataTypes.OBJECT.streamer()};
+        Object[][] rows = new Object[][]{
+            new Object[]{1L, obj},
+            new Object[]{2L, null}
+        };
+        Bucket bucket = streamed(streamers, rows);
+
+        assertThat(Buckets.materialize(bucket), is(rows));
+    }
+
+    @Test
+    public void testRowFormatIsUsedWithoutColumnarTypes() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.OBJECT.streamer()};
+        HashMap<String, Object> obj = new HashMap<>();
+        obj.put("x", 10);
+        Object[][] rows = new Object[][]{new Object[]{obj}, new Object[]{null}};
+        Bucket bucket = streamed(streamers, rows);
+
+        assertThat(Buckets.materialize(bucket), is(rows));
+    }
+
+    @Test
+    public void testBuilderCanBeReused() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.INTEGER.streamer(), DataTypes.STRING.streamer()};
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers);
+        builder.add(new RowN(new Object[]{1, new BytesRef("a")}));
+        StreamBucket first = builder.build();
+        builder.reset();
+        builder.add(new RowN(new Object[]{2, new BytesRef("b")}));
+        builder.add(new RowN(new Object[]{null, null}));
+        StreamBucket second = builder.build();
+
+        assertThat(Buckets.materialize(first), is(new Object[][]{new Object[]{1, new BytesRef("a")}}));
+        assertThat(Buckets.materialize(second),
+            is(new Object[][]{new Object[]{2, new BytesRef("b")}, new Object[]{null, null}}));
+    }
+
+    @Test
+    public void testPrimitiveValuesOfColumnarRows() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{
+            DataTypes.INTEGER.streamer(),
+            DataTypes.FLOAT.streamer(),
+            DataTypes.STRING.streamer()
+        };
+        Object[][] rows = new Object[][]{
+            new Object[]{-2, 1.5f, new BytesRef("a")},
+            new Object[]{null, null, null}
+        };
+        Iterator<Row> it = streamed(streamers, rows).iterator();
+
+        PrimitiveRow row = (PrimitiveRow) it.next();
+        assertThat(row.isIntegral(0), is(true));
+        assertThat(row.isFloatingPoint(1), is(true));
+        assertThat(row.isIntegral(2) || row.isFloatingPoint(2), is(false));
+        assertThat(row.getLong(0), is(-2L));
+        assertThat(row.getDouble(1), is(1.5d));
+
+        row = (PrimitiveRow) it.next();
+        assertThat(row.isNull(0), is(true));
+        assertThat(row.isNull(1), is(true));
+        assertThat(row.isNull(2), is(true));
+    }
+}
@@ -123,7 +123,8 @@ public class DistributingDownstreamTest extends CrateUnitTest {
             ImmutableList.of("n1"),
             transportDistributedResultAction,
             streamers,
-            pageSize
+            pageSize,
+            DistributedResultRequest.NO_COMPRESSION
         );
 
         final List<Row> rows = new ArrayList<>();
@@ -178,7 +179,8 @@ public class DistributingDownstreamTest extends CrateUnitTest {
             ImmutableList.of("n1", "n2"),
             transportDistributedResultAction,
             streamers,
-            2
+            2,
+            DistributedResultRequest.NO_COMPRESSION
         );
         RowSender rowSender = new RowSender(
             RowGenerator.range(1, 6),
@@ -23,12 +23,18 @@ package io.crate.executor.transport.distributed;
 
 import io.crate.Streamer;
 import io.crate.core.collections.Bucket;
+import io.crate.core.collections.Row;
 import io.crate.core.collections.Row1;
+import io.crate.core.collections.RowN;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingHelpers;
 import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.core.Is.is;
 
 public class ModuloBucketBuilderTest extends CrateUnitTest {
@@ -53,4 +59,59 @@ public class ModuloBucketBuilderTest extends CrateUnitTest {
         assertThat(rowsD2.size(), is(2));
         assertThat(TestingHelpers.printedTable(rowsD2), is("1\n3\n"));
     }
+
+    @Test
+    public void testStringAndBytesRefKeysEndUpInTheSameBucket() throws Exception {
+        int numBuckets = 7;
+        // the undefined streamer writes both representations as they are
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.UNDEFINED.streamer(), DataTypes.INTEGER.streamer()};
+        ModuloBucketBuilder left = new ModuloBucketBuilder(streamers, numBuckets, 0);
+        ModuloBucketBuilder right = new ModuloBucketBuilder(streamers, numBuckets, 0);
+
+        int numKeys = 50;
+        for (int i = 0; i < numKeys; i++) {
+            String key = "key" + i;
+            left.add(new RowN(new Object[]{key, i}));
+            right.add(new RowN(new Object[]{new BytesRef(key), i}));
+        }
+        Bucket[] leftBuckets = new Bucket[numBuckets];
+        Bucket[] rightBuckets = new Bucket[numBuckets];
+        left.build(leftBuckets);
+        right.build(rightBuckets);
+
+        int numRows = 0;
+        for (int i = 0; i < numBuckets; i++) {
+            assertThat(ids(rightBuckets[i]), is(ids(leftBuckets[i])));
+            numRows += leftBuckets[i].size();
+        }
+        assertThat(numRows, is(numKeys));
+    }
+
+    private static List<Object> ids(Bucket bucket) {
+        List<Object> ids = new ArrayList<>();
+        for (Row row : bucket) {
+            ids.add(row.get(1));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testIntegerAndLongKeysEndUpInTheSameBucket() throws Exception {
+        int numBuckets = 5;
+        ModuloBucketBuilder left = new ModuloBucketBuilder(new Streamer[]{DataTypes.INTEGER.streamer()}, numBuckets, 0);
+        ModuloBucketBuilder right = new ModuloBucketBuilder(new Streamer[]{DataTypes.LONG.streamer()}, numBuckets, 0);
+
+        for (int i = -20; i < 20; i++) {
+            left.add(new Row1(i));
+            right.add(new Row1((long) i));
+        }
+        Bucket[] leftBuckets = new Bucket[numBuckets];
+        Bucket[] rightBuckets = new Bucket[numBuckets];
+        left.build(leftBuckets);
+        right.build(rightBuckets);
+
+        for (int i = 0; i < numBuckets; i++) {
+            assertThat(TestingHelpers.printedTable(rightBuckets[i]), is(TestingHelpers.printedTable(leftBuckets[i])));
+        }
+    }
 }
\ No newline at end of file
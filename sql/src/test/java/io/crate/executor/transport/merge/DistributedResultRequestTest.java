@@ -23,6 +23,7 @@ package io.crate.executor.transport.merge;
 
 import io.crate.Streamer;
 import io.crate.core.collections.ArrayBucket;
+import io.crate.core.collections.Row;
 import io.crate.executor.transport.distributed.DistributedResultRequest;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
@@ -37,6 +38,7 @@ import static io.crate.testing.TestingHelpers.isNullRow;
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 
 public class DistributedResultRequestTest extends CrateUnitTest {
 
@@ -64,5 +66,54 @@ public class DistributedResultRequestTest extends CrateUnitTest {
         assertThat(r1.executionPhaseInputId(), is(r2.executionPhaseInputId()));
 
         assertThat(r2.rows(), contains(isRow("ab"), isNullRow(), isRow("cd")));
+        assertThat(r2.receivedNetworkBytes(), is(r2.receivedBytes()));
+    }
+
+    @Test
+    public void testStreamingCompressed() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer()};
+
+        Object[][] rows = new Object[1000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{new BytesRef("value" + i)};
+        }
+        UUID uuid = UUID.randomUUID();
+
+        DistributedResultRequest r1 = new DistributedResultRequest(
+            uuid, 1, (byte) 3, 1, streamers, new ArrayBucket(rows), true, 1024);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        r1.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        DistributedResultRequest r2 = new DistributedResultRequest();
+        r2.readFrom(in);
+        r2.streamers(streamers);
+
+        assertThat(r2.rows().size(), is(1000));
+        assertThat(r2.receivedNetworkBytes(), lessThan(r2.receivedBytes()));
+        int i = 0;
+        for (Row row : r2.rows()) {
+            assertThat(row, isRow("value" + i));
+            i++;
+        }
+    }
+
+    @Test
+    public void testPageBelowCompressionThresholdIsSentRaw() throws Exception {
+        Streamer<?>[] streamers = new Streamer[]{DataTypes.STRING.streamer()};
+        Object[][] rows = new Object[][]{{new BytesRef("ab")}};
+
+        DistributedResultRequest r1 = new DistributedResultRequest(
+            UUID.randomUUID(), 1, (byte) 3, 1, streamers, new ArrayBucket(rows), true, 1024);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        r1.writeTo(out);
+        StreamInput in = StreamInput.wrap(out.bytes());
+        DistributedResultRequest r2 = new DistributedResultRequest();
+        r2.readFrom(in);
+        r2.streamers(streamers);
+
+        assertThat(r2.receivedNetworkBytes(), is(r2.receivedBytes()));
+        assertThat(r2.rows(), contains(isRow("ab")));
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.integrationtests;
+
+import io.crate.testing.TestingHelpers;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+
+public class GlobalAggregateIntegrationTest extends SQLTransportIntegrationTest {
+
+    @Before
+    public void setUpTable() throws Exception {
+        execute("create table t (" +
+                "  b byte, s short, i integer, l long, f float, d double, ts timestamp, name string" +
+                ") clustered into 2 shards with (number_of_replicas = 0)");
+        ensureYellow();
+        execute("insert into t (b, s, i, l, f, d, ts, name) values " +
+                "(1, 10, 100, 1000, 1.5, 10.25, 1000, 'foo'), " +
+                "(-2, -20, -200, -2000, -2.5, -20.5, 2000, 'bar'), " +
+                "(3, 30, 300, 3000, 3.5, 30.75, 3000, 'foobar'), " +
+                "(null, null, null, null, null, null, null, 'null')");
+        execute("refresh table t");
+    }
+
+    @Test
+    public void testMinMaxCountOnAllDocuments() throws Exception {
+        execute("select min(b), max(b), min(s), max(s), min(i), max(i), min(l), max(l), " +
+                "min(f), max(f), min(d), max(d), min(ts), max(ts), count(l), count(*) from t");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("-2| 3| -20| 30| -200| 300| -2000| 3000| -2.5| 3.5| -20.5| 30.75| 1000| 3000| 3| 4\n"));
+    }
+
+    @Test
+    public void testSumAndAvg() throws Exception {
+        execute("select sum(i), avg(i), sum(l), sum(f), avg(d), count(d) from t");
+        assertThat(TestingHelpers.printedTable(response.rows()),
+            is("200.0| 66.66666666666667| 2000.0| 2.5| 6.833333333333333| 3\n"));
+    }
+
+    @Test
+    public void testAggregatesWithWhereClause() throws Exception {
+        execute("select min(l), max(l), sum(l), count(*) from t where name like 'foo%'");
+        assertThat(TestingHelpers.printedTable(response.rows()), is("1000| 3000| 4000.0| 2\n"));
+    }
+
+    @Test
+    public void testAggregatesIgnoreDeletedDocuments() throws Exception {
+        execute("delete from t where l = 3000");
+        execute("refresh table t");
+        execute("select min(l), max(l), count(l), count(*) from t");
+        assertThat(TestingHelpers.printedTable(response.rows()), is("-2000| 1000| 2| 3\n"));
+    }
+
+    @Test
+    public void testAggregatesOnEmptyResult() throws Exception {
+        execute("select min(l), max(d), sum(i), avg(f), count(l), count(*) from t where name = 'unknown'");
+        assertThat(TestingHelpers.printedTable(response.rows()), is("NULL| NULL| NULL| NULL| 0| 0\n"));
+    }
+}
@@ -64,7 +64,7 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
     @Test
     public void testDefaultTables() throws Exception {
         execute("select * from information_schema.tables order by table_schema, table_name");
-        assertEquals(20L, response.rowCount());
+        assertEquals(21L, response.rowCount());
 
         assertThat(TestingHelpers.printedTable(response.rows()), is(
             "NULL| NULL| strict| 0| 1| NULL| NULL| columns| information_schema\n" +
@@ -75,6 +75,7 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
             "NULL| NULL| strict| 0| 1| NULL| NULL| table_partitions| information_schema\n" +
             "NULL| NULL| strict| 0| 1| NULL| NULL| tables| information_schema\n" +
             "NULL| NULL| strict| 0| 1| NULL| NULL| pg_type| pg_catalog\n" +
+            "NULL| NULL| strict| 0| 1| NULL| NULL| caches| sys\n" +
             "NULL| NULL| strict| 0| 1| NULL| NULL| checks| sys\n" +
             "NULL| NULL| strict| 0| 1| NULL| NULL| cluster| sys\n" +
             "NULL| NULL| strict| 0| 1| NULL| NULL| jobs| sys\n" +
@@ -122,13 +123,13 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
         serviceSetup();
 
         execute("select * from information_schema.tables");
-        assertEquals(23L, response.rowCount());
+        assertEquals(24L, response.rowCount());
 
         execute("create table t4 (col1 integer, col2 string) with (number_of_replicas=0)");
         ensureGreen("t4");
 
         execute("select * from information_schema.tables");
-        assertEquals(24L, response.rowCount());
+        assertEquals(25L, response.rowCount());
     }
 
     @Test
@@ -441,7 +442,7 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
     @Test
     public void testDefaultColumns() throws Exception {
         execute("select * from information_schema.columns order by table_schema, table_name");
-        assertEquals(359, response.rowCount());
+        assertEquals(372, response.rowCount());
     }
 
     @Test
@@ -634,7 +635,7 @@ public class InformationSchemaTest extends SQLTransportIntegrationTest {
         ensureYellow();
         execute("select count(*) from information_schema.tables");
         assertEquals(1, response.rowCount());
-        assertEquals(23L, response.rows()[0][0]);
+        assertEquals(24L, response.rows()[0][0]);
     }
 
     @Test
@@ -0,0 +1,111 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.integrationtests;
+
+import io.crate.action.sql.Option;
+import io.crate.action.sql.ResultCache;
+import io.crate.action.sql.SQLOperations;
+import io.crate.testing.SQLResponse;
+import io.crate.testing.SQLTransportExecutor;
+import io.crate.testing.TestingHelpers;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+
+public class ResultCacheIntegrationTest extends SQLTransportIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            .put(ResultCache.CACHE_SIZE_SETTING, "1mb")
+            .build();
+    }
+
+    @Before
+    public void setUpTable() throws Exception {
+        execute("create table t (id integer, name string) clustered into 2 shards with (number_of_replicas = 0)");
+        ensureYellow();
+        execute("insert into t (id, name) values (1, 'foo'), (2, 'bar')");
+        execute("refresh table t");
+    }
+
+    /**
+     * executes the statement on the first node, so that all statements use the same cache
+     */
+    private SQLResponse executeOnFirstNode(String stmt, Object... args) {
+        SQLOperations sqlOperations = internalCluster().getInstance(
+            SQLOperations.class, internalCluster().getNodeNames()[0]);
+        return SQLTransportExecutor.execute(
+            stmt, args, sqlOperations.createSession(null, Option.NONE, SQLTransportExecutor.DEFAULT_SOFT_LIMIT)).actionGet();
+    }
+
+    private String cacheStats() {
+        // only the cache of the first node is used
+        execute("select size, hits, misses from sys.caches where name = 'result' order by misses desc limit 1");
+        return TestingHelpers.printedTable(response.rows());
+    }
+
+    @Test
+    public void testRepeatedQueryIsServedFromCache() throws Exception {
+        SQLResponse first = executeOnFirstNode("select count(*), max(id) from t where name != ?", "baz");
+        SQLResponse second = executeOnFirstNode("select count(*), max(id) from t where name != ?", "baz");
+
+        assertThat(TestingHelpers.printedTable(second.rows()), is(TestingHelpers.printedTable(first.rows())));
+        assertThat(TestingHelpers.printedTable(second.rows()), is("2| 2\n"));
+        assertThat(cacheStats(), is("1| 1| 1\n"));
+    }
+
+    @Test
+    public void testCachedResultIsInvalidatedByWriteAndRefresh() throws Exception {
+        executeOnFirstNode("select id, name from t order by id");
+
+        execute("insert into t (id, name) values (3, 'foobar')");
+        execute("refresh table t");
+
+        SQLResponse response = executeOnFirstNode("select id, name from t order by id");
+        assertThat(TestingHelpers.printedTable(response.rows()), is("1| foo\n2| bar\n3| foobar\n"));
+        assertThat(cacheStats(), is("1| 0| 2\n"));
+    }
+
+    @Test
+    public void testCachedResultIsNotUsedAfterAddingAColumn() throws Exception {
+        executeOnFirstNode("select * from t order by id");
+
+        execute("alter table t add column c integer");
+
+        SQLResponse response = executeOnFirstNode("select * from t order by id");
+        assertThat(response.cols().length, is(3));
+        assertThat(response.rows()[0].length, is(3));
+        // the entry for the old schema stays until it is evicted
+        assertThat(cacheStats(), is("2| 0| 2\n"));
+    }
+
+    @Test
+    public void testQueriesOnSystemTablesAreNotCached() throws Exception {
+        executeOnFirstNode("select name from sys.cluster");
+        executeOnFirstNode("select name from sys.cluster");
+        assertThat(cacheStats(), is("0| 0| 0\n"));
+    }
+}
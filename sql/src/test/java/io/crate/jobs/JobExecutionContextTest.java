@@ -27,6 +27,7 @@ import io.crate.action.job.SharedShardContexts;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.metadata.Routing;
 import io.crate.metadata.RowGranularity;
+import io.crate.operation.OperationStats;
 import io.crate.operation.PageDownstream;
 import io.crate.operation.collect.JobCollectContext;
 import io.crate.operation.collect.MapSideDataCollectOperation;
@@ -122,6 +123,7 @@ public class JobExecutionContextTest extends CrateUnitTest {
             mock(MapSideDataCollectOperation.class),
             localNodeId,
             mock(RamAccountingContext.class),
+            new OperationStats(),
             mock(RowReceiver.class),
             mock(SharedShardContexts.class));
         PageDownstreamContext pageDownstreamContext = spy(new PageDownstreamContext(
@@ -131,6 +133,7 @@ public class JobExecutionContextTest extends CrateUnitTest {
             mock(PageDownstream.class),
             new Streamer[]{IntegerType.INSTANCE.streamer()},
             mock(RamAccountingContext.class),
+            new OperationStats(),
             1,
             null));
 
@@ -27,6 +27,7 @@ import io.crate.Streamer;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.core.collections.Row1;
 import io.crate.core.collections.SingleRowBucket;
+import io.crate.operation.OperationStats;
 import io.crate.operation.PageDownstream;
 import io.crate.operation.PageResultListener;
 import io.crate.operation.projectors.FlatProjectorChain;
@@ -66,7 +67,8 @@ public class PageDownstreamContextTest extends CrateUnitTest {
         }).when(pageDownstream).fail((Throwable) notNull());
 
         PageBucketReceiver ctx = new PageDownstreamContext(Loggers.getLogger(PageDownstreamContext.class), "n1",
-            1, "dummy", pageDownstream, new Streamer[0], RAM_ACCOUNTING_CONTEXT, 3, mock(FlatProjectorChain.class));
+            1, "dummy", pageDownstream, new Streamer[0], RAM_ACCOUNTING_CONTEXT, new OperationStats(), 3,
+            mock(FlatProjectorChain.class));
 
         PageResultListener pageResultListener = mock(PageResultListener.class);
         ctx.setBucket(1, new SingleRowBucket(new Row1("foo")), false, pageResultListener);
@@ -82,7 +84,8 @@ public class PageDownstreamContextTest extends CrateUnitTest {
         PageDownstream downstream = mock(PageDownstream.class);
 
         PageDownstreamContext ctx = new PageDownstreamContext(Loggers.getLogger(PageDownstreamContext.class), "n1",
-            1, "dummy", downstream, new Streamer[0], RAM_ACCOUNTING_CONTEXT, 3, mock(FlatProjectorChain.class));
+            1, "dummy", downstream, new Streamer[0], RAM_ACCOUNTING_CONTEXT, new OperationStats(), 3,
+            mock(FlatProjectorChain.class));
 
         final AtomicReference<Throwable> throwable = new AtomicReference<>();
 
@@ -163,7 +163,8 @@ public class PageDownstreamFactoryTest extends CrateUnitTest {
     private PageDownstream getPageDownstream(MergePhase mergeNode, PageDownstreamFactory pageDownstreamFactory, CollectingRowReceiver rowReceiver) {
         Tuple<PageDownstream, FlatProjectorChain> downstreamFlatProjectorChainTuple =
             pageDownstreamFactory.createMergeNodePageDownstream(
-                mergeNode, rowReceiver, randomBoolean(), ramAccountingContext, Optional.<Executor>absent());
+                mergeNode, rowReceiver, randomBoolean(), ramAccountingContext, new OperationStats(),
+                Optional.<Executor>absent());
         return downstreamFlatProjectorChainTuple.v1();
     }
 
@@ -0,0 +1,161 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.aggregation.impl;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.symbol.Literal;
+import io.crate.metadata.FunctionIdent;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.AggregationTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+public class HyperLogLogDistinctAggregationTest extends AggregationTest {
+
+    private Object[][] executeAggregation(DataType dataType, Object[][] data) throws Exception {
+        return executeAggregation(HyperLogLogDistinctAggregation.NAME, dataType, data);
+    }
+
+    private static Object[][] sequence(int numValues) {
+        Object[][] data = new Object[numValues][];
+        for (int i = 0; i < numValues; i++) {
+            data[i] = new Object[]{(long) i};
+        }
+        return data;
+    }
+
+    @Test
+    public void testReturnType() throws Exception {
+        FunctionIdent fi = new FunctionIdent(HyperLogLogDistinctAggregation.NAME,
+            ImmutableList.<DataType>of(DataTypes.STRING));
+        assertEquals(DataTypes.LONG, functions.get(fi).info().returnType());
+    }
+
+    @Test
+    public void testString() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.STRING,
+            new Object[][]{{new BytesRef("Youri")}, {new BytesRef("Ruben")}, {new BytesRef("Ruben")}});
+        assertThat(result[0][0], is((Object) 2L));
+    }
+
+    @Test
+    public void testDouble() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.DOUBLE, new Object[][]{{0.7d}, {0.3d}, {0.3d}});
+        assertThat(result[0][0], is((Object) 2L));
+    }
+
+    @Test
+    public void testBoolean() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.BOOLEAN, new Object[][]{{true}, {false}, {false}});
+        assertThat(result[0][0], is((Object) 2L));
+    }
+
+    @Test
+    public void testNullValue() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.INTEGER, new Object[][]{{7}, {null}, {3}});
+        assertThat(result[0][0], is((Object) 2L));
+    }
+
+    @Test
+    public void testNoValues() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.INTEGER, new Object[][]{{null}});
+        assertThat(result[0][0], is((Object) 0L));
+    }
+
+    @Test
+    public void testLargeCardinalityIsApproximated() throws Exception {
+        Object[][] result = executeAggregation(DataTypes.LONG, sequence(100_000));
+        // the standard error of the default precision is 0.8%
+        assertThat((Long) result[0][0], allOf(greaterThan(97_000L), lessThan(103_000L)));
+    }
+
+    @Test
+    public void testPrecision() throws Exception {
+        Object[][] data = new Object[10_000][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new Object[]{(long) i, 8L};
+        }
+        Object[][] result = executeAggregation(HyperLogLogDistinctAggregation.NAME, DataTypes.LONG, data,
+            ImmutableList.<DataType>of(DataTypes.LONG, DataTypes.LONG));
+        // 256 registers have a standard error of 6.5%
+        assertThat((Long) result[0][0], allOf(greaterThan(8_000L), lessThan(12_000L)));
+    }
+
+    @Test
+    public void testInvalidPrecision() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("precision of hyperloglog_distinct must be between 4 and 18, got 20");
+        executeAggregation(HyperLogLogDistinctAggregation.NAME, DataTypes.LONG, new Object[][]{{1L, 20L}},
+            ImmutableList.<DataType>of(DataTypes.LONG, DataTypes.LONG));
+    }
+
+    @Test
+    public void testUnsupportedType() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("hyperloglog_distinct doesn't support values of type object");
+        functions.get(new FunctionIdent(HyperLogLogDistinctAggregation.NAME,
+            ImmutableList.<DataType>of(DataTypes.OBJECT)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReduce() throws Exception {
+        FunctionIdent fi = new FunctionIdent(HyperLogLogDistinctAggregation.NAME,
+            ImmutableList.<DataType>of(DataTypes.LONG));
+        AggregationFunction<HyperLogLogDistinctAggregation.HllState, Long> impl =
+            (AggregationFunction<HyperLogLogDistinctAggregation.HllState, Long>) functions.get(fi);
+
+        HyperLogLogDistinctAggregation.HllState state1 = impl.newState(ramAccountingContext);
+        HyperLogLogDistinctAggregation.HllState state2 = impl.newState(ramAccountingContext);
+        for (long i = 0; i < 10; i++) {
+            state1 = impl.iterate(ramAccountingContext, state1, Literal.of(i));
+            // the values 5 to 9 are added to both states
+            state2 = impl.iterate(ramAccountingContext, state2, Literal.of(i + 5));
+        }
+        HyperLogLogDistinctAggregation.HllState reduced = impl.reduce(ramAccountingContext, state1, state2);
+        assertThat(impl.terminatePartial(ramAccountingContext, reduced), is(15L));
+        assertThat(impl.reduce(ramAccountingContext, null, reduced), sameInstance(reduced));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        HyperLogLogDistinctAggregation.HllState state = new HyperLogLogDistinctAggregation.HllState(6);
+        state.add(HyperLogLogDistinctAggregation.hash(new BytesRef("foo")));
+        state.add(HyperLogLogDistinctAggregation.hash(42L));
+
+        BytesStreamOutput streamOutput = new BytesStreamOutput();
+        HyperLogLogDistinctAggregation.HllStateType.INSTANCE.writeValueTo(streamOutput, state);
+        HyperLogLogDistinctAggregation.HllStateType.INSTANCE.writeValueTo(streamOutput, null);
+
+        StreamInput in = StreamInput.wrap(streamOutput.bytes());
+        HyperLogLogDistinctAggregation.HllState newState =
+            HyperLogLogDistinctAggregation.HllStateType.INSTANCE.readValueFrom(in);
+        assertThat(newState.cardinality(), is(2L));
+        assertThat(HyperLogLogDistinctAggregation.HllStateType.INSTANCE.readValueFrom(in), nullValue());
+    }
+}
@@ -28,6 +28,7 @@ import io.crate.action.sql.query.CrateSearchContext;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.metadata.Routing;
 import io.crate.metadata.RowGranularity;
+import io.crate.operation.OperationStats;
 import io.crate.operation.projectors.RowReceiver;
 import io.crate.planner.node.dql.RoutedCollectPhase;
 import io.crate.testing.CollectingRowReceiver;
@@ -64,6 +65,7 @@ public class JobCollectContextTest extends RandomizedTest {
             mock(MapSideDataCollectOperation.class),
             localNodeId,
             ramAccountingContext,
+            new OperationStats(),
             new CollectingRowReceiver(),
             mock(SharedShardContexts.class));
     }
@@ -109,6 +111,7 @@ public class JobCollectContextTest extends RandomizedTest {
             collectOperationMock,
             "localNodeId",
             ramAccountingContext,
+            new OperationStats(),
             rowReceiver,
             mock(SharedShardContexts.class));
 
@@ -25,6 +25,7 @@ import io.crate.analyze.symbol.Literal;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.metadata.*;
 import io.crate.operation.collect.files.FileInputFactory;
+import io.crate.operation.collect.files.FileReadingCollector;
 import io.crate.operation.collect.sources.CollectSourceResolver;
 import io.crate.operation.collect.sources.FileCollectSource;
 import io.crate.operation.reference.sys.node.local.NodeSysExpression;
@@ -33,6 +34,7 @@ import io.crate.planner.node.dql.RoutedCollectPhase;
 import io.crate.planner.projection.Projection;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.CollectingRowReceiver;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.test.cluster.NoopClusterService;
@@ -79,7 +81,9 @@ public class MapSideDataCollectOperationTest extends CrateUnitTest {
         };
         CollectSourceResolver collectSourceResolver = mock(CollectSourceResolver.class);
         when(collectSourceResolver.getService(any(RoutedCollectPhase.class)))
-            .thenReturn(new FileCollectSource(functions, clusterService, Collections.<String, FileInputFactory>emptyMap()));
+            .thenReturn(new FileCollectSource(functions, clusterService, Collections.<String, FileInputFactory>emptyMap(),
+                // the file reader needs a thread besides the collecting one
+                newMockedThreadPool()));
         MapSideDataCollectOperation collectOperation = new MapSideDataCollectOperation(
             functions,
             referenceResolver,
@@ -105,7 +109,9 @@ public class MapSideDataCollectOperationTest extends CrateUnitTest {
             ),
             Arrays.<Projection>asList(),
             null,
-            false
+            false,
+            FileReadingCollector.FileFormat.JSON,
+            Collections.<String, DataType>emptyMap()
         );
         String threadPoolName = JobCollectContext.threadPoolName(collectNode, "noop_id");
 
@@ -0,0 +1,343 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.collect.collectors;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.WhereClause;
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.InputColumn;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.metadata.Routing;
+import io.crate.metadata.RowGranularity;
+import io.crate.operation.aggregation.impl.AverageAggregation;
+import io.crate.operation.aggregation.impl.CountAggregation;
+import io.crate.operation.collect.collectors.DocValuesAggregates.DocValuesAggregator;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.planner.node.dql.RoutedCollectPhase;
+import io.crate.planner.projection.AggregationProjection;
+import io.crate.planner.projection.Projection;
+import io.crate.test.integration.CrateSingleNodeTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import java.util.*;
+
+import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DocValuesAggregatesTest extends CrateSingleNodeTest {
+
+    private static final List<Symbol> TO_COLLECT = ImmutableList.<Symbol>of(
+        createReference("i", DataTypes.INTEGER),
+        createReference("l", DataTypes.LONG),
+        createReference("f", DataTypes.FLOAT),
+        createReference("d", DataTypes.DOUBLE),
+        createReference("no_doc_values", DataTypes.LONG),
+        createReference("s", DataTypes.STRING),
+        // the values of an array of objects, e.g. o['x'] of o array(object as (x long))
+        createReference("arr", DataTypes.LONG)
+    );
+
+    private IndexFieldDataService fieldDataService;
+    private MapperService mapperService;
+    private IndexWriter writer;
+    private DirectoryReader reader;
+
+    @Before
+    public void prepare() throws Exception {
+        Settings settings = Settings.builder().put("index.fielddata.cache", "none").build();
+        IndexService indexService = createIndex("test", settings);
+        fieldDataService = indexService.fieldData();
+
+        mapperService = mock(MapperService.class);
+        // the default precision steps of the lucene numeric fields
+        mockFieldType("i", "int", true, NumericUtils.PRECISION_STEP_DEFAULT_32);
+        mockFieldType("l", "long", true, NumericUtils.PRECISION_STEP_DEFAULT);
+        mockFieldType("f", "float", true, NumericUtils.PRECISION_STEP_DEFAULT_32);
+        mockFieldType("d", "double", true, NumericUtils.PRECISION_STEP_DEFAULT);
+        mockFieldType("no_doc_values", "long", false, NumericUtils.PRECISION_STEP_DEFAULT);
+        mockFieldType("arr", "long", true, NumericUtils.PRECISION_STEP_DEFAULT);
+
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        addDoc("1", -10, -5_000_000_000L, -1.5f, -2.5d);
+        addDoc("2", 5, 3L, Float.NaN, 0.5d);
+        addDoc("3", -3, 7L, 2.5f, Double.NaN);
+        // no values at all
+        Document doc = new Document();
+        doc.add(new StringField("_id", "4", Field.Store.NO));
+        writer.addDocument(doc);
+        writer.forceMerge(1);
+        reader = DirectoryReader.open(writer, true);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        reader.close();
+        writer.close();
+        writer.getDirectory().close();
+        fieldDataService.clear();
+    }
+
+    private void mockFieldType(String name, String type, boolean hasDocValues, int precisionStep) {
+        MappedFieldType fieldType = mock(MappedFieldType.class);
+        when(fieldType.names()).thenReturn(new MappedFieldType.Names(name));
+        when(fieldType.fieldDataType()).thenReturn(new FieldDataType(type));
+        when(fieldType.hasDocValues()).thenReturn(hasDocValues);
+        when(fieldType.numericPrecisionStep()).thenReturn(precisionStep);
+        when(mapperService.smartNameFieldType(eq(name), Matchers.<String[]>any())).thenReturn(fieldType);
+    }
+
+    private void addDoc(String id, int i, long l, float f, double d) throws Exception {
+        Document doc = new Document();
+        doc.add(new StringField("_id", id, Field.Store.NO));
+        doc.add(new IntField("i", i, Field.Store.NO));
+        doc.add(new SortedNumericDocValuesField("i", i));
+        doc.add(new LongField("l", l, Field.Store.NO));
+        doc.add(new SortedNumericDocValuesField("l", l));
+        doc.add(new FloatField("f", f, Field.Store.NO));
+        doc.add(new SortedNumericDocValuesField("f", NumericUtils.floatToSortableInt(f)));
+        doc.add(new DoubleField("d", d, Field.Store.NO));
+        doc.add(new SortedNumericDocValuesField("d", NumericUtils.doubleToSortableLong(d)));
+        doc.add(new LongField("no_doc_values", l, Field.Store.NO));
+        writer.addDocument(doc);
+    }
+
+    private static Aggregation aggregation(String name, DataType returnType, int inputColumn) {
+        DataType inputType = TO_COLLECT.get(inputColumn).valueType();
+        FunctionInfo info = new FunctionInfo(new FunctionIdent(name, ImmutableList.of(inputType)), returnType);
+        return Aggregation.partialAggregation(info, returnType, ImmutableList.<Symbol>of(new InputColumn(inputColumn)));
+    }
+
+    private static Aggregation countStar() {
+        FunctionInfo info = new FunctionInfo(
+            new FunctionIdent(CountAggregation.NAME, ImmutableList.<DataType>of()), DataTypes.LONG);
+        return Aggregation.partialAggregation(info, DataTypes.LONG, ImmutableList.<Symbol>of());
+    }
+
+    private List<DocValuesAggregator> createAggregators(Aggregation... aggregations) {
+        RoutedCollectPhase collectPhase = new RoutedCollectPhase(
+            UUID.randomUUID(),
+            1,
+            "collect",
+            new Routing(new TreeMap<String, Map<String, List<Integer>>>()),
+            RowGranularity.DOC,
+            TO_COLLECT,
+            ImmutableList.<Projection>of(new AggregationProjection(Arrays.asList(aggregations), RowGranularity.SHARD)),
+            WhereClause.MATCH_ALL,
+            DistributionInfo.DEFAULT_BROADCAST
+        );
+        return DocValuesAggregates.createAggregators(collectPhase, mapperService, fieldDataService);
+    }
+
+    /**
+     * passes the documents to the aggregators like the {@link DocValuesAggregateCollector} does
+     *
+     * @param matchAll if true the segment statistics are used where possible, otherwise all documents are collected
+     */
+    private List<Object> aggregate(List<DocValuesAggregator> aggregators, boolean matchAll) throws Exception {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            List<DocValuesAggregator> toCollect = new ArrayList<>();
+            for (DocValuesAggregator aggregator : aggregators) {
+                aggregator.setNextReader(leaf);
+                if (!matchAll || !aggregator.collectAll(leaf.reader())) {
+                    toCollect.add(aggregator);
+                }
+            }
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            int[] docs = new int[leaf.reader().maxDoc()];
+            int numDocs = 0;
+            for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    docs[numDocs++] = doc;
+                }
+            }
+            for (DocValuesAggregator aggregator : toCollect) {
+                aggregator.collect(docs, numDocs);
+            }
+        }
+        List<Object> states = new ArrayList<>(aggregators.size());
+        for (DocValuesAggregator aggregator : aggregators) {
+            states.add(aggregator.partialState());
+        }
+        return states;
+    }
+
+    private List<DocValuesAggregator> minMaxAggregators() {
+        return createAggregators(
+            aggregation("min", DataTypes.INTEGER, 0),
+            aggregation("max", DataTypes.INTEGER, 0),
+            aggregation("min", DataTypes.LONG, 1),
+            aggregation("max", DataTypes.LONG, 1),
+            aggregation("min", DataTypes.FLOAT, 2),
+            aggregation("max", DataTypes.FLOAT, 2),
+            aggregation("min", DataTypes.DOUBLE, 3),
+            aggregation("max", DataTypes.DOUBLE, 3)
+        );
+    }
+
+    @Test
+    public void testAggregatorsAreCreatedForSupportedAggregations() throws Exception {
+        List<DocValuesAggregator> aggregators = createAggregators(
+            countStar(),
+            aggregation("count", DataTypes.LONG, 1),
+            aggregation("sum", DataTypes.DOUBLE, 1),
+            aggregation("avg", DataTypes.DOUBLE, 3),
+            aggregation("min", DataTypes.INTEGER, 0),
+            aggregation("max", DataTypes.FLOAT, 2)
+        );
+        assertThat(aggregators, notNullValue());
+        assertThat(aggregators.size(), is(6));
+    }
+
+    @Test
+    public void testNoAggregatorsForUnsupportedFunction() throws Exception {
+        assertThat(createAggregators(
+            countStar(),
+            aggregation("arbitrary", DataTypes.LONG, 1)), nullValue());
+    }
+
+    @Test
+    public void testNoAggregatorsForNonNumericColumn() throws Exception {
+        assertThat(createAggregators(aggregation("count", DataTypes.LONG, 5)), nullValue());
+    }
+
+    @Test
+    public void testNoAggregatorsIfColumnHasNoDocValues() throws Exception {
+        // the regular collector is used instead
+        assertThat(createAggregators(
+            aggregation("min", DataTypes.INTEGER, 0),
+            aggregation("max", DataTypes.LONG, 4)), nullValue());
+    }
+
+    @Test
+    public void testMinMaxFromTerms() throws Exception {
+        List<Object> states = aggregate(minMaxAggregators(), true);
+        assertThat(states, contains(
+            (Object) (-10), 5,
+            -5_000_000_000L, 7L,
+            -1.5f, Float.NaN,
+            -2.5d, Double.NaN));
+    }
+
+    @Test
+    public void testMinMaxFromTermsMatchesCollectedValues() throws Exception {
+        assertThat(aggregate(minMaxAggregators(), true), is(aggregate(minMaxAggregators(), false)));
+    }
+
+    @Test
+    public void testCountFromTermsIgnoresDocumentsWithoutValue() throws Exception {
+        List<Object> states = aggregate(createAggregators(
+            countStar(),
+            aggregation("count", DataTypes.LONG, 0),
+            aggregation("count", DataTypes.LONG, 3)), true);
+        assertThat((CountAggregation.LongState) states.get(0), comparesEqualTo(new CountAggregation.LongState(4L)));
+        assertThat((CountAggregation.LongState) states.get(1), comparesEqualTo(new CountAggregation.LongState(3L)));
+        assertThat((CountAggregation.LongState) states.get(2), comparesEqualTo(new CountAggregation.LongState(3L)));
+    }
+
+    @Test
+    public void testAggregationsOnSameColumnShareValues() throws Exception {
+        // sum needs the values of the documents, the shared stats must count every document only once
+        List<Object> states = aggregate(createAggregators(
+            aggregation("count", DataTypes.LONG, 1),
+            aggregation("sum", DataTypes.DOUBLE, 1),
+            aggregation("min", DataTypes.LONG, 1),
+            aggregation("count", DataTypes.LONG, 1),
+            aggregation("avg", DataTypes.DOUBLE, 1)), true);
+        assertThat((CountAggregation.LongState) states.get(0), comparesEqualTo(new CountAggregation.LongState(3L)));
+        assertThat(states.get(1), is((Object) (-5_000_000_000d + 3 + 7)));
+        assertThat(states.get(2), is((Object) (-5_000_000_000L)));
+        assertThat((CountAggregation.LongState) states.get(3), comparesEqualTo(new CountAggregation.LongState(3L)));
+        assertThat(((AverageAggregation.AverageState) states.get(4)).value(), is((-5_000_000_000d + 3 + 7) / 3));
+    }
+
+    @Test
+    public void testDeletedDocumentsAreNotAggregated() throws Exception {
+        writer.deleteDocuments(new Term("_id", "1"));
+        reader.close();
+        reader = DirectoryReader.open(writer, true);
+
+        List<Object> states = aggregate(createAggregators(
+            countStar(),
+            aggregation("min", DataTypes.INTEGER, 0),
+            aggregation("max", DataTypes.LONG, 1)), true);
+        assertThat((CountAggregation.LongState) states.get(0), comparesEqualTo(new CountAggregation.LongState(3L)));
+        assertThat(states.get(1), is((Object) (-3)));
+        assertThat(states.get(2), is((Object) 7L));
+    }
+
+    private void addArrayDoc() throws Exception {
+        Document doc = new Document();
+        doc.add(new StringField("_id", "5", Field.Store.NO));
+        for (long value : new long[]{1L, 2L}) {
+            doc.add(new LongField("arr", value, Field.Store.NO));
+            doc.add(new SortedNumericDocValuesField("arr", value));
+        }
+        writer.addDocument(doc);
+        writer.forceMerge(1);
+        reader.close();
+        reader = DirectoryReader.open(writer, true);
+    }
+
+    @Test
+    public void testTermsAreOnlyUsedForSingleValuedColumns() throws Exception {
+        addArrayDoc();
+        List<DocValuesAggregator> aggregators = createAggregators(
+            aggregation("count", DataTypes.LONG, 1),
+            aggregation("count", DataTypes.LONG, 6));
+        LeafReaderContext leaf = reader.leaves().get(0);
+        aggregators.get(0).setNextReader(leaf);
+        aggregators.get(1).setNextReader(leaf);
+        assertThat(aggregators.get(0).collectAll(leaf.reader()), is(true));
+        // the terms would count the document once but return the min and max of all array elements
+        assertThat(aggregators.get(1).collectAll(leaf.reader()), is(false));
+    }
+
+    @Test(expected = GroupByOnArrayUnsupportedException.class)
+    public void testArrayValuesAreRejectedInsteadOfTakenFromTerms() throws Exception {
+        addArrayDoc();
+        aggregate(createAggregators(aggregation("max", DataTypes.LONG, 6)), true);
+    }
+}
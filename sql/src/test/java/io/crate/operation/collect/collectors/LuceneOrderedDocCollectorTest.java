@@ -30,6 +30,7 @@ import io.crate.metadata.Reference;
 import io.crate.metadata.ReferenceIdent;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TableIdent;
+import io.crate.operation.Paging;
 import io.crate.operation.reference.doc.lucene.LuceneMissingValue;
 import io.crate.types.DataTypes;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
@@ -44,7 +45,6 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
-import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.core.LongFieldMapper;
 import org.junit.Test;
@@ -52,9 +52,11 @@ import org.junit.Test;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 
 public class LuceneOrderedDocCollectorTest extends RandomizedTest {
@@ -93,21 +95,7 @@ public class LuceneOrderedDocCollectorTest extends RandomizedTest {
         w.addDocument(doc);
     }
 
-    private TopFieldDocs search(IndexReader reader, Query searchAfterQuery, Sort sort) throws IOException {
-        IndexSearcher searcher = new IndexSearcher(reader);
-
-        Query query;
-        if (searchAfterQuery != null) {
-            // searchAfterQuery is actually a query for all before last doc, so negate it
-            query = Queries.not(searchAfterQuery);
-        } else {
-            query = new MatchAllDocsQuery();
-        }
-        TopFieldDocs docs = searcher.search(query, 10, sort);
-        return docs;
-    }
-
-    private Long[] nextPageQuery(IndexReader reader, FieldDoc lastCollected, boolean reverseFlag, @Nullable Boolean nullFirst) throws IOException {
+    private Long[] pageThrough(IndexReader reader, boolean reverseFlag, @Nullable Boolean nullFirst) throws IOException {
         OrderBy orderBy = new OrderBy(ImmutableList.<Symbol>of(REFERENCE),
             new boolean[]{reverseFlag},
             new Boolean[]{nullFirst});
@@ -117,96 +105,95 @@ public class LuceneOrderedDocCollectorTest extends RandomizedTest {
         sortField.setMissingValue(missingValue);
         Sort sort = new Sort(sortField);
 
-        Query nextPageQuery = LuceneOrderedDocCollector.nextPageQuery(lastCollected, orderBy, new Object[]{missingValue});
-        TopFieldDocs result = search(reader, nextPageQuery, sort);
-        Long results[] = new Long[result.scoreDocs.length];
-        for (int i = 0; i < result.scoreDocs.length; i++) {
-            Long value = (Long) ((FieldDoc) result.scoreDocs[i]).fields[0];
-            results[i] = value.equals(missingValue) ? null : value;
+        IndexSearcher searcher = new IndexSearcher(reader);
+        List<Long> results = new ArrayList<>();
+        FieldDoc after = null;
+        while (true) {
+            TopDocs topDocs = LuceneOrderedDocCollector.searchAfter(
+                searcher, new MatchAllDocsQuery(), null, sort, after, 1, false);
+            if (topDocs.scoreDocs.length == 0) {
+                break;
+            }
+            after = (FieldDoc) topDocs.scoreDocs[0];
+            Long value = (Long) after.fields[0];
+            results.add(value.equals(missingValue) ? null : value);
         }
-        return results;
-    }
-
-    @Test
-    public void testNextPageQueryWithLastCollectedNullValue() throws Exception {
-        FieldDoc fieldDoc = new FieldDoc(1, 0, new Object[]{null});
-        OrderBy orderBy = new OrderBy(Collections.<Symbol>singletonList(REFERENCE), new boolean[]{false}, new Boolean[]{null});
-        Object missingValue = LuceneMissingValue.missingValue(orderBy, 0);
-        LuceneOrderedDocCollector.nextPageQuery(fieldDoc, orderBy, new Object[]{missingValue});
+        return results.toArray(new Long[results.size()]);
     }
 
-    // search after queries
     @Test
-    public void testSearchAfterQueriesNullsLast() throws Exception {
+    public void testSearchAfterNullsLast() throws Exception {
         Directory index = createLuceneIndex();
         IndexReader reader = DirectoryReader.open(index);
 
         // reverseOrdering = false, nulls First = false
-        // 1  2  null null
-        //    ^  (lastCollected = 2)
-
-        FieldDoc afterDoc = new FieldDoc(0, 0, new Object[]{2L});
-        Long[] result = nextPageQuery(reader, afterDoc, false, null);
-        assertThat(result, is(new Long[]{2L, null, null}));
-
-        // reverseOrdering = false, nulls First = false
-        // 1  2  null null
-        //       ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{LuceneMissingValue.missingValue(false, null, SortField.Type.LONG)});
-        result = nextPageQuery(reader, afterDoc, false, null);
-        assertThat(result, is(new Long[]{null, null}));
-
-        // reverseOrdering = true, nulls First = false
-        // 2  1  null null
-        //    ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{1L});
-        result = nextPageQuery(reader, afterDoc, true, false);
-        assertThat(result, is(new Long[]{1L, null, null}));
-
+        assertThat(pageThrough(reader, false, null), is(new Long[]{1L, 2L, null, null}));
         // reverseOrdering = true, nulls First = false
-        // 2  1  null null
-        //       ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{LuceneMissingValue.missingValue(true, false, SortField.Type.LONG)});
-        result = nextPageQuery(reader, afterDoc, true, false);
-        assertThat(result, is(new Long[]{null, null}));
+        assertThat(pageThrough(reader, true, false), is(new Long[]{2L, 1L, null, null}));
 
         reader.close();
     }
 
     @Test
-    public void testSearchAfterQueriesNullsFirst() throws Exception {
+    public void testSearchAfterNullsFirst() throws Exception {
         Directory index = createLuceneIndex();
         IndexReader reader = DirectoryReader.open(index);
 
         // reverseOrdering = false, nulls First = true
-        // null, null, 1, 2
-        //                ^  (lastCollected = 2L)
+        assertThat(pageThrough(reader, false, true), is(new Long[]{null, null, 1L, 2L}));
+        // reverseOrdering = true, nulls First = true
+        assertThat(pageThrough(reader, true, true), is(new Long[]{null, null, 2L, 1L}));
 
-        FieldDoc afterDoc = new FieldDoc(0, 0, new Object[]{2L});
-        Long[] result = nextPageQuery(reader, afterDoc, false, true);
-        assertThat(result, is(new Long[]{2L}));
+        reader.close();
+    }
 
-        // reverseOrdering = false, nulls First = true
-        // null, null, 1, 2
-        //       ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{LuceneMissingValue.missingValue(false, true, SortField.Type.LONG)});
-        result = nextPageQuery(reader, afterDoc, false, true);
-        assertThat(result, is(new Long[]{null, null, 1L, 2L}));
+    @Test
+    public void testSearchAfterWithDuplicateValues() throws Exception {
+        Directory index = FSDirectory.open(newTempDir());
+        IndexWriter w = new IndexWriter(index, new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 0; i < 6; i++) {
+            addDocToLucene(w, i % 2);
+            w.commit();
+        }
+        w.close();
+        IndexReader reader = DirectoryReader.open(index);
 
-        // reverseOrdering = true, nulls First = true
-        // null, null, 2, 1
-        //                ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{1L});
-        result = nextPageQuery(reader, afterDoc, true, true);
-        assertThat(result, is(new Long[]{1L}));
+        // docs with the same value are split across pages, the doc id breaks the tie
+        assertThat(pageThrough(reader, false, null), is(new Long[]{0L, 0L, 0L, 1L, 1L, 1L}));
 
-        // reverseOrdering = true, nulls First = true
-        // null, null, 2, 1
-        //       ^
-        afterDoc = new FieldDoc(0, 0, new Object[]{LuceneMissingValue.missingValue(true, true, SortField.Type.LONG)});
-        result = nextPageQuery(reader, afterDoc, true, true);
-        assertThat(result, is(new Long[]{null, null, 2L, 1L}));
+        reader.close();
+    }
+
+    @Test
+    public void testSearchAfterVisitsAllMatchingDocs() throws Exception {
+        Directory index = createLuceneIndex();
+        IndexReader reader = DirectoryReader.open(index);
+        Sort sort = new Sort(new SortedNumericSortField("value", SortField.Type.LONG));
+
+        TopDocs topDocs = LuceneOrderedDocCollector.searchAfter(
+            new IndexSearcher(reader), new MatchAllDocsQuery(), null, sort, null, 1, false);
+        assertThat(topDocs.scoreDocs.length, is(1));
+        assertThat(topDocs.totalHits, is(4));
 
         reader.close();
     }
+
+    @Test
+    public void testPageSizeGrowsUpToPageSizeLimit() throws Exception {
+        assertThat(LuceneOrderedDocCollector.nextPageSize(100, 100), is(200));
+        assertThat(LuceneOrderedDocCollector.nextPageSize(400, 100), is(800));
+        assertThat(LuceneOrderedDocCollector.nextPageSize(Paging.PAGE_SIZE, 100), is(Paging.PAGE_SIZE));
+        // a batchSize larger than the page size limit is never reduced
+        assertThat(LuceneOrderedDocCollector.nextPageSize(Paging.PAGE_SIZE * 2, Paging.PAGE_SIZE * 2),
+            is(Paging.PAGE_SIZE * 2));
+        assertThat(LuceneOrderedDocCollector.nextPageSize(Integer.MAX_VALUE, Integer.MAX_VALUE),
+            is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEstimatedFieldDocSizeGrowsWithSortFields() throws Exception {
+        long oneSortField = LuceneOrderedDocCollector.fieldDocBytes(1);
+        assertThat(oneSortField, greaterThan(0L));
+        assertThat(LuceneOrderedDocCollector.fieldDocBytes(2), greaterThan(oneSortField));
+    }
 }
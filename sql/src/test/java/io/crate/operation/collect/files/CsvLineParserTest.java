@@ -0,0 +1,122 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.collect.files;
+
+import com.google.common.collect.ImmutableMap;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.ArrayType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchParseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.*;
+
+public class CsvLineParserTest extends CrateUnitTest {
+
+    private CsvLineParser parser;
+
+    @Before
+    public void prepare() throws Exception {
+        parser = new CsvLineParser(ImmutableMap.<String, DataType>of(
+            "id", DataTypes.LONG,
+            "active", DataTypes.BOOLEAN,
+            "tags", new ArrayType(DataTypes.STRING)));
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String parse(String line) {
+        return new String(parser.parse(bytes(line)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTypedAndUnknownColumns() throws Exception {
+        parser.parseHeader(bytes("id,active,name"));
+        assertThat(parse("1,true,Arthur"), is("{\"id\":1,\"active\":true,\"name\":\"Arthur\"}"));
+        assertThat(parser.values(), arrayContaining((Object) 1L, true, new BytesRef("Arthur")));
+        assertThat(parser.columnIndices().get("name"), is(2));
+    }
+
+    @Test
+    public void testQuotedValues() throws Exception {
+        parser.parseHeader(bytes("id,name"));
+        assertThat(parse("1,\"Dent, \"\"Arthur\"\"\""), is("{\"id\":1,\"name\":\"Dent, \\\"Arthur\\\"\"}"));
+    }
+
+    @Test
+    public void testEmptyValues() throws Exception {
+        parser.parseHeader(bytes("id,name,nick"));
+        assertThat(parse("1,\"\","), is("{\"id\":1,\"name\":\"\"}"));
+        assertThat(parser.values(), arrayContaining((Object) 1L, new BytesRef(""), null));
+    }
+
+    @Test
+    public void testArrayValueIsEmbeddedAsJson() throws Exception {
+        parser.parseHeader(bytes("id,tags"));
+        assertThat(parse("1,\"[\"\"a\"\", \"\"b\"\"]\""), is("{\"id\":1,\"tags\":[\"a\", \"b\"]}"));
+        assertThat(parser.columnIndices().containsKey("tags"), is(false));
+    }
+
+    @Test
+    public void testHeaderWithByteOrderMark() throws Exception {
+        parser.parseHeader(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'i', 'd'});
+        assertThat(parse("1"), is("{\"id\":1}"));
+    }
+
+    @Test
+    public void testWrongNumberOfValues() throws Exception {
+        parser.parseHeader(bytes("id,name"));
+        expectedException.expect(ElasticsearchParseException.class);
+        expectedException.expectMessage("Expected 2 values but got 3");
+        parser.parse(bytes("1,Arthur,Dent"));
+    }
+
+    @Test
+    public void testValueWhichCannotBeConverted() throws Exception {
+        parser.parseHeader(bytes("id"));
+        expectedException.expect(ElasticsearchParseException.class);
+        expectedException.expectMessage("Cannot convert value \"one\" of column \"id\" to long");
+        parser.parse(bytes("one"));
+    }
+
+    @Test
+    public void testUnterminatedQuote() throws Exception {
+        parser.parseHeader(bytes("name"));
+        expectedException.expect(ElasticsearchParseException.class);
+        expectedException.expectMessage("Unterminated quoted value");
+        parser.parse(bytes("\"Arthur"));
+    }
+
+    @Test
+    public void testDuplicateColumn() throws Exception {
+        expectedException.expect(ElasticsearchParseException.class);
+        expectedException.expectMessage("Duplicate column name \"id\" in CSV header");
+        parser.parseHeader(bytes("id,name,id"));
+    }
+}
@@ -27,10 +27,13 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import io.crate.analyze.symbol.Symbol;
 import io.crate.core.collections.Bucket;
 import io.crate.core.collections.Row;
 import io.crate.external.S3ClientHelper;
+import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.DynamicFunctionResolver;
 import io.crate.metadata.FunctionIdent;
 import io.crate.metadata.FunctionImplementation;
@@ -41,7 +44,10 @@ import io.crate.operation.reference.file.FileLineReferenceResolver;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.CollectingRowReceiver;
 import io.crate.testing.TestingHelpers;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchParseException;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -56,10 +62,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 
 import static io.crate.testing.TestingHelpers.createReference;
 import static io.crate.testing.TestingHelpers.isRow;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isA;
 import static org.mockito.Matchers.*;
@@ -72,6 +81,9 @@ public class FileReadingCollectorTest extends CrateUnitTest {
     private static File tmpFile;
     private static File tmpFileGz;
     private static File tmpFileEmptyLine;
+    private static File tmpFileCRLF;
+    private static File tmpFileCsv;
+    private static ExecutorService executor;
     private FileCollectInputSymbolVisitor inputSymbolVisitor;
 
     @BeforeClass
@@ -82,6 +94,7 @@ public class FileReadingCollectorTest extends CrateUnitTest {
         tmpFileGz = File.createTempFile("fileReadingCollector", ".json.gz", copy_from_gz.toFile());
         tmpFile = File.createTempFile("fileReadingCollector", ".json", copy_from.toFile());
         tmpFileEmptyLine = File.createTempFile("emptyLine", ".json", copy_from_empty.toFile());
+        tmpFileCRLF = File.createTempFile("crlf", ".json", Files.createTempDirectory("copy_from_crlf").toFile());
         try (BufferedWriter writer =
                  new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tmpFileGz))))) {
             writer.write("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}\n");
@@ -96,6 +109,17 @@ public class FileReadingCollectorTest extends CrateUnitTest {
             writer.write("\n");
             writer.write("{\"id\": 5, \"name\": \"Trillian\", \"details\": {\"age\": 33}}\n");
         }
+        try (FileWriter writer = new FileWriter(tmpFileCRLF)) {
+            writer.write("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}\r\n");
+            writer.write("{\"id\": 5, \"name\": \"Trillian\", \"details\": {\"age\": 33}}");
+        }
+        tmpFileCsv = File.createTempFile("fileReadingCollector", ".csv", Files.createTempDirectory("copy_from_csv").toFile());
+        try (FileWriter writer = new FileWriter(tmpFileCsv)) {
+            writer.write("id,name,details\n");
+            writer.write("4,Arthur,\"{\"\"age\"\": 38}\"\n");
+            writer.write("5,\"Trillian, Tricia\",\n");
+        }
+        executor = Executors.newSingleThreadExecutor();
     }
 
     @Before
@@ -114,6 +138,9 @@ public class FileReadingCollectorTest extends CrateUnitTest {
         tmpFile.delete();
         tmpFileGz.delete();
         tmpFileEmptyLine.delete();
+        tmpFileCRLF.delete();
+        tmpFileCsv.delete();
+        executor.shutdownNow();
     }
 
     @Test
@@ -224,6 +251,100 @@ public class FileReadingCollectorTest extends CrateUnitTest {
         assertThat(it.hasNext(), is(false));
     }
 
+    @Test
+    public void testCollectWithCarriageReturnAndWithoutTrailingNewLine() throws Throwable {
+        CollectingRowReceiver projector = getObjects(Paths.get(tmpFileCRLF.toURI()).toUri().toString());
+        Bucket rows = projector.result();
+        assertThat(rows.size(), is(2));
+        assertCorrectResult(rows);
+    }
+
+    @Test
+    public void testSharedFileIsSplitIntoRangesAmongReaders() throws Throwable {
+        File file = File.createTempFile("split", ".json", Files.createTempDirectory("copy_from_split").toFile());
+        List<String> expected = new ArrayList<>();
+        try (FileWriter writer = new FileWriter(file)) {
+            for (int i = 0; i < 100; i++) {
+                // lines of varying length so that the range boundaries fall into the middle of lines
+                String line = "{\"id\": " + i + ", \"name\": \"" + Strings.repeat("x", i % 7) + "\"}";
+                expected.add(line);
+                writer.write(line);
+                writer.write("\n");
+            }
+        }
+        try {
+            for (int numReaders = 1; numReaders <= 5; numReaders++) {
+                List<String> collected = new ArrayList<>();
+                for (int readerNumber = 0; readerNumber < numReaders; readerNumber++) {
+                    for (Row row : collectRange(file, numReaders, readerNumber)) {
+                        collected.add(((BytesRef) row.get(0)).utf8ToString());
+                    }
+                }
+                assertThat(collected, containsInAnyOrder(expected.toArray(new String[0])));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCollectCsvConvertsValuesToColumnTypes() throws Throwable {
+        Bucket rows = collectCsv(tmpFileCsv,
+            createReference("_raw", DataTypes.STRING),
+            createReference("id", DataTypes.INTEGER),
+            createReference("name", DataTypes.STRING));
+        assertThat(TestingHelpers.printedTable(rows), is(
+            "{\"id\":4,\"name\":\"Arthur\",\"details\":{\"age\": 38}}| 4| Arthur\n" +
+            "{\"id\":5,\"name\":\"Trillian, Tricia\"}| 5| Trillian, Tricia\n"));
+    }
+
+    @Test
+    public void testCollectCsvExtractsObjectColumnsFromSource() throws Throwable {
+        Bucket rows = collectCsv(tmpFileCsv, createReference(new ColumnIdent("details", "age"), DataTypes.INTEGER));
+        assertThat(TestingHelpers.printedTable(rows), is("38\nNULL\n"));
+    }
+
+    @Test
+    public void testCollectCsvWithInvalidValue() throws Throwable {
+        File file = File.createTempFile("invalid", ".csv", Files.createTempDirectory("copy_from_csv_invalid").toFile());
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("id,name\n");
+            writer.write("4,Arthur\n");
+            writer.write("five,Trillian\n");
+        }
+        expectedException.expect(ElasticsearchParseException.class);
+        expectedException.expectMessage("Failed to parse CSV in line: 3");
+        try {
+            collectCsv(file, createReference("_raw", DataTypes.STRING));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private Bucket collectCsv(File file, Symbol... toCollect) throws Throwable {
+        FileCollectInputSymbolVisitor.Context context = inputSymbolVisitor.extractImplementations(Arrays.asList(toCollect));
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        FileReadingCollector collector = new FileReadingCollector(
+            Collections.singletonList(Paths.get(file.toURI()).toUri().toString()),
+            context.topLevelInputs(),
+            context.expressions(),
+            rowReceiver,
+            FileReadingCollector.FileFormat.CSV,
+            ImmutableMap.<String, DataType>of(
+                "id", DataTypes.INTEGER,
+                "name", DataTypes.STRING,
+                "details", DataTypes.OBJECT),
+            null,
+            ImmutableMap.<String, FileInputFactory>of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+            false,
+            1,
+            0,
+            executor
+        );
+        collector.doCollect();
+        return rowReceiver.result();
+    }
+
     private void assertCorrectResult(Bucket rows) throws Throwable {
         Iterator<Row> it = rows.iterator();
         assertThat(it.next(), isRow("{\"name\": \"Arthur\", \"id\": 4, \"details\": {\"age\": 38}}"));
@@ -255,6 +376,7 @@ public class FileReadingCollectorTest extends CrateUnitTest {
             context.expressions(),
             rowReceiver,
             FileReadingCollector.FileFormat.JSON,
+            Collections.<String, DataType>emptyMap(),
             compression,
             ImmutableMap.of(
                 LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory(),
@@ -284,9 +406,33 @@ public class FileReadingCollectorTest extends CrateUnitTest {
                 }),
             false,
             1,
-            0
+            0,
+            executor
+        );
+        collector.doCollect();
+    }
+
+    private Bucket collectRange(File file, int numReaders, int readerNumber) throws Throwable {
+        FileCollectInputSymbolVisitor.Context context =
+            inputSymbolVisitor.extractImplementations(createReference("_raw", DataTypes.STRING));
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        FileReadingCollector collector = new FileReadingCollector(
+            Collections.singletonList(Paths.get(file.toURI()).toUri().toString()),
+            context.topLevelInputs(),
+            context.expressions(),
+            rowReceiver,
+            FileReadingCollector.FileFormat.JSON,
+            Collections.<String, DataType>emptyMap(),
+            null,
+            ImmutableMap.<String, FileInputFactory>of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
+            true,
+            numReaders,
+            readerNumber,
+            executor,
+            1L
         );
         collector.doCollect();
+        return rowReceiver.result();
     }
 
     private static class WriteBufferAnswer implements Answer<Integer> {
@@ -0,0 +1,156 @@
+/*
+ * Licensed to Crate.IO GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.fetch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.Streamer;
+import io.crate.core.collections.Row;
+import io.crate.executor.transport.StreamBucket;
+import io.crate.operation.collect.collectors.CollectorFieldsVisitor;
+import io.crate.operation.reference.doc.lucene.CollectorContext;
+import io.crate.operation.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.internal.SourceFieldMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class FetchCollectorTest extends CrateUnitTest {
+
+    private static final int NUM_SEGMENTS = 3;
+    private static final int DOCS_PER_SEGMENT = 20;
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void createIndex() throws Exception {
+        directory = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            int docId = 0;
+            for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+                for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                    Document document = new Document();
+                    document.add(new StoredField(SourceFieldMapper.NAME, new BytesRef("doc" + docId++)));
+                    writer.addDocument(document);
+                }
+                writer.commit();
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        assertThat(reader.leaves().size(), is(NUM_SEGMENTS));
+    }
+
+    @After
+    public void closeIndex() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testRowsAreReturnedInRequestedOrder() throws Exception {
+        IntArrayList docIds = IntArrayList.from(42, 3, 59, 0, 21, 20, 3);
+        assertThat(fetch(docIds), contains("doc42", "doc3", "doc59", "doc0", "doc21", "doc20", "doc3"));
+    }
+
+    @Test
+    public void testFetchOrderedDocIds() throws Exception {
+        IntArrayList docIds = IntArrayList.from(1, 2, 19, 20, 58);
+        assertThat(fetch(docIds), contains("doc1", "doc2", "doc19", "doc20", "doc58"));
+    }
+
+    @Test
+    public void testFetchAllDocsInReverseOrder() throws Exception {
+        // enough documents per segment to read their stored fields sequentially
+        IntArrayList docIds = new IntArrayList();
+        List<String> expected = new ArrayList<>();
+        for (int docId = NUM_SEGMENTS * DOCS_PER_SEGMENT - 1; docId >= 0; docId--) {
+            docIds.add(docId);
+            expected.add("doc" + docId);
+        }
+        assertThat(fetch(docIds), is(expected));
+    }
+
+    private List<String> fetch(IntArrayList docIds) throws Exception {
+        Engine.Searcher searcher = new Engine.Searcher("test", new IndexSearcher(reader));
+        FetchCollector collector = new FetchCollector(
+            Collections.<LuceneCollectorExpression<?>>singletonList(new SourceExpression()),
+            new Streamer[]{DataTypes.STRING.streamer()},
+            null,
+            searcher,
+            null,
+            0);
+        StreamBucket bucket = collector.collect(docIds);
+        List<String> values = new ArrayList<>(bucket.size());
+        for (Row row : bucket) {
+            values.add(((BytesRef) row.get(0)).utf8ToString());
+        }
+        return values;
+    }
+
+    /**
+     * Returns the source of the current document, re-using the same BytesRef for every document
+     */
+    private static class SourceExpression extends LuceneCollectorExpression<BytesRef> {
+
+        private final BytesRef value = new BytesRef();
+        private CollectorFieldsVisitor visitor;
+
+        @Override
+        public void startCollect(CollectorContext context) {
+            visitor = context.visitor();
+            visitor.required(true);
+        }
+
+        @Override
+        public void setNextDocId(int doc) {
+            value.bytes = visitor.source().toBytes();
+            value.offset = 0;
+            value.length = value.bytes.length;
+        }
+
+        @Override
+        public BytesRef value() {
+            return value;
+        }
+    }
+}
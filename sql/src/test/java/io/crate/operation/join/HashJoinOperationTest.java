@@ -0,0 +1,266 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.join;
+
+import com.carrotsearch.randomizedtesting.annotations.Repeat;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Bucket;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.operation.projectors.RepeatHandle;
+import io.crate.operation.projectors.ResumeHandle;
+import io.crate.operation.projectors.RowReceiver;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.CollectingRowReceiver;
+import io.crate.testing.RowSender;
+import io.crate.testing.TestingHelpers;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.crate.testing.RowGenerator.singleColRows;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+public class HashJoinOperationTest extends CrateUnitTest {
+
+    private static final Function<Row, Object> COL0 = new Function<Row, Object>() {
+        @Nullable
+        @Override
+        public Object apply(@Nullable Row input) {
+            assert input != null;
+            return input.get(0);
+        }
+    };
+
+    private static final Predicate<Row> COL0_EQ_COL2 = new Predicate<Row>() {
+        @Override
+        public boolean apply(@Nullable Row input) {
+            return input != null && input.get(0) != null && input.get(0).equals(input.get(2));
+        }
+    };
+
+    private ExecutorService executorService;
+    private RamAccountingContext ramAccountingContext;
+
+    @Before
+    public void setupExecutor() throws Exception {
+        executorService = Executors.newFixedThreadPool(2);
+        ramAccountingContext = new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+    }
+
+    @After
+    public void shutdownExecutor() throws Exception {
+        executorService.shutdown();
+        executorService.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private static List<Row> rows(Object[]... rows) {
+        List<Row> result = new ArrayList<>(rows.length);
+        for (Object[] row : rows) {
+            result.add(new RowN(row));
+        }
+        return result;
+    }
+
+    private HashJoinOperation hashJoin(RowReceiver rowReceiver, JoinType joinType, boolean buildLeft) {
+        return new HashJoinOperation(
+            0, rowReceiver, COL0_EQ_COL2, joinType, 2, 2, COL0, COL0, buildLeft, ramAccountingContext);
+    }
+
+    private Bucket executeHashJoin(List<Row> leftRows,
+                                   List<Row> rightRows,
+                                   JoinType joinType,
+                                   boolean buildLeft) throws Exception {
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        HashJoinOperation op = hashJoin(rowReceiver, joinType, buildLeft);
+        executorService.submit(new RowSender(leftRows, op.leftRowReceiver(), executorService));
+        executorService.submit(new RowSender(rightRows, op.rightRowReceiver(), executorService));
+        return rowReceiver.result();
+    }
+
+    private static List<Row> leftRows() {
+        return rows(
+            new Object[]{1, "green"},
+            new Object[]{2, "blue"},
+            new Object[]{null, "black"},
+            new Object[]{3, "red"});
+    }
+
+    private static List<Row> rightRows() {
+        return rows(
+            new Object[]{3, "small"},
+            new Object[]{1, "medium"},
+            new Object[]{1, "large"},
+            new Object[]{4, "huge"},
+            new Object[]{null, "none"});
+    }
+
+    @Test
+    @Repeat(iterations = 5)
+    public void testInnerJoinKeepsOrderOfLeftSide() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.INNER, false);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n" +
+                                                         "3| red| 3| small\n"));
+    }
+
+    @Test
+    @Repeat(iterations = 5)
+    public void testInnerJoinBuildLeft() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.INNER, true);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "3| red| 3| small\n" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n"));
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.LEFT, false);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n" +
+                                                         "2| blue| NULL| NULL\n" +
+                                                         "NULL| black| NULL| NULL\n" +
+                                                         "3| red| 3| small\n"));
+    }
+
+    @Test
+    public void testLeftJoinBuildLeft() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.LEFT, true);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "3| red| 3| small\n" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n" +
+                                                         "2| blue| NULL| NULL\n" +
+                                                         "NULL| black| NULL| NULL\n"));
+    }
+
+    @Test
+    public void testRightJoin() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.RIGHT, false);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n" +
+                                                         "3| red| 3| small\n" +
+                                                         "NULL| NULL| 4| huge\n" +
+                                                         "NULL| NULL| NULL| none\n"));
+    }
+
+    @Test
+    public void testFullJoin() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), rightRows(), JoinType.FULL, false);
+        assertThat(TestingHelpers.printedTable(rows), is("" +
+                                                         "1| green| 1| medium\n" +
+                                                         "1| green| 1| large\n" +
+                                                         "2| blue| NULL| NULL\n" +
+                                                         "NULL| black| NULL| NULL\n" +
+                                                         "3| red| 3| small\n" +
+                                                         "NULL| NULL| 4| huge\n" +
+                                                         "NULL| NULL| NULL| none\n"));
+    }
+
+    @Test
+    public void testProbeSideEmpty() throws Exception {
+        Bucket rows = executeHashJoin(Collections.<Row>emptyList(), rightRows(), JoinType.INNER, false);
+        assertThat(rows.size(), is(0));
+    }
+
+    @Test
+    public void testBuildSideEmpty() throws Exception {
+        Bucket rows = executeHashJoin(leftRows(), Collections.<Row>emptyList(), JoinType.LEFT, false);
+        assertThat(rows.size(), is(4));
+    }
+
+    @Test
+    public void testProbeSideStartsBeforeBuildSide() throws Exception {
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        HashJoinOperation op = hashJoin(rowReceiver, JoinType.INNER, false);
+
+        RowSender probe = new RowSender(leftRows(), op.leftRowReceiver(), MoreExecutors.directExecutor());
+        RowSender build = new RowSender(rightRows(), op.rightRowReceiver(), MoreExecutors.directExecutor());
+
+        // the probe side is paused until the build side has finished
+        probe.run();
+        assertThat(rowReceiver.rows.size(), is(0));
+        build.run();
+        assertThat(rowReceiver.result().size(), is(3));
+    }
+
+    @Test
+    public void testHashJoinWithPausingDownstream() throws Exception {
+        CollectingRowReceiver rowReceiver = CollectingRowReceiver.withPauseAfter(1);
+        HashJoinOperation op = hashJoin(rowReceiver, JoinType.FULL, false);
+
+        RowSender build = new RowSender(rightRows(), op.rightRowReceiver(), MoreExecutors.directExecutor());
+        RowSender probe = new RowSender(leftRows(), op.leftRowReceiver(), MoreExecutors.directExecutor());
+        build.run();
+        probe.run();
+        assertThat(rowReceiver.rows.size(), is(1));
+
+        rowReceiver.resumeUpstream(false);
+        assertThat(rowReceiver.result().size(), is(7));
+    }
+
+    @Test
+    public void testHashJoinStopsOnceDownstreamStops() throws Exception {
+        CollectingRowReceiver rowReceiver = CollectingRowReceiver.withLimit(1);
+        final HashJoinOperation op = hashJoin(rowReceiver, JoinType.INNER, false);
+
+        assertThat(op.rightRowReceiver().setNextRow(new RowN(new Object[]{1, "small"})), is(RowReceiver.Result.CONTINUE));
+        assertThat(op.leftRowReceiver().setNextRow(new RowN(new Object[]{1, "green"})), is(RowReceiver.Result.PAUSE));
+        op.leftRowReceiver().pauseProcessed(new ResumeHandle() {
+            @Override
+            public void resume(boolean async) {
+                // the pending row was emitted and the downstream stopped
+                assertThat(op.leftRowReceiver().setNextRow(new RowN(new Object[]{1, "blue"})), is(RowReceiver.Result.STOP));
+                op.leftRowReceiver().finish(RepeatHandle.UNSUPPORTED);
+            }
+        });
+        op.rightRowReceiver().finish(RepeatHandle.UNSUPPORTED);
+        assertThat(rowReceiver.getNumFailOrFinishCalls(), is(1));
+        assertThat(rowReceiver.rows.size(), is(1));
+    }
+
+    @Test
+    public void testBuildSideIsAccounted() throws Exception {
+        executeHashJoin(leftRows(), rightRows(), JoinType.INNER, false);
+        assertThat(ramAccountingContext.totalBytes(), greaterThan(0L));
+    }
+}
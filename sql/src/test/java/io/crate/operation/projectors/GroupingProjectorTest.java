@@ -12,21 +12,33 @@ import io.crate.metadata.FunctionInfo;
 import io.crate.metadata.Functions;
 import io.crate.operation.AggregationContext;
 import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
 import io.crate.operation.aggregation.AggregationFunction;
 import io.crate.operation.aggregation.impl.CountAggregation;
 import io.crate.operation.collect.CollectExpression;
+import io.crate.operation.collect.InputCollectExpression;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.CollectingRowReceiver;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 
@@ -82,6 +94,87 @@ public class GroupingProjectorTest extends CrateUnitTest {
         assertThat(rows.iterator().next().get(1), instanceOf(CountAggregation.LongState.class));
     }
 
+    private static GroupingProjector spillingProjector(RamAccountingContext ramAccountingContext,
+                                                       OperationStats operationStats) {
+        FunctionInfo countInfo = new FunctionInfo(new FunctionIdent("count", ImmutableList.<DataType>of()), DataTypes.LONG);
+        AggregationContext[] aggregations = new AggregationContext[]{
+            new AggregationContext(
+                (AggregationFunction) getFunctions().get(countInfo.ident()),
+                Aggregation.finalAggregation(countInfo, ImmutableList.<Symbol>of(), Aggregation.Step.ITER))
+        };
+        InputCollectExpression key = new InputCollectExpression(0);
+        return new GroupingProjector(
+            Arrays.asList(DataTypes.LONG),
+            ImmutableList.<Input<?>>of(key),
+            new CollectExpression[]{key},
+            aggregations,
+            ramAccountingContext,
+            operationStats,
+            16
+        );
+    }
+
+    private static int numSpillDirectories() throws IOException {
+        int numDirectories = 0;
+        Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tmpDir, "crate-group-by-*")) {
+            for (Path ignored : stream) {
+                numDirectories++;
+            }
+        }
+        return numDirectories;
+    }
+
+    @Test
+    public void testGroupsAreSpilledAndMergedOnceTheBreakerTrips() throws Exception {
+        int numSpillDirectories = numSpillDirectories();
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("dummy",
+            new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        OperationStats operationStats = new OperationStats();
+        GroupingProjector projector = spillingProjector(ramAccountingContext, operationStats);
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        projector.downstream(rowReceiver);
+
+        int numKeys = 200_000;
+        for (int i = 0; i < 2 * numKeys; i++) {
+            projector.setNextRow(new RowN(new Object[]{(long) (i % numKeys)}));
+        }
+        projector.finish(RepeatHandle.UNSUPPORTED);
+
+        Map<Object, Object> groups = new HashMap<>();
+        for (Row row : rowReceiver.result()) {
+            assertThat("duplicate group " + row.get(0), groups.put(row.get(0), row.get(1)), is((Object) null));
+        }
+        assertThat(groups.size(), is(numKeys));
+        for (Object count : groups.values()) {
+            assertThat(count, is((Object) 2L));
+        }
+        assertThat(operationStats.spilledPartitions(), greaterThan(0));
+        assertThat(numSpillDirectories(), is(numSpillDirectories));
+    }
+
+    @Test
+    public void testKillWhileEmittingSpilledGroupsDeletesTheSpillFiles() throws Exception {
+        int numSpillDirectories = numSpillDirectories();
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("dummy",
+            new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        OperationStats operationStats = new OperationStats();
+        GroupingProjector projector = spillingProjector(ramAccountingContext, operationStats);
+        CollectingRowReceiver rowReceiver = CollectingRowReceiver.withPauseAfter(10);
+        projector.downstream(rowReceiver);
+
+        for (long i = 0; i < 200_000; i++) {
+            projector.setNextRow(new RowN(new Object[]{i}));
+        }
+        projector.finish(RepeatHandle.UNSUPPORTED);
+        assertThat(operationStats.spilledPartitions(), greaterThan(0));
+        assertThat(numSpillDirectories(), is(numSpillDirectories + 1));
+
+        // the emitter is paused by the downstream
+        projector.kill(new InterruptedException("killed"));
+        assertThat(numSpillDirectories(), is(numSpillDirectories));
+    }
+
     class DummyInput implements Input<BytesRef> {
 
         private final BytesRef[] values;
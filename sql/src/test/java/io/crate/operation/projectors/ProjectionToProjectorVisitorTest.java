@@ -31,6 +31,7 @@ import io.crate.core.collections.Row;
 import io.crate.executor.transport.TransportActionProvider;
 import io.crate.metadata.*;
 import io.crate.operation.ImplementationSymbolVisitor;
+import io.crate.operation.OperationStats;
 import io.crate.operation.aggregation.impl.AverageAggregation;
 import io.crate.operation.aggregation.impl.CountAggregation;
 import io.crate.operation.operator.EqOperator;
@@ -122,7 +123,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
         TopNProjection projection = new TopNProjection(10, 2, outputs);
 
         CollectingRowReceiver collectingProjector = new CollectingRowReceiver();
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
         projector.downstream(collectingProjector);
         assertThat(projector, instanceOf(SimpleTopNProjector.class));
 
@@ -142,7 +143,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
             new boolean[]{false, false},
             new Boolean[]{null, null}
         );
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
         assertThat(projector, instanceOf(SortingTopNProjector.class));
     }
 
@@ -154,7 +155,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
             new boolean[]{false, false},
             new Boolean[]{null, null}
         );
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
         assertThat(projector, instanceOf(SortingProjector.class));
     }
 
@@ -164,7 +165,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
             Aggregation.finalAggregation(avgInfo, Arrays.<Symbol>asList(new InputColumn(1)), Aggregation.Step.ITER),
             Aggregation.finalAggregation(countInfo, Arrays.<Symbol>asList(new InputColumn(0)), Aggregation.Step.ITER)
         ), RowGranularity.SHARD);
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
 
         CollectingRowReceiver collectingProjector = new CollectingRowReceiver();
         projector.downstream(collectingProjector);
@@ -190,7 +191,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
         );
         GroupProjection projection = new GroupProjection(keys, aggregations, RowGranularity.CLUSTER);
 
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
 
         // use a topN projection in order to get sorted outputs
         List<Symbol> outputs = Arrays.<Symbol>asList(
@@ -200,7 +201,8 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
             ImmutableList.<Symbol>of(new InputColumn(2, DataTypes.DOUBLE)),
             new boolean[]{false},
             new Boolean[]{null});
-        Projector topNProjector = visitor.create(topNProjection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector topNProjector =
+            visitor.create(topNProjection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
         projector.downstream(topNProjector);
 
         CollectingRowReceiver collector = new CollectingRowReceiver();
@@ -237,7 +239,7 @@ public class ProjectionToProjectorVisitorTest extends CrateUnitTest {
         projection.outputs(Arrays.<Symbol>asList(new InputColumn(0), new InputColumn(1)));
 
         CollectingRowReceiver collectingProjector = new CollectingRowReceiver();
-        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, UUID.randomUUID());
+        Projector projector = visitor.create(projection, RAM_ACCOUNTING_CONTEXT, new OperationStats(), UUID.randomUUID());
         projector.downstream(collectingProjector);
         assertThat(projector, instanceOf(FilterProjector.class));
 
@@ -24,34 +24,78 @@ package io.crate.operation.projectors;
 
 import com.google.common.collect.ImmutableList;
 import io.crate.analyze.symbol.Literal;
+import io.crate.breaker.RamAccountingContext;
 import io.crate.core.collections.Bucket;
 import io.crate.core.collections.Row;
+import io.crate.core.collections.Row1;
+import io.crate.operation.OperationStats;
 import io.crate.operation.collect.CollectExpression;
 import io.crate.operation.collect.InputCollectExpression;
 import io.crate.operation.projectors.sorting.OrderingByPosition;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.CollectingRowReceiver;
 import io.crate.testing.RowSender;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import static io.crate.testing.TestingHelpers.isRow;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 
 public class SortingProjectorTest extends CrateUnitTest {
 
-    private SortingProjector createProjector(int numOutputs, int offset, RowReceiver rowReceiver) {
+    private static final List<DataType> ROW_TYPES = ImmutableList.<DataType>of(DataTypes.LONG, DataTypes.BOOLEAN);
+
+    private SortingProjector createProjector(int numOutputs,
+                                             int offset,
+                                             RowReceiver rowReceiver,
+                                             RamAccountingContext ramAccountingContext,
+                                             OperationStats operationStats,
+                                             boolean spillEnabled) {
         InputCollectExpression input = new InputCollectExpression(0);
         SortingProjector projector = new SortingProjector(
             ImmutableList.of(input, Literal.of(true)),
             ImmutableList.<CollectExpression<Row, ?>>of(input),
             numOutputs,
             OrderingByPosition.arrayOrdering(0, false, null),
-            offset
+            offset,
+            ROW_TYPES,
+            ramAccountingContext,
+            operationStats,
+            spillEnabled
         );
         projector.downstream(rowReceiver);
         return projector;
     }
 
+    private SortingProjector createProjector(int numOutputs, int offset, RowReceiver rowReceiver) {
+        return createProjector(numOutputs, offset, rowReceiver,
+            new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA)), new OperationStats(), false);
+    }
+
+    private static void emitShuffled(int numRows, RowReceiver rowReceiver) {
+        List<Long> values = new ArrayList<>(numRows);
+        for (long i = 1; i <= numRows; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, random());
+        for (Long value : values) {
+            rowReceiver.setNextRow(new Row1(value));
+        }
+        rowReceiver.finish(RepeatHandle.UNSUPPORTED);
+    }
+
     @Test
     public void testOrderBy() throws Exception {
         CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
@@ -83,6 +127,53 @@ public class SortingProjectorTest extends CrateUnitTest {
         expectedException.expect(IllegalArgumentException.class);
         expectedException.expectMessage("invalid offset -1");
 
-        new SortingProjector(null, null, 2, null, -1);
+        new SortingProjector(null, null, 2, null, -1, null, null, null, false);
+    }
+
+    @Test
+    public void testRowsAreAccountedAndTripTheBreaker() throws Exception {
+        expectedException.expect(CircuitBreakingException.class);
+
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("dummy",
+            new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        SortingProjector projector = createProjector(2, 0, rowReceiver, ramAccountingContext, new OperationStats(), false);
+        emitShuffled(100_000, projector);
+    }
+
+    @Test
+    public void testSortedRunsAreSpilledAndMerged() throws Exception {
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("dummy",
+            new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        OperationStats operationStats = new OperationStats();
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver();
+        SortingProjector projector = createProjector(1, 10, rowReceiver, ramAccountingContext, operationStats, true);
+        emitShuffled(100_000, projector);
+
+        Bucket rows = rowReceiver.result();
+        assertThat(rows.size(), is(99_990));
+        long expected = 11;
+        for (Row row : rows) {
+            assertThat(row, isRow(expected++));
+        }
+        assertThat(operationStats.spilledPartitions(), greaterThan(0));
+        assertThat(operationStats.spilledBytes(), greaterThan(0L));
+    }
+
+    @Test
+    public void testRowsAreKeptInMemoryIfTheDownstreamMayRepeat() throws Exception {
+        expectedException.expect(CircuitBreakingException.class);
+
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("dummy",
+            new MemoryCircuitBreaker(new ByteSizeValue(1), 1.0, logger));
+        CollectingRowReceiver rowReceiver = new CollectingRowReceiver() {
+            @Override
+            public Set<Requirement> requirements() {
+                return Requirements.add(Requirements.NO_REQUIREMENTS, Requirement.REPEAT);
+            }
+        };
+        SortingProjector projector =
+            createProjector(1, 10, rowReceiver, ramAccountingContext, new OperationStats(), true);
+        emitShuffled(100_000, projector);
     }
 }
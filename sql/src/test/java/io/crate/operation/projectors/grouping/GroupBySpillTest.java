@@ -0,0 +1,124 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Row;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.operation.AggregationContext;
+import io.crate.operation.Input;
+import io.crate.operation.OperationStats;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.Aggregator;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class GroupBySpillTest extends CrateUnitTest {
+
+    private RamAccountingContext ramAccountingContext;
+    private OperationStats operationStats;
+    private AggregationContext[] aggregations;
+
+    @Before
+    public void prepare() throws Exception {
+        ramAccountingContext = new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+        operationStats = new OperationStats();
+        FunctionInfo countInfo = new FunctionInfo(new FunctionIdent("count", ImmutableList.<DataType>of()), DataTypes.LONG);
+        aggregations = new AggregationContext[]{
+            new AggregationContext(
+                (AggregationFunction) getFunctions().get(countInfo.ident()),
+                Aggregation.finalAggregation(countInfo, ImmutableList.<Symbol>of(), Aggregation.Step.ITER))
+        };
+    }
+
+    private GroupByTable newTable(List<DataType> keyTypes, Input<?> keyInput) {
+        Aggregator[] aggregators = new Aggregator[]{
+            new Aggregator(ramAccountingContext, aggregations[0].symbol(), aggregations[0].function())
+        };
+        return GroupByTables.create(keyTypes, ImmutableList.<Input<?>>of(keyInput), aggregators, ramAccountingContext);
+    }
+
+    @Test
+    public void testSpilledGroupsAreMerged() throws Exception {
+        List<DataType> keyTypes = ImmutableList.<DataType>of(DataTypes.STRING);
+        ValueInput input = new ValueInput();
+
+        try (GroupBySpill spill = new GroupBySpill(4, keyTypes, aggregations, ramAccountingContext, operationStats)) {
+            for (int round = 0; round < 3; round++) {
+                GroupByTable table = newTable(keyTypes, input);
+                for (int i = 0; i < 200; i++) {
+                    input.value = new BytesRef("k" + (i % 100));
+                    table.add();
+                }
+                input.value = null;
+                table.add();
+                spill.spill(table);
+            }
+
+            Map<Object, Object> groups = new HashMap<>();
+            for (Row row : spill.rows()) {
+                assertThat("duplicate group " + row.get(0), groups.put(row.get(0), row.get(1)), is((Object) null));
+            }
+            assertThat(groups.size(), is(101));
+            assertThat(groups.get(new BytesRef("k42")), is((Object) 6L));
+            assertThat(groups.get(null), is((Object) 3L));
+        }
+        assertThat(operationStats.spilledPartitions(), is(4));
+        assertThat(operationStats.spilledBytes(), greaterThan(0L));
+    }
+
+    @Test
+    public void testInvalidNumberOfPartitions() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("number of spill partitions must be between 1 and 256");
+        new GroupBySpill(257, ImmutableList.<DataType>of(DataTypes.LONG), aggregations, ramAccountingContext, operationStats);
+    }
+
+    private static class ValueInput implements Input<Object> {
+
+        private Object value;
+
+        @Override
+        public Object value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.projectors.grouping;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.symbol.Aggregation;
+import io.crate.analyze.symbol.Symbol;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.core.collections.Row;
+import io.crate.metadata.FunctionIdent;
+import io.crate.metadata.FunctionInfo;
+import io.crate.operation.Input;
+import io.crate.operation.aggregation.AggregationFunction;
+import io.crate.operation.aggregation.Aggregator;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.*;
+
+public class GroupByTablesTest extends CrateUnitTest {
+
+    private static final RamAccountingContext RAM_ACCOUNTING_CONTEXT =
+        new RamAccountingContext("dummy", new NoopCircuitBreaker(CircuitBreaker.FIELDDATA));
+
+    private Aggregator[] countAggregator;
+
+    @Before
+    public void prepareAggregator() throws Exception {
+        FunctionInfo countInfo = new FunctionInfo(new FunctionIdent("count", ImmutableList.<DataType>of()), DataTypes.LONG);
+        Aggregation countAggregation =
+            Aggregation.finalAggregation(countInfo, ImmutableList.<Symbol>of(), Aggregation.Step.ITER);
+        countAggregator = new Aggregator[]{
+            new Aggregator(RAM_ACCOUNTING_CONTEXT, countAggregation,
+                (AggregationFunction) getFunctions().get(countInfo.ident()))
+        };
+    }
+
+    private GroupByTable createTable(List<DataType> keyTypes, List<Input<?>> keyInputs) {
+        GroupByTable table = GroupByTables.create(keyTypes, keyInputs, countAggregator, RAM_ACCOUNTING_CONTEXT);
+        assertThat(table, notNullValue());
+        return table;
+    }
+
+    private static Map<List<Object>, Object> toMap(GroupByTable table) {
+        Map<List<Object>, Object> result = new HashMap<>();
+        for (Row row : table.rows()) {
+            Object[] cells = row.materialize();
+            List<Object> key = Arrays.asList(Arrays.copyOf(cells, cells.length - 1));
+            assertThat("duplicate group " + key, result.put(key, cells[cells.length - 1]), nullValue());
+        }
+        return result;
+    }
+
+    @Test
+    public void testLongKeysWithNullValuesAndGrowth() throws Exception {
+        ValueInput input = new ValueInput();
+        GroupByTable table = createTable(
+            ImmutableList.<DataType>of(DataTypes.LONG), ImmutableList.<Input<?>>of(input));
+
+        for (int i = 0; i < 10_000; i++) {
+            input.value = (long) (i % 1000);
+            table.add();
+        }
+        input.value = null;
+        table.add();
+        table.add();
+
+        assertThat(table.size(), is(1001));
+        Map<List<Object>, Object> groups = toMap(table);
+        assertThat(groups.get(Collections.<Object>singletonList(999L)), is((Object) 10L));
+        assertThat(groups.get(Collections.singletonList(null)), is((Object) 2L));
+    }
+
+    @Test
+    public void testIntKeysAreReturnedWithTheirType() throws Exception {
+        ValueInput input = new ValueInput();
+        GroupByTable table = createTable(
+            ImmutableList.<DataType>of(DataTypes.SHORT), ImmutableList.<Input<?>>of(input));
+
+        input.value = (short) -3;
+        table.add();
+        input.value = (short) 4;
+        table.add();
+        table.add();
+
+        Map<List<Object>, Object> groups = toMap(table);
+        assertThat(groups.size(), is(2));
+        assertThat(groups.get(Collections.<Object>singletonList((short) -3)), is((Object) 1L));
+        assertThat(groups.get(Collections.<Object>singletonList((short) 4)), is((Object) 2L));
+    }
+
+    @Test
+    public void testDoubleKeys() throws Exception {
+        ValueInput input = new ValueInput();
+        GroupByTable table = createTable(
+            ImmutableList.<DataType>of(DataTypes.DOUBLE), ImmutableList.<Input<?>>of(input));
+
+        for (double value : new double[]{0.5, -0.0, 0.0, 0.5, Double.NaN, Double.NaN}) {
+            input.value = value;
+            table.add();
+        }
+        Map<List<Object>, Object> groups = toMap(table);
+        assertThat(groups.size(), is(4));
+        assertThat(groups.get(Collections.<Object>singletonList(0.5)), is((Object) 2L));
+        assertThat(groups.get(Collections.<Object>singletonList(Double.NaN)), is((Object) 2L));
+    }
+
+    @Test
+    public void testBytesRefKeys() throws Exception {
+        ValueInput input = new ValueInput();
+        GroupByTable table = createTable(
+            ImmutableList.<DataType>of(DataTypes.STRING), ImmutableList.<Input<?>>of(input));
+
+        for (int i = 0; i < 5_000; i++) {
+            // use an offset into a larger array to make sure offset and length are respected
+            byte[] bytes = ("xx" + (i % 500) + "yy").getBytes(StandardCharsets.UTF_8);
+            input.value = new BytesRef(bytes, 2, bytes.length - 4);
+            table.add();
+        }
+        input.value = null;
+        table.add();
+        input.value = new BytesRef("");
+        table.add();
+
+        assertThat(table.size(), is(502));
+        Map<List<Object>, Object> groups = toMap(table);
+        assertThat(groups.get(Collections.<Object>singletonList(new BytesRef("499"))), is((Object) 10L));
+        assertThat(groups.get(Collections.<Object>singletonList(new BytesRef(""))), is((Object) 1L));
+        assertThat(groups.get(Collections.singletonList(null)), is((Object) 1L));
+    }
+
+    @Test
+    public void testCompositeFixedWidthKeys() throws Exception {
+        ValueInput first = new ValueInput();
+        ValueInput second = new ValueInput();
+        GroupByTable table = createTable(
+            ImmutableList.<DataType>of(DataTypes.INTEGER, DataTypes.BOOLEAN),
+            ImmutableList.<Input<?>>of(first, second));
+
+        for (int i = 0; i < 1_000; i++) {
+            first.value = i % 100;
+            second.value = i % 2 == 0;
+            table.add();
+        }
+        // null must not be equal to the default value of the primitive representation
+        first.value = 0;
+        second.value = null;
+        table.add();
+        first.value = null;
+        table.add();
+
+        assertThat(table.size(), is(102));
+        Map<List<Object>, Object> groups = toMap(table);
+        assertThat(groups.get(Arrays.<Object>asList(99, false)), is((Object) 10L));
+        assertThat(groups.get(Arrays.<Object>asList(0, null)), is((Object) 1L));
+        assertThat(groups.get(Arrays.<Object>asList(null, null)), is((Object) 1L));
+    }
+
+    @Test
+    public void testNoTableForUnsupportedKeyTypes() throws Exception {
+        assertThat(GroupByTables.create(
+            ImmutableList.<DataType>of(DataTypes.OBJECT),
+            ImmutableList.<Input<?>>of(new ValueInput()),
+            countAggregator,
+            RAM_ACCOUNTING_CONTEXT), nullValue());
+        assertThat(GroupByTables.create(
+            ImmutableList.<DataType>of(DataTypes.LONG, DataTypes.STRING),
+            ImmutableList.<Input<?>>of(new ValueInput(), new ValueInput()),
+            countAggregator,
+            RAM_ACCOUNTING_CONTEXT), nullValue());
+    }
+
+    private static class ValueInput implements Input<Object> {
+
+        private Object value;
+
+        @Override
+        public Object value() {
+            return value;
+        }
+    }
+}
@@ -22,8 +22,16 @@
 
 package io.crate.operation.projectors.sorting;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import io.crate.Streamer;
+import io.crate.core.collections.Buckets;
+import io.crate.core.collections.PrimitiveRow;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.executor.transport.StreamBucket;
 import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -85,4 +93,38 @@ public class OrderingByPositionTest extends CrateUnitTest {
         assertThat(ordering.compare(new Object[]{5, 1}, new Object[]{2, 2}), is(1));
         assertThat(ordering.compare(new Object[]{5, 1}, new Object[]{2, 2}), is(1));
     }
+
+    @Test
+    public void testRowOrderingOfPrimitiveRowsMatchesBoxedValues() throws Exception {
+        Object[][] rows = new Object[][]{
+            new Object[]{-3L, 2.5d},
+            new Object[]{7L, Double.NaN},
+            new Object[]{null, null},
+            new Object[]{7L, -0.0d}
+        };
+        StreamBucket.Builder builder = new StreamBucket.Builder(
+            new Streamer[]{DataTypes.LONG.streamer(), DataTypes.DOUBLE.streamer()});
+        for (Object[] row : rows) {
+            builder.add(new RowN(row));
+        }
+        StreamBucket bucket = builder.build();
+        Object[][] materialized = Buckets.materialize(bucket);
+
+        for (int position = 0; position < 2; position++) {
+            for (boolean reverse : new boolean[]{true, false}) {
+                for (Boolean nullsFirst : new Boolean[]{null, true, false}) {
+                    Ordering<Row> ordering = OrderingByPosition.rowOrdering(position, reverse, nullsFirst);
+                    for (int i = 0; i < rows.length; i++) {
+                        for (int j = 0; j < rows.length; j++) {
+                            Row left = Iterables.get(bucket, i);
+                            Row right = Iterables.get(bucket, j);
+                            assertThat(left instanceof PrimitiveRow, is(true));
+                            assertThat(ordering.compare(left, right),
+                                is(ordering.compare(new RowN(materialized[i]), new RowN(materialized[j]))));
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
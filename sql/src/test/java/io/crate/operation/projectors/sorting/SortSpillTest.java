@@ -0,0 +1,72 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.operation.projectors.sorting;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import io.crate.operation.OperationStats;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class SortSpillTest extends CrateUnitTest {
+
+    private static final List<DataType> ROW_TYPES = ImmutableList.<DataType>of(DataTypes.INTEGER, DataTypes.STRING);
+    private static final Ordering<Object[]> ORDERING = OrderingByPosition.arrayOrdering(0, false, null);
+
+    private static Object[] row(Integer value) {
+        return new Object[]{value, value == null ? null : new BytesRef("v" + value)};
+    }
+
+    @Test
+    public void testRunsAreMergedWithTheRowsInMemory() throws Exception {
+        OperationStats operationStats = new OperationStats();
+        List<Object[]> merged = new ArrayList<>();
+        try (SortSpill spill = new SortSpill(ROW_TYPES, operationStats)) {
+            spill.spill(Arrays.asList(row(1), row(4), row(7), row(null)));
+            spill.spill(Arrays.asList(row(2), row(5), row(8)));
+            List<Object[]> inMemory = Arrays.asList(row(3), row(6), row(9));
+
+            for (Object[] cells : spill.merge(inMemory, ORDERING.reverse())) {
+                merged.add(cells);
+            }
+            assertThat(spill.numRuns(), is(2));
+        }
+        assertThat(merged.size(), is(10));
+        for (int i = 0; i < 9; i++) {
+            assertThat(merged.get(i), is(row(i + 1)));
+        }
+        // nulls are sorted last in ascending order
+        assertThat(merged.get(9), is(row(null)));
+        assertThat(operationStats.spilledPartitions(), is(2));
+        assertThat(operationStats.spilledBytes(), greaterThan(0L));
+    }
+}
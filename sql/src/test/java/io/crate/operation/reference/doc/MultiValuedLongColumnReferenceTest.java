@@ -0,0 +1,114 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.operation.reference.doc;
+
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.operation.reference.doc.lucene.LongColumnReference;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+
+public class MultiValuedLongColumnReferenceTest extends DocLevelExpressionsTest {
+
+    private static final int NUM_SINGLE_VALUED_DOCS = 10;
+
+    @Override
+    protected void insertValues(IndexWriter writer) throws Exception {
+        for (long l = 0; l < NUM_SINGLE_VALUED_DOCS; l++) {
+            Document doc = new Document();
+            doc.add(new StringField("_id", Long.toString(l), Field.Store.NO));
+            doc.add(new LongField(fieldName().indexName(), l, Field.Store.NO));
+            writer.addDocument(doc);
+        }
+        Document doc = new Document();
+        doc.add(new StringField("_id", "multi", Field.Store.NO));
+        doc.add(new LongField(fieldName().indexName(), 100L, Field.Store.NO));
+        doc.add(new LongField(fieldName().indexName(), 200L, Field.Store.NO));
+        writer.addDocument(doc);
+    }
+
+    @Override
+    protected MappedFieldType.Names fieldName() {
+        return new MappedFieldType.Names("l");
+    }
+
+    @Override
+    protected FieldDataType fieldType() {
+        return new FieldDataType("long");
+    }
+
+    private LongColumnReference column() throws Exception {
+        LongColumnReference longColumn = new LongColumnReference(fieldName().indexName());
+        longColumn.startCollect(ctx);
+        longColumn.setNextReader(readerContext);
+        return longColumn;
+    }
+
+    private int[] allDocs() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(readerContext.reader());
+        TopDocs topDocs = searcher.search(new MatchAllDocsQuery(), 20);
+        int[] docs = new int[topDocs.scoreDocs.length];
+        int i = 0;
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            docs[i++] = scoreDoc.doc;
+        }
+        assertThat(docs.length, is(NUM_SINGLE_VALUED_DOCS + 1));
+        return docs;
+    }
+
+    @Test
+    public void testDocsBeforeMultiValuedDocCanBeConsumed() throws Exception {
+        // like a LIMIT which stops before the multi valued document is emitted
+        LongColumnReference longColumn = column();
+        int[] docs = allDocs();
+        for (int i = 0; i < NUM_SINGLE_VALUED_DOCS; i++) {
+            longColumn.setNextDocId(docs[i]);
+            assertThat(longColumn.isNull(), is(false));
+            assertThat(longColumn.value(), is((long) i));
+            assertThat(longColumn.longValue(), is((long) i));
+        }
+    }
+
+    @Test
+    public void testMultiValuedDocFailsOnceConsumed() throws Exception {
+        LongColumnReference longColumn = column();
+        int[] docs = allDocs();
+        try {
+            longColumn.setNextDocId(docs[NUM_SINGLE_VALUED_DOCS]);
+            fail("the multi valued document must not be emitted");
+        } catch (GroupByOnArrayUnsupportedException e) {
+            assertThat(e.getMessage(), is("Column \"l\" has a value that is an array. Group by doesn't work on Arrays"));
+        }
+    }
+}
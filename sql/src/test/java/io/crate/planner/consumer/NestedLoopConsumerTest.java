@@ -34,8 +34,10 @@ import io.crate.metadata.doc.DocTableInfo;
 import io.crate.metadata.table.TestingTableInfo;
 import io.crate.operation.projectors.TopN;
 import io.crate.planner.*;
+import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.*;
+import io.crate.planner.node.dql.join.JoinType;
 import io.crate.planner.node.dql.join.NestedLoop;
 import io.crate.planner.node.dql.join.NestedLoopPhase;
 import io.crate.planner.projection.FetchProjection;
@@ -110,6 +112,7 @@ public class NestedLoopConsumerTest extends CrateUnitTest {
         when(statsService.numDocs(eq(TableDefinitions.USER_TABLE_IDENT))).thenReturn(10L);
         when(statsService.numDocs(eq(TableDefinitions.USER_TABLE_IDENT_MULTI_PK))).thenReturn(5000L);
         when(statsService.numDocs(eq(emptyRoutingTable.ident()))).thenReturn(0L);
+        when(statsService.numDocs(eq(TableDefinitions.USER_TABLE_IDENT_CLUSTERED_BY_ONLY))).thenReturn(1_000_000L);
         return statsService;
     }
 
@@ -190,6 +193,30 @@ public class NestedLoopConsumerTest extends CrateUnitTest {
         assertThat(collect.collectPhase().distributionInfo().distributionType(), is(DistributionType.BROADCAST));
     }
 
+    @Test
+    public void testOutputPositionsIfLeftTableIsBroadcast() throws Exception {
+        Merge merge = plan("select users.name, users.id, u2.name from users, users_multi_pk u2 " +
+                           "where users.name = u2.name " +
+                           "order by users.name, u2.name ");
+        NestedLoop nl = (NestedLoop) merge.subPlan();
+        CollectPhase cpLeft = ((Collect) nl.left()).collectPhase();
+        CollectPhase cpRight = ((Collect) nl.right()).collectPhase();
+        assertThat(cpLeft.distributionInfo().distributionType(), is(DistributionType.BROADCAST));
+        assertThat(cpLeft.toCollect().size(), is(2));
+        assertThat(cpRight.toCollect(), contains(isReference("name")));
+
+        // the output counts and positions must refer to the original sides, not to the broadcast and collect side
+        NestedLoopPhase nlp = nl.nestedLoopPhase();
+        assertThat(nlp.joinType(), is(JoinType.INNER));
+        assertThat(nlp.numLeftOutputs(), is(2));
+        assertThat(nlp.numRightOutputs(), is(1));
+        assertThat(nlp.rightJoinKeys(), isSQL("INPUT(0)"));
+
+        TopNProjection topN = (TopNProjection) nlp.projections().get(nlp.projections().size() - 1);
+        assertThat(topN.outputs().size(), is(3));
+        assertThat(topN.outputs().get(2), isSQL("INPUT(2)"));
+    }
+
 
     @Test
     public void testExplicitCrossJoinWithoutLimitOrOrderBy() throws Exception {
@@ -308,6 +335,70 @@ public class NestedLoopConsumerTest extends CrateUnitTest {
         assertThat(cpRight.toCollect(), contains(isReference("id")));
     }
 
+    @Test
+    public void testEquiJoinInWhereClauseIsPlannedAsHashJoin() throws Exception {
+        Merge merge = plan("select u1.name from users u1, users u2 where u1.id = u2.id order by 1");
+        NestedLoopPhase nlp = ((NestedLoop) merge.subPlan()).nestedLoopPhase();
+        assertThat(nlp.isHashJoin(), is(true));
+        assertThat(nlp.leftJoinKeys(), isSQL("INPUT(0)"));
+        assertThat(nlp.rightJoinKeys(), isSQL("INPUT(0)"));
+        // the order of the left side must be kept
+        assertThat(nlp.buildLeft(), is(false));
+    }
+
+    @Test
+    public void testNonEquiJoinConditionIsPlannedAsNestedLoop() throws Exception {
+        QueryThenFetch qtf = plan("select u1.name, u2.name from users u1 join users u2 on u1.id > u2.id");
+        NestedLoopPhase nlp = ((NestedLoop) qtf.subPlan()).nestedLoopPhase();
+        assertThat(nlp.isHashJoin(), is(false));
+    }
+
+    @Test
+    public void testHashJoinBuildsOnSmallerTable() throws Exception {
+        QueryThenFetch qtf = plan("select users.name, u2.name from users join users_multi_pk u2 on users.id = u2.id");
+        NestedLoopPhase nlp = ((NestedLoop) qtf.subPlan()).nestedLoopPhase();
+        assertThat(nlp.isHashJoin(), is(true));
+        assertThat(nlp.buildLeft(), is(true));
+    }
+
+    @Test
+    public void testLargeEquiJoinIsShuffled() throws Exception {
+        Plan plan = plan("select u1.id, u2.id from users_clustered_by_only u1 " +
+                         "join users_clustered_by_only u2 on u1.id = u2.id");
+        NestedLoop nl = unwrapNestedLoop(plan);
+        NestedLoopPhase nlp = nl.nestedLoopPhase();
+        assertThat(nlp.isHashJoin(), is(true));
+        assertThat(nlp.name(), is("distributed-hash-join"));
+        assertThat(nlp.nodeIds(), contains("nodeOne", "nodeTow"));
+        assertThat(nlp.leftMergePhase(), notNullValue());
+        assertThat(nlp.rightMergePhase(), notNullValue());
+
+        DistributionInfo leftDistribution = ((Collect) nl.left()).collectPhase().distributionInfo();
+        assertThat(leftDistribution.distributionType(), is(DistributionType.MODULO));
+        assertThat(leftDistribution.distributeByColumn(), is(0));
+        DistributionInfo rightDistribution = ((Collect) nl.right()).collectPhase().distributionInfo();
+        assertThat(rightDistribution.distributionType(), is(DistributionType.MODULO));
+        assertThat(rightDistribution.distributeByColumn(), is(0));
+    }
+
+    @Test
+    public void testSmallEquiJoinIsNotShuffled() throws Exception {
+        Plan plan = plan("select u1.id, u2.id from users u1 join users u2 on u1.id = u2.id");
+        NestedLoopPhase nlp = unwrapNestedLoop(plan).nestedLoopPhase();
+        assertThat(nlp.isHashJoin(), is(true));
+        assertThat(nlp.name(), is("hash-join"));
+    }
+
+    private static NestedLoop unwrapNestedLoop(Plan plan) {
+        if (plan instanceof QueryThenFetch) {
+            return unwrapNestedLoop(((QueryThenFetch) plan).subPlan());
+        }
+        if (plan instanceof Merge) {
+            return unwrapNestedLoop(((Merge) plan).subPlan());
+        }
+        return (NestedLoop) plan;
+    }
+
     @Test
     public void testEmptyRoutingSource() throws Exception {
         Plan plan = plan("select e.nope, u.name from empty e, users u order by e.nope, u.name");
@@ -23,6 +23,7 @@ package io.crate.planner.node.dql;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import io.crate.analyze.symbol.InputColumn;
 import io.crate.analyze.symbol.Symbol;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.node.dql.join.JoinType;
@@ -100,4 +101,40 @@ public class NestedLoopPhaseTest extends CrateUnitTest {
         assertThat(node.numLeftOutputs(), is(node2.numLeftOutputs()));
         assertThat(node.numRightOutputs(), is(node2.numRightOutputs()));
     }
+
+    @Test
+    public void testHashJoinSerialization() throws Exception {
+        TopNProjection topNProjection = new TopNProjection(10, 0, Collections.emptyList());
+        SqlExpressions sqlExpressions = new SqlExpressions(T3.SOURCES, T3.TR_1);
+        Symbol joinCondition = sqlExpressions.normalize(sqlExpressions.asSymbol("t1.x = t1.i"));
+        NestedLoopPhase node = new NestedLoopPhase(
+            UUID.randomUUID(),
+            1,
+            "hash-join",
+            ImmutableList.of(topNProjection),
+            null,
+            null,
+            Sets.newHashSet("node1"),
+            JoinType.LEFT,
+            joinCondition,
+            2,
+            1,
+            ImmutableList.<Symbol>of(new InputColumn(1, DataTypes.INTEGER)),
+            ImmutableList.<Symbol>of(new InputColumn(0, DataTypes.INTEGER)),
+            true
+        );
+
+        BytesStreamOutput output = new BytesStreamOutput();
+        node.writeTo(output);
+
+        StreamInput input = StreamInput.wrap(output.bytes());
+        NestedLoopPhase node2 = new NestedLoopPhase();
+        node2.readFrom(input);
+
+        assertThat(node2.isHashJoin(), is(true));
+        assertThat(node2.leftJoinKeys(), is(node.leftJoinKeys()));
+        assertThat(node2.rightJoinKeys(), is(node.rightJoinKeys()));
+        assertThat(node2.buildLeft(), is(true));
+        assertThat(node2.joinType(), is(JoinType.LEFT));
+    }
 }
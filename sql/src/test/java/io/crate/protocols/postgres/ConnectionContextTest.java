@@ -23,7 +23,9 @@
 package io.crate.protocols.postgres;
 
 import io.crate.action.sql.Option;
+import io.crate.action.sql.ResultCache;
 import io.crate.action.sql.SQLOperations;
+import io.crate.action.sql.StatementCache;
 import io.crate.executor.Executor;
 import io.crate.operation.collect.StatsTables;
 import io.crate.testing.SQLExecutor;
@@ -70,6 +72,8 @@ public class ConnectionContextTest {
                 }
             },
             new StatsTables(Settings.EMPTY, new NodeSettingsService(Settings.EMPTY)),
+            new StatementCache(Settings.EMPTY),
+            mock(ResultCache.class),
             Settings.EMPTY,
             clusterService
         ) {
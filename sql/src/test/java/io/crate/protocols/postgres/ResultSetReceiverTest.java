@@ -0,0 +1,112 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.core.collections.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.apache.lucene.util.BytesRef;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+public class ResultSetReceiverTest extends CrateUnitTest {
+
+    @Test
+    public void testRowsAreWrittenInOneBufferOnceFinished() throws Exception {
+        Channel channel = mock(Channel.class, Answers.RETURNS_MOCKS.get());
+        ResultSetReceiver receiver = new ResultSetReceiver(
+            "select ...", channel, Arrays.asList(DataTypes.INTEGER, DataTypes.STRING), null);
+        receiver.setNextRow(new RowN(new Object[]{1, new BytesRef("foo")}));
+        receiver.setNextRow(new RowN(new Object[]{2, null}));
+        receiver.setNextRow(new RowN(new Object[]{3, new BytesRef("bar")}));
+        verify(channel, never()).write(any());
+
+        receiver.allFinished();
+
+        ArgumentCaptor<Object> writeCaptor = ArgumentCaptor.forClass(Object.class);
+        // the rows and the CommandComplete message
+        verify(channel, times(2)).write(writeCaptor.capture());
+        ChannelBuffer buffer = (ChannelBuffer) writeCaptor.getAllValues().get(0);
+        int numRows = 0;
+        while (buffer.readable()) {
+            assertThat((char) buffer.readByte(), is('D'));
+            int length = buffer.readInt();
+            buffer.skipBytes(length - 4);
+            numRows++;
+        }
+        assertThat(numRows, is(3));
+    }
+
+    @Test
+    public void testRowsAreFlushedOnceTheThresholdIsReached() throws Exception {
+        Channel channel = mock(Channel.class, Answers.RETURNS_MOCKS.get());
+        ResultSetReceiver receiver = new ResultSetReceiver(
+            "select ...", channel, Arrays.asList(DataTypes.LONG, DataTypes.STRING), null);
+        BytesRef value = new BytesRef(new byte[1024]);
+        for (long i = 0; i < 200; i++) {
+            receiver.setNextRow(new RowN(new Object[]{i, value}));
+        }
+        receiver.batchFinished();
+
+        ArgumentCaptor<Object> writeCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(channel, atLeast(4)).write(writeCaptor.capture());
+        List<Object> writes = writeCaptor.getAllValues();
+        // ~200kb of rows: all but the last buffer of rows exceeded the threshold
+        for (int i = 0; i < 3; i++) {
+            assertThat(((ChannelBuffer) writes.get(i)).readableBytes(),
+                greaterThanOrEqualTo(ResultSetReceiver.FLUSH_THRESHOLD_BYTES));
+        }
+    }
+
+    @Test
+    public void testRowWhichFailsToEncodeIsNotSent() throws Exception {
+        Channel channel = mock(Channel.class, Answers.RETURNS_MOCKS.get());
+        ResultSetReceiver receiver = new ResultSetReceiver(
+            "select ...", channel, Arrays.asList(DataTypes.INTEGER, DataTypes.INTEGER),
+            new FormatCodes.FormatCode[]{FormatCodes.FormatCode.BINARY});
+        receiver.setNextRow(new RowN(new Object[]{1, 2}));
+        try {
+            receiver.setNextRow(new RowN(new Object[]{3, "not an integer"}));
+            fail("encoding the row should have failed");
+        } catch (ClassCastException e) {
+            receiver.fail(e);
+        }
+
+        ArgumentCaptor<Object> writeCaptor = ArgumentCaptor.forClass(Object.class);
+        // the rows and the ErrorResponse message
+        verify(channel, times(2)).write(writeCaptor.capture());
+        ChannelBuffer buffer = (ChannelBuffer) writeCaptor.getAllValues().get(0);
+        assertThat((char) buffer.readByte(), is('D'));
+        buffer.skipBytes(buffer.readInt() - 4);
+        assertThat(buffer.readable(), is(false));
+    }
+}
@@ -24,6 +24,8 @@ package io.crate.protocols.postgres.types;
 
 import org.hamcrest.Matchers;
 import org.hamcrest.core.Is;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
@@ -147,4 +149,34 @@ public class PGArrayTest {
         o = pgArray.decodeUTF8Text("{{{\"1\",NULL,\"2\"},{NULL,\"3\",\"4\"}},{{\"5\",NULL,\"6\"},{\"7\"}}".getBytes(StandardCharsets.UTF_8));
         assertThat(((Object[]) o), Is.<Object[]>is(new Object[][][] {{{1, null, 2}, {null, 3, 4}}, {{5, null, 6}, {7}}}));
     }
+
+    @Test
+    public void testWriteAsBinary() throws Exception {
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        int bytesWritten = pgArray.writeAsBinary(buffer, new Object[]{10, null});
+        assertThat(bytesWritten, is(buffer.readableBytes()));
+
+        assertThat(buffer.readInt(), is(bytesWritten - 4)); // length
+        assertThat(buffer.readInt(), is(1)); // dimensions
+        assertThat(buffer.readInt(), is(1)); // has nulls
+        assertThat(buffer.readInt(), is(IntegerType.OID));
+        assertThat(buffer.readInt(), is(2)); // number of elements
+        assertThat(buffer.readInt(), is(1)); // lower bound
+        assertThat(buffer.readInt(), is(4));
+        assertThat(buffer.readInt(), is(10));
+        assertThat(buffer.readInt(), is(-1));
+    }
+
+    @Test
+    public void testWriteAsTextWritesSameBytesAsEncode() throws Exception {
+        Object[] array = new Object[][]{{1, 2}, {3, null}, {5, 6}};
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        int bytesWritten = pgArray.writeAsText(buffer, array);
+        assertThat(bytesWritten, is(buffer.readableBytes()));
+        assertThat(buffer.readInt(), is(bytesWritten - 4));
+
+        String s = buffer.toString(StandardCharsets.UTF_8);
+        assertThat(s, is("{{\"1\",\"2\"},{\"3\",NULL},{\"5\",\"6\"}}"));
+        assertThat(s, is(new String(pgArray.encodeAsUTF8Text(array), StandardCharsets.UTF_8)));
+    }
 }
@@ -26,6 +26,8 @@ import com.google.common.collect.ImmutableList;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingHelpers;
 import io.crate.types.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.collect.MapBuilder;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
@@ -88,7 +90,13 @@ public class PGTypesTest extends CrateUnitTest {
             new Entry(new ArrayType(DataTypes.INTEGER), new Integer[] {10, null, 20}),
             new Entry(new ArrayType(DataTypes.INTEGER), new Integer[0]),
             new Entry(new ArrayType(DataTypes.INTEGER), new Integer[] {null, null}),
-            new Entry(new ArrayType(DataTypes.INTEGER), new Integer[][] { new Integer[] {10, null, 20}, new Integer[] { 1, 2, 3}})
+            new Entry(new ArrayType(DataTypes.INTEGER), new Integer[][] { new Integer[] {10, null, 20}, new Integer[] { 1, 2, 3}}),
+            new Entry(new ArrayType(DataTypes.INTEGER), new Integer[][] { new Integer[] {1, 2}, new Integer[] {3, 4}, new Integer[] {5, 6}}),
+            new Entry(new ArrayType(DataTypes.DOUBLE), new Double[] {1.5, null, -2.25}),
+            new Entry(new ArrayType(DataTypes.TIMESTAMP), new Long[] {DataTypes.TIMESTAMP.value("2014-05-08T16:34:33.123"), null}),
+            new Entry(new ArrayType(DataTypes.STRING), new BytesRef[] {new BytesRef("foo"), new BytesRef("bar")}),
+            new Entry(new ArrayType(DataTypes.IP), new BytesRef[] {new BytesRef("192.168.1.1")}),
+            new Entry(DataTypes.OBJECT, MapBuilder.<String, Object>newMapBuilder().put("x", 10).put("y", "foo").map())
         )) {
 
             PGType pgType = PGTypes.get(entry.type);
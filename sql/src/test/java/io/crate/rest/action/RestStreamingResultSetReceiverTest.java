@@ -0,0 +1,185 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.rest.action;
+
+import com.google.common.collect.ImmutableList;
+import io.crate.analyze.symbol.Field;
+import io.crate.core.collections.Row;
+import io.crate.core.collections.RowN;
+import io.crate.metadata.ColumnIdent;
+import io.crate.operation.projectors.ResumeHandle;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class RestStreamingResultSetReceiverTest extends CrateUnitTest {
+
+    private final List<Field> fields = ImmutableList.of(
+        new Field(null, ColumnIdent.fromPath("doc.col_a"), DataTypes.STRING),
+        new Field(null, ColumnIdent.fromPath("doc.col_b"), DataTypes.INTEGER)
+    );
+
+    private RestChannel restChannel;
+    private Channel channel;
+    private ChannelFuture writeFuture;
+
+    @Before
+    public void prepare() throws Exception {
+        restChannel = mock(RestChannel.class);
+        when(restChannel.request()).thenReturn(mock(RestRequest.class));
+        channel = mock(Channel.class);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.isWritable()).thenReturn(true);
+        writeFuture = new DefaultChannelFuture(channel, false);
+        when(channel.write(any())).thenReturn(writeFuture);
+    }
+
+    private RestStreamingResultSetReceiver newReceiver() throws Exception {
+        return new RestStreamingResultSetReceiver(restChannel, channel, fields, 0L, false);
+    }
+
+    private static Row row(int i) {
+        return new RowN(new Object[]{"some value which makes the row a little bit longer " + i, i});
+    }
+
+    private List<Object> writtenMessages() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(channel, atLeastOnce()).write(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    public void testSmallResultIsSentAsSingleResponse() throws Exception {
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        receiver.setNextRow(row(1));
+        receiver.allFinished();
+
+        verify(restChannel, times(1)).sendResponse(any(RestResponse.class));
+        verify(channel, never()).write(any());
+        assertThat(receiver.completionFuture().isDone(), is(true));
+    }
+
+    @Test
+    public void testLargeResultIsStreamedInChunks() throws Exception {
+        int numRows = 10_000;
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        for (int i = 0; i < numRows; i++) {
+            receiver.setNextRow(row(i));
+        }
+        receiver.allFinished();
+        verify(restChannel, never()).sendResponse(any(RestResponse.class));
+
+        List<Object> messages = writtenMessages();
+        assertThat(messages.get(0), instanceOf(HttpResponse.class));
+        assertThat(((HttpResponse) messages.get(0)).isChunked(), is(true));
+        assertThat(messages.get(messages.size() - 1), sameInstance((Object) HttpChunk.LAST_CHUNK));
+        assertThat(messages.size(), greaterThan(3));
+
+        StringBuilder content = new StringBuilder();
+        for (Object message : messages.subList(1, messages.size())) {
+            content.append(((HttpChunk) message).getContent().toString(StandardCharsets.UTF_8));
+        }
+        Map<String, Object> response = JsonXContent.jsonXContent.createParser(content.toString()).map();
+        assertThat(response.get("cols"), is((Object) ImmutableList.of("col_a", "col_b")));
+        assertThat(((List) response.get("rows")).size(), is(numRows));
+        assertThat(response.get("rowcount"), is((Object) numRows));
+    }
+
+    @Test
+    public void testFailureAfterResponseStartedIsAddedToTheResponse() throws Exception {
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        for (int i = 0; i < 5_000; i++) {
+            receiver.setNextRow(row(i));
+        }
+        receiver.fail(new IllegalStateException("dummy"));
+        verify(restChannel, never()).sendResponse(any(RestResponse.class));
+
+        List<Object> messages = writtenMessages();
+        StringBuilder content = new StringBuilder();
+        for (Object message : messages.subList(1, messages.size())) {
+            content.append(((HttpChunk) message).getContent().toString(StandardCharsets.UTF_8));
+        }
+        Map<String, Object> response = JsonXContent.jsonXContent.createParser(content.toString()).map();
+        assertThat(response.get("error"), notNullValue());
+        assertThat(receiver.completionFuture().isDone(), is(true));
+    }
+
+    @Test
+    public void testSaturatedReceiverResumesOnceWritesCompleted() throws Exception {
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        for (int i = 0; i < 5_000; i++) {
+            receiver.setNextRow(row(i));
+        }
+        assertThat(receiver.isSaturated(), is(false));
+        when(channel.isWritable()).thenReturn(false);
+        assertThat(receiver.isSaturated(), is(true));
+
+        ResumeHandle resumeHandle = mock(ResumeHandle.class);
+        receiver.resumeWhenReady(resumeHandle);
+        verify(resumeHandle, never()).resume(anyBoolean());
+
+        writeFuture.setSuccess();
+        verify(resumeHandle, times(1)).resume(true);
+    }
+
+    @Test
+    public void testClientDisconnectCompletesTheReceiver() throws Exception {
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        receiver.setNextRow(row(1));
+        when(channel.isOpen()).thenReturn(false);
+        receiver.setNextRow(row(2));
+        assertThat(receiver.completionFuture().isDone(), is(true));
+
+        receiver.allFinished();
+        verify(restChannel, never()).sendResponse(any(RestResponse.class));
+        verify(channel, never()).write(any());
+    }
+
+    @Test
+    public void testFailureAfterAllFinishedDoesNotSendASecondResponse() throws Exception {
+        RestStreamingResultSetReceiver receiver = newReceiver();
+        receiver.setNextRow(row(1));
+        receiver.allFinished();
+        receiver.fail(new IllegalStateException("dummy"));
+
+        verify(restChannel, times(1)).sendResponse(any(RestResponse.class));
+        verify(channel, never()).write(any());
+    }
+}
@@ -38,6 +38,7 @@ import io.crate.metadata.Functions;
 import io.crate.metadata.ReplaceMode;
 import io.crate.metadata.Routing;
 import io.crate.metadata.TransactionContext;
+import io.crate.operation.OperationStats;
 import io.crate.operation.collect.CrateCollector;
 import io.crate.operation.collect.JobCollectContext;
 import io.crate.operation.collect.MapSideDataCollectOperation;
@@ -95,7 +96,7 @@ public class LuceneDocCollectorProvider implements AutoCloseable {
         JobExecutionContext.Builder builder = jobContextService.newBuilder(collectPhase.jobId());
         JobCollectContext jobCollectContext = new JobCollectContext(
             collectPhase, collectOperation, cluster.clusterService().state().nodes().localNodeId(),
-            RAM_ACCOUNTING_CONTEXT, downstream, sharedShardContexts);
+            RAM_ACCOUNTING_CONTEXT, new OperationStats(), downstream, sharedShardContexts);
         collectContexts.add(jobCollectContext);
         builder.addSubContext(jobCollectContext);
         jobContextService.createContext(builder);
@@ -45,12 +45,16 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.Test;
 import org.mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.isA;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -268,6 +272,136 @@ public class BulkShardProcessorTest extends CrateUnitTest {
         assertThat(bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{"bar1"}, null), null), is(false));
     }
 
+    @Test
+    public void testRequestIsSentOnceItReachesTheRequestSizeOfTheShard() throws Exception {
+        final List<ShardUpsertRequest> requests = Collections.synchronizedList(new ArrayList<ShardUpsertRequest>());
+        BulkShardProcessor<ShardUpsertRequest> bulkShardProcessor = newAdaptiveBulkShardProcessor(
+            Settings.builder().put(BulkShardProcessor.MAX_REQUEST_SIZE_SETTING, "64kb").build(),
+            new BulkRequestExecutor<ShardUpsertRequest>() {
+                @Override
+                public void execute(ShardUpsertRequest request, ActionListener<ShardResponse> listener) {
+                    requests.add(request);
+                }
+            });
+        String value = new String(new char[40_000]).replace('\0', 'x');
+
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{value}, null), null);
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("2", null, new Object[]{value}, null), null);
+        assertThat(requests, hasSize(0));
+
+        // the request for shard 1 exceeds 64kb now, the request for shard 2 isn't sent yet
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{value}, null), null);
+        assertThat(requests, hasSize(1));
+        assertThat(requests.get(0).shardId(), is(new ShardId("foo", 1)));
+        assertThat(requests.get(0).itemIndices().size(), is(2));
+
+        bulkShardProcessor.close();
+        assertThat(requests, hasSize(2));
+        assertThat(requests.get(1).shardId(), is(new ShardId("foo", 2)));
+    }
+
+    @Test
+    public void testSaturatedProcessorResumesOnceRequestsAreDone() throws Exception {
+        final AtomicReference<ActionListener<ShardResponse>> ref = new AtomicReference<>();
+        BulkShardProcessor<ShardUpsertRequest> bulkShardProcessor = newAdaptiveBulkShardProcessor(
+            Settings.builder()
+                .put(BulkShardProcessor.MAX_REQUEST_SIZE_SETTING, "64kb")
+                .put(BulkShardProcessor.MAX_IN_FLIGHT_SIZE_SETTING, "64kb")
+                .build(),
+            new BulkRequestExecutor<ShardUpsertRequest>() {
+                @Override
+                public void execute(ShardUpsertRequest request, ActionListener<ShardResponse> listener) {
+                    ref.set(listener);
+                }
+            });
+        String value = new String(new char[40_000]).replace('\0', 'x');
+
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{value}, null), null);
+        assertThat(bulkShardProcessor.isSaturated(), is(false));
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{value}, null), null);
+        assertThat(bulkShardProcessor.isSaturated(), is(true));
+
+        final AtomicBoolean resumed = new AtomicBoolean(false);
+        bulkShardProcessor.resumeWhenReady(new Runnable() {
+            @Override
+            public void run() {
+                resumed.set(true);
+            }
+        });
+        assertThat(resumed.get(), is(false));
+
+        ShardResponse response = new ShardResponse();
+        response.add(0);
+        response.add(1);
+        ref.get().onResponse(response);
+        assertThat(resumed.get(), is(true));
+        assertThat(bulkShardProcessor.isSaturated(), is(false));
+
+        bulkShardProcessor.close();
+        assertThat(bulkShardProcessor.result().get().cardinality(), is(2));
+    }
+
+    @Test
+    public void testSaturatedProcessorResumesOnKill() throws Exception {
+        BulkShardProcessor<ShardUpsertRequest> bulkShardProcessor = newAdaptiveBulkShardProcessor(
+            Settings.builder()
+                .put(BulkShardProcessor.MAX_REQUEST_SIZE_SETTING, "64kb")
+                .put(BulkShardProcessor.MAX_IN_FLIGHT_SIZE_SETTING, "64kb")
+                .build(),
+            new BulkRequestExecutor<ShardUpsertRequest>() {
+                @Override
+                public void execute(ShardUpsertRequest request, ActionListener<ShardResponse> listener) {
+                }
+            });
+        String value = new String(new char[70_000]).replace('\0', 'x');
+        bulkShardProcessor.add("foo", new ShardUpsertRequest.Item("1", null, new Object[]{value}, null), null);
+        assertThat(bulkShardProcessor.isSaturated(), is(true));
+
+        final AtomicBoolean resumed = new AtomicBoolean(false);
+        bulkShardProcessor.resumeWhenReady(new Runnable() {
+            @Override
+            public void run() {
+                resumed.set(true);
+            }
+        });
+        bulkShardProcessor.kill(new InterruptedException());
+        assertThat(resumed.get(), is(true));
+    }
+
+    private BulkShardProcessor<ShardUpsertRequest> newAdaptiveBulkShardProcessor(
+        Settings settings, BulkRequestExecutor<ShardUpsertRequest> requestExecutor) {
+        ClusterService clusterService = mock(ClusterService.class);
+        OperationRouting operationRouting = mock(OperationRouting.class);
+        mockShard(operationRouting, 1);
+        mockShard(operationRouting, 2);
+        when(clusterService.operationRouting()).thenReturn(operationRouting);
+
+        BulkRetryCoordinator bulkRetryCoordinator = new BulkRetryCoordinator(threadPool);
+        BulkRetryCoordinatorPool coordinatorPool = mock(BulkRetryCoordinatorPool.class);
+        when(coordinatorPool.coordinator(any(ShardId.class))).thenReturn(bulkRetryCoordinator);
+
+        ShardUpsertRequest.Builder builder = new ShardUpsertRequest.Builder(
+            TimeValue.timeValueMillis(10),
+            false,
+            false,
+            null,
+            new Reference[]{fooRef},
+            UUID.randomUUID()
+        );
+        return new BulkShardProcessor<>(
+            clusterService,
+            mock(TransportBulkCreateIndicesAction.class),
+            new IndexNameExpressionResolver(Settings.EMPTY),
+            settings,
+            coordinatorPool,
+            false,
+            BulkShardProcessor.DEFAULT_BULK_SIZE,
+            builder,
+            requestExecutor,
+            UUID.randomUUID()
+        );
+    }
+
     private void mockShard(OperationRouting operationRouting, Integer shardId) {
         ShardIterator shardIterator = mock(ShardIterator.class);
         when(operationRouting.indexShards(